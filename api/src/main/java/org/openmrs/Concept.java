@@ -14,13 +14,11 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Date;
-import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Locale;
-import java.util.Map;
 import java.util.Set;
 import java.util.TreeSet;
 import java.util.Vector;
@@ -123,10 +121,15 @@ public class Concept extends BaseOpenmrsObject implements Auditable, Retireable,
 	private Collection<ConceptMap> conceptMappings;
 	
 	/**
-	 * A cache of locales to names which have compatible locales. Built on-the-fly by
-	 * getCompatibleNames().
+	 * The names resolved per locale, built on-the-fly by the name lookups and rebuilt once the names
+	 * change
 	 */
-	private Map<Locale, List<ConceptName>> compatibleCache;
+	private transient volatile ConceptNameTable nameTable;
+	
+	/**
+	 * The number of times names were added, removed, replaced or changed
+	 */
+	private transient int namesModCount;
 
 	private Set<ConceptAttribute> attributes = new LinkedHashSet<>();
 
@@ -590,7 +593,7 @@ public class Concept extends BaseOpenmrsObject implements Auditable, Retireable,
 	public ConceptName getName(Locale locale, boolean exact) {
 		
 		// fail early if this concept has no names defined
-		if (getNames().isEmpty()) {
+		if (getNameTable().isEmpty()) {
 			if (log.isDebugEnabled()) {
 				log.debug("there are no names defined for: " + conceptId);
 			}
@@ -622,6 +625,10 @@ public class Concept extends BaseOpenmrsObject implements Auditable, Retireable,
 	 * @return null if name in given locale doesn't exist
 	 */
 	private ConceptName getNameInLocale(Locale locale) {
+		return getNameTable().getName(ConceptNameTable.Kind.BEST, locale, this::findNameInLocale);
+	}
+	
+	private ConceptName findNameInLocale(Locale locale) {
 		ConceptName preferredName = getPreferredName(locale);
 		if (preferredName != null) {
 			return preferredName;
@@ -646,12 +653,17 @@ public class Concept extends BaseOpenmrsObject implements Auditable, Retireable,
 	 * @should return the fully specified name if no name is explicitly marked as locale preferred
 	 */
 	public ConceptName getPreferredName(Locale forLocale) {
+		return getNameTable().getName(ConceptNameTable.Kind.PREFERRED, forLocale, this::findPreferredName);
+	}
+	
+	private ConceptName findPreferredName(Locale forLocale) {
 		
 		if (log.isDebugEnabled()) {
 			log.debug("Getting preferred conceptName for locale: " + forLocale);
 		}
 		// fail early if this concept has no names defined
-		if (getNames(forLocale).isEmpty()) {
+		ConceptNameTable table = getNameTable();
+		if (table.getNames(forLocale).isEmpty()) {
 			if (log.isDebugEnabled()) {
 				log.debug("there are no names defined for concept with id: " + conceptId + " in the  locale: " + forLocale);
 			}
@@ -661,7 +673,7 @@ public class Concept extends BaseOpenmrsObject implements Auditable, Retireable,
 			return null;
 		}
 		
-		for (ConceptName nameInLocale : getNames(forLocale)) {
+		for (ConceptName nameInLocale : table.getNames(forLocale)) {
 			if (ObjectUtils.nullSafeEquals(nameInLocale.getLocalePreferred(), true)) {
 				return nameInLocale;
 			}
@@ -670,7 +682,7 @@ public class Concept extends BaseOpenmrsObject implements Auditable, Retireable,
 		// look for partially locale match - any language matches takes precedence over country matches.
 		ConceptName bestMatch = null;
 		
-		for (ConceptName nameInLocale : getPartiallyCompatibleNames(forLocale)) {
+		for (ConceptName nameInLocale : table.getPartiallyCompatibleNames(forLocale)) {
 			if (ObjectUtils.nullSafeEquals(nameInLocale.getLocalePreferred(), true)) {
 				Locale nameLocale = nameInLocale.getLocale();
 				if (forLocale.getLanguage().equals(nameLocale.getLanguage())) {
@@ -697,10 +709,15 @@ public class Concept extends BaseOpenmrsObject implements Auditable, Retireable,
 	 * @should return the name marked as fully specified for the given locale
 	 */
 	public ConceptName getFullySpecifiedName(Locale locale) {
-		if (locale != null && !getNames(locale).isEmpty()) {
+		return getNameTable().getName(ConceptNameTable.Kind.FULLY_SPECIFIED, locale, this::findFullySpecifiedName);
+	}
+	
+	private ConceptName findFullySpecifiedName(Locale locale) {
+		ConceptNameTable table = getNameTable();
+		if (locale != null && !table.getNames(locale).isEmpty()) {
 			//get the first fully specified name, since every concept must have a fully specified name,
 			//then, this loop will have to return a name
-			for (ConceptName conceptName : getNames(locale)) {
+			for (ConceptName conceptName : table.getNames(locale)) {
 				if (ObjectUtils.nullSafeEquals(conceptName.isFullySpecifiedName(), true)) {
 					return conceptName;
 				}
@@ -708,7 +725,7 @@ public class Concept extends BaseOpenmrsObject implements Auditable, Retireable,
 			
 			// look for partially locale match - any language matches takes precedence over country matches.
 			ConceptName bestMatch = null;
-			for (ConceptName conceptName : getPartiallyCompatibleNames(locale)) {
+			for (ConceptName conceptName : table.getPartiallyCompatibleNames(locale)) {
 				if (ObjectUtils.nullSafeEquals(conceptName.isFullySpecifiedName(), true)) {
 					Locale nameLocale = conceptName.getLocale();
 					if (locale.getLanguage().equals(nameLocale.getLanguage())) {
@@ -732,26 +749,7 @@ public class Concept extends BaseOpenmrsObject implements Auditable, Retireable,
 	 * @return Collection of ConceptNames with the given locale
 	 */
 	public Collection<ConceptName> getNames(Locale locale) {
-		return getNames().stream()
-				.filter(n -> n.getLocale().equals(locale))
-				.collect(Collectors.toSet());
-	}
-	
-	/**
-	 * Returns all names available for locale language "or" country. <br>
-	 * <br>
-	 * 
-	 * @param locale locale for which names should be returned
-	 * @return Collection of ConceptNames with the given locale language or country
-	 */
-	private Collection<ConceptName> getPartiallyCompatibleNames(Locale locale) {
-		String language = locale.getLanguage();
-		String country = locale.getCountry();
-		
-		return getNames().stream()
-				.filter(n -> language.equals(n.getLocale().getLanguage()) || 
-							StringUtils.isNotBlank(country) && country.equals(n.getLocale().getCountry()))
-				.collect(Collectors.toSet());
+		return new HashSet<ConceptName>(getNameTable().getNames(locale));
 	}
 	
 	/**
@@ -766,24 +764,15 @@ public class Concept extends BaseOpenmrsObject implements Auditable, Retireable,
 	 * @should exclude incompatible language locales
 	 */
 	public List<ConceptName> getCompatibleNames(Locale desiredLocale) {
-		// lazy create the cache
-		List<ConceptName> compatibleNames = null;
-		if (compatibleCache == null) {
-			compatibleCache = new HashMap<Locale, List<ConceptName>>();
-		} else {
-			compatibleNames = compatibleCache.get(desiredLocale);
-		}
-		
-		if (compatibleNames == null) {
-			compatibleNames = new Vector<ConceptName>();
+		return getNameTable().getCompatibleNames(desiredLocale, locale -> {
+			List<ConceptName> compatibleNames = new Vector<ConceptName>();
 			for (ConceptName possibleName : getNames()) {
-				if (LocaleUtility.areCompatible(possibleName.getLocale(), desiredLocale)) {
+				if (LocaleUtility.areCompatible(possibleName.getLocale(), locale)) {
 					compatibleNames.add(possibleName);
 				}
 			}
-			compatibleCache.put(desiredLocale, compatibleNames);
-		}
-		return compatibleNames;
+			return compatibleNames;
+		});
 	}
 	
 	/**
@@ -850,9 +839,13 @@ public class Concept extends BaseOpenmrsObject implements Auditable, Retireable,
 	 * @return the short name, or null if none has been explicitly set
 	 */
 	public ConceptName getShortNameInLocale(Locale locale) {
+		return getNameTable().getName(ConceptNameTable.Kind.SHORT, locale, this::findShortNameInLocale);
+	}
+	
+	private ConceptName findShortNameInLocale(Locale locale) {
 		ConceptName bestMatch = null;
-		if (locale != null && !getShortNames().isEmpty()) {
-			for (ConceptName shortName : getShortNames()) {
+		if (locale != null) {
+			for (ConceptName shortName : getNameTable().getShortNames()) {
 				Locale nameLocale = shortName.getLocale();
 				if (nameLocale.equals(locale)) {
 					return shortName;
@@ -968,9 +961,7 @@ public class Concept extends BaseOpenmrsObject implements Auditable, Retireable,
 	 * @since 1.7
 	 */
 	public Collection<ConceptName> getIndexTermsForLocale(Locale locale) {
-		return getIndexTerms().stream()
-				.filter(n -> n.getLocale().equals(locale))
-		        .collect(Collectors.toList());
+		return new ArrayList<ConceptName>(getNameTable().getIndexTerms(locale));
 	}
 	
 	/**
@@ -999,6 +990,7 @@ public class Concept extends BaseOpenmrsObject implements Auditable, Retireable,
 	 */
 	public void setNames(Collection<ConceptName> names) {
 		this.names = names;
+		namesModCount++;
 	}
 	
 	/**
@@ -1040,9 +1032,7 @@ public class Concept extends BaseOpenmrsObject implements Auditable, Retireable,
 					}
 				}
 				names.add(conceptName);
-				if (compatibleCache != null) {
-					compatibleCache.clear(); // clear the locale cache, forcing it to be rebuilt
-				}
+				namesModCount++;
 			}
 		}
 	}
@@ -1055,12 +1045,34 @@ public class Concept extends BaseOpenmrsObject implements Auditable, Retireable,
 	 */
 	public boolean removeName(ConceptName conceptName) {
 		if (names != null) {
+			namesModCount++;
 			return names.remove(conceptName);
 		} else {
 			return false;
 		}
 	}
 	
+	/**
+	 * Called by the names of this concept when their name, locale, type, preferred or voided status
+	 * changes, so that the names resolved per locale are looked up again
+	 */
+	void namesChanged() {
+		namesModCount++;
+	}
+	
+	/**
+	 * Gets the names of this concept grouped by locale, rebuilding them if the names changed since
+	 * they were last looked up
+	 */
+	private ConceptNameTable getNameTable() {
+		ConceptNameTable table = nameTable;
+		if (table == null || !table.isCurrent(names, namesModCount)) {
+			table = new ConceptNameTable(names, namesModCount);
+			nameTable = table;
+		}
+		return table;
+	}
+	
 	/**
 	 * Finds the description of the concept using the current locale in Context.getLocale(). Returns
 	 * null if none found.
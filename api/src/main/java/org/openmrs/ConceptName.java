@@ -19,6 +19,7 @@ import org.apache.lucene.analysis.core.LowerCaseFilterFactory;
 import org.apache.lucene.analysis.standard.StandardFilterFactory;
 import org.apache.lucene.analysis.standard.StandardTokenizerFactory;
 import org.codehaus.jackson.annotate.JsonIgnore;
+import org.hibernate.Hibernate;
 import org.hibernate.search.annotations.Analyze;
 import org.hibernate.search.annotations.Analyzer;
 import org.hibernate.search.annotations.AnalyzerDef;
@@ -122,7 +123,9 @@ public class ConceptName extends BaseOpenmrsObject implements Auditable, Voidabl
 	}
 	
 	public void setConcept(Concept concept) {
+		notifyConcept();
 		this.concept = concept;
+		notifyConcept();
 	}
 	
 	public String getName() {
@@ -135,6 +138,7 @@ public class ConceptName extends BaseOpenmrsObject implements Auditable, Voidabl
 			this.setVoided(true);
 		} else {
 			this.name = name;
+			notifyConcept();
 		}
 	}
 	
@@ -144,6 +148,7 @@ public class ConceptName extends BaseOpenmrsObject implements Auditable, Voidabl
 	
 	public void setLocale(Locale locale) {
 		this.locale = locale;
+		notifyConcept();
 	}
 
 	/**
@@ -210,6 +215,7 @@ public class ConceptName extends BaseOpenmrsObject implements Auditable, Voidabl
 	@Override
 	public void setVoided(Boolean voided) {
 		this.voided = voided;
+		notifyConcept();
 	}
 	
 	/**
@@ -305,6 +311,7 @@ public class ConceptName extends BaseOpenmrsObject implements Auditable, Voidabl
 	 */
 	public void setConceptNameType(ConceptNameType conceptNameType) {
 		this.conceptNameType = conceptNameType;
+		notifyConcept();
 	}
 	
 	/**
@@ -333,6 +340,17 @@ public class ConceptName extends BaseOpenmrsObject implements Auditable, Voidabl
 	 */
 	public void setLocalePreferred(Boolean localePreferred) {
 		this.localePreferred = localePreferred;
+		notifyConcept();
+	}
+	
+	/**
+	 * Lets the concept know that the names it has resolved per locale are out of date, unless it has
+	 * not been loaded yet
+	 */
+	private void notifyConcept() {
+		if (concept != null && Hibernate.isInitialized(concept)) {
+			concept.namesChanged();
+		}
 	}
 	
 	/**
@@ -0,0 +1,213 @@
+/**
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+import org.apache.commons.lang.StringUtils;
+
+/**
+ * The non voided names of a concept grouped by locale, language and country, along with the names
+ * that {@link Concept} has resolved for each locale it was asked about. A table is built from the
+ * names of a concept the first time they are looked up, and {@link #isCurrent} tells whether the
+ * names have changed since. The concept counts the changes to its names, including the ones the
+ * names report to it through {@link Concept#namesChanged()}.
+ *
+ * @since 2.2.0
+ */
+final class ConceptNameTable {
+	
+	/**
+	 * The kinds of names that are resolved per locale and kept in the table
+	 */
+	enum Kind {
+		PREFERRED, FULLY_SPECIFIED, SHORT, BEST
+	}
+	
+	private final Collection<ConceptName> source;
+	
+	private final int namesModCount;
+	
+	private final boolean empty;
+	
+	private final Map<Locale, List<ConceptName>> namesByLocale = new HashMap<Locale, List<ConceptName>>();
+	
+	private final Map<String, List<ConceptName>> namesByLanguage = new HashMap<String, List<ConceptName>>();
+	
+	private final Map<String, List<ConceptName>> namesByCountry = new HashMap<String, List<ConceptName>>();
+	
+	private final Map<Locale, List<ConceptName>> indexTermsByLocale = new HashMap<Locale, List<ConceptName>>();
+	
+	private final List<ConceptName> shortNames = new ArrayList<ConceptName>();
+	
+	private final Map<Kind, Map<Locale, Optional<ConceptName>>> resolved = new EnumMap<Kind, Map<Locale, Optional<ConceptName>>>(
+	        Kind.class);
+	
+	private final Map<Locale, List<ConceptName>> compatibleNames = new ConcurrentHashMap<Locale, List<ConceptName>>();
+	
+	/**
+	 * @param source the names collection of the concept, including voided names
+	 * @param namesModCount the number of times the names of the concept have changed
+	 */
+	ConceptNameTable(Collection<ConceptName> source, int namesModCount) {
+		this.source = source;
+		this.namesModCount = namesModCount;
+		boolean noNames = true;
+		if (source != null) {
+			for (ConceptName name : source) {
+				if (name.getVoided()) {
+					continue;
+				}
+				noNames = false;
+				if (name.isShort()) {
+					shortNames.add(name);
+				}
+				Locale locale = name.getLocale();
+				if (locale == null) {
+					continue;
+				}
+				add(namesByLocale, locale, name);
+				add(namesByLanguage, locale.getLanguage(), name);
+				if (StringUtils.isNotBlank(locale.getCountry())) {
+					add(namesByCountry, locale.getCountry(), name);
+				}
+				if (name.isIndexTerm()) {
+					add(indexTermsByLocale, locale, name);
+				}
+			}
+		}
+		this.empty = noNames;
+		for (Kind kind : Kind.values()) {
+			resolved.put(kind, new ConcurrentHashMap<Locale, Optional<ConceptName>>());
+		}
+	}
+	
+	/**
+	 * @param source the current names collection of the concept
+	 * @param namesModCount the current number of times the names of the concept have changed
+	 * @return true if the names did not change since the table was built
+	 */
+	boolean isCurrent(Collection<ConceptName> source, int namesModCount) {
+		return this.source == source && this.namesModCount == namesModCount;
+	}
+	
+	/**
+	 * @return true if the concept has no non voided names
+	 */
+	boolean isEmpty() {
+		return empty;
+	}
+	
+	/**
+	 * @param locale the locale to match exactly
+	 * @return the non voided names in the locale
+	 */
+	List<ConceptName> getNames(Locale locale) {
+		return get(namesByLocale, locale);
+	}
+	
+	/**
+	 * @param locale the locale to match partially
+	 * @return the non voided names in the language of the locale, followed by the names in other
+	 *         languages for the country of the locale
+	 */
+	List<ConceptName> getPartiallyCompatibleNames(Locale locale) {
+		List<ConceptName> sameLanguage = get(namesByLanguage, locale.getLanguage());
+		List<ConceptName> sameCountry = get(namesByCountry, locale.getCountry());
+		if (sameCountry.isEmpty()) {
+			return sameLanguage;
+		}
+		List<ConceptName> names = new ArrayList<ConceptName>(sameLanguage);
+		for (ConceptName name : sameCountry) {
+			if (!locale.getLanguage().equals(name.getLocale().getLanguage())) {
+				names.add(name);
+			}
+		}
+		return names;
+	}
+	
+	/**
+	 * @return the non voided short names in all locales
+	 */
+	List<ConceptName> getShortNames() {
+		return Collections.unmodifiableList(shortNames);
+	}
+	
+	/**
+	 * @param locale the locale to match exactly
+	 * @return the non voided index terms in the locale
+	 */
+	List<ConceptName> getIndexTerms(Locale locale) {
+		return get(indexTermsByLocale, locale);
+	}
+	
+	/**
+	 * Gets the name of the given kind in the given locale, resolving it the first time it is asked
+	 * for. The resolver may itself look up other kinds of names in the table.
+	 *
+	 * @param kind the kind of name
+	 * @param locale the locale to get the name for
+	 * @param resolver works out the name if it has not been resolved yet
+	 * @return the resolved name, or null if there is none
+	 */
+	ConceptName getName(Kind kind, Locale locale, Function<Locale, ConceptName> resolver) {
+		if (locale == null) {
+			return resolver.apply(null);
+		}
+		Map<Locale, Optional<ConceptName>> names = resolved.get(kind);
+		Optional<ConceptName> name = names.get(locale);
+		if (name == null) {
+			name = Optional.ofNullable(resolver.apply(locale));
+			names.put(locale, name);
+		}
+		return name.orElse(null);
+	}
+	
+	/**
+	 * @param locale the locale to get the compatible names for
+	 * @param resolver works out the names if they have not been resolved yet
+	 * @return the compatible names
+	 */
+	List<ConceptName> getCompatibleNames(Locale locale, Function<Locale, List<ConceptName>> resolver) {
+		if (locale == null) {
+			return resolver.apply(null);
+		}
+		List<ConceptName> names = compatibleNames.get(locale);
+		if (names == null) {
+			names = resolver.apply(locale);
+			compatibleNames.put(locale, names);
+		}
+		return names;
+	}
+	
+	private static <K> void add(Map<K, List<ConceptName>> map, K key, ConceptName name) {
+		List<ConceptName> names = map.get(key);
+		if (names == null) {
+			names = new ArrayList<ConceptName>(2);
+			map.put(key, names);
+		}
+		names.add(name);
+	}
+	
+	private static <K> List<ConceptName> get(Map<K, List<ConceptName>> map, K key) {
+		List<ConceptName> names = map.get(key);
+		return names == null ? Collections.<ConceptName> emptyList() : Collections.unmodifiableList(names);
+	}
+}
@@ -28,6 +28,7 @@ import org.hibernate.search.annotations.IndexedEmbedded;
 import org.openmrs.api.db.hibernate.search.LuceneAnalyzers;
 import org.openmrs.util.OpenmrsConstants;
 import org.openmrs.util.OpenmrsUtil;
+import org.openmrs.util.Soundex;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.util.StringUtils;
@@ -390,6 +391,82 @@ public class PersonName extends BaseOpenmrsData implements java.io.Serializable,
 		this.prefix = prefix;
 	}
 	
+	/**
+	 * Gets the Soundex code of the given name, which is computed from the name itself so that it is
+	 * stored with every name Hibernate writes, whether or not it goes through a save handler.
+	 * Rows inserted with plain SQL don't get their codes until they are saved again, or until the
+	 * 20261017-1001 change set is run again by removing it from the liquibasechangelog table.
+	 *
+	 * @return the Soundex code of the given name
+	 * @see org.openmrs.util.Soundex
+	 * @should compute the code of the current name
+	 * @since 2.2.0
+	 */
+	public String getGivenNameSoundex() {
+		return Soundex.encode(givenName);
+	}
+	
+	/**
+	 * The code is always computed from the name, so the value read from the database is ignored
+	 * and a stale code is written over when the name is next flushed
+	 *
+	 * @param givenNameSoundex the stored Soundex code of the given name
+	 */
+	@SuppressWarnings("unused")
+	private void setGivenNameSoundex(String givenNameSoundex) {
+	}
+	
+	/**
+	 * @return the Soundex code of the middle name
+	 * @see #getGivenNameSoundex()
+	 * @since 2.2.0
+	 */
+	public String getMiddleNameSoundex() {
+		return Soundex.encode(middleName);
+	}
+	
+	/**
+	 * @param middleNameSoundex the stored Soundex code of the middle name
+	 * @see #setGivenNameSoundex(String)
+	 */
+	@SuppressWarnings("unused")
+	private void setMiddleNameSoundex(String middleNameSoundex) {
+	}
+	
+	/**
+	 * @return the Soundex code of the family name
+	 * @see #getGivenNameSoundex()
+	 * @since 2.2.0
+	 */
+	public String getFamilyNameSoundex() {
+		return Soundex.encode(familyName);
+	}
+	
+	/**
+	 * @param familyNameSoundex the stored Soundex code of the family name
+	 * @see #setGivenNameSoundex(String)
+	 */
+	@SuppressWarnings("unused")
+	private void setFamilyNameSoundex(String familyNameSoundex) {
+	}
+	
+	/**
+	 * @return the Soundex code of the second family name
+	 * @see #getGivenNameSoundex()
+	 * @since 2.2.0
+	 */
+	public String getFamilyName2Soundex() {
+		return Soundex.encode(familyName2);
+	}
+	
+	/**
+	 * @param familyName2Soundex the stored Soundex code of the second family name
+	 * @see #setGivenNameSoundex(String)
+	 */
+	@SuppressWarnings("unused")
+	private void setFamilyName2Soundex(String familyName2Soundex) {
+	}
+	
 	/**
 	 * Convenience method to get all the names of this PersonName and concatenating them together
 	 * with spaces in between. If any part of {@link #getPrefix()}, {@link #getGivenName()},
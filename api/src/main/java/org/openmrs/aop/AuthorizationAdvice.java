@@ -11,6 +11,9 @@ package org.openmrs.aop;
 
 import java.lang.reflect.Method;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.apache.commons.lang.StringUtils;
 import org.openmrs.User;
@@ -32,6 +35,12 @@ public class AuthorizationAdvice implements MethodBeforeAdvice {
 	 */
 	protected final Logger log = LoggerFactory.getLogger(AuthorizationAdvice.class);
 	
+	/**
+	 * The privileges required by each method, read from its annotations the first time the method
+	 * is called
+	 */
+	private final Map<Method, RequiredPrivileges> requiredPrivileges = new ConcurrentHashMap<>();
+	
 	/**
 	 * Allows us to check whether a user is authorized to access a particular method.
 	 * 
@@ -56,9 +65,9 @@ public class AuthorizationAdvice implements MethodBeforeAdvice {
 			}
 		}
 		
-		AuthorizedAnnotationAttributes attributes = new AuthorizedAnnotationAttributes();
-		Collection<String> privileges = attributes.getAttributes(method);
-		boolean requireAll = attributes.getRequireAll(method);
+		RequiredPrivileges required = requiredPrivileges.computeIfAbsent(method, RequiredPrivileges::new);
+		Collection<String> privileges = required.privileges;
+		boolean requireAll = required.requireAll;
 		
 		// Only execute if the "secure" method has authorization attributes
 		// Iterate through required privileges and return only if the user has
@@ -97,7 +106,7 @@ public class AuthorizationAdvice implements MethodBeforeAdvice {
 				throwUnauthorized(Context.getAuthenticatedUser(), method, privileges);
 			}
 			
-		} else if (attributes.hasAuthorizedAnnotation(method) && !Context.isAuthenticated()) {
+		} else if (required.authorized && !Context.isAuthenticated()) {
 			throwUnauthorized(Context.getAuthenticatedUser(), method);
 		}
 	}
@@ -144,4 +153,23 @@ public class AuthorizationAdvice implements MethodBeforeAdvice {
 		}
 		throw new APIAuthenticationException(Context.getMessageSourceService().getMessage("error.aunthenticationRequired"));
 	}
+	
+	/**
+	 * The authorization requirements of a single method
+	 */
+	private static class RequiredPrivileges {
+		
+		private final Collection<String> privileges;
+		
+		private final boolean requireAll;
+		
+		private final boolean authorized;
+		
+		private RequiredPrivileges(Method method) {
+			AuthorizedAnnotationAttributes attributes = new AuthorizedAnnotationAttributes();
+			this.privileges = Collections.unmodifiableCollection(attributes.getAttributes(method));
+			this.requireAll = attributes.getRequireAll(method);
+			this.authorized = attributes.hasAuthorizedAnnotation(method);
+		}
+	}
 }
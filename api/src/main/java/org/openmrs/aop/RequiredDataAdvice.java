@@ -141,10 +141,13 @@ public class RequiredDataAdvice implements MethodBeforeAdvice {
 				
 				Collection<OpenmrsObject> openmrsObjects = (Collection<OpenmrsObject>) mainArgument;
 				
+				// look up the user and date once so that all objects in the batch get the same values
+				User currentUser = Context.getAuthenticatedUser();
+				Date currentDate = new Date();
 				for (OpenmrsObject object : openmrsObjects) {
-					ValidateUtil.validate(mainArgument);
+					ValidateUtil.validate(object);
 					
-					recursivelyHandle(SaveHandler.class, object, other);
+					recursivelyHandle(SaveHandler.class, object, currentUser, currentDate, other, null);
 				}
 				
 			}
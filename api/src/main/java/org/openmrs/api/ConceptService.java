@@ -10,6 +10,7 @@
 package org.openmrs.api;
 
 import java.util.Collection;
+import java.util.Date;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Locale;
@@ -633,6 +634,35 @@ public interface ConceptService extends OpenmrsService {
 	@Authorized(PrivilegeConstants.GET_CONCEPTS)
 	public List<ConceptSet> getSetsContainingConcept(Concept concept) throws APIException;
 	
+	/**
+	 * Find all sets that the given concept is in, either as a direct member or as a member of a
+	 * nested set
+	 * 
+	 * @param concept the concept to find the sets of
+	 * @return the concepts of the sets containing the given concept, the nearest sets first
+	 * @throws APIException
+	 * @since 2.2.0
+	 * @should return direct and nested parent sets nearest first
+	 * @should give an empty list if concept id is null
+	 */
+	@Authorized(PrivilegeConstants.GET_CONCEPTS)
+	public List<Concept> getAllSetsContainingConcept(Concept concept) throws APIException;
+	
+	/**
+	 * Checks whether the given concept is in the given concept set, either as a direct member or as
+	 * a member of a nested set
+	 * 
+	 * @param concept the concept to look for
+	 * @param conceptSet the concept representing the concept set
+	 * @return true if the concept is in the set
+	 * @throws APIException
+	 * @since 2.2.0
+	 * @should return true for a nested member of the set
+	 * @should return false for a concept that is not in the set
+	 */
+	@Authorized(PrivilegeConstants.GET_CONCEPTS)
+	public boolean isConceptInSet(Concept concept, Concept conceptSet) throws APIException;
+	
 	/**
 	 * Get a List of all concept proposals
 	 * 
@@ -937,6 +967,48 @@ public interface ConceptService extends OpenmrsService {
 	@Authorized(PrivilegeConstants.GET_CONCEPTS)
 	public Iterator<Concept> conceptIterator();
 	
+	/**
+	 * Returns an iterator over the concepts matching the given criteria, ordered by concept id. The
+	 * concepts are loaded in chunks along with their names, mappings and set members, and each chunk
+	 * is evicted from the session when the iterator moves on to the next one.
+	 * 
+	 * @param conceptClasses if not empty, only concepts of these classes are returned
+	 * @param datatypes if not empty, only concepts with these datatypes are returned
+	 * @param changedSince if not null, only concepts created or changed on or after this date are
+	 *            returned
+	 * @return the Iterator
+	 * @since 2.2.0
+	 * @should iterate over all concepts if no criteria are given
+	 * @should only return concepts of the given classes and datatypes
+	 * @should only return concepts changed since the given date
+	 */
+	@Authorized(PrivilegeConstants.GET_CONCEPTS)
+	public Iterator<Concept> conceptIterator(List<ConceptClass> conceptClasses, List<ConceptDatatype> datatypes,
+	        Date changedSince);
+	
+	/**
+	 * Imports a stream of concepts, e.g. when loading or upgrading a reference dictionary. New
+	 * concepts are validated and inserted in chunks along with their names, descriptions, attributes
+	 * and mappings, without updating the search index for each of them, and their answers and set
+	 * members are inserted once all the concepts are in, so they may refer to concepts further on in
+	 * the stream. The names of the new concepts are added to the search index at the end, the index
+	 * of the other names is left as it is. Concepts that already exist are saved with
+	 * {@link #saveConcept(Concept)}.
+	 * <p>
+	 * The new concepts are not attached to the current session once they are imported.
+	 * 
+	 * @param concepts the concepts to import
+	 * @return the number of concepts imported
+	 * @throws APIException
+	 * @since 2.2.0
+	 * @should import new concepts with their names mappings answers and set members
+	 * @should save existing concepts with saveConcept
+	 * @should fail if a name is a duplicate of the name of another concept
+	 * @should add the names of the new concepts to the search index
+	 */
+	@Authorized(PrivilegeConstants.MANAGE_CONCEPTS)
+	public int importConcepts(Iterator<Concept> concepts) throws APIException;
+	
 	/**
 	 * Looks up a concept via {@link ConceptMap} This will return the {@link Concept} which contains
 	 * a {@link ConceptMap} entry whose <code>sourceCode</code> is equal to the passed
@@ -1741,6 +1813,47 @@ public interface ConceptService extends OpenmrsService {
 	@Authorized(PrivilegeConstants.GET_CONCEPTS)
 	public List<Drug> getDrugs(String searchPhrase, Locale locale, boolean exactLocale, boolean includeRetired);
 	
+	/**
+	 * Suggests non retired concepts for a name that is being typed, every word of the typed text has
+	 * to match the start of a word of a name of the concept in the language of the given locale.
+	 * Concepts whose name starts with the typed text come first, followed by concepts matching on
+	 * their preferred name, their fully specified name and then their other names. When the global
+	 * property {@link org.openmrs.util.OpenmrsConstants#GP_CONCEPT_TYPEAHEAD_INDEX_ENABLED} is true
+	 * the suggestions come from an in-memory index of all concept names, otherwise a full text
+	 * search is run.
+	 *
+	 * @param text the text typed so far
+	 * @param locale the locale whose language to match names in, the user's locale if null
+	 * @param conceptClasses the classes the concepts have to be in, or null for any class
+	 * @param limit the maximum number of concepts to return
+	 * @return the suggested concepts, the best match first
+	 * @throws APIException
+	 * @since 2.2.0
+	 * @should return concepts with a word starting with the typed text
+	 * @should only return concepts of the given classes
+	 * @should suggest a concept by a name added after the index was loaded
+	 */
+	@Authorized(PrivilegeConstants.GET_CONCEPTS)
+	public List<Concept> getConceptsByNamePrefix(String text, Locale locale, List<ConceptClass> conceptClasses, int limit)
+	        throws APIException;
+	
+	/**
+	 * Suggests non retired drugs for a drug name that is being typed, every word of the typed text
+	 * has to match the start of a word of the drug name. When the global property
+	 * {@link org.openmrs.util.OpenmrsConstants#GP_CONCEPT_TYPEAHEAD_INDEX_ENABLED} is true the
+	 * suggestions come from an in-memory index of all drug names, otherwise a full text search is
+	 * run.
+	 *
+	 * @param text the text typed so far
+	 * @param limit the maximum number of drugs to return
+	 * @return the suggested drugs, the best match first
+	 * @throws APIException
+	 * @since 2.2.0
+	 * @should return drugs with a word starting with the typed text
+	 */
+	@Authorized(PrivilegeConstants.GET_CONCEPTS)
+	public List<Drug> getDrugsByNamePrefix(String text, int limit) throws APIException;
+	
 	/**
 	 * Fetches all drugs with reference mappings to the specified concept source that match the
 	 * specified code and concept map types
@@ -13,6 +13,7 @@ import java.util.Collection;
 import java.util.Date;
 import java.util.List;
 import java.util.Map;
+import java.util.function.BiConsumer;
 
 import org.openmrs.Cohort;
 import org.openmrs.Encounter;
@@ -176,6 +177,7 @@ public interface EncounterService extends OpenmrsService {
 	 * @return a list of encounters ordered by increasing encounterDatetime
 	 * @since 1.12
 	 * @should get encounters modified after specified date
+	 * @should leave out encounters of types the user cannot view
 	 */
 	@Authorized( { PrivilegeConstants.GET_ENCOUNTERS })
 	public List<Encounter> getEncounters(EncounterSearchCriteria encounterSearchCriteria);
@@ -427,13 +429,16 @@ public interface EncounterService extends OpenmrsService {
 	 * @should match on the provider person name
 	 * @should match on the encounter type name
 	 * @should match on the form name
+	 * @should leave out encounters the user cannot view before taking the batch
 	 */
 	@Authorized( { PrivilegeConstants.GET_ENCOUNTERS })
 	public List<Encounter> getEncounters(String query, Integer patientId, Integer start, Integer length,
 	        boolean includeVoided) throws APIException;
 	
 	/**
-	 * Get all encounters for a cohort of patients
+	 * Get all encounters for a cohort of patients. Large cohorts should be read with
+	 * {@link #streamEncounters(Cohort, BiConsumer)} instead, which does not hold all of their
+	 * encounters in memory at once.
 	 * 
 	 * @param patients Cohort of patients to search
 	 * @return Map of all encounters for specified patients.
@@ -442,6 +447,41 @@ public interface EncounterService extends OpenmrsService {
 	 */
 	public Map<Integer, List<Encounter>> getAllEncounters(Cohort patients);
 	
+	/**
+	 * Streams the non-voided encounters of a cohort of patients one patient at a time, in patient id
+	 * order and with the most recent encounters first, without loading the whole cohort's
+	 * encounters into memory like {@link #getAllEncounters(Cohort)} does. The patients are read in
+	 * chunks, and the session is cleared after each chunk, so the encounters must be used within
+	 * the action and changes made to other objects must be saved before calling this method.
+	 * Patients without encounters are skipped.
+	 *
+	 * @param patients Cohort of patients to search, or null for all patients
+	 * @param action called with the id and encounters of each patient
+	 * @should stream the encounters of each patient in a cohort in patient id order
+	 * @should skip voided encounters and patients without encounters
+	 * @since 2.2.0
+	 */
+	@Authorized( { PrivilegeConstants.GET_ENCOUNTERS })
+	public void streamEncounters(Cohort patients, BiConsumer<Integer, List<Encounter>> action);
+	
+	/**
+	 * Streams only the given properties of the non-voided encounters of a cohort of patients, in
+	 * the same way as {@link #streamEncounters(Cohort, BiConsumer)}, so that no encounter needs to
+	 * be loaded. The properties are paths from the encounter, such as "encounterId",
+	 * "encounterDatetime" or "encounterType.encounterTypeId".
+	 *
+	 * @param patients Cohort of patients to search, or null for all patients
+	 * @param properties the encounter properties to get
+	 * @param action called with the id of each patient and the values of the properties of each of
+	 *            its encounters, in the order of the properties
+	 * @should stream the given properties of the encounters of each patient
+	 * @should fail for an invalid property
+	 * @since 2.2.0
+	 */
+	@Authorized( { PrivilegeConstants.GET_ENCOUNTERS })
+	public void streamEncounterProperties(Cohort patients, List<String> properties,
+	        BiConsumer<Integer, List<Object[]>> action);
+	
 	/**
 	 * Return the number of encounters matching a patient name or patient identifier
 	 * 
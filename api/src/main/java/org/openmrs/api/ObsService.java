@@ -9,10 +9,14 @@
  */
 package org.openmrs.api;
 
+import java.io.InputStream;
+import java.nio.channels.WritableByteChannel;
+import java.util.Collection;
 import java.util.Date;
 import java.util.List;
 import java.util.Map;
 
+import org.openmrs.Cohort;
 import org.openmrs.Concept;
 import org.openmrs.ConceptName;
 import org.openmrs.Encounter;
@@ -22,6 +26,9 @@ import org.openmrs.Person;
 import org.openmrs.annotation.Authorized;
 import org.openmrs.api.db.ObsDAO;
 import org.openmrs.obs.ComplexObsHandler;
+import org.openmrs.obs.ObsTimeSeries;
+import org.openmrs.obs.StreamingComplexObsHandler;
+import org.openmrs.util.OpenmrsConstants;
 import org.openmrs.util.OpenmrsConstants.PERSON_TYPE;
 import org.openmrs.util.PrivilegeConstants;
 
@@ -117,6 +124,28 @@ public interface ObsService extends OpenmrsService {
 	@Authorized( { PrivilegeConstants.ADD_OBS, PrivilegeConstants.EDIT_OBS })
 	public Obs saveObs(Obs obs, String changeMessage) throws APIException;
 	
+	/**
+	 * Saves a batch of observations, e.g. all the observations of a large form, with the same
+	 * outcome as calling {@link #saveObs(Obs, String)} on each of them. Edited observations are
+	 * still voided and replaced by a new revision. The save handlers and validators are run on the
+	 * whole batch before any observation is saved, and the group members of the observations are
+	 * saved without a separate service call per member.
+	 * 
+	 * @param observations the observations to save
+	 * @param changeMessage String explaining why the observations are being changed, it is required
+	 *            if any of the observations is an existing one
+	 * @return the saved observations, in the order they were given, where edited observations are
+	 *         replaced by their new revision
+	 * @throws APIException
+	 * @since 2.2.0
+	 * @should save new observations and their group members
+	 * @should void edited observations and link them to their new revisions
+	 * @should fail if an observation fails to validate
+	 * @should fail if an existing observation is given without a change message
+	 */
+	@Authorized( { PrivilegeConstants.ADD_OBS, PrivilegeConstants.EDIT_OBS })
+	public List<Obs> saveObservations(Collection<Obs> observations, String changeMessage) throws APIException;
+	
 	/**
 	 * Equivalent to deleting an observation
 	 * 
@@ -377,6 +406,59 @@ public interface ObsService extends OpenmrsService {
 	@Authorized(PrivilegeConstants.GET_OBS)
 	public List<Obs> getObservationsByPersonAndConcept(Person who, Concept question) throws APIException;
 	
+	/**
+	 * Gets the history of the non voided observations of a person for a question concept, ordered
+	 * by obs datetime. When the {@link OpenmrsConstants#GP_OBS_TIME_SERIES_CACHE_SIZE} global
+	 * property is greater than 0, the histories of all questions of the person are read in one
+	 * query and kept in memory until one of the person's observations changes.
+	 * 
+	 * @param who person to match on
+	 * @param question the question concept to match on
+	 * @return the history, which is empty if the person has no such observations
+	 * @throws APIException
+	 * @since 2.2.0
+	 * @should get the values of the observations of the person for the question ordered by obs datetime
+	 * @should not include voided observations
+	 * @should not return a cached history after an observation of the person is saved
+	 */
+	@Authorized(PrivilegeConstants.GET_OBS)
+	public ObsTimeSeries getObsTimeSeries(Person who, Concept question) throws APIException;
+	
+	/**
+	 * Gets the history of the non voided observations of a person for a question concept within a
+	 * range of obs datetimes, optionally limited to the most recent ones
+	 * 
+	 * @param who person to match on
+	 * @param question the question concept to match on
+	 * @param fromDate the earliest obs datetime to include, null for no lower bound
+	 * @param toDate the latest obs datetime to include, null for no upper bound
+	 * @param mostRecentN the maximum number of observations to include, null for no limit
+	 * @return the history, oldest first
+	 * @throws APIException
+	 * @see #getObsTimeSeries(Person, Concept)
+	 * @since 2.2.0
+	 * @should get the most recent observations within the range
+	 */
+	@Authorized(PrivilegeConstants.GET_OBS)
+	public ObsTimeSeries getObsTimeSeries(Person who, Concept question, Date fromDate, Date toDate, Integer mostRecentN)
+	        throws APIException;
+	
+	/**
+	 * Gets the histories of the non voided observations of the members of a cohort for a question
+	 * concept, read in as few queries as possible
+	 * 
+	 * @param who the cohort to match on
+	 * @param question the question concept to match on
+	 * @return the history of each member by person id, members without such observations are left
+	 *         out
+	 * @throws APIException
+	 * @see #getObsTimeSeries(Person, Concept)
+	 * @since 2.2.0
+	 * @should get the histories of the members of the cohort for the question
+	 */
+	@Authorized(PrivilegeConstants.GET_OBS)
+	public Map<Integer, ObsTimeSeries> getObsTimeSeries(Cohort who, Concept question) throws APIException;
+	
 	/**
 	 * Get a complex observation. If obs.isComplex() is true, then returns an Obs with its
 	 * ComplexData. Otherwise returns a simple Obs. 
@@ -416,6 +498,57 @@ public interface ObsService extends OpenmrsService {
 	 */
 	public ComplexObsHandler getHandler(Obs obs) throws APIException;
 	
+	/**
+	 * Gets the number of stored bytes of a complex observation, without reading them
+	 * 
+	 * @param obs the complex observation
+	 * @return the number of bytes
+	 * @throws APIException if the handler of the observation cannot stream its data or the data
+	 *             cannot be read
+	 * @see StreamingComplexObsHandler
+	 * @since 2.2.0
+	 * @should return the length of the stored data
+	 */
+	@Authorized(PrivilegeConstants.GET_OBS)
+	public long getComplexDataLength(Obs obs) throws APIException;
+	
+	/**
+	 * Opens a stream over a range of the stored bytes of a complex observation, so that large files
+	 * can be read without loading them into memory. The caller must close the stream.
+	 * 
+	 * @param obs the complex observation
+	 * @param offset the index of the first byte to read
+	 * @param length the maximum number of bytes to read, or a negative number to read to the end
+	 * @return the stream
+	 * @throws APIException if the handler of the observation cannot stream its data or the data
+	 *             cannot be read
+	 * @see StreamingComplexObsHandler
+	 * @since 2.2.0
+	 * @should read the given range of the stored data
+	 * @should fail for a negative offset
+	 */
+	@Authorized(PrivilegeConstants.GET_OBS)
+	public InputStream getComplexDataStream(Obs obs, long offset, long length) throws APIException;
+	
+	/**
+	 * Writes a range of the stored bytes of a complex observation to the given channel, letting the
+	 * operating system copy them from the file to the channel where it can
+	 * 
+	 * @param obs the complex observation
+	 * @param offset the index of the first byte to write
+	 * @param length the maximum number of bytes to write, or a negative number to write to the end
+	 * @param target the channel to write to, which is left open
+	 * @return the number of bytes written
+	 * @throws APIException if the handler of the observation cannot stream its data, or the data
+	 *             cannot be read or written
+	 * @see StreamingComplexObsHandler
+	 * @since 2.2.0
+	 * @should write the given range of the stored data to the channel
+	 * @should fail for a negative offset
+	 */
+	@Authorized(PrivilegeConstants.GET_OBS)
+	public long transferComplexData(Obs obs, long offset, long length, WritableByteChannel target) throws APIException;
+	
 	/**
 	 * <u>Add</u> the given map to this service's handlers. This method registers each
 	 * ComplexObsHandler to this service. If the given String key exists, that handler is
@@ -299,6 +299,19 @@ public interface OrderService extends OpenmrsService {
 	@Authorized(PrivilegeConstants.ADD_ORDERS)
 	public Long getNextOrderNumberSeedSequenceValue();
 	
+	/**
+	 * Reserves a block of consecutive order number seeds in a single database round-trip, the
+	 * caller owns all the seeds from the returned value up to (but excluding) the returned value
+	 * plus blockSize
+	 * 
+	 * @param blockSize the number of seeds to reserve
+	 * @return the first seed in the reserved block
+	 * @since 2.2.0
+	 * @should reserve the requested number of seeds
+	 */
+	@Authorized(PrivilegeConstants.ADD_ORDERS)
+	public Long getNextOrderNumberSeedSequenceValue(int blockSize);
+	
 	/**
 	 * Gets the order matching the specified order number and its previous orders in the ordering
 	 * they occurred, i.e if this order has a previous order, fetch it and if it also has a previous
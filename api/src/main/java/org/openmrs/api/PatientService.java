@@ -23,6 +23,7 @@ import org.openmrs.PatientIdentifierType;
 import org.openmrs.annotation.Authorized;
 import org.openmrs.api.db.PatientDAO;
 import org.openmrs.comparator.PatientIdentifierTypeDefaultComparator;
+import org.openmrs.patient.DuplicatePatientCandidatePage;
 import org.openmrs.patient.IdentifierValidator;
 import org.openmrs.person.PersonMergeLogData;
 import org.openmrs.serialization.SerializationException;
@@ -486,6 +487,49 @@ public interface PatientService extends OpenmrsService {
 	@Authorized( { PrivilegeConstants.GET_PATIENTS })
 	public List<Patient> getDuplicatePatientsByAttributes(List<String> attributes) throws APIException;
 	
+	/**
+	 * Searches for the pairs of non voided patients that may be the same person, by how closely
+	 * their names, birthdates and genders match, and keeps them for
+	 * {@link #getDuplicatePatientCandidates(Double, Integer, Integer)} in place of the pairs of the
+	 * previous search. Names are compared by their phonetic codes and spelling, so that misspelled
+	 * names are found as well as identical ones. <br>
+	 * <br>
+	 * The patients are read once and only the patients that share a name code and birth year, name
+	 * codes and gender, or given name code and birthdate are compared, so that the search can be run
+	 * on large databases. It still reads every patient, so it is meant to be run by the
+	 * {@link org.openmrs.scheduler.tasks.DuplicatePatientDetectionTask} rather than while a user
+	 * waits. Only one search runs at a time. Blocks of patients too large to compare are skipped,
+	 * which the pages report.
+	 * 
+	 * @param minimumScore the lowest score, from 0 to 1, of the pairs to keep, or null for 0.8
+	 * @return true if the search was run, false if another search was running already
+	 * @throws APIException
+	 * @since 2.2.0
+	 * @should find patients with similar names and the same birthdate
+	 */
+	@Authorized( { PrivilegeConstants.GET_PATIENTS })
+	public boolean detectDuplicatePatients(Double minimumScore) throws APIException;
+	
+	/**
+	 * Gets a page of the pairs of patients found by the last
+	 * {@link #detectDuplicatePatients(Double)}, ranked from the best match down. The pairs with a
+	 * patient that was voided, merged or deleted since the search was run are left out before the
+	 * page is taken, so that the pages and the total count agree. Pairs below the minimum score of
+	 * the search itself cannot be returned.
+	 * 
+	 * @param minimumScore the lowest score, from 0 to 1, of the pairs to return, or null for 0.8
+	 * @param start the index of the first pair to return, null for 0
+	 * @param length the maximum number of pairs to return, null for all of them
+	 * @return the page of pairs, which is empty and has no detection date if no search was run yet
+	 * @throws APIException
+	 * @since 2.2.0
+	 * @should return the later pages from the same run
+	 * @should leave out the pairs with a patient voided since the search was run
+	 */
+	@Authorized( { PrivilegeConstants.GET_PATIENTS })
+	public DuplicatePatientCandidatePage getDuplicatePatientCandidates(Double minimumScore, Integer start, Integer length)
+	        throws APIException;
+	
 	/**
 	 * Convenience method to join two patients' information into one record.
 	 * <ol>
@@ -91,6 +91,7 @@ public interface PersonService extends OpenmrsService {
 	 * @should match two word search to any name part
 	 * @should match three word search to any name part
 	 * @should match search to familyName2
+	 * @should match names that sound alike once saved
 	 */
 	// TODO: make gender a (definable?) constant
 	@Authorized( { PrivilegeConstants.GET_PERSONS })
@@ -10,14 +10,18 @@
 package org.openmrs.api.context;
 
 import java.io.Serializable;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Locale;
 import java.util.Set;
 import java.util.Vector;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.commons.lang.StringUtils;
 import org.openmrs.Location;
+import org.openmrs.Privilege;
 import org.openmrs.Role;
 import org.openmrs.User;
 import org.openmrs.api.APIAuthenticationException;
@@ -27,6 +31,8 @@ import org.openmrs.util.OpenmrsConstants;
 import org.openmrs.util.RoleConstants;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 /**
  * Represents an OpenMRS <code>User Context</code> which stores the current user information. Only
@@ -76,12 +82,48 @@ public class UserContext implements Serializable {
 	 */
 	private Integer locationId;
 	
+	/**
+	 * Incremented whenever roles or privileges are changed, so that every user context flattens its
+	 * privileges again
+	 */
+	private static final AtomicInteger privilegesVersion = new AtomicInteger();
+	
+	/**
+	 * Bound to a transaction that has changed roles or privileges, which does not cache the
+	 * privileges it flattens since they may not be committed
+	 */
+	private static final Object PRIVILEGES_CHANGED_KEY = new Object();
+	
+	/**
+	 * The privileges of the authenticated user, their roles and the authenticated and anonymous
+	 * roles, flattened into a single set the first time a privilege is checked
+	 */
+	private transient volatile EffectivePrivileges effectivePrivileges;
+	
 	/**
 	 * Default public constructor
 	 */
 	public UserContext() {
 	}
 	
+	/**
+	 * Creates a separate user context for the same authenticated user, with the same locale,
+	 * location and proxy privileges as this one has now, so that another thread can act as that
+	 * user without sharing this context. Changes to either context are not seen by the other.
+	 *
+	 * @return the new user context
+	 * @should act as the same user with its own proxy privileges
+	 * @since 2.2.0
+	 */
+	public UserContext copy() {
+		UserContext copy = new UserContext();
+		copy.user = user;
+		copy.proxies.addAll(proxies);
+		copy.locale = locale;
+		copy.locationId = locationId;
+		return copy;
+	}
+	
 	/**
 	 * Authenticate the user to this UserContext.
 	 *
@@ -306,8 +348,7 @@ public class UserContext implements Serializable {
 	public boolean hasPrivilege(String privilege) {
 		
 		// if a user has logged in, check their privileges
-		if (isAuthenticated()
-		        && (getAuthenticatedUser().hasPrivilege(privilege) || getAuthenticatedRole().hasPrivilege(privilege))) {
+		if (isAuthenticated() && getEffectivePrivileges().hasUserPrivilege(privilege)) {
 			
 			// check user's privileges
 			Context.getUserService().notifyPrivilegeListeners(getAuthenticatedUser(), privilege, true);
@@ -327,7 +368,7 @@ public class UserContext implements Serializable {
 			}
 		}
 		
-		if (getAnonymousRole().hasPrivilege(privilege)) {
+		if (getEffectivePrivileges().hasAnonymousPrivilege(privilege)) {
 			Context.getUserService().notifyPrivilegeListeners(getAuthenticatedUser(), privilege, true);
 			return true;
 		}
@@ -337,6 +378,59 @@ public class UserContext implements Serializable {
 		return false;
 	}
 	
+	/**
+	 * Makes every user context flatten the privileges of its user again the next time a privilege
+	 * is checked. Should be called whenever roles, privileges or the roles of a user are saved or
+	 * purged. Within a transaction this happens once it has committed, so that other user contexts
+	 * do not flatten the privileges again from the database before the change can be read there,
+	 * while the transaction itself flattens them on every check until it completes.
+	 *
+	 * @since 2.2.0
+	 */
+	public static void clearCachedPrivileges() {
+		if (TransactionSynchronizationManager.isSynchronizationActive()) {
+			if (TransactionSynchronizationManager.hasResource(PRIVILEGES_CHANGED_KEY)) {
+				return;
+			}
+			TransactionSynchronizationManager.bindResource(PRIVILEGES_CHANGED_KEY, Boolean.TRUE);
+			TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+				
+				@Override
+				public void afterCommit() {
+					privilegesVersion.incrementAndGet();
+				}
+				
+				@Override
+				public void afterCompletion(int status) {
+					TransactionSynchronizationManager.unbindResourceIfPossible(PRIVILEGES_CHANGED_KEY);
+				}
+			});
+		} else {
+			privilegesVersion.incrementAndGet();
+		}
+	}
+	
+	private EffectivePrivileges getEffectivePrivileges() {
+		User user = getAuthenticatedUser();
+		int version = privilegesVersion.get();
+		EffectivePrivileges privileges = effectivePrivileges;
+		boolean changedInTransaction = TransactionSynchronizationManager.hasResource(PRIVILEGES_CHANGED_KEY);
+		if (privileges == null || privileges.user != user || privileges.version != version || changedInTransaction) {
+			if (privileges != null && (privileges.version != version || changedInTransaction)) {
+				// roles were saved since, read the authenticated and anonymous roles again too
+				authenticatedRole = null;
+				anonymousRole = null;
+			}
+			// the authenticated role is only needed, and only loaded, once a user has authenticated
+			privileges = new EffectivePrivileges(user, version, user == null ? null : getAuthenticatedRole(),
+			        getAnonymousRole());
+			if (!changedInTransaction) {
+				effectivePrivileges = privileges;
+			}
+		}
+		return privileges;
+	}
+	
 	/**
 	 * Convenience method to get the Role in the system designed to be given to all users
 	 *
@@ -456,4 +550,58 @@ public class UserContext implements Serializable {
 			}
 		}
 	}
+	
+	/**
+	 * An immutable snapshot of the privilege names a user has through their roles, so that checking
+	 * a privilege is a single hash lookup rather than a walk over the user's roles and the roles
+	 * they inherit from. It is no longer current once the version changes, so changes to roles and
+	 * privileges made in memory are only seen once they are saved.
+	 */
+	private static class EffectivePrivileges {
+		
+		private final User user;
+		
+		private final int version;
+		
+		private final boolean superUser;
+		
+		private final Set<String> userPrivileges;
+		
+		private final Set<String> anonymousPrivileges;
+		
+		private EffectivePrivileges(User user, int version, Role authenticatedRole, Role anonymousRole) {
+			this.user = user;
+			this.version = version;
+			this.anonymousPrivileges = getPrivilegeNames(anonymousRole.getPrivileges());
+			if (user == null) {
+				this.superUser = false;
+				this.userPrivileges = Collections.emptySet();
+			} else {
+				this.superUser = user.isSuperUser();
+				Set<String> names = new HashSet<String>(getPrivilegeNames(user.getPrivileges()));
+				names.addAll(getPrivilegeNames(authenticatedRole.getPrivileges()));
+				this.userPrivileges = Collections.unmodifiableSet(names);
+			}
+		}
+		
+		private boolean hasUserPrivilege(String privilege) {
+			// all authenticated users have the "" (empty) privilege
+			return StringUtils.isEmpty(privilege) || superUser || userPrivileges.contains(privilege);
+		}
+		
+		private boolean hasAnonymousPrivilege(String privilege) {
+			return anonymousPrivileges.contains(privilege);
+		}
+		
+		private static Set<String> getPrivilegeNames(Collection<Privilege> privileges) {
+			if (privileges == null) {
+				return Collections.emptySet();
+			}
+			Set<String> names = new HashSet<String>(privileges.size());
+			for (Privilege privilege : privileges) {
+				names.add(privilege.getPrivilege());
+			}
+			return Collections.unmodifiableSet(names);
+		}
+	}
 }
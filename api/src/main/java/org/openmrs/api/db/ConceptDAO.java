@@ -10,11 +10,13 @@
 package org.openmrs.api.db;
 
 import java.util.Collection;
+import java.util.Date;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
+import java.util.function.Consumer;
 
 import org.openmrs.Concept;
 import org.openmrs.ConceptAnswer;
@@ -320,11 +322,102 @@ public interface ConceptDAO {
 	 */
 	public Iterator<Concept> conceptIterator();
 	
+	/**
+	 * @see org.openmrs.api.ConceptService#conceptIterator(List, List, Date)
+	 */
+	public Iterator<Concept> conceptIterator(List<ConceptClass> conceptClasses, List<ConceptDatatype> datatypes,
+	        Date changedSince);
+	
 	/**
 	 * @see org.openmrs.api.ConceptService#getConceptsByMapping(java.lang.String, java.lang.String)
 	 */
 	public List<Concept> getConceptsByMapping(String code, String sourceName, boolean includeRetired);
 	
+	/**
+	 * Reads every concept mapping without loading the mapped objects, each row is passed to the
+	 * consumer as an array of the concept id, whether the concept is retired, the reference term id,
+	 * the term code, the source name and the source HL7 code
+	 *
+	 * @param consumer the consumer of the rows
+	 * @since 2.2.0
+	 */
+	public void streamConceptMappings(Consumer<Object[]> consumer);
+	
+	/**
+	 * Reads every concept set membership without loading the concepts, each row is passed to the
+	 * consumer as an array of the set's concept id, the member's concept id and whether the member
+	 * is a set itself. The members of each set are read in their sort order.
+	 *
+	 * @param consumer the consumer of the rows
+	 * @since 2.2.0
+	 */
+	public void streamConceptSetMembers(Consumer<Object[]> consumer);
+	
+	/**
+	 * Reads the id and uuid of every concept, each row is passed to the consumer as an array of the
+	 * concept id and the uuid
+	 *
+	 * @param consumer the consumer of the rows
+	 * @since 2.2.0
+	 */
+	public void streamConceptIds(Consumer<Object[]> consumer);
+	
+	/**
+	 * Reads every non voided name of the non retired concepts, each row is passed to the consumer as
+	 * an array of the concept uuid, the name and its locale
+	 *
+	 * @param consumer the consumer of the rows
+	 * @since 2.2.0
+	 */
+	public void streamConceptNames(Consumer<Object[]> consumer);
+	
+	/**
+	 * Reads every non voided name of the non retired concepts for suggesting concepts by name, each
+	 * row is passed to the consumer as an array of the concept id, the concept class id, the name,
+	 * its locale, its type and whether it is the preferred name in its locale
+	 *
+	 * @param consumer the consumer of the rows
+	 * @since 2.2.0
+	 */
+	public void streamSearchableConceptNames(Consumer<Object[]> consumer);
+	
+	/**
+	 * Reads the id and name of every non retired drug, each row is passed to the consumer as an
+	 * array
+	 *
+	 * @param consumer the consumer of the rows
+	 * @since 2.2.0
+	 */
+	public void streamSearchableDrugNames(Consumer<Object[]> consumer);
+	
+	/**
+	 * Inserts the given new concepts along with their names, descriptions, attributes and mappings,
+	 * bypassing the session so that no cascades or search index updates are done per concept. Answers
+	 * and set members are not inserted, see {@link #importConceptMembers(List, List)}.
+	 *
+	 * @param concepts the concepts to insert, which must not exist in the database yet
+	 * @since 2.2.0
+	 */
+	public void importConcepts(List<Concept> concepts);
+	
+	/**
+	 * Inserts the given answers and set members of imported concepts, bypassing the session
+	 *
+	 * @param answers the answers to insert
+	 * @param conceptSets the set members to insert
+	 * @since 2.2.0
+	 */
+	public void importConceptMembers(List<ConceptAnswer> answers, List<ConceptSet> conceptSets);
+	
+	/**
+	 * Adds the given concept names to the search index, e.g. the names of imported concepts, without
+	 * rebuilding the index of the other names
+	 *
+	 * @param conceptNameIds the ids of the concept names to index
+	 * @since 2.2.0
+	 */
+	public void updateConceptNameIndexes(List<Integer> conceptNameIds);
+	
 	/**
 	 * @param uuid
 	 * @return concept or null
@@ -9,9 +9,11 @@
  */
 package org.openmrs.api.db;
 
+import java.util.Collection;
 import java.util.Date;
 import java.util.List;
 import java.util.Map;
+import java.util.function.BiConsumer;
 
 import org.openmrs.Cohort;
 import org.openmrs.Encounter;
@@ -64,6 +66,20 @@ public interface EncounterDAO {
 	 */
 	public List<Encounter> getEncounters(EncounterSearchCriteria encounterSearchCriteria);
 	
+	/**
+	 * Gets the encounters matching the search criteria, leaving out the encounters of the given
+	 * types in the query itself
+	 * 
+	 * @param encounterSearchCriteria the search criteria
+	 * @param hiddenEncounterTypes the types of the encounters to leave out, typically the ones the
+	 *            user is not allowed to view, null or empty to leave none out
+	 * @return the matching encounters
+	 * @see org.openmrs.api.EncounterService#getEncounters(org.openmrs.parameter.EncounterSearchCriteria)
+	 * @since 2.2.0
+	 */
+	public List<Encounter> getEncounters(EncounterSearchCriteria encounterSearchCriteria,
+	        Collection<EncounterType> hiddenEncounterTypes);
+	
 	/**
 	 * Save an Encounter Type
 	 * 
@@ -155,6 +171,17 @@ public interface EncounterDAO {
 	 */
 	List<Encounter> getEncounters(String query, Integer patientId, Integer start, Integer length, boolean includeVoided);
 	
+	/**
+	 * Same as {@link #getEncounters(String, Integer, Integer, Integer, boolean)}, leaving out the
+	 * encounters of the given types before the batch is taken
+	 * 
+	 * @param hiddenEncounterTypes the types of the encounters to leave out, null or empty to leave
+	 *            none out
+	 * @since 2.2.0
+	 */
+	List<Encounter> getEncounters(String query, Integer patientId, Integer start, Integer length, boolean includeVoided,
+	        Collection<EncounterType> hiddenEncounterTypes);
+	
 	/**
 	 * Gets the location of the encounter
 	 * 
@@ -168,6 +195,17 @@ public interface EncounterDAO {
 	 */
 	public Map<Integer, List<Encounter>> getAllEncounters(Cohort patients);
 	
+	/**
+	 * @see EncounterService#streamEncounters(Cohort, BiConsumer)
+	 */
+	public void streamEncounters(Cohort patients, BiConsumer<Integer, List<Encounter>> action);
+	
+	/**
+	 * @see EncounterService#streamEncounterProperties(Cohort, List, BiConsumer)
+	 */
+	public void streamEncounterProperties(Cohort patients, List<String> properties,
+	        BiConsumer<Integer, List<Object[]>> action);
+	
 	/**
 	 * Return the number of encounters matching a patient name or patient identifier
 	 * 
@@ -179,6 +217,17 @@ public interface EncounterDAO {
 	 */
 	public Long getCountOfEncounters(String query, Integer patientId, boolean includeVoided);
 	
+	/**
+	 * Same as {@link #getCountOfEncounters(String, Integer, boolean)}, leaving out the encounters
+	 * of the given types
+	 * 
+	 * @param hiddenEncounterTypes the types of the encounters to leave out, null or empty to leave
+	 *            none out
+	 * @since 2.2.0
+	 */
+	public Long getCountOfEncounters(String query, Integer patientId, boolean includeVoided,
+	        Collection<EncounterType> hiddenEncounterTypes);
+	
 	/**
 	 * @see EncounterService#getEncountersByVisit(Visit, boolean)
 	 */
@@ -242,11 +291,33 @@ public interface EncounterDAO {
 	List<Encounter> getEncountersByVisitsAndPatient(Patient patient, boolean includeVoided, String query, Integer start,
 	        Integer length);
 	
+	/**
+	 * Same as {@link #getEncountersByVisitsAndPatient(Patient, boolean, String, Integer, Integer)},
+	 * leaving out the encounters of the given types before the batch is taken
+	 * 
+	 * @param hiddenEncounterTypes the types of the encounters to leave out, null or empty to leave
+	 *            none out
+	 * @since 2.2.0
+	 */
+	List<Encounter> getEncountersByVisitsAndPatient(Patient patient, boolean includeVoided, String query, Integer start,
+	        Integer length, Collection<EncounterType> hiddenEncounterTypes);
+	
 	/**
 	 * @see EncounterService#getEncountersByVisitsAndPatientCount(Patient, boolean, String)
 	 */
 	Integer getEncountersByVisitsAndPatientCount(Patient patient, boolean includeVoided, String query);
 	
+	/**
+	 * Same as {@link #getEncountersByVisitsAndPatientCount(Patient, boolean, String)}, leaving out
+	 * the encounters of the given types
+	 * 
+	 * @param hiddenEncounterTypes the types of the encounters to leave out, null or empty to leave
+	 *            none out
+	 * @since 2.2.0
+	 */
+	Integer getEncountersByVisitsAndPatientCount(Patient patient, boolean includeVoided, String query,
+	        Collection<EncounterType> hiddenEncounterTypes);
+	
 	/**
 	 * Get encounter roles by name
 	 * 
@@ -9,8 +9,10 @@
  */
 package org.openmrs.api.db;
 
+import java.util.Collection;
 import java.util.Date;
 import java.util.List;
+import java.util.function.Consumer;
 
 import org.openmrs.Concept;
 import org.openmrs.ConceptName;
@@ -77,4 +79,28 @@ public interface ObsDAO {
 	 * @return Obs or null
 	 */
 	public Obs getRevisionObs(Obs initialObs);
+	
+	/**
+	 * Reads the obs id, question concept id, obs datetime, numeric value and coded answer concept
+	 * id of the non voided observations of a person, ordered by obs datetime
+	 * 
+	 * @param personId the person id
+	 * @param conceptId the question concept id to match on, null for all questions
+	 * @return the rows as arrays
+	 * @since 2.2.0
+	 */
+	public List<Object[]> getObsTimeSeriesValues(Integer personId, Integer conceptId);
+	
+	/**
+	 * Reads the non voided observations of several persons for a question without loading the
+	 * observations, each one is passed to the consumer as an array of the person id, obs id, obs
+	 * datetime, numeric value and coded answer concept id, ordered by person and obs datetime
+	 * 
+	 * @param personIds the person ids
+	 * @param conceptId the question concept id to match on
+	 * @param consumer the consumer of the rows
+	 * @since 2.2.0
+	 */
+	public void streamObsTimeSeriesValuesForPersons(Collection<Integer> personIds, Integer conceptId,
+	        Consumer<Object[]> consumer);
 }
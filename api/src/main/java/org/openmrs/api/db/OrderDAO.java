@@ -9,6 +9,7 @@
  */
 package org.openmrs.api.db;
 
+import java.util.Collection;
 import java.util.Date;
 import java.util.List;
 import java.util.Locale;
@@ -95,12 +96,41 @@ public interface OrderDAO {
 	 */
 	public Long getNextOrderNumberSeedSequenceValue();
 	
+	/**
+	 * Reserves a block of consecutive order number seeds
+	 * 
+	 * @param blockSize the number of seeds to reserve
+	 * @return the first seed in the reserved block
+	 */
+	public Long getNextOrderNumberSeedSequenceValue(int blockSize);
+	
 	/**
 	 * @see org.openmrs.api.OrderService#getActiveOrders(org.openmrs.Patient, org.openmrs.OrderType,
 	 *      org.openmrs.CareSetting, java.util.Date)
 	 */
 	public List<Order> getActiveOrders(Patient patient, List<OrderType> orderTypes, CareSetting careSetting, Date asOfDate);
 	
+	/**
+	 * Reads the order id, care setting id, order type id, date activated, date stopped and auto
+	 * expire date of the non voided orders of a patient, other than discontinuation orders, that
+	 * had not been stopped or expired as of a point in time, including orders activated after it
+	 * 
+	 * @param patientId the patient id
+	 * @param asOfDate the point in time
+	 * @return the rows as arrays
+	 * @since 2.2.0
+	 */
+	public List<Object[]> getActiveOrderDates(Integer patientId, Date asOfDate);
+	
+	/**
+	 * Gets the orders with the given order ids
+	 * 
+	 * @param orderIds the order ids
+	 * @return the orders, in no particular order
+	 * @since 2.2.0
+	 */
+	public List<Order> getOrdersByIds(Collection<Integer> orderIds);
+	
 	/**
 	 * Get care setting by type
 	 * 
@@ -9,7 +9,10 @@
  */
 package org.openmrs.api.db;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
 
 import org.openmrs.Allergies;
 import org.openmrs.Allergy;
@@ -176,6 +179,26 @@ public interface PatientDAO {
 	 */
 	public List<Patient> getDuplicatePatientsByAttributes(List<String> attributes) throws DAOException;
 	
+	/**
+	 * Reads the names, genders and birthdates of all non voided patients without loading the
+	 * patients, each non voided name is passed to the consumer as an array of the patient id,
+	 * gender, birthdate, given name, middle name, family name and second family name, ordered by
+	 * patient id
+	 * 
+	 * @param consumer the consumer of the rows
+	 * @since 2.2.0
+	 */
+	public void streamDuplicatePatientDetectionRows(Consumer<Object[]> consumer) throws DAOException;
+	
+	/**
+	 * Finds which of the given patients still exist and are not voided
+	 * 
+	 * @param patientIds the patient ids to check
+	 * @return the ids of the given patients that are not voided
+	 * @since 2.2.0
+	 */
+	public Set<Integer> getNonVoidedPatientIds(Collection<Integer> patientIds) throws DAOException;
+	
 	/**
 	 * @see org.openmrs.api.PatientService#isIdentifierInUseByAnotherPatient(PatientIdentifier)
 	 */
@@ -10,6 +10,7 @@
 package org.openmrs.api.db;
 
 import java.util.List;
+import java.util.Set;
 
 import org.openmrs.Person;
 import org.openmrs.Privilege;
@@ -184,6 +185,16 @@ public interface UserDAO {
 	 */
 	public List<User> getUsersByPerson(Person person, boolean includeRetired);
 	
+	/**
+	 * Gets the names of the roles of a user as they are saved in the database, without flushing any
+	 * changes made to the user in the current session
+	 *
+	 * @param user the user
+	 * @return the role names
+	 * @since 2.2.0
+	 */
+	public Set<String> getSavedRoleNames(User user);
+	
 	/**
 	 * @see UserService#getUsers(String, List, boolean, Integer, Integer)
 	 */
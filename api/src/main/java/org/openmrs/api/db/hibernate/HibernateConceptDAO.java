@@ -13,29 +13,41 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Set;
 import java.util.Vector;
+import java.util.function.Consumer;
 
 import org.apache.commons.collections.CollectionUtils;
 import org.apache.commons.collections.Transformer;
 import org.apache.commons.lang.StringUtils;
+import org.hibernate.CacheMode;
 import org.hibernate.Criteria;
 import org.hibernate.FlushMode;
+import org.hibernate.Hibernate;
 import org.hibernate.Query;
 import org.hibernate.SQLQuery;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
+import org.hibernate.Session;
 import org.hibernate.SessionFactory;
+import org.hibernate.StatelessSession;
 import org.hibernate.criterion.Criterion;
 import org.hibernate.criterion.MatchMode;
 import org.hibernate.criterion.Order;
 import org.hibernate.criterion.Projections;
 import org.hibernate.criterion.Restrictions;
 import org.hibernate.criterion.SimpleExpression;
+import org.hibernate.search.FullTextSession;
+import org.hibernate.search.Search;
 import org.hibernate.transform.DistinctRootEntityResultTransformer;
 import org.openmrs.Concept;
 import org.openmrs.ConceptAnswer;
@@ -83,6 +95,12 @@ public class HibernateConceptDAO implements ConceptDAO {
 	
 	protected final Logger log = LoggerFactory.getLogger(getClass());
 	
+	/**
+	 * The number of concept names loaded and indexed at a time by
+	 * {@link #updateConceptNameIndexes(List)}
+	 */
+	private static final int INDEX_BATCH_SIZE = 1000;
+	
 	private SessionFactory sessionFactory;
 	
 	/**
@@ -975,21 +993,61 @@ public class HibernateConceptDAO implements ConceptDAO {
 	 */
 	@Override
 	public Iterator<Concept> conceptIterator() {
-		return new ConceptIterator();
+		return conceptIterator(null, null, null);
 	}
 	
 	/**
-	 * An iterator that loops over all concepts in the dictionary one at a time
+	 * @see org.openmrs.api.db.ConceptDAO#conceptIterator(List, List, Date)
+	 */
+	@Override
+	public Iterator<Concept> conceptIterator(List<ConceptClass> conceptClasses, List<ConceptDatatype> datatypes,
+	        Date changedSince) {
+		Criteria criteria = sessionFactory.getCurrentSession().createCriteria(Concept.class);
+		criteria.setProjection(Projections.id());
+		if (CollectionUtils.isNotEmpty(conceptClasses)) {
+			criteria.add(Restrictions.in("conceptClass", conceptClasses));
+		}
+		if (CollectionUtils.isNotEmpty(datatypes)) {
+			criteria.add(Restrictions.in("datatype", datatypes));
+		}
+		if (changedSince != null) {
+			criteria.add(Restrictions.or(Restrictions.ge("dateChanged", changedSince), Restrictions.ge("dateCreated",
+			    changedSince)));
+		}
+		criteria.addOrder(Order.asc("conceptId"));
+		
+		// only the ids are read up front, so the cursor is not held open while the caller iterates
+		List<Integer> conceptIds = new ArrayList<Integer>();
+		ScrollableResults results = criteria.setReadOnly(true).setFetchSize(1000).scroll(ScrollMode.FORWARD_ONLY);
+		try {
+			while (results.next()) {
+				conceptIds.add(results.getInteger(0));
+			}
+		}
+		finally {
+			results.close();
+		}
+		return new ConceptIterator(conceptIds);
+	}
+	
+	/**
+	 * An iterator that loops over the concepts with the given ids, the concepts are loaded a chunk at
+	 * a time and the previous chunk is evicted from the session when the next one is loaded
 	 */
 	private class ConceptIterator implements Iterator<Concept> {
 		
-		Concept currentConcept = null;
+		private static final int CHUNK_SIZE = 100;
+		
+		private final List<Integer> conceptIds;
+		
+		private int position = 0;
 		
-		Concept nextConcept;
+		private List<Concept> chunk = Collections.emptyList();
 		
-		public ConceptIterator() {
-			final int firstConceptId = getMinConceptId();
-			nextConcept = getConcept(firstConceptId);
+		private int chunkPosition = 0;
+		
+		public ConceptIterator(List<Integer> conceptIds) {
+			this.conceptIds = conceptIds;
 		}
 		
 		/**
@@ -997,7 +1055,17 @@ public class HibernateConceptDAO implements ConceptDAO {
 		 */
 		@Override
 		public boolean hasNext() {
-			return nextConcept != null;
+			if (chunkPosition < chunk.size()) {
+				return true;
+			}
+			evictChunk();
+			while (chunk.isEmpty() && position < conceptIds.size()) {
+				// concepts purged since the ids were read are skipped
+				List<Integer> ids = conceptIds.subList(position, Math.min(position + CHUNK_SIZE, conceptIds.size()));
+				position += ids.size();
+				chunk = loadChunk(ids);
+			}
+			return !chunk.isEmpty();
 		}
 		
 		/**
@@ -1005,14 +1073,10 @@ public class HibernateConceptDAO implements ConceptDAO {
 		 */
 		@Override
 		public Concept next() {
-			if (currentConcept != null) {
-				sessionFactory.getCurrentSession().evict(currentConcept);
+			if (!hasNext()) {
+				throw new NoSuchElementException();
 			}
-			
-			currentConcept = nextConcept;
-			nextConcept = getNextConcept(currentConcept);
-			
-			return currentConcept;
+			return chunk.get(chunkPosition++);
 		}
 		
 		/**
@@ -1023,6 +1087,40 @@ public class HibernateConceptDAO implements ConceptDAO {
 			throw new UnsupportedOperationException();
 		}
 		
+		/**
+		 * Loads the concepts with the given ids, initializing their names, mappings and set members
+		 * with one query per collection for the whole chunk
+		 */
+		@SuppressWarnings("unchecked")
+		private List<Concept> loadChunk(List<Integer> ids) {
+			Session session = sessionFactory.getCurrentSession();
+			List<Concept> loaded = null;
+			for (String collection : new String[] { "names", "conceptMappings", "conceptSets" }) {
+				// every query returns the same instances, each one initializes another collection
+				loaded = session.createQuery(
+				    "select distinct c from Concept c left join fetch c." + collection + " where c.conceptId in (:ids)")
+				        .setParameterList("ids", ids).list();
+			}
+			
+			List<Concept> sorted = new ArrayList<Concept>(loaded);
+			sorted.sort(Comparator.comparing(Concept::getConceptId));
+			chunkPosition = 0;
+			return sorted;
+		}
+		
+		private void evictChunk() {
+			Session session = sessionFactory.getCurrentSession();
+			for (Concept concept : chunk) {
+				if (concept.getConceptSets() != null && Hibernate.isInitialized(concept.getConceptSets())) {
+					for (ConceptSet conceptSet : concept.getConceptSets()) {
+						session.evict(conceptSet);
+					}
+				}
+				session.evict(concept);
+			}
+			chunk = Collections.emptyList();
+			chunkPosition = 0;
+		}
 	}
 	
 	/**
@@ -1072,6 +1170,176 @@ public class HibernateConceptDAO implements ConceptDAO {
 		return (List<Concept>) criteria.list();
 	}
 	
+	/**
+	 * @see org.openmrs.api.db.ConceptDAO#streamConceptMappings(Consumer)
+	 */
+	@Override
+	public void streamConceptMappings(Consumer<Object[]> consumer) {
+		scroll("select c.conceptId, c.retired, term.conceptReferenceTermId, term.code, source.name, source.hl7Code "
+		        + "from ConceptMap map join map.concept c join map.conceptReferenceTerm term join term.conceptSource source",
+		    consumer);
+	}
+	
+	/**
+	 * @see org.openmrs.api.db.ConceptDAO#streamConceptSetMembers(Consumer)
+	 */
+	@Override
+	public void streamConceptSetMembers(Consumer<Object[]> consumer) {
+		scroll("select cs.conceptSet.conceptId, c.conceptId, c.set from ConceptSet cs join cs.concept c "
+		        + "order by cs.conceptSet.conceptId, cs.sortWeight, cs.conceptSetId", consumer);
+	}
+	
+	/**
+	 * @see org.openmrs.api.db.ConceptDAO#streamConceptIds(Consumer)
+	 */
+	@Override
+	public void streamConceptIds(Consumer<Object[]> consumer) {
+		scroll("select c.conceptId, c.uuid from Concept c", consumer);
+	}
+	
+	/**
+	 * @see org.openmrs.api.db.ConceptDAO#streamConceptNames(Consumer)
+	 */
+	@Override
+	public void streamConceptNames(Consumer<Object[]> consumer) {
+		scroll("select c.uuid, n.name, n.locale from ConceptName n join n.concept c "
+		        + "where n.voided = false and c.retired = false", consumer);
+	}
+	
+	/**
+	 * @see org.openmrs.api.db.ConceptDAO#streamSearchableConceptNames(Consumer)
+	 */
+	@Override
+	public void streamSearchableConceptNames(Consumer<Object[]> consumer) {
+		scroll("select c.conceptId, c.conceptClass.conceptClassId, n.name, n.locale, n.conceptNameType, n.localePreferred "
+		        + "from ConceptName n join n.concept c where n.voided = false and c.retired = false", consumer);
+	}
+	
+	/**
+	 * @see org.openmrs.api.db.ConceptDAO#streamSearchableDrugNames(Consumer)
+	 */
+	@Override
+	public void streamSearchableDrugNames(Consumer<Object[]> consumer) {
+		scroll("select d.drugId, d.name from Drug d where d.retired = false", consumer);
+	}
+	
+	private void scroll(String hql, Consumer<Object[]> consumer) {
+		ScrollableResults results = sessionFactory.getCurrentSession().createQuery(hql).setReadOnly(true).setFetchSize(
+		    1000).scroll(ScrollMode.FORWARD_ONLY);
+		try {
+			while (results.next()) {
+				consumer.accept(results.get());
+			}
+		}
+		finally {
+			results.close();
+		}
+	}
+	
+	/**
+	 * @see org.openmrs.api.db.ConceptDAO#importConcepts(List)
+	 */
+	@Override
+	public void importConcepts(List<Concept> concepts) {
+		withStatelessSession(statelessSession -> {
+			for (Concept concept : concepts) {
+				statelessSession.insert(concept);
+			}
+			for (Concept concept : concepts) {
+				for (ConceptName name : concept.getNames(true)) {
+					statelessSession.insert(name);
+					if (name.getTags() != null) {
+						for (ConceptNameTag tag : name.getTags()) {
+							if (tag.getConceptNameTagId() == null) {
+								statelessSession.insert(tag);
+							}
+							statelessSession.createSQLQuery(
+							    "insert into concept_name_tag_map (concept_name_id, concept_name_tag_id) values (:name, :tag)")
+							        .setInteger("name", name.getConceptNameId()).setInteger("tag",
+							            tag.getConceptNameTagId()).executeUpdate();
+						}
+					}
+				}
+				for (ConceptDescription description : concept.getDescriptions()) {
+					statelessSession.insert(description);
+				}
+				if (concept.getAttributes() != null) {
+					for (ConceptAttribute attribute : concept.getAttributes()) {
+						statelessSession.insert(attribute);
+					}
+				}
+			}
+			for (Concept concept : concepts) {
+				for (ConceptMap map : concept.getConceptMappings()) {
+					if (map.getConceptReferenceTerm().getConceptReferenceTermId() == null) {
+						statelessSession.insert(map.getConceptReferenceTerm());
+					}
+					statelessSession.insert(map);
+				}
+			}
+		});
+	}
+	
+	/**
+	 * @see org.openmrs.api.db.ConceptDAO#importConceptMembers(List, List)
+	 */
+	@Override
+	public void importConceptMembers(List<ConceptAnswer> answers, List<ConceptSet> conceptSets) {
+		withStatelessSession(statelessSession -> {
+			for (ConceptAnswer answer : answers) {
+				statelessSession.insert(answer);
+			}
+			for (ConceptSet conceptSet : conceptSets) {
+				statelessSession.insert(conceptSet);
+			}
+		});
+	}
+	
+	/**
+	 * @see org.openmrs.api.db.ConceptDAO#updateConceptNameIndexes(List)
+	 */
+	@Override
+	public void updateConceptNameIndexes(List<Integer> conceptNameIds) {
+		FullTextSession session = Search.getFullTextSession(sessionFactory.getCurrentSession());
+		session.flush();
+		
+		CacheMode cacheMode = session.getCacheMode();
+		try {
+			session.setCacheMode(CacheMode.IGNORE);
+			for (int from = 0; from < conceptNameIds.size(); from += INDEX_BATCH_SIZE) {
+				List<Integer> batch = conceptNameIds.subList(from, Math.min(from + INDEX_BATCH_SIZE, conceptNameIds.size()));
+				for (Object name : session.createCriteria(ConceptName.class).add(Restrictions.in("conceptNameId", batch))
+				        .list()) {
+					session.index(name);
+				}
+				//apply changes to indexes and free memory since the queue is processed
+				session.flushToIndexes();
+				session.clear();
+			}
+		}
+		finally {
+			session.setCacheMode(cacheMode);
+		}
+	}
+	
+	/**
+	 * Runs the given work with a stateless session on the connection of the current session, so that
+	 * its inserts are part of the current transaction
+	 */
+	private void withStatelessSession(Consumer<StatelessSession> work) {
+		Session session = sessionFactory.getCurrentSession();
+		session.flush();
+		session.doWork(connection -> {
+			StatelessSession statelessSession = sessionFactory.openStatelessSession(connection);
+			try {
+				work.accept(statelessSession);
+			}
+			finally {
+				statelessSession.close();
+			}
+		});
+	}
+	
 	/**
 	 * @see org.openmrs.api.db.ConceptDAO#getConceptByUuid(java.lang.String)
 	 */
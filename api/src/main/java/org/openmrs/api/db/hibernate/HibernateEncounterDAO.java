@@ -10,17 +10,26 @@
 package org.openmrs.api.db.hibernate;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.regex.Pattern;
 
 import org.apache.commons.lang.StringUtils;
+import org.hibernate.CacheMode;
 import org.hibernate.Criteria;
 import org.hibernate.FlushMode;
+import org.hibernate.Query;
 import org.hibernate.SQLQuery;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
 import org.hibernate.Session;
 import org.hibernate.SessionFactory;
 import org.hibernate.criterion.Conjunction;
@@ -57,6 +66,13 @@ public class HibernateEncounterDAO implements EncounterDAO {
 	
 	protected final Logger log = LoggerFactory.getLogger(getClass());
 	
+	/**
+	 * The number of patients whose encounters are streamed before the session is cleared
+	 */
+	private static final int STREAM_CHUNK_SIZE = 500;
+	
+	private static final Pattern PROPERTY_PATH = Pattern.compile("[A-Za-z]\\w*(\\.[A-Za-z]\\w*)*");
+	
 	/**
 	 * Hibernate session factory
 	 */
@@ -112,9 +128,19 @@ public class HibernateEncounterDAO implements EncounterDAO {
 	/**
 	 * @see org.openmrs.api.db.EncounterDAO#getEncounters(org.openmrs.parameter.EncounterSearchCriteria)
 	 */
-	@SuppressWarnings("unchecked")
 	@Override
 	public List<Encounter> getEncounters(EncounterSearchCriteria searchCriteria) {
+		return getEncounters(searchCriteria, null);
+	}
+	
+	/**
+	 * @see org.openmrs.api.db.EncounterDAO#getEncounters(org.openmrs.parameter.EncounterSearchCriteria,
+	 *      java.util.Collection)
+	 */
+	@SuppressWarnings("unchecked")
+	@Override
+	public List<Encounter> getEncounters(EncounterSearchCriteria searchCriteria,
+	        Collection<EncounterType> hiddenEncounterTypes) {
 		Criteria crit = sessionFactory.getCurrentSession().createCriteria(Encounter.class);
 		
 		if (searchCriteria.getPatient() != null && searchCriteria.getPatient().getPatientId() != null) {
@@ -160,6 +186,7 @@ public class HibernateEncounterDAO implements EncounterDAO {
 		if (!searchCriteria.getIncludeVoided()) {
 			crit.add(Restrictions.eq("voided", false));
 		}
+		addHiddenEncounterTypesRestriction(crit, "encounterType", hiddenEncounterTypes);
 		crit.addOrder(Order.asc("encounterDatetime"));
 		return crit.list();
 	}
@@ -275,14 +302,24 @@ public class HibernateEncounterDAO implements EncounterDAO {
 	 *      boolean)
 	 */
 	@Override
-	@SuppressWarnings("unchecked")
 	public List<Encounter> getEncounters(String query, Integer patientId, Integer start, Integer length,
 	        boolean includeVoided) {
+		return getEncounters(query, patientId, start, length, includeVoided, null);
+	}
+	
+	/**
+	 * @see org.openmrs.api.db.EncounterDAO#getEncounters(String, Integer, Integer, Integer,
+	 *      boolean, Collection)
+	 */
+	@Override
+	@SuppressWarnings("unchecked")
+	public List<Encounter> getEncounters(String query, Integer patientId, Integer start, Integer length,
+	        boolean includeVoided, Collection<EncounterType> hiddenEncounterTypes) {
 		if (StringUtils.isBlank(query) && patientId == null) {
 			return Collections.emptyList();
 		}
 		
-		Criteria criteria = createEncounterByQueryCriteria(query, patientId, includeVoided, true);
+		Criteria criteria = createEncounterByQueryCriteria(query, patientId, includeVoided, true, hiddenEncounterTypes);
 		
 		if (start != null) {
 			criteria.setFirstResult(start);
@@ -339,6 +376,90 @@ public class HibernateEncounterDAO implements EncounterDAO {
 		return encountersBypatient;
 	}
 	
+	/**
+	 * @see EncounterDAO#streamEncounters(Cohort, BiConsumer)
+	 */
+	@Override
+	public void streamEncounters(Cohort patients, BiConsumer<Integer, List<Encounter>> action) {
+		streamEncountersByPatient(patients, "e", row -> (Encounter) row[1], action);
+	}
+	
+	/**
+	 * @see EncounterDAO#streamEncounterProperties(Cohort, List, BiConsumer)
+	 */
+	@Override
+	public void streamEncounterProperties(Cohort patients, List<String> properties,
+	        BiConsumer<Integer, List<Object[]>> action) {
+		if (properties == null || properties.isEmpty()) {
+			throw new DAOException("At least one encounter property is required");
+		}
+		StringBuilder select = new StringBuilder();
+		for (String property : properties) {
+			if (property == null || !PROPERTY_PATH.matcher(property).matches()) {
+				throw new DAOException("Invalid encounter property: " + property);
+			}
+			if (select.length() > 0) {
+				select.append(", ");
+			}
+			select.append("e.").append(property);
+		}
+		streamEncountersByPatient(patients, select.toString(), row -> Arrays.copyOfRange(row, 1, row.length), action);
+	}
+	
+	/**
+	 * Selects the encounters of a chunk of patients at a time, scrolls through them in patient id
+	 * order and hands each patient's encounters to the action, then clears the session before the
+	 * next chunk so that it does not grow with the cohort
+	 */
+	private <T> void streamEncountersByPatient(Cohort patients, String select, Function<Object[], T> toItem,
+	        BiConsumer<Integer, List<T>> action) {
+		Session session = sessionFactory.getCurrentSession();
+		// clearing the session must not lose pending changes
+		session.flush();
+		
+		List<Integer> patientIds;
+		if (patients == null) {
+			@SuppressWarnings("unchecked")
+			List<Integer> idsWithEncounters = session.createQuery(
+			    "select distinct e.patient.personId from Encounter e where e.voided = false order by e.patient.personId")
+			        .list();
+			patientIds = idsWithEncounters;
+		} else {
+			patientIds = new ArrayList<Integer>(patients.getMemberIds());
+		}
+		
+		String hql = "select e.patient.personId, " + select + " from Encounter e where e.voided = false"
+		        + " and e.patient.personId in (:patientIds) order by e.patient.personId, e.encounterDatetime desc";
+		for (int from = 0; from < patientIds.size(); from += STREAM_CHUNK_SIZE) {
+			Query query = session.createQuery(hql).setParameterList("patientIds",
+			    patientIds.subList(from, Math.min(from + STREAM_CHUNK_SIZE, patientIds.size())));
+			ScrollableResults results = query.setReadOnly(true).setCacheMode(CacheMode.IGNORE).setFetchSize(1000)
+			        .scroll(ScrollMode.FORWARD_ONLY);
+			try {
+				Integer patientId = null;
+				List<T> items = null;
+				while (results.next()) {
+					Object[] row = results.get();
+					if (!row[0].equals(patientId)) {
+						if (patientId != null) {
+							action.accept(patientId, items);
+						}
+						patientId = (Integer) row[0];
+						items = new ArrayList<T>();
+					}
+					items.add(toItem.apply(row));
+				}
+				if (patientId != null) {
+					action.accept(patientId, items);
+				}
+			}
+			finally {
+				results.close();
+			}
+			session.clear();
+		}
+	}
+	
 	/**
 	 * Create the criteria for fetching all encounters based on cohort
 	 *
@@ -369,7 +490,17 @@ public class HibernateEncounterDAO implements EncounterDAO {
 	 */
 	@Override
 	public Long getCountOfEncounters(String query, Integer patientId, boolean includeVoided) {
-		Criteria criteria = createEncounterByQueryCriteria(query, patientId, includeVoided, false);
+		return getCountOfEncounters(query, patientId, includeVoided, null);
+	}
+	
+	/**
+	 * @see org.openmrs.api.db.EncounterDAO#getCountOfEncounters(java.lang.String,
+	 *      java.lang.Integer, boolean, java.util.Collection)
+	 */
+	@Override
+	public Long getCountOfEncounters(String query, Integer patientId, boolean includeVoided,
+	        Collection<EncounterType> hiddenEncounterTypes) {
+		Criteria criteria = createEncounterByQueryCriteria(query, patientId, includeVoided, false, hiddenEncounterTypes);
 		
 		criteria.setProjection(Projections.countDistinct("enc.encounterId"));
 		return (Long) criteria.uniqueResult();
@@ -383,14 +514,16 @@ public class HibernateEncounterDAO implements EncounterDAO {
 	 * @param patientId the patient id
 	 * @param includeVoided Specifies whether voided encounters should be included
 	 * @param orderByNames specifies whether the encounters should be ordered by person names
+	 * @param hiddenEncounterTypes the types of the encounters to leave out
 	 * @return Criteria
 	 */
 	private Criteria createEncounterByQueryCriteria(String query, Integer patientId, boolean includeVoided,
-	        boolean orderByNames) {
+	        boolean orderByNames, Collection<EncounterType> hiddenEncounterTypes) {
 		Criteria criteria = sessionFactory.getCurrentSession().createCriteria(Encounter.class, "enc");
 		if (!includeVoided) {
 			criteria.add(Restrictions.eq("enc.voided", false));
 		}
+		addHiddenEncounterTypesRestriction(criteria, "enc.encounterType", hiddenEncounterTypes);
 		
 		criteria = criteria.createCriteria("patient", "pat");
 		if (patientId != null) {
@@ -548,8 +681,18 @@ public class HibernateEncounterDAO implements EncounterDAO {
 	@Override
 	public List<Encounter> getEncountersByVisitsAndPatient(Patient patient, boolean includeVoided, String query,
 	        Integer start, Integer length) {
+		return getEncountersByVisitsAndPatient(patient, includeVoided, query, start, length, null);
+	}
+	
+	/**
+	 * @see org.openmrs.api.db.EncounterDAO#getEncountersByVisitsAndPatient(org.openmrs.Patient,
+	 *      boolean, java.lang.String, java.lang.Integer, java.lang.Integer, java.util.Collection)
+	 */
+	@Override
+	public List<Encounter> getEncountersByVisitsAndPatient(Patient patient, boolean includeVoided, String query,
+	        Integer start, Integer length, Collection<EncounterType> hiddenEncounterTypes) {
 		Criteria criteria = sessionFactory.getCurrentSession().createCriteria(Encounter.class);
-		addEncountersByPatientCriteria(criteria, patient, includeVoided, query);
+		addEncountersByPatientCriteria(criteria, patient, includeVoided, query, hiddenEncounterTypes);
 		
 		@SuppressWarnings("unchecked")
 		List<Encounter> encounters = criteria.list();
@@ -598,6 +741,16 @@ public class HibernateEncounterDAO implements EncounterDAO {
 	 */
 	@Override
 	public Integer getEncountersByVisitsAndPatientCount(Patient patient, boolean includeVoided, String query) {
+		return getEncountersByVisitsAndPatientCount(patient, includeVoided, query, null);
+	}
+	
+	/**
+	 * @see org.openmrs.api.db.EncounterDAO#getEncountersByVisitsAndPatientCount(org.openmrs.Patient,
+	 *      boolean, java.lang.String, java.util.Collection)
+	 */
+	@Override
+	public Integer getEncountersByVisitsAndPatientCount(Patient patient, boolean includeVoided, String query,
+	        Collection<EncounterType> hiddenEncounterTypes) {
 		Criteria criteria = sessionFactory.getCurrentSession().createCriteria(Visit.class);
 		addEmptyVisitsByPatientCriteria(criteria, patient, includeVoided, query);
 		
@@ -605,7 +758,7 @@ public class HibernateEncounterDAO implements EncounterDAO {
 		Integer count = ((Number) criteria.uniqueResult()).intValue();
 		
 		criteria = sessionFactory.getCurrentSession().createCriteria(Encounter.class);
-		addEncountersByPatientCriteria(criteria, patient, includeVoided, query);
+		addEncountersByPatientCriteria(criteria, patient, includeVoided, query, hiddenEncounterTypes);
 		
 		criteria.setProjection(Projections.rowCount());
 		count = count + ((Number) criteria.uniqueResult()).intValue();
@@ -635,13 +788,15 @@ public class HibernateEncounterDAO implements EncounterDAO {
 		criteria.addOrder(Order.desc("visitId"));
 	}
 	
-	private void addEncountersByPatientCriteria(Criteria criteria, Patient patient, boolean includeVoided, String query) {
+	private void addEncountersByPatientCriteria(Criteria criteria, Patient patient, boolean includeVoided, String query,
+	        Collection<EncounterType> hiddenEncounterTypes) {
 		criteria.add(Restrictions.eq("patient", patient));
 		criteria.createAlias("visit", "visit", JoinType.LEFT_OUTER_JOIN);
 		
 		if (!includeVoided) {
 			criteria.add(Restrictions.eq("voided", includeVoided));
 		}
+		addHiddenEncounterTypesRestriction(criteria, "encounterType", hiddenEncounterTypes);
 		
 		if (query != null && !StringUtils.isBlank(query)) {
 			criteria.createAlias("visit.visitType", "visitType", JoinType.LEFT_OUTER_JOIN);
@@ -663,6 +818,23 @@ public class HibernateEncounterDAO implements EncounterDAO {
 		criteria.addOrder(Order.desc("encounterId"));
 	}
 	
+	/**
+	 * Leaves out the encounters of the given types in the query, the encounters without a type are
+	 * kept as anyone can view them
+	 * 
+	 * @param criteria the encounter criteria
+	 * @param encounterTypeProperty the path of the encounter type property in the criteria
+	 * @param hiddenEncounterTypes the types of the encounters to leave out, null or empty to leave
+	 *            none out
+	 */
+	private void addHiddenEncounterTypesRestriction(Criteria criteria, String encounterTypeProperty,
+	        Collection<EncounterType> hiddenEncounterTypes) {
+		if (hiddenEncounterTypes != null && !hiddenEncounterTypes.isEmpty()) {
+			criteria.add(Restrictions.or(Restrictions.isNull(encounterTypeProperty), Restrictions.not(Restrictions.in(
+			    encounterTypeProperty, hiddenEncounterTypes))));
+		}
+	}
+	
 	/**
 	 * @see org.openmrs.api.db.EncounterDAO#getEncounterRolesByName(String)
 	 */
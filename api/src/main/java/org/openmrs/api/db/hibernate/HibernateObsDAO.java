@@ -9,12 +9,19 @@
  */
 package org.openmrs.api.db.hibernate;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Date;
 import java.util.List;
+import java.util.TreeSet;
+import java.util.function.Consumer;
 
 import org.apache.commons.collections.CollectionUtils;
 import org.apache.commons.lang.StringUtils;
 import org.hibernate.Criteria;
+import org.hibernate.Query;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
 import org.hibernate.SessionFactory;
 import org.hibernate.criterion.DetachedCriteria;
 import org.hibernate.criterion.Order;
@@ -47,6 +54,11 @@ public class HibernateObsDAO implements ObsDAO {
 	
 	protected final Logger log = LoggerFactory.getLogger(getClass());
 	
+	/**
+	 * The number of persons whose observations are read in one query
+	 */
+	private static final int TIME_SERIES_CHUNK_SIZE = 1000;
+	
 	protected SessionFactory sessionFactory;
 	
 	/**
@@ -270,5 +282,53 @@ public class HibernateObsDAO implements ObsDAO {
 		criteria.add(Restrictions.eq("previousVersion", initialObs));
 		return (Obs) criteria.uniqueResult();
 	}
+	
+	/**
+	 * @see org.openmrs.api.db.ObsDAO#getObsTimeSeriesValues(java.lang.Integer, java.lang.Integer)
+	 */
+	@Override
+	@SuppressWarnings("unchecked")
+	public List<Object[]> getObsTimeSeriesValues(Integer personId, Integer conceptId) {
+		StringBuilder hql = new StringBuilder("select o.obsId, o.concept.conceptId, o.obsDatetime, o.valueNumeric, "
+		        + "vc.conceptId from Obs o left join o.valueCoded vc where o.person.personId = :personId and o.voided = false");
+		if (conceptId != null) {
+			hql.append(" and o.concept.conceptId = :conceptId");
+		}
+		hql.append(" order by o.obsDatetime, o.obsId");
+		
+		Query query = sessionFactory.getCurrentSession().createQuery(hql.toString()).setInteger("personId", personId);
+		if (conceptId != null) {
+			query.setInteger("conceptId", conceptId);
+		}
+		return query.setReadOnly(true).list();
+	}
+	
+	/**
+	 * @see org.openmrs.api.db.ObsDAO#streamObsTimeSeriesValuesForPersons(java.util.Collection,
+	 *      java.lang.Integer, java.util.function.Consumer)
+	 */
+	@Override
+	public void streamObsTimeSeriesValuesForPersons(Collection<Integer> personIds, Integer conceptId,
+	        Consumer<Object[]> consumer) {
+		List<Integer> ids = new ArrayList<Integer>(new TreeSet<Integer>(personIds));
+		for (int from = 0; from < ids.size(); from += TIME_SERIES_CHUNK_SIZE) {
+			List<Integer> chunk = ids.subList(from, Math.min(from + TIME_SERIES_CHUNK_SIZE, ids.size()));
+			ScrollableResults results = sessionFactory.getCurrentSession().createQuery(
+			    "select o.person.personId, o.obsId, o.obsDatetime, o.valueNumeric, vc.conceptId "
+			            + "from Obs o left join o.valueCoded vc where o.person.personId in (:personIds) "
+			            + "and o.concept.conceptId = :conceptId and o.voided = false "
+			            + "order by o.person.personId, o.obsDatetime, o.obsId").setParameterList("personIds", chunk)
+			        .setInteger("conceptId", conceptId).setReadOnly(true).setFetchSize(1000).scroll(
+			            ScrollMode.FORWARD_ONLY);
+			try {
+				while (results.next()) {
+					consumer.accept(results.get());
+				}
+			}
+			finally {
+				results.close();
+			}
+		}
+	}
 
 }
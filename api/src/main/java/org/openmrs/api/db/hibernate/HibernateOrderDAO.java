@@ -10,6 +10,7 @@
 package org.openmrs.api.db.hibernate;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Date;
 import java.util.Iterator;
 import java.util.List;
@@ -259,6 +260,18 @@ public class HibernateOrderDAO implements OrderDAO {
 	 */
 	@Override
 	public Long getNextOrderNumberSeedSequenceValue() {
+		return getNextOrderNumberSeedSequenceValue(1);
+	}
+	
+	/**
+	 * @see org.openmrs.api.db.OrderDAO#getNextOrderNumberSeedSequenceValue(int)
+	 */
+	@Override
+	public Long getNextOrderNumberSeedSequenceValue(int blockSize) {
+		if (blockSize < 1) {
+			throw new IllegalArgumentException("blockSize must be greater than zero");
+		}
+		
 		GlobalProperty globalProperty = (GlobalProperty) sessionFactory.getCurrentSession().get(GlobalProperty.class,
 		    OpenmrsConstants.GP_NEXT_ORDER_NUMBER_SEED, LockOptions.UPGRADE);
 		
@@ -281,7 +294,7 @@ public class HibernateOrderDAO implements OrderDAO {
 			        new Object[] { OpenmrsConstants.GP_NEXT_ORDER_NUMBER_SEED });
 		}
 		
-		globalProperty.setPropertyValue(String.valueOf(gpNumericValue + 1));
+		globalProperty.setPropertyValue(String.valueOf(gpNumericValue + blockSize));
 		
 		sessionFactory.getCurrentSession().save(globalProperty);
 		
@@ -314,6 +327,34 @@ public class HibernateOrderDAO implements OrderDAO {
 		return crit.list();
 	}
 	
+	/**
+	 * @see org.openmrs.api.db.OrderDAO#getActiveOrderDates(java.lang.Integer, java.util.Date)
+	 */
+	@Override
+	@SuppressWarnings("unchecked")
+	public List<Object[]> getActiveOrderDates(Integer patientId, Date asOfDate) {
+		return sessionFactory.getCurrentSession().createQuery(
+		    "select o.orderId, o.careSetting.careSettingId, o.orderType.orderTypeId, o.dateActivated, o.dateStopped, "
+		            + "o.autoExpireDate from Order o where o.patient.patientId = :patientId and o.voided = false "
+		            + "and o.action != :discontinue and ((o.dateStopped is null and (o.autoExpireDate is null "
+		            + "or o.autoExpireDate >= :asOfDate)) or o.dateStopped >= :asOfDate)").setInteger("patientId",
+		    patientId).setParameter("discontinue", Order.Action.DISCONTINUE).setTimestamp("asOfDate", asOfDate)
+		        .setReadOnly(true).list();
+	}
+	
+	/**
+	 * @see org.openmrs.api.db.OrderDAO#getOrdersByIds(java.util.Collection)
+	 */
+	@Override
+	@SuppressWarnings("unchecked")
+	public List<Order> getOrdersByIds(Collection<Integer> orderIds) {
+		if (orderIds.isEmpty()) {
+			return new ArrayList<Order>();
+		}
+		return sessionFactory.getCurrentSession().createCriteria(Order.class).add(Restrictions.in("orderId", orderIds))
+		        .list();
+	}
+	
 	/**
 	 * Creates and returns a Criteria Object filtering on the specified parameters
 	 * 
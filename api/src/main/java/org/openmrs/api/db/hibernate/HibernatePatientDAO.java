@@ -10,15 +10,18 @@
 package org.openmrs.api.db.hibernate;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.Vector;
+import java.util.function.Consumer;
 import java.util.regex.Pattern;
 
 import org.apache.commons.collections.CollectionUtils;
@@ -26,6 +29,8 @@ import org.apache.commons.lang.StringUtils;
 import org.hibernate.Criteria;
 import org.hibernate.Query;
 import org.hibernate.SQLQuery;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
 import org.hibernate.SessionFactory;
 import org.hibernate.criterion.Order;
 import org.hibernate.criterion.Restrictions;
@@ -415,6 +420,42 @@ public class HibernatePatientDAO implements PatientDAO {
 		return patients;
 	}
 
+	/**
+	 * @see org.openmrs.api.db.PatientDAO#streamDuplicatePatientDetectionRows(Consumer)
+	 */
+	@Override
+	public void streamDuplicatePatientDetectionRows(Consumer<Object[]> consumer) {
+		ScrollableResults results = sessionFactory.getCurrentSession().createQuery(
+		    "select p.patientId, p.gender, p.birthdate, pn.givenName, pn.middleName, pn.familyName, pn.familyName2 "
+		            + "from Patient p join p.names pn where p.voided = false and pn.voided = false order by p.patientId")
+		        .setReadOnly(true).setFetchSize(1000).scroll(ScrollMode.FORWARD_ONLY);
+		try {
+			while (results.next()) {
+				consumer.accept(results.get());
+			}
+		}
+		finally {
+			results.close();
+		}
+	}
+
+	/**
+	 * @see org.openmrs.api.db.PatientDAO#getNonVoidedPatientIds(Collection)
+	 */
+	@Override
+	@SuppressWarnings("unchecked")
+	public Set<Integer> getNonVoidedPatientIds(Collection<Integer> patientIds) {
+		List<Integer> ids = new ArrayList<>(patientIds);
+		Set<Integer> nonVoidedIds = new HashSet<>(ids.size() * 2);
+		for (int from = 0; from < ids.size(); from += 1000) {
+			nonVoidedIds.addAll(sessionFactory.getCurrentSession().createQuery(
+			    "select p.patientId from Patient p where p.voided = false and p.patientId in (:patientIds)")
+			        .setParameterList("patientIds", ids.subList(from, Math.min(from + 1000, ids.size())))
+			        .setReadOnly(true).list());
+		}
+		return nonVoidedIds;
+	}
+
 	private String getDuplicatePatientsSQLString(List<String> attributes) {
 		String outerSelect = "select distinct t1.patient_id from patient t1 ";
 		final String t5 = " = t5.";
@@ -694,7 +735,7 @@ public class HibernatePatientDAO implements PatientDAO {
 		}
 		query = LuceneQuery.escapeQuery(query);
 
-		List<Patient> patients = new LinkedList<>();
+		List<Integer> patientIds = new ArrayList<>();
 
 		String minChars = Context.getAdministrationService().getGlobalProperty(OpenmrsConstants.GLOBAL_PROPERTY_MIN_SEARCH_CHARACTERS);
 
@@ -702,7 +743,7 @@ public class HibernatePatientDAO implements PatientDAO {
 			minChars = "" + OpenmrsConstants.GLOBAL_PROPERTY_DEFAULT_MIN_SEARCH_CHARACTERS;
 		}
 		if (query.length() < Integer.valueOf(minChars)) {
-			return patients;
+			return new LinkedList<>();
 		}
 
 		LuceneQuery<PatientIdentifier> identifierQuery = getPatientIdentifierLuceneQuery(query, includeVoided);
@@ -710,7 +751,7 @@ public class HibernatePatientDAO implements PatientDAO {
 		long identifiersSize = identifierQuery.resultSize();
 		if (identifiersSize > start) {
 			ListPart<Object[]> patientIdentifiers = identifierQuery.listPartProjection(start, length, "patient.personId");
-			patientIdentifiers.getList().forEach(patientIdentifier -> patients.add(getPatient((Integer) patientIdentifier[0])));
+			patientIdentifiers.getList().forEach(patientIdentifier -> patientIds.add((Integer) patientIdentifier[0]));
 
 			length -= patientIdentifiers.getList().size();
 			start = 0;
@@ -719,7 +760,7 @@ public class HibernatePatientDAO implements PatientDAO {
 		}
 
 		if (length == 0) {
-			return patients;
+			return getPatientsInOrder(patientIds);
 		}
 
 		PersonLuceneQuery personLuceneQuery = new PersonLuceneQuery(sessionFactory);
@@ -728,7 +769,7 @@ public class HibernatePatientDAO implements PatientDAO {
 		long namesSize = nameQuery.resultSize();
 		if (namesSize > start) {
 			ListPart<Object[]> personNames = nameQuery.listPartProjection(start, length, "person.personId");
-			personNames.getList().forEach(personName -> patients.add(getPatient((Integer) personName[0])));
+			personNames.getList().forEach(personName -> patientIds.add((Integer) personName[0]));
 
 			length -= personNames.getList().size();
 			start = 0;
@@ -737,16 +778,46 @@ public class HibernatePatientDAO implements PatientDAO {
 		}
 
 		if (length == 0) {
-			return patients;
+			return getPatientsInOrder(patientIds);
 		}
 
 		LuceneQuery<PersonAttribute> attributeQuery = personLuceneQuery.getPatientAttributeQuery(query, includeVoided, nameQuery);
 		long attributesSize = attributeQuery.resultSize();
 		if (attributesSize > start) {
 			ListPart<Object[]> personAttributes = attributeQuery.listPartProjection(start, length, "person.personId");
-			personAttributes.getList().forEach(personAttribute -> patients.add(getPatient((Integer) personAttribute[0])));
+			personAttributes.getList().forEach(personAttribute -> patientIds.add((Integer) personAttribute[0]));
+		}
+
+		return getPatientsInOrder(patientIds);
+	}
+
+	/**
+	 * Loads the patients with the given ids in a single query, fetching their names and identifiers
+	 * along the way, and returns them in the same order as the ids were given
+	 *
+	 * @param patientIds the ids of the patients to load, in the order they should be returned
+	 * @return the matching patients in the order of the given ids
+	 */
+	private List<Patient> getPatientsInOrder(List<Integer> patientIds) {
+		List<Patient> patients = new LinkedList<>();
+		if (patientIds.isEmpty()) {
+			return patients;
 		}
 
+		List<Patient> loaded = sessionFactory.getCurrentSession().createQuery(
+		    "select distinct p from Patient p left join fetch p.names left join fetch p.identifiers"
+		            + " where p.patientId in (:patientIds)").setParameterList("patientIds", patientIds).list();
+
+		Map<Integer, Patient> patientsById = new HashMap<>();
+		for (Patient patient : loaded) {
+			patientsById.put(patient.getPatientId(), patient);
+		}
+		for (Integer patientId : patientIds) {
+			Patient patient = patientsById.get(patientId);
+			if (patient != null) {
+				patients.add(patient);
+			}
+		}
 		return patients;
 	}
 
@@ -11,6 +11,7 @@ package org.openmrs.api.db.hibernate;
 
 import java.util.ArrayList;
 import java.util.Date;
+import java.util.HashSet;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Set;
@@ -37,6 +38,7 @@ import org.openmrs.api.db.hibernate.search.LuceneQuery;
 import org.openmrs.collection.ListPart;
 import org.openmrs.person.PersonMergeLog;
 import org.openmrs.util.OpenmrsConstants;
+import org.openmrs.util.Soundex;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -91,47 +93,65 @@ public class HibernatePersonDAO implements PersonDAO {
 		name = name.replace(", ", " ");
 		String[] names = name.split(" ");
 		
+		// the names are matched on their Soundex codes that are stored with each person name, and
+		// only the names with at least one of the codes need to be scored, which the indexes find.
+		// The codes are written by Hibernate with each name, rows inserted with plain SQL are only
+		// found once PopulatePersonNameSoundexChangeSet is run again
+		String[] codes = new String[names.length];
+		Set<String> distinctCodes = new HashSet<String>();
+		for (int i = 0; i < names.length; i++) {
+			codes[i] = Soundex.encode(names[i]);
+			if (codes[i] != null) {
+				distinctCodes.add(codes[i]);
+			}
+		}
+		if (distinctCodes.isEmpty()) {
+			return people;
+		}
+		
 		StringBuilder q = new StringBuilder(
 		        "select p from Person p left join p.names as pname where p.personVoided = false and pname.voided = false and ");
+		q.append("(pname.givenNameSoundex in (:codes) or pname.middleNameSoundex in (:codes)").append(
+		    " or pname.familyNameSoundex in (:codes) or pname.familyName2Soundex in (:codes)) and ");
 		
 		if (names.length == 1) {
-			q.append("(").append(" soundex(pname.givenName) = soundex(:n1)").append(
-			    " or soundex(pname.middleName) = soundex(:n1)").append(" or soundex(pname.familyName) = soundex(:n1) ")
-			        .append(" or soundex(pname.familyName2) = soundex(:n1) ").append(")");
+			q.append("(").append(" pname.givenNameSoundex = :n1").append(
+			    " or pname.middleNameSoundex = :n1").append(" or pname.familyNameSoundex = :n1 ")
+			        .append(" or pname.familyName2Soundex = :n1 ").append(")");
 		} else if (names.length == 2) {
 			q.append("(").append(" case").append("  when pname.givenName is null then 1").append(
-			    "  when pname.givenName = '' then 1").append("  when soundex(pname.givenName) = soundex(:n1) then 4")
-			        .append("  when soundex(pname.givenName) = soundex(:n2) then 3").append("  else 0 ").append(" end")
+			    "  when pname.givenName = '' then 1").append("  when pname.givenNameSoundex = :n1 then 4")
+			        .append("  when pname.givenNameSoundex = :n2 then 3").append("  else 0 ").append(" end")
 			        .append(" + ").append(" case").append("  when pname.middleName is null then 1").append(
 			            "  when pname.middleName = '' then 1").append(
-			            "  when soundex(pname.middleName) = soundex(:n1) then 3").append(
-			            "  when soundex(pname.middleName) = soundex(:n2) then 4").append("  else 0 ").append(" end").append(
+			            "  when pname.middleNameSoundex = :n1 then 3").append(
+			            "  when pname.middleNameSoundex = :n2 then 4").append("  else 0 ").append(" end").append(
 			            " + ").append(" case").append("  when pname.familyName is null then 1").append(
 			            "  when pname.familyName = '' then 1").append(
-			            "  when soundex(pname.familyName) = soundex(:n1) then 3").append(
-			            "  when soundex(pname.familyName) = soundex(:n2) then 4").append("  else 0 ").append(" end").append(
+			            "  when pname.familyNameSoundex = :n1 then 3").append(
+			            "  when pname.familyNameSoundex = :n2 then 4").append("  else 0 ").append(" end").append(
 			            " +").append(" case").append("  when pname.familyName2 is null then 1").append(
 			            "  when pname.familyName2 = '' then 1").append(
-			            "  when soundex(pname.familyName2) = soundex(:n1) then 3").append(
-			            "  when soundex(pname.familyName2) = soundex(:n2) then 4").append("  else 0 ").append(" end")
+			            "  when pname.familyName2Soundex = :n1 then 3").append(
+			            "  when pname.familyName2Soundex = :n2 then 4").append("  else 0 ").append(" end")
 			        .append(") > 6");
 		} else if (names.length == 3) {
 			q.append("(").append(" case").append("  when pname.givenName is null then 0").append(
-			    "  when soundex(pname.givenName) = soundex(:n1) then 3").append(
-			    "  when soundex(pname.givenName) = soundex(:n2) then 2").append(
-			    "  when soundex(pname.givenName) = soundex(:n3) then 1").append("  else 0 ").append(" end").append(" + ")
+			    "  when pname.givenNameSoundex = :n1 then 3").append(
+			    "  when pname.givenNameSoundex = :n2 then 2").append(
+			    "  when pname.givenNameSoundex = :n3 then 1").append("  else 0 ").append(" end").append(" + ")
 			        .append(" case").append("  when pname.middleName is null then 0").append(
-			            "  when soundex(pname.middleName) = soundex(:n1) then 2").append(
-			            "  when soundex(pname.middleName) = soundex(:n2) then 3").append(
-			            "  when soundex(pname.middleName) = soundex(:n3) then 1").append("  else 0").append(" end").append(
+			            "  when pname.middleNameSoundex = :n1 then 2").append(
+			            "  when pname.middleNameSoundex = :n2 then 3").append(
+			            "  when pname.middleNameSoundex = :n3 then 1").append("  else 0").append(" end").append(
 			            " + ").append(" case").append("  when pname.familyName is null then 0").append(
-			            "  when soundex(pname.familyName) = soundex(:n1) then 1").append(
-			            "  when soundex(pname.familyName) = soundex(:n2) then 2").append(
-			            "  when soundex(pname.familyName) = soundex(:n3) then 3").append("  else 0").append(" end").append(
+			            "  when pname.familyNameSoundex = :n1 then 1").append(
+			            "  when pname.familyNameSoundex = :n2 then 2").append(
+			            "  when pname.familyNameSoundex = :n3 then 3").append("  else 0").append(" end").append(
 			            " +").append(" case").append("  when pname.familyName2 is null then 0").append(
-			            "  when soundex(pname.familyName2) = soundex(:n1) then 1").append(
-			            "  when soundex(pname.familyName2) = soundex(:n2) then 2").append(
-			            "  when soundex(pname.familyName2) = soundex(:n3) then 3").append("  else 0").append(" end").append(
+			            "  when pname.familyName2Soundex = :n1 then 1").append(
+			            "  when pname.familyName2Soundex = :n2 then 2").append(
+			            "  when pname.familyName2Soundex = :n3 then 3").append("  else 0").append(" end").append(
 			            ") >= 5");
 		} else {
 			
@@ -142,22 +162,22 @@ public class HibernatePersonDAO implements PersonDAO {
 			
 			q.append("(").append(" case").append("  when pname.givenName is null then 0");
 			for (int i = 0; i < names.length; i++) {
-				q.append("  when soundex(pname.givenName) = soundex(:n").append(i + 1).append(") then 1");
+				q.append("  when pname.givenNameSoundex = :n").append(i + 1).append(" then 1");
 			}
 			q.append("  else 0").append(" end").append(")").append("+").append("(").append(" case").append(
 			    "  when pname.middleName is null then 0");
 			for (int i = 0; i < names.length; i++) {
-				q.append("  when soundex(pname.middleName) = soundex(:n").append(i + 1).append(") then 1");
+				q.append("  when pname.middleNameSoundex = :n").append(i + 1).append(" then 1");
 			}
 			q.append("  else 0").append(" end").append(")").append("+").append("(").append(" case").append(
 			    "  when pname.familyName is null then 0");
 			for (int i = 0; i < names.length; i++) {
-				q.append("  when soundex(pname.familyName) = soundex(:n").append(i + 1).append(") then 1");
+				q.append("  when pname.familyNameSoundex = :n").append(i + 1).append(" then 1");
 			}
 			q.append("  else 0").append(" end").append(")").append("+").append("(").append(" case").append(
 			    "  when pname.familyName2 is null then 0");
 			for (int i = 0; i < names.length; i++) {
-				q.append("  when soundex(pname.familyName2) = soundex(:n").append(i + 1).append(") then 1");
+				q.append("  when pname.familyName2Soundex = :n").append(i + 1).append(" then 1");
 			}
 			// if most of the names have at least a hit somewhere
 			q.append("  else 0").append(" end").append(") >= ").append((int) (names.length * .75)); 
@@ -183,8 +203,9 @@ public class HibernatePersonDAO implements PersonDAO {
 		Query query = sessionFactory.getCurrentSession().createQuery(qStr);
 		
 		for (int nameIndex = 0; nameIndex < names.length; nameIndex++) {
-			query.setString("n" + (nameIndex + 1), names[nameIndex]);
+			query.setString("n" + (nameIndex + 1), codes[nameIndex]);
 		}
+		query.setParameterList("codes", distinctCodes);
 		
 		if (qStr.contains(":gender")) {
 			query.setString("gender", gender);
@@ -13,15 +13,19 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.Vector;
 
 import org.apache.commons.collections.CollectionUtils;
 import org.apache.commons.lang.StringUtils;
 import org.hibernate.Criteria;
+import org.hibernate.FlushMode;
 import org.hibernate.Query;
+import org.hibernate.Session;
 import org.hibernate.SessionFactory;
 import org.hibernate.criterion.Order;
 import org.hibernate.criterion.Restrictions;
@@ -534,6 +538,24 @@ public class HibernateUserDAO implements UserDAO {
 		return (List<User>) crit.list();
 	}
 	
+	/**
+	 * @see org.openmrs.api.db.UserDAO#getSavedRoleNames(org.openmrs.User)
+	 */
+	@Override
+	@SuppressWarnings("unchecked")
+	public Set<String> getSavedRoleNames(User user) {
+		Session session = sessionFactory.getCurrentSession();
+		FlushMode flushMode = session.getFlushMode();
+		try {
+			session.setFlushMode(FlushMode.MANUAL);
+			return new HashSet<String>((List<String>) session.createSQLQuery(
+			    "select role from user_role where user_id = :userId").setInteger("userId", user.getUserId()).list());
+		}
+		finally {
+			session.setFlushMode(flushMode);
+		}
+	}
+	
 	/**
 	 * @see org.openmrs.api.db.UserDAO#getCountOfUsers(String, List, boolean)
 	 */
@@ -9,13 +9,22 @@
  */
 package org.openmrs.api.db.hibernate;
 
+import java.io.Serializable;
+
+import org.hibernate.type.Type;
 import org.openmrs.Obs;
+import org.openmrs.Person;
+import org.openmrs.obs.ObsTimeSeriesCache;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
 /**
  * ImmutableEntityInterceptor for Obs, it catches any edited Obs, voids and replaces it with a new
  * one. I also sets the original Obs as the previous Obs for the newly created one. The exceptions
  * are when editing an already voided Obs
+ * <p>
+ * It also drops the cached observation histories of the person of any Obs that is saved, edited or
+ * deleted, including Obs saved by cascade from an encounter rather than through the obs service.
  * 
  * @see ImmutableEntityInterceptor
  * @since 2.0.0
@@ -25,6 +34,9 @@ public class ImmutableObsInterceptor extends ImmutableEntityInterceptor {
 	
 	private static final String[] MUTABLE_PROPERTY_NAMES = new String[] { "voided", "dateVoided", "voidedBy", "voidReason" };
 	
+	@Autowired(required = false)
+	private ObsTimeSeriesCache timeSeriesCache;
+	
 	/**
 	 * @see ImmutableEntityInterceptor#getSupportedType()
 	 */
@@ -48,4 +60,48 @@ public class ImmutableObsInterceptor extends ImmutableEntityInterceptor {
 	protected boolean ignoreVoidedOrRetiredObjects() {
 		return true;
 	}
+	
+	/**
+	 * @see org.hibernate.EmptyInterceptor#onSave(Object, java.io.Serializable, Object[], String[],
+	 *      org.hibernate.type.Type[])
+	 */
+	@Override
+	public boolean onSave(Object entity, Serializable id, Object[] state, String[] propertyNames, Type[] types) {
+		evictTimeSeries(entity);
+		return false;
+	}
+	
+	/**
+	 * @see ImmutableEntityInterceptor#onFlushDirty(Object, java.io.Serializable, Object[], Object[],
+	 *      String[], org.hibernate.type.Type[])
+	 */
+	@Override
+	public boolean onFlushDirty(Object entity, Serializable id, Object[] currentState, Object[] previousState,
+	                            String[] propertyNames, Type[] types) {
+		boolean modified = super.onFlushDirty(entity, id, currentState, previousState, propertyNames, types);
+		evictTimeSeries(entity);
+		return modified;
+	}
+	
+	/**
+	 * @see org.hibernate.EmptyInterceptor#onDelete(Object, java.io.Serializable, Object[], String[],
+	 *      org.hibernate.type.Type[])
+	 */
+	@Override
+	public void onDelete(Object entity, Serializable id, Object[] state, String[] propertyNames, Type[] types) {
+		evictTimeSeries(entity);
+	}
+	
+	/**
+	 * Only reads the person of the obs, so that the obs itself is left unchanged for the other
+	 * interceptors
+	 */
+	private void evictTimeSeries(Object entity) {
+		if (timeSeriesCache != null && entity instanceof Obs) {
+			Person person = ((Obs) entity).getPerson();
+			if (person != null) {
+				timeSeriesCache.evict(person.getPersonId());
+			}
+		}
+	}
 }
@@ -9,12 +9,22 @@
  */
 package org.openmrs.api.db.hibernate;
 
+import java.io.Serializable;
+
+import org.hibernate.type.Type;
 import org.openmrs.Order;
+import org.openmrs.Patient;
+import org.openmrs.order.ActiveOrderCache;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
 /**
  * ImmutableEntityInterceptor for Orders, ensures that orders fields don't get edited except for
  * dateStopped, voided, dateVoided, voidedBy, voidReason
+ * <p>
+ * It also drops the cached active orders of the patient of any Order that is saved, edited or
+ * deleted, including Orders saved by cascade from an encounter rather than through the order
+ * service, and of the previous patient of an Order moved to another patient.
  * 
  * @see ImmutableEntityInterceptor
  * @since 1.10
@@ -25,6 +35,9 @@ public class ImmutableOrderInterceptor extends ImmutableEntityInterceptor {
 	private static final String[] MUTABLE_PROPERTY_NAMES = new String[] { "dateStopped", "voided", "dateVoided", "voidedBy",
 	        "voidReason", "patient" };
 	
+	@Autowired(required = false)
+	private ActiveOrderCache activeOrderCache;
+	
 	/**
 	 * @see ImmutableEntityInterceptor#getSupportedType()
 	 */
@@ -48,4 +61,54 @@ public class ImmutableOrderInterceptor extends ImmutableEntityInterceptor {
 	protected boolean ignoreVoidedOrRetiredObjects() {
 		return true;
 	}
+	
+	/**
+	 * @see org.hibernate.EmptyInterceptor#onSave(Object, java.io.Serializable, Object[], String[],
+	 *      org.hibernate.type.Type[])
+	 */
+	@Override
+	public boolean onSave(Object entity, Serializable id, Object[] state, String[] propertyNames, Type[] types) {
+		if (entity instanceof Order) {
+			evictActiveOrders(((Order) entity).getPatient());
+		}
+		return false;
+	}
+	
+	/**
+	 * @see ImmutableEntityInterceptor#onFlushDirty(Object, java.io.Serializable, Object[], Object[],
+	 *      String[], org.hibernate.type.Type[])
+	 */
+	@Override
+	public boolean onFlushDirty(Object entity, Serializable id, Object[] currentState, Object[] previousState,
+	                            String[] propertyNames, Type[] types) {
+		boolean modified = super.onFlushDirty(entity, id, currentState, previousState, propertyNames, types);
+		if (entity instanceof Order) {
+			evictActiveOrders(((Order) entity).getPatient());
+			if (previousState != null) {
+				for (int i = 0; i < propertyNames.length; i++) {
+					if ("patient".equals(propertyNames[i]) && previousState[i] instanceof Patient) {
+						evictActiveOrders((Patient) previousState[i]);
+					}
+				}
+			}
+		}
+		return modified;
+	}
+	
+	/**
+	 * @see org.hibernate.EmptyInterceptor#onDelete(Object, java.io.Serializable, Object[], String[],
+	 *      org.hibernate.type.Type[])
+	 */
+	@Override
+	public void onDelete(Object entity, Serializable id, Object[] state, String[] propertyNames, Type[] types) {
+		if (entity instanceof Order) {
+			evictActiveOrders(((Order) entity).getPatient());
+		}
+	}
+	
+	private void evictActiveOrders(Patient patient) {
+		if (activeOrderCache != null && patient != null) {
+			activeOrderCache.evict(patient.getPatientId());
+		}
+	}
 }
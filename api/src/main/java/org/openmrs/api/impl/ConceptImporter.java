@@ -0,0 +1,226 @@
+/**
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.api.impl;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+import org.openmrs.Concept;
+import org.openmrs.ConceptAnswer;
+import org.openmrs.ConceptName;
+import org.openmrs.ConceptSet;
+import org.openmrs.api.APIException;
+import org.openmrs.api.ValidationException;
+import org.openmrs.api.db.ConceptDAO;
+import org.openmrs.validator.ConceptValidator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.validation.BindException;
+import org.springframework.validation.Errors;
+
+/**
+ * Imports new concepts in chunks for {@link org.openmrs.api.ConceptService#importConcepts}. The
+ * concepts of each chunk are inserted with their names, descriptions, attributes and mappings in one
+ * go, while their answers and set members are inserted once all concepts have been inserted, so
+ * that they can refer to concepts further on in the import.
+ * <p>
+ * The names of all existing concepts are loaded up front, so that checking a new name for
+ * duplicates only needs to go to the database when a concept with the same name may exist.
+ *
+ * @since 2.2.0
+ */
+class ConceptImporter {
+	
+	private static final Logger log = LoggerFactory.getLogger(ConceptImporter.class);
+	
+	static final int CHUNK_SIZE = 500;
+	
+	private final ConceptDAO dao;
+	
+	private final Set<Integer> existingIds = new HashSet<Integer>();
+	
+	private final Set<String> existingUuids = new HashSet<String>();
+	
+	private final Map<String, Set<String>> conceptUuidsByName = new HashMap<String, Set<String>>();
+	
+	private final List<Concept> chunk = new ArrayList<Concept>(CHUNK_SIZE);
+	
+	private final List<ConceptAnswer> answers = new ArrayList<ConceptAnswer>();
+	
+	private final List<ConceptSet> conceptSets = new ArrayList<ConceptSet>();
+	
+	private final List<Integer> importedConceptNameIds = new ArrayList<Integer>();
+	
+	private final ConceptValidator validator = new ConceptValidator() {
+		
+		@Override
+		protected boolean isConceptNameDuplicate(ConceptName name) {
+			return ConceptImporter.this.isConceptNameDuplicate(name);
+		}
+	};
+	
+	private int importedCount = 0;
+	
+	/**
+	 * Creates an importer, loading the ids and names of the existing concepts
+	 *
+	 * @param dao the concept DAO to read and insert concepts with
+	 */
+	ConceptImporter(ConceptDAO dao) {
+		this.dao = dao;
+		long start = System.currentTimeMillis();
+		dao.streamConceptIds(row -> {
+			existingIds.add((Integer) row[0]);
+			existingUuids.add((String) row[1]);
+		});
+		dao.streamConceptNames(row -> addName((String) row[0], (String) row[1], (Locale) row[2]));
+		log.info("Loaded the ids and names of {} concepts in {} ms", existingIds.size(), System.currentTimeMillis()
+		        - start);
+	}
+	
+	/**
+	 * @param concept the concept to check
+	 * @return true if the concept is already in the database
+	 */
+	boolean exists(Concept concept) {
+		return (concept.getConceptId() != null && existingIds.contains(concept.getConceptId()))
+		        || existingUuids.contains(concept.getUuid());
+	}
+	
+	/**
+	 * Validates the given new concept and queues it to be inserted, the required data of the concept
+	 * must have been filled in before
+	 *
+	 * @param concept the new concept
+	 * @throws ValidationException if the concept is not valid
+	 */
+	void importConcept(Concept concept) throws ValidationException {
+		Errors errors = new BindException(concept, "");
+		validator.validate(concept, errors);
+		if (errors.hasErrors()) {
+			throw new ValidationException("'" + concept + "' failed to validate", errors);
+		}
+		
+		chunk.add(concept);
+		existingUuids.add(concept.getUuid());
+		if (concept.getConceptId() != null) {
+			existingIds.add(concept.getConceptId());
+		}
+		if (!concept.getRetired()) {
+			for (ConceptName name : concept.getNames()) {
+				addName(concept.getUuid(), name.getName(), name.getLocale());
+			}
+		}
+		if (chunk.size() >= CHUNK_SIZE) {
+			flush();
+		}
+	}
+	
+	/**
+	 * Inserts the remaining concepts, followed by the answers and set members of all the imported
+	 * concepts
+	 *
+	 * @return the number of concepts that were imported
+	 */
+	int finish() {
+		flush();
+		for (ConceptAnswer answer : answers) {
+			if (answer.getAnswerConcept() == null || answer.getAnswerConcept().getConceptId() == null) {
+				throw new APIException("The answers of concept " + answer.getConcept().getConceptId()
+				        + " have to be existing or imported concepts");
+			}
+		}
+		for (ConceptSet conceptSet : conceptSets) {
+			if (conceptSet.getConcept() == null || conceptSet.getConcept().getConceptId() == null) {
+				throw new APIException("The set members of concept " + conceptSet.getConceptSet().getConceptId()
+				        + " have to be existing or imported concepts");
+			}
+		}
+		dao.importConceptMembers(answers, conceptSets);
+		answers.clear();
+		conceptSets.clear();
+		return importedCount;
+	}
+	
+	private void flush() {
+		if (chunk.isEmpty()) {
+			return;
+		}
+		dao.importConcepts(chunk);
+		for (Concept concept : chunk) {
+			existingIds.add(concept.getConceptId());
+			for (ConceptName name : concept.getNames(true)) {
+				importedConceptNameIds.add(name.getConceptNameId());
+			}
+			answers.addAll(concept.getAnswers());
+			if (concept.getConceptSets() != null) {
+				conceptSets.addAll(concept.getConceptSets());
+			}
+		}
+		importedCount += chunk.size();
+		chunk.clear();
+	}
+	
+	/**
+	 * @return the ids of the names of the concepts imported so far, which still have to be added to
+	 *         the search index
+	 */
+	List<Integer> getImportedConceptNameIds() {
+		return importedConceptNameIds;
+	}
+	
+	/**
+	 * Only names matching the name of another concept in memory are checked against the database,
+	 * the rules of {@link ConceptDAO#isConceptNameDuplicate(ConceptName)} are applied to those
+	 */
+	private boolean isConceptNameDuplicate(ConceptName name) {
+		if (name.getVoided() || name.getName() == null || name.getLocale() == null) {
+			return false;
+		}
+		Concept concept = name.getConcept();
+		if (concept != null && (concept.getRetired() || !name.equals(concept.getName(name.getLocale())))) {
+			return false;
+		}
+		Set<String> conceptUuids = conceptUuidsByName.get(key(name.getName(), name.getLocale()));
+		if (conceptUuids == null
+		        || (concept != null && conceptUuids.size() == 1 && conceptUuids.contains(concept.getUuid()))) {
+			return false;
+		}
+		// the other concept may still be waiting to be inserted
+		flush();
+		return dao.isConceptNameDuplicate(name);
+	}
+	
+	private void addName(String conceptUuid, String name, Locale locale) {
+		if (name == null || locale == null) {
+			return;
+		}
+		String key = key(name, locale);
+		Set<String> conceptUuids = conceptUuidsByName.get(key);
+		if (conceptUuids == null) {
+			conceptUuids = new HashSet<String>(2);
+			conceptUuidsByName.put(key, conceptUuids);
+		}
+		conceptUuids.add(conceptUuid);
+	}
+	
+	/**
+	 * Names are matched by language rather than locale and ignoring case, which finds every name the
+	 * database check could match
+	 */
+	private static String key(String name, Locale locale) {
+		return locale.getLanguage() + "^" + name.toLowerCase(Locale.ENGLISH);
+	}
+}
@@ -0,0 +1,328 @@
+/**
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.api.impl;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.openmrs.Concept;
+import org.openmrs.ConceptMap;
+import org.openmrs.ConceptReferenceTerm;
+import org.openmrs.ConceptSource;
+
+/**
+ * A memory resident index from a reference term code within a concept source to the ids of the
+ * concepts mapped to it, used to answer {@link org.openmrs.api.ConceptService#getConceptsByMapping}
+ * without joining the mapping, term, source and concept tables for every lookup. A source can be
+ * looked up by its name or its HL7 code, and both the source and the code are matched case
+ * insensitively, in the same way as the database query.
+ * <p>
+ * The index is filled with {@link #addMapping} when it is loaded and kept current with
+ * {@link #indexConcept(Concept)}, {@link #indexTerm(ConceptReferenceTerm)} and
+ * {@link #removeConcept(Integer)} as concepts and terms are saved. Every committed change moves the
+ * generation of the index on with {@link #changed()}, so that a load that ran while a change was
+ * committed is not marked as loaded.
+ *
+ * @since 2.2.0
+ */
+class ConceptMappingIndex {
+	
+	private final ReadWriteLock lock = new ReentrantReadWriteLock();
+	
+	private final Map<String, Set<Integer>> termIdsByKey = new HashMap<String, Set<Integer>>();
+	
+	private final Map<Integer, Set<String>> keysByTermId = new HashMap<Integer, Set<String>>();
+	
+	private final Map<Integer, Set<Integer>> conceptIdsByTermId = new HashMap<Integer, Set<Integer>>();
+	
+	private final Map<Integer, Set<Integer>> termIdsByConceptId = new HashMap<Integer, Set<Integer>>();
+	
+	private final Set<Integer> retiredConceptIds = new HashSet<Integer>();
+	
+	private final AtomicLong generation = new AtomicLong();
+	
+	private volatile boolean loaded = false;
+	
+	/**
+	 * @return true if the index has been loaded and can answer lookups
+	 */
+	boolean isLoaded() {
+		return loaded;
+	}
+	
+	/**
+	 * @return the value to pass to {@link #setLoaded(long)} for a load started from now on
+	 */
+	long getGeneration() {
+		return generation.get();
+	}
+	
+	/**
+	 * Records that a change to the mappings was committed
+	 */
+	void changed() {
+		generation.incrementAndGet();
+	}
+	
+	/**
+	 * Marks the index as loaded once all the mappings have been added, unless a change was
+	 * committed or the index was emptied since the load started
+	 *
+	 * @param loadGeneration the value of {@link #getGeneration()} before the load started
+	 * @return true if the index is now loaded
+	 * @should not mark the index as loaded after a change
+	 */
+	boolean setLoaded(long loadGeneration) {
+		lock.writeLock().lock();
+		try {
+			loaded = generation.get() == loadGeneration;
+			return loaded;
+		}
+		finally {
+			lock.writeLock().unlock();
+		}
+	}
+	
+	/**
+	 * Empties the index, it has to be loaded again before it can answer lookups
+	 */
+	void clear() {
+		lock.writeLock().lock();
+		try {
+			generation.incrementAndGet();
+			loaded = false;
+			termIdsByKey.clear();
+			keysByTermId.clear();
+			conceptIdsByTermId.clear();
+			termIdsByConceptId.clear();
+			retiredConceptIds.clear();
+		}
+		finally {
+			lock.writeLock().unlock();
+		}
+	}
+	
+	/**
+	 * Adds a single mapping while the index is being loaded
+	 *
+	 * @param conceptId the id of the mapped concept
+	 * @param conceptRetired whether the concept is retired
+	 * @param termId the id of the reference term
+	 * @param code the code of the reference term
+	 * @param sourceName the name of the term's concept source
+	 * @param sourceHl7Code the HL7 code of the term's concept source
+	 */
+	void addMapping(Integer conceptId, boolean conceptRetired, Integer termId, String code, String sourceName,
+	        String sourceHl7Code) {
+		lock.writeLock().lock();
+		try {
+			setTermKeys(termId, code, sourceName, sourceHl7Code);
+			link(conceptId, termId);
+			setRetired(conceptId, conceptRetired);
+		}
+		finally {
+			lock.writeLock().unlock();
+		}
+	}
+	
+	/**
+	 * Replaces the mappings of the given saved concept
+	 *
+	 * @param concept the concept to index
+	 * @should replace the previous mappings of the concept
+	 */
+	void indexConcept(Concept concept) {
+		Integer conceptId = concept.getConceptId();
+		if (conceptId == null) {
+			return;
+		}
+		lock.writeLock().lock();
+		try {
+			unlinkConcept(conceptId);
+			for (ConceptMap map : concept.getConceptMappings()) {
+				ConceptReferenceTerm term = map.getConceptReferenceTerm();
+				if (term != null && term.getConceptReferenceTermId() != null && term.getConceptSource() != null) {
+					ConceptSource source = term.getConceptSource();
+					setTermKeys(term.getConceptReferenceTermId(), term.getCode(), source.getName(), source.getHl7Code());
+					link(conceptId, term.getConceptReferenceTermId());
+				}
+			}
+			setRetired(conceptId, concept.getRetired());
+		}
+		finally {
+			lock.writeLock().unlock();
+		}
+	}
+	
+	/**
+	 * Updates the code and source of the given saved reference term
+	 *
+	 * @param term the term to index
+	 * @should move the concepts of the term to its new code
+	 */
+	void indexTerm(ConceptReferenceTerm term) {
+		Integer termId = term.getConceptReferenceTermId();
+		if (termId == null || term.getConceptSource() == null) {
+			return;
+		}
+		lock.writeLock().lock();
+		try {
+			// a term that is not mapped to any concept does not need to be indexed yet
+			if (keysByTermId.containsKey(termId)) {
+				setTermKeys(termId, term.getCode(), term.getConceptSource().getName(), term.getConceptSource()
+				        .getHl7Code());
+			}
+		}
+		finally {
+			lock.writeLock().unlock();
+		}
+	}
+	
+	/**
+	 * Removes all mappings of the concept with the given id
+	 *
+	 * @param conceptId the id of the concept
+	 */
+	void removeConcept(Integer conceptId) {
+		if (conceptId == null) {
+			return;
+		}
+		lock.writeLock().lock();
+		try {
+			unlinkConcept(conceptId);
+			retiredConceptIds.remove(conceptId);
+		}
+		finally {
+			lock.writeLock().unlock();
+		}
+	}
+	
+	/**
+	 * Gets the ids of the concepts mapped to the given code, with the non retired concepts first
+	 *
+	 * @param code the code of the reference term
+	 * @param sourceName the name or HL7 code of the concept source
+	 * @param includeRetired whether to include retired concepts
+	 * @return the ids of the matching concepts
+	 * @should match the source by name or hl7 code ignoring case
+	 * @should sort retired concepts to the end
+	 * @should exclude retired concepts if includeRetired is false
+	 */
+	List<Integer> getConceptIds(String code, String sourceName, boolean includeRetired) {
+		if (code == null || sourceName == null) {
+			return Collections.emptyList();
+		}
+		List<Integer> active = new ArrayList<Integer>();
+		List<Integer> retired = new ArrayList<Integer>();
+		lock.readLock().lock();
+		try {
+			Set<Integer> termIds = termIdsByKey.get(key(sourceName, code));
+			if (termIds == null) {
+				return Collections.emptyList();
+			}
+			Set<Integer> conceptIds = new HashSet<Integer>();
+			for (Integer termId : termIds) {
+				Set<Integer> mapped = conceptIdsByTermId.get(termId);
+				if (mapped != null) {
+					conceptIds.addAll(mapped);
+				}
+			}
+			for (Integer conceptId : conceptIds) {
+				if (!retiredConceptIds.contains(conceptId)) {
+					active.add(conceptId);
+				} else if (includeRetired) {
+					retired.add(conceptId);
+				}
+			}
+		}
+		finally {
+			lock.readLock().unlock();
+		}
+		Collections.sort(active);
+		Collections.sort(retired);
+		active.addAll(retired);
+		return active;
+	}
+	
+	private void setTermKeys(Integer termId, String code, String sourceName, String sourceHl7Code) {
+		Set<String> keys = new HashSet<String>();
+		if (code != null) {
+			if (sourceName != null) {
+				keys.add(key(sourceName, code));
+			}
+			if (sourceHl7Code != null) {
+				keys.add(key(sourceHl7Code, code));
+			}
+		}
+		Set<String> previous = keysByTermId.put(termId, keys);
+		if (previous != null) {
+			for (String key : previous) {
+				removeFromSet(termIdsByKey, key, termId);
+			}
+		}
+		for (String key : keys) {
+			addToSet(termIdsByKey, key, termId);
+		}
+	}
+	
+	private void link(Integer conceptId, Integer termId) {
+		addToSet(conceptIdsByTermId, termId, conceptId);
+		addToSet(termIdsByConceptId, conceptId, termId);
+	}
+	
+	private void unlinkConcept(Integer conceptId) {
+		Set<Integer> termIds = termIdsByConceptId.remove(conceptId);
+		if (termIds != null) {
+			for (Integer termId : termIds) {
+				removeFromSet(conceptIdsByTermId, termId, conceptId);
+			}
+		}
+	}
+	
+	private void setRetired(Integer conceptId, Boolean retired) {
+		if (Boolean.TRUE.equals(retired)) {
+			retiredConceptIds.add(conceptId);
+		} else {
+			retiredConceptIds.remove(conceptId);
+		}
+	}
+	
+	private static <K, V> void addToSet(Map<K, Set<V>> map, K key, V value) {
+		Set<V> values = map.get(key);
+		if (values == null) {
+			values = new HashSet<V>(2);
+			map.put(key, values);
+		}
+		values.add(value);
+	}
+	
+	private static <K, V> void removeFromSet(Map<K, Set<V>> map, K key, V value) {
+		Set<V> values = map.get(key);
+		if (values != null) {
+			values.remove(value);
+			if (values.isEmpty()) {
+				map.remove(key);
+			}
+		}
+	}
+	
+	static String key(String source, String code) {
+		return source.toLowerCase(Locale.ENGLISH) + "^" + code.toLowerCase(Locale.ENGLISH);
+	}
+}
@@ -16,16 +16,19 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
 import java.util.Vector;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.apache.commons.beanutils.BeanUtils;
 import org.apache.commons.collections.CollectionUtils;
@@ -51,17 +54,22 @@ import org.openmrs.ConceptSource;
 import org.openmrs.ConceptStopWord;
 import org.openmrs.Drug;
 import org.openmrs.DrugIngredient;
+import org.openmrs.GlobalProperty;
 import org.openmrs.Obs;
+import org.openmrs.aop.RequiredDataAdvice;
 import org.openmrs.api.APIException;
 import org.openmrs.api.AdministrationService;
 import org.openmrs.api.ConceptInUseException;
 import org.openmrs.api.ConceptNameInUseException;
+import org.openmrs.api.ConceptNameType;
 import org.openmrs.api.ConceptService;
 import org.openmrs.api.ConceptStopWordException;
 import org.openmrs.api.ConceptsLockedException;
+import org.openmrs.api.GlobalPropertyListener;
 import org.openmrs.api.context.Context;
 import org.openmrs.api.db.ConceptDAO;
 import org.openmrs.api.db.DAOException;
+import org.openmrs.api.handler.SaveHandler;
 import org.openmrs.customdatatype.CustomDatatypeUtil;
 import org.openmrs.util.OpenmrsConstants;
 import org.openmrs.util.OpenmrsUtil;
@@ -69,6 +77,8 @@ import org.openmrs.validator.ValidateUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import org.springframework.util.StringUtils;
 
 /**
@@ -77,7 +87,7 @@ import org.springframework.util.StringUtils;
  * @see org.openmrs.api.ConceptService to access these methods
  */
 @Transactional
-public class ConceptServiceImpl extends BaseOpenmrsService implements ConceptService {
+public class ConceptServiceImpl extends BaseOpenmrsService implements ConceptService, GlobalPropertyListener {
 	
 	private final Logger log = LoggerFactory.getLogger(getClass());
 	
@@ -91,6 +101,20 @@ public class ConceptServiceImpl extends BaseOpenmrsService implements ConceptSer
 
 	private static final String errorMessage = "Error generated";
 	
+	private final ConceptMappingIndex mappingIndex = new ConceptMappingIndex();
+	
+	private volatile Boolean mappingIndexEnabled;
+	
+	private final ConceptSetClosure setClosure = new ConceptSetClosure();
+	
+	private volatile Boolean setClosureEnabled;
+	
+	private final ConceptTypeaheadIndex typeaheadIndex = new ConceptTypeaheadIndex();
+	
+	private volatile Boolean typeaheadIndexEnabled;
+	
+	private final Map<Locale, List<String>> stopWordsByLocale = new ConcurrentHashMap<Locale, List<String>>();
+	
 	/**
 	 * @see org.openmrs.api.ConceptService#setConceptDAO(org.openmrs.api.db.ConceptDAO)
 	 */
@@ -190,6 +214,69 @@ public class ConceptServiceImpl extends BaseOpenmrsService implements ConceptSer
 			}
 		}
 		
+		prepareConceptForSave(concept);
+
+		Concept conceptToReturn = dao.saveConcept(concept);
+		updateMappingIndex(() -> mappingIndex.indexConcept(conceptToReturn));
+		updateSetClosure(() -> setClosure.indexConcept(conceptToReturn));
+		updateTypeaheadIndex(() -> typeaheadIndex.indexConcept(conceptToReturn));
+		
+		return conceptToReturn;
+	}
+	
+	/**
+	 * @see org.openmrs.api.ConceptService#importConcepts(Iterator)
+	 */
+	@Override
+	public int importConcepts(Iterator<Concept> concepts) throws APIException {
+		checkIfLocked();
+		
+		ConceptImporter importer = new ConceptImporter(dao);
+		int savedCount = 0;
+		ConceptMapType defaultConceptMapType = null;
+		while (concepts.hasNext()) {
+			Concept concept = concepts.next();
+			if (importer.exists(concept)) {
+				Context.getConceptService().saveConcept(concept);
+				savedCount++;
+				continue;
+			}
+			
+			for (ConceptMap map : concept.getConceptMappings()) {
+				if (map.getConceptMapType() == null) {
+					if (defaultConceptMapType == null) {
+						defaultConceptMapType = Context.getConceptService().getDefaultConceptMapType();
+					}
+					map.setConceptMapType(defaultConceptMapType);
+				}
+			}
+			CustomDatatypeUtil.saveAttributesIfNecessary(concept);
+			prepareConceptForSave(concept);
+			
+			// the save handlers are not run by the AOP advice for imports
+			RequiredDataAdvice.recursivelyHandle(SaveHandler.class, concept, null);
+			for (ConceptMap map : concept.getConceptMappings()) {
+				if (map.getConceptReferenceTerm().getConceptReferenceTermId() == null) {
+					RequiredDataAdvice.recursivelyHandle(SaveHandler.class, map.getConceptReferenceTerm(), null);
+				}
+			}
+			importer.importConcept(concept);
+		}
+		int importedCount = importer.finish();
+		log.info("Imported {} new concepts and saved {} existing concepts", importedCount, savedCount);
+		
+		updateMappingIndex(mappingIndex::clear);
+		updateSetClosure(setClosure::clear);
+		updateTypeaheadIndex(typeaheadIndex::clear);
+		// only index the imported names rather than rebuilding the index of the whole dictionary
+		dao.updateConceptNameIndexes(importer.getImportedConceptNameIds());
+		return importedCount + savedCount;
+	}
+	
+	/**
+	 * Fills in the fields that are derived when a concept is saved
+	 */
+	private void prepareConceptForSave(Concept concept) {
 		//Ensure if there's a name for a locale that at least one suitable name is marked preferred in that locale
 		//Order of preference is:
 		// 1) any name that concept.getPreferredName returns
@@ -231,10 +318,6 @@ public class ConceptServiceImpl extends BaseOpenmrsService implements ConceptSer
 		if (!concept.getSet() && (!concept.getSetMembers().isEmpty())) {
 			concept.setSet(true);
 		}
-
-		Concept conceptToReturn = dao.saveConcept(concept);
-		
-		return conceptToReturn;
 	}
 	
 	/**
@@ -243,7 +326,9 @@ public class ConceptServiceImpl extends BaseOpenmrsService implements ConceptSer
 	@Override
 	public Drug saveDrug(Drug drug) throws APIException {
 		checkIfLocked();
-		return dao.saveDrug(drug);
+		Drug savedDrug = dao.saveDrug(drug);
+		updateTypeaheadIndex(() -> typeaheadIndex.indexDrug(savedDrug));
+		return savedDrug;
 	}
 	
 	/**
@@ -263,7 +348,11 @@ public class ConceptServiceImpl extends BaseOpenmrsService implements ConceptSer
 			}
 		}
 		
+		Integer conceptId = concept.getConceptId();
 		dao.purgeConcept(concept);
+		updateMappingIndex(() -> mappingIndex.removeConcept(conceptId));
+		updateSetClosure(() -> setClosure.removeConcept(conceptId));
+		updateTypeaheadIndex(() -> typeaheadIndex.removeConcept(conceptId));
 	}
 	
 	/**
@@ -281,7 +370,11 @@ public class ConceptServiceImpl extends BaseOpenmrsService implements ConceptSer
 			
 			concept.setRetired(true);
 			concept.setRetireReason(reason);
-			return dao.saveConcept(concept);
+			Concept retiredConcept = dao.saveConcept(concept);
+			updateMappingIndex(() -> mappingIndex.indexConcept(retiredConcept));
+			updateSetClosure(() -> setClosure.indexConcept(retiredConcept));
+			updateTypeaheadIndex(() -> typeaheadIndex.indexConcept(retiredConcept));
+			return retiredConcept;
 			
 		}
 		
@@ -294,7 +387,9 @@ public class ConceptServiceImpl extends BaseOpenmrsService implements ConceptSer
 	 */
 	@Override
 	public Drug retireDrug(Drug drug, String reason) throws APIException {
-		return dao.saveDrug(drug);
+		Drug retiredDrug = dao.saveDrug(drug);
+		updateTypeaheadIndex(() -> typeaheadIndex.indexDrug(retiredDrug));
+		return retiredDrug;
 	}
 	
 	/**
@@ -302,7 +397,9 @@ public class ConceptServiceImpl extends BaseOpenmrsService implements ConceptSer
 	 */
 	@Override
 	public Drug unretireDrug(Drug drug) throws APIException {
-		return dao.saveDrug(drug);
+		Drug unretiredDrug = dao.saveDrug(drug);
+		updateTypeaheadIndex(() -> typeaheadIndex.indexDrug(unretiredDrug));
+		return unretiredDrug;
 	}
 	
 	/**
@@ -311,7 +408,9 @@ public class ConceptServiceImpl extends BaseOpenmrsService implements ConceptSer
 	 */
 	@Override
 	public void purgeDrug(Drug drug) throws APIException {
+		Integer drugId = drug.getDrugId();
 		dao.purgeDrug(drug);
+		updateTypeaheadIndex(() -> typeaheadIndex.removeDrug(drugId));
 	}
 	
 	/**
@@ -676,6 +775,10 @@ public class ConceptServiceImpl extends BaseOpenmrsService implements ConceptSer
 	@Override
 	@Transactional(readOnly = true)
 	public List<Concept> getConceptsByConceptSet(Concept c) {
+		ConceptSetClosure closure = getSetClosureIfEnabled();
+		if (closure != null) {
+			return getConceptsById(closure.getMemberIds(c.getConceptId()));
+		}
 		Set<Integer> alreadySeen = new HashSet<Integer>();
 		List<Concept> ret = new ArrayList<Concept>();
 		explodeConceptSetHelper(c, ret, alreadySeen);
@@ -695,6 +798,54 @@ public class ConceptServiceImpl extends BaseOpenmrsService implements ConceptSer
 		return dao.getSetsContainingConcept(concept);
 	}
 	
+	/**
+	 * @see org.openmrs.api.ConceptService#getAllSetsContainingConcept(org.openmrs.Concept)
+	 */
+	@Override
+	@Transactional(readOnly = true)
+	public List<Concept> getAllSetsContainingConcept(Concept concept) {
+		if (concept.getConceptId() == null) {
+			return Collections.emptyList();
+		}
+		ConceptSetClosure closure = getSetClosureIfEnabled();
+		if (closure != null) {
+			return getConceptsById(closure.getAncestorIds(concept.getConceptId()));
+		}
+		
+		Set<Concept> ancestors = new LinkedHashSet<Concept>();
+		List<Concept> level = Collections.singletonList(concept);
+		while (!level.isEmpty()) {
+			List<Concept> next = new ArrayList<Concept>();
+			for (Concept child : level) {
+				for (ConceptSet conceptSet : dao.getSetsContainingConcept(child)) {
+					Concept parent = conceptSet.getConceptSet();
+					if (!parent.equals(concept) && ancestors.add(parent) && parent.getSet()) {
+						next.add(parent);
+					}
+				}
+			}
+			next.sort(Comparator.comparing(Concept::getConceptId));
+			level = next;
+		}
+		return new ArrayList<Concept>(ancestors);
+	}
+	
+	/**
+	 * @see org.openmrs.api.ConceptService#isConceptInSet(org.openmrs.Concept, org.openmrs.Concept)
+	 */
+	@Override
+	@Transactional(readOnly = true)
+	public boolean isConceptInSet(Concept concept, Concept conceptSet) {
+		if (concept == null || conceptSet == null || concept.getConceptId() == null || conceptSet.getConceptId() == null) {
+			return false;
+		}
+		ConceptSetClosure closure = getSetClosureIfEnabled();
+		if (closure != null) {
+			return closure.getDepth(concept.getConceptId(), conceptSet.getConceptId()) != null;
+		}
+		return getConceptsByConceptSet(conceptSet).contains(concept);
+	}
+	
 	/**
 	 * @see org.openmrs.api.ConceptService#getConceptProposal(java.lang.Integer)
 	 */
@@ -950,7 +1101,9 @@ public class ConceptServiceImpl extends BaseOpenmrsService implements ConceptSer
 	@Override
 	public ConceptSource purgeConceptSource(ConceptSource cs) throws APIException {
 		
-		return dao.deleteConceptSource(cs);
+		ConceptSource purged = dao.deleteConceptSource(cs);
+		updateMappingIndex(mappingIndex::clear);
+		return purged;
 	}
 	
 	/**
@@ -967,7 +1120,10 @@ public class ConceptServiceImpl extends BaseOpenmrsService implements ConceptSer
 	 */
 	@Override
 	public ConceptSource saveConceptSource(ConceptSource conceptSource) throws APIException {
-		return dao.saveConceptSource(conceptSource);
+		ConceptSource saved = dao.saveConceptSource(conceptSource);
+		// the name or HL7 code of the source may have changed, which applies to all of its terms
+		updateMappingIndex(mappingIndex::clear);
+		return saved;
 	}
 	
 	/**
@@ -989,6 +1145,16 @@ public class ConceptServiceImpl extends BaseOpenmrsService implements ConceptSer
 		return dao.conceptIterator();
 	}
 	
+	/**
+	 * @see org.openmrs.api.ConceptService#conceptIterator(List, List, Date)
+	 */
+	@Override
+	@Transactional(readOnly = true)
+	public Iterator<Concept> conceptIterator(List<ConceptClass> conceptClasses, List<ConceptDatatype> datatypes,
+	        Date changedSince) {
+		return dao.conceptIterator(conceptClasses, datatypes, changedSince);
+	}
+	
 	/**
 	 * @see org.openmrs.api.ConceptService#getConceptByUuid(java.lang.String)
 	 */
@@ -1158,7 +1324,276 @@ public class ConceptServiceImpl extends BaseOpenmrsService implements ConceptSer
 	@Override
 	@Transactional(readOnly = true)
 	public List<Concept> getConceptsByMapping(String code, String sourceName, boolean includeRetired) throws APIException {
-		return dao.getConceptsByMapping(code, sourceName, includeRetired);
+		ConceptMappingIndex index = isMappingIndexEnabled() && !isChangedInTransaction(mappingIndex) ? getMappingIndex()
+		        : null;
+		if (index == null) {
+			return dao.getConceptsByMapping(code, sourceName, includeRetired);
+		}
+		
+		return getConceptsById(index.getConceptIds(code, sourceName, includeRetired));
+	}
+	
+	/**
+	 * Loads the concepts with the given ids in the same order, skipping any that no longer exist
+	 */
+	private List<Concept> getConceptsById(List<Integer> conceptIds) {
+		List<Concept> concepts = new ArrayList<Concept>(conceptIds.size());
+		for (Integer conceptId : conceptIds) {
+			Concept concept = dao.getConcept(conceptId);
+			if (concept != null) {
+				concepts.add(concept);
+			}
+		}
+		return concepts;
+	}
+	
+	private boolean isMappingIndexEnabled() {
+		Boolean enabled = mappingIndexEnabled;
+		if (enabled == null) {
+			enabled = Boolean.valueOf(Context.getAdministrationService().getGlobalProperty(
+			    OpenmrsConstants.GP_CONCEPT_MAPPING_INDEX_ENABLED, "false"));
+			mappingIndexEnabled = enabled;
+		}
+		return enabled;
+	}
+	
+	/**
+	 * Gets the concept mapping index, loading all concept mappings into it on first use
+	 *
+	 * @return the index, or null if a change was committed while it was being loaded
+	 */
+	private ConceptMappingIndex getMappingIndex() {
+		if (!mappingIndex.isLoaded()) {
+			synchronized (mappingIndex) {
+				if (!mappingIndex.isLoaded()) {
+					long start = System.currentTimeMillis();
+					mappingIndex.clear();
+					long generation = mappingIndex.getGeneration();
+					dao.streamConceptMappings(row -> mappingIndex.addMapping((Integer) row[0], (Boolean) row[1],
+					    (Integer) row[2], (String) row[3], (String) row[4], (String) row[5]));
+					if (!mappingIndex.setLoaded(generation)) {
+						log.debug("Concept mappings changed while loading the concept mapping index, it is loaded again on "
+						        + "next use");
+						mappingIndex.clear();
+						return null;
+					}
+					log.info("Loaded the concept mapping index in {} ms", System.currentTimeMillis() - start);
+				}
+			}
+		}
+		return mappingIndex;
+	}
+	
+	/**
+	 * Applies a change made in the current transaction to the concept mapping index once the
+	 * transaction commits, if the index is loaded by then
+	 */
+	private void updateMappingIndex(Runnable update) {
+		updateAfterCommit(mappingIndex, () -> {
+			mappingIndex.changed();
+			synchronized (mappingIndex) {
+				if (mappingIndex.isLoaded()) {
+					update.run();
+				}
+			}
+		});
+	}
+	
+	private boolean isSetClosureEnabled() {
+		Boolean enabled = setClosureEnabled;
+		if (enabled == null) {
+			enabled = Boolean.valueOf(Context.getAdministrationService().getGlobalProperty(
+			    OpenmrsConstants.GP_CONCEPT_SET_CLOSURE_ENABLED, "false"));
+			setClosureEnabled = enabled;
+		}
+		return enabled;
+	}
+	
+	/**
+	 * Gets the concept set closure, loading all concept set memberships into it on first use
+	 *
+	 * @return the closure, or null if a change was committed while it was being loaded
+	 */
+	private ConceptSetClosure getSetClosure() {
+		if (!setClosure.isLoaded()) {
+			synchronized (setClosure) {
+				if (!setClosure.isLoaded()) {
+					long start = System.currentTimeMillis();
+					setClosure.clear();
+					long generation = setClosure.getGeneration();
+					dao.streamConceptSetMembers(row -> setClosure.addMember((Integer) row[0], (Integer) row[1],
+					    Boolean.TRUE.equals(row[2])));
+					if (!setClosure.setLoaded(generation)) {
+						log.debug("Concept sets changed while loading the concept set closure, it is loaded again on "
+						        + "next use");
+						setClosure.clear();
+						return null;
+					}
+					log.info("Loaded the concept set closure in {} ms", System.currentTimeMillis() - start);
+				}
+			}
+		}
+		return setClosure;
+	}
+	
+	/**
+	 * Gets the concept set closure if it is enabled and can be used by the current transaction
+	 *
+	 * @return the closure, or null if the database has to be read instead
+	 */
+	private ConceptSetClosure getSetClosureIfEnabled() {
+		return isSetClosureEnabled() && !isChangedInTransaction(setClosure) ? getSetClosure() : null;
+	}
+	
+	/**
+	 * Applies a change made in the current transaction to the concept set closure once the
+	 * transaction commits, if the closure is loaded by then
+	 */
+	private void updateSetClosure(Runnable update) {
+		updateAfterCommit(setClosure, () -> {
+			setClosure.changed();
+			synchronized (setClosure) {
+				if (setClosure.isLoaded()) {
+					update.run();
+				}
+			}
+		});
+	}
+	
+	private boolean isTypeaheadIndexEnabled() {
+		Boolean enabled = typeaheadIndexEnabled;
+		if (enabled == null) {
+			enabled = Boolean.valueOf(Context.getAdministrationService().getGlobalProperty(
+			    OpenmrsConstants.GP_CONCEPT_TYPEAHEAD_INDEX_ENABLED, "false"));
+			typeaheadIndexEnabled = enabled;
+		}
+		return enabled;
+	}
+	
+	/**
+	 * Gets the typeahead index, loading the names of all non retired concepts and drugs into it on
+	 * first use
+	 *
+	 * @return the index, or null if a change was committed while it was being loaded
+	 */
+	private ConceptTypeaheadIndex getTypeaheadIndex() {
+		if (!typeaheadIndex.isLoaded()) {
+			synchronized (typeaheadIndex) {
+				if (!typeaheadIndex.isLoaded()) {
+					long start = System.currentTimeMillis();
+					typeaheadIndex.clear();
+					long generation = typeaheadIndex.getGeneration();
+					dao.streamSearchableConceptNames(row -> typeaheadIndex.addConceptName((Integer) row[0],
+					    (Integer) row[1], (String) row[2], (Locale) row[3], (ConceptNameType) row[4], (Boolean) row[5]));
+					dao.streamSearchableDrugNames(row -> typeaheadIndex.addDrug((Integer) row[0], (String) row[1]));
+					if (!typeaheadIndex.setLoaded(generation)) {
+						log.debug("Concept or drug names changed while loading the typeahead index, it is loaded again on "
+						        + "next use");
+						typeaheadIndex.clear();
+						return null;
+					}
+					log.info("Loaded the concept typeahead index in {} ms", System.currentTimeMillis() - start);
+				}
+			}
+		}
+		return typeaheadIndex;
+	}
+	
+	/**
+	 * Gets the typeahead index if it is enabled and can be used by the current transaction
+	 *
+	 * @return the index, or null if the database has to be searched instead
+	 */
+	private ConceptTypeaheadIndex getTypeaheadIndexIfEnabled() {
+		return isTypeaheadIndexEnabled() && !isChangedInTransaction(typeaheadIndex) ? getTypeaheadIndex() : null;
+	}
+	
+	/**
+	 * Applies a change made in the current transaction to the typeahead index once the transaction
+	 * commits, if the index is loaded by then
+	 */
+	private void updateTypeaheadIndex(Runnable update) {
+		updateAfterCommit(typeaheadIndex, () -> {
+			typeaheadIndex.changed();
+			synchronized (typeaheadIndex) {
+				if (typeaheadIndex.isLoaded()) {
+					update.run();
+				}
+			}
+		});
+	}
+	
+	/**
+	 * Runs a change to an in-memory index once the current transaction commits, or right away
+	 * outside of a transaction, so that other threads never see changes that are not committed.
+	 * Until then the current transaction reads from the database instead of the index, see
+	 * {@link #isChangedInTransaction(Object)}, so that it still sees its own changes.
+	 */
+	private void updateAfterCommit(Object index, Runnable update) {
+		if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+			update.run();
+			return;
+		}
+		if (!TransactionSynchronizationManager.hasResource(index)) {
+			TransactionSynchronizationManager.bindResource(index, Boolean.TRUE);
+			TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+				
+				@Override
+				public void afterCompletion(int status) {
+					TransactionSynchronizationManager.unbindResourceIfPossible(index);
+				}
+			});
+		}
+		TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+			
+			@Override
+			public void afterCommit() {
+				update.run();
+			}
+		});
+	}
+	
+	/**
+	 * @return true if the current transaction has made changes to the given index that are not
+	 *         committed yet
+	 */
+	private boolean isChangedInTransaction(Object index) {
+		return TransactionSynchronizationManager.hasResource(index);
+	}
+	
+	/**
+	 * @see GlobalPropertyListener#supportsPropertyName(String)
+	 */
+	@Override
+	public boolean supportsPropertyName(String propertyName) {
+		return OpenmrsConstants.GP_CONCEPT_MAPPING_INDEX_ENABLED.equals(propertyName)
+		        || OpenmrsConstants.GP_CONCEPT_SET_CLOSURE_ENABLED.equals(propertyName)
+		        || OpenmrsConstants.GP_CONCEPT_TYPEAHEAD_INDEX_ENABLED.equals(propertyName);
+	}
+	
+	/**
+	 * @see GlobalPropertyListener#globalPropertyChanged(GlobalProperty)
+	 */
+	@Override
+	public void globalPropertyChanged(GlobalProperty newValue) {
+		globalPropertyDeleted(newValue.getProperty());
+	}
+	
+	/**
+	 * @see GlobalPropertyListener#globalPropertyDeleted(String)
+	 */
+	@Override
+	public void globalPropertyDeleted(String propertyName) {
+		if (OpenmrsConstants.GP_CONCEPT_MAPPING_INDEX_ENABLED.equals(propertyName)) {
+			mappingIndexEnabled = null;
+			mappingIndex.clear();
+		} else if (OpenmrsConstants.GP_CONCEPT_SET_CLOSURE_ENABLED.equals(propertyName)) {
+			setClosureEnabled = null;
+			setClosure.clear();
+		} else {
+			typeaheadIndexEnabled = null;
+			typeaheadIndex.clear();
+		}
 	}
 	
 	/**
@@ -1405,7 +1840,13 @@ public class ConceptServiceImpl extends BaseOpenmrsService implements ConceptSer
 	@Override
 	@Transactional(readOnly = true)
 	public List<String> getConceptStopWords(Locale locale) {
-		return dao.getConceptStopWords(locale);
+		Locale stopWordsLocale = locale == null ? Context.getLocale() : locale;
+		List<String> stopWords = stopWordsByLocale.get(stopWordsLocale);
+		if (stopWords == null) {
+			stopWords = new ArrayList<String>(dao.getConceptStopWords(stopWordsLocale));
+			stopWordsByLocale.put(stopWordsLocale, stopWords);
+		}
+		return new ArrayList<String>(stopWords);
 	}
 	
 	/**
@@ -1414,6 +1855,7 @@ public class ConceptServiceImpl extends BaseOpenmrsService implements ConceptSer
 	@Override
 	public ConceptStopWord saveConceptStopWord(ConceptStopWord conceptStopWord) throws APIException {
 		try {
+			clearStopWordsAfterCompletion();
 			return dao.saveConceptStopWord(conceptStopWord);
 		}
 		catch (DAOException e) {
@@ -1430,6 +1872,7 @@ public class ConceptServiceImpl extends BaseOpenmrsService implements ConceptSer
 	@Override
 	public void deleteConceptStopWord(Integer conceptStopWordId) throws APIException {
 		try {
+			clearStopWordsAfterCompletion();
 			dao.deleteConceptStopWord(conceptStopWordId);
 		}
 		catch (DAOException e) {
@@ -1440,6 +1883,23 @@ public class ConceptServiceImpl extends BaseOpenmrsService implements ConceptSer
 		}
 	}
 	
+	/**
+	 * The stop words read per locale are dropped once the change to them is committed or rolled back,
+	 * so that the concept searches do not go on using the words read while the change was pending
+	 */
+	private void clearStopWordsAfterCompletion() {
+		stopWordsByLocale.clear();
+		if (TransactionSynchronizationManager.isSynchronizationActive()) {
+			TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+				
+				@Override
+				public void afterCompletion(int status) {
+					stopWordsByLocale.clear();
+				}
+			});
+		}
+	}
+	
 	/**
 	 * @see org.openmrs.api.ConceptService#getAllConceptStopWords()
 	 */
@@ -1730,7 +2190,9 @@ public class ConceptServiceImpl extends BaseOpenmrsService implements ConceptSer
 	 */
 	@Override
 	public ConceptReferenceTerm saveConceptReferenceTerm(ConceptReferenceTerm conceptReferenceTerm) throws APIException {
-		return dao.saveConceptReferenceTerm(conceptReferenceTerm);
+		ConceptReferenceTerm saved = dao.saveConceptReferenceTerm(conceptReferenceTerm);
+		updateMappingIndex(() -> mappingIndex.indexTerm(saved));
+		return saved;
 	}
 	
 	/**
@@ -1839,6 +2301,65 @@ public class ConceptServiceImpl extends BaseOpenmrsService implements ConceptSer
 		return dao.getDrugs(searchPhrase, locale, exactLocale, includeRetired);
 	}
 	
+	/**
+	 * @see org.openmrs.api.ConceptService#getConceptsByNamePrefix(String, Locale, List, int)
+	 */
+	@Override
+	@Transactional(readOnly = true)
+	public List<Concept> getConceptsByNamePrefix(String text, Locale locale, List<ConceptClass> conceptClasses, int limit)
+	        throws APIException {
+		if (!StringUtils.hasText(text) || limit <= 0) {
+			return Collections.emptyList();
+		}
+		if (locale == null) {
+			locale = Context.getLocale();
+		}
+		
+		ConceptTypeaheadIndex index = getTypeaheadIndexIfEnabled();
+		if (index == null) {
+			Set<Concept> concepts = new LinkedHashSet<Concept>();
+			for (ConceptSearchResult result : getConcepts(text, Collections.singletonList(locale), false, conceptClasses,
+			    null, null, null, null, 0, limit)) {
+				concepts.add(result.getConcept());
+			}
+			return new ArrayList<Concept>(concepts);
+		}
+		
+		Set<Integer> conceptClassIds = null;
+		if (conceptClasses != null && !conceptClasses.isEmpty()) {
+			conceptClassIds = new HashSet<Integer>();
+			for (ConceptClass conceptClass : conceptClasses) {
+				conceptClassIds.add(conceptClass.getConceptClassId());
+			}
+		}
+		return getConceptsById(index.getConceptIds(text, locale, conceptClassIds, limit));
+	}
+	
+	/**
+	 * @see org.openmrs.api.ConceptService#getDrugsByNamePrefix(String, int)
+	 */
+	@Override
+	@Transactional(readOnly = true)
+	public List<Drug> getDrugsByNamePrefix(String text, int limit) throws APIException {
+		if (!StringUtils.hasText(text) || limit <= 0) {
+			return Collections.emptyList();
+		}
+		ConceptTypeaheadIndex index = getTypeaheadIndexIfEnabled();
+		if (index == null) {
+			return dao.getDrugs(text, null, true, false, false, 0, limit);
+		}
+		
+		List<Integer> drugIds = index.getDrugIds(text, limit);
+		List<Drug> drugs = new ArrayList<Drug>(drugIds.size());
+		for (Integer drugId : drugIds) {
+			Drug drug = dao.getDrug(drugId);
+			if (drug != null) {
+				drugs.add(drug);
+			}
+		}
+		return drugs;
+	}
+	
 	/**
 	 * @see org.openmrs.api.ConceptService#getDrugsByMapping(String, ConceptSource, Collection,
 	 *      boolean)
@@ -0,0 +1,424 @@
+/**
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.api.impl;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.openmrs.Concept;
+import org.openmrs.ConceptSet;
+
+/**
+ * A memory resident graph of the concept set memberships, used to expand nested concept sets and to
+ * test whether a concept is in a set without reading the members of every nested set from the
+ * database. The expansion of a set, along with the depth of each of its descendants, is worked out
+ * the first time the set is asked for and kept until the members of the set, or of a set nested in
+ * it, change. Every committed change moves the generation of the graph on with {@link #changed()},
+ * so that a load that ran while a change was committed is not marked as loaded.
+ * <p>
+ * In the same way as {@link org.openmrs.api.ConceptService#getConceptsByConceptSet(Concept)}, only
+ * the members of concepts that are marked as sets are expanded.
+ *
+ * @since 2.2.0
+ */
+class ConceptSetClosure {
+	
+	private static final Comparator<ConceptSet> BY_SORT_WEIGHT = Comparator.comparing(ConceptSet::getSortWeight,
+	    Comparator.nullsFirst(Comparator.<Double> naturalOrder()));
+	
+	private final ReadWriteLock lock = new ReentrantReadWriteLock();
+	
+	private final Map<Integer, List<Integer>> memberIdsBySetId = new HashMap<Integer, List<Integer>>();
+	
+	private final Map<Integer, Set<Integer>> setIdsByMemberId = new HashMap<Integer, Set<Integer>>();
+	
+	private final Set<Integer> setConceptIds = new HashSet<Integer>();
+	
+	private final Map<Integer, Closure> closures = new HashMap<Integer, Closure>();
+	
+	private final AtomicLong generation = new AtomicLong();
+	
+	private volatile boolean loaded = false;
+	
+	/**
+	 * @return true if the graph has been loaded and can answer lookups
+	 */
+	boolean isLoaded() {
+		return loaded;
+	}
+	
+	/**
+	 * @return the value to pass to {@link #setLoaded(long)} for a load started from now on
+	 */
+	long getGeneration() {
+		return generation.get();
+	}
+	
+	/**
+	 * Records that a change to the memberships was committed
+	 */
+	void changed() {
+		generation.incrementAndGet();
+	}
+	
+	/**
+	 * Marks the graph as loaded once all the memberships have been added, unless a change was
+	 * committed or the graph was emptied since the load started
+	 *
+	 * @param loadGeneration the value of {@link #getGeneration()} before the load started
+	 * @return true if the graph is now loaded
+	 * @should not mark the graph as loaded after a change
+	 */
+	boolean setLoaded(long loadGeneration) {
+		lock.writeLock().lock();
+		try {
+			loaded = generation.get() == loadGeneration;
+			return loaded;
+		}
+		finally {
+			lock.writeLock().unlock();
+		}
+	}
+	
+	/**
+	 * Empties the graph, it has to be loaded again before it can answer lookups
+	 */
+	void clear() {
+		lock.writeLock().lock();
+		try {
+			generation.incrementAndGet();
+			loaded = false;
+			memberIdsBySetId.clear();
+			setIdsByMemberId.clear();
+			setConceptIds.clear();
+			closures.clear();
+		}
+		finally {
+			lock.writeLock().unlock();
+		}
+	}
+	
+	/**
+	 * Adds a single membership while the graph is being loaded, the members of each set have to be
+	 * added in their sort order
+	 *
+	 * @param setId the id of the concept set
+	 * @param memberId the id of the member concept
+	 * @param memberIsSet whether the member is itself a set
+	 */
+	void addMember(Integer setId, Integer memberId, boolean memberIsSet) {
+		lock.writeLock().lock();
+		try {
+			List<Integer> members = memberIdsBySetId.get(setId);
+			if (members == null) {
+				members = new ArrayList<Integer>();
+				memberIdsBySetId.put(setId, members);
+			}
+			members.add(memberId);
+			addToSet(setIdsByMemberId, memberId, setId);
+			setIsSet(memberId, memberIsSet);
+			closures.clear();
+		}
+		finally {
+			lock.writeLock().unlock();
+		}
+	}
+	
+	/**
+	 * Replaces the members of the given saved concept
+	 *
+	 * @param concept the concept to index
+	 * @should replace the previous members of the concept
+	 * @should stop expanding a concept that is no longer a set
+	 * @should only drop the expansions of the sets containing the concept
+	 */
+	void indexConcept(Concept concept) {
+		Integer conceptId = concept.getConceptId();
+		if (conceptId == null) {
+			return;
+		}
+		List<ConceptSet> conceptSets = new ArrayList<ConceptSet>(concept.getConceptSets());
+		Collections.sort(conceptSets, BY_SORT_WEIGHT);
+		lock.writeLock().lock();
+		try {
+			dropClosures(conceptId);
+			removeMembers(conceptId);
+			List<Integer> members = new ArrayList<Integer>(conceptSets.size());
+			for (ConceptSet conceptSet : conceptSets) {
+				Concept member = conceptSet.getConcept();
+				if (member != null && member.getConceptId() != null) {
+					members.add(member.getConceptId());
+					if (setConceptIds.contains(member.getConceptId()) != Boolean.TRUE.equals(member.getSet())) {
+						// the member is expanded differently in the other sets it is in too
+						dropClosures(member.getConceptId());
+					}
+					addToSet(setIdsByMemberId, member.getConceptId(), conceptId);
+					setIsSet(member.getConceptId(), member.getSet());
+				}
+			}
+			if (!members.isEmpty()) {
+				memberIdsBySetId.put(conceptId, members);
+			}
+			setIsSet(conceptId, concept.getSet());
+		}
+		finally {
+			lock.writeLock().unlock();
+		}
+	}
+	
+	/**
+	 * Removes the concept with the given id from the graph, both as a set and as a member
+	 *
+	 * @param conceptId the id of the concept
+	 * @should remove the concept from the sets it was in
+	 */
+	void removeConcept(Integer conceptId) {
+		if (conceptId == null) {
+			return;
+		}
+		lock.writeLock().lock();
+		try {
+			dropClosures(conceptId);
+			removeMembers(conceptId);
+			Set<Integer> setIds = setIdsByMemberId.remove(conceptId);
+			if (setIds != null) {
+				for (Integer setId : setIds) {
+					List<Integer> members = memberIdsBySetId.get(setId);
+					if (members != null) {
+						members.removeAll(Collections.singleton(conceptId));
+					}
+				}
+			}
+			setConceptIds.remove(conceptId);
+		}
+		finally {
+			lock.writeLock().unlock();
+		}
+	}
+	
+	/**
+	 * Expands the set with the given id, each nested set is followed by its own members
+	 *
+	 * @param setId the id of the concept set
+	 * @return the ids of all the concepts in the set, in the same order as
+	 *         {@link org.openmrs.api.ConceptService#getConceptsByConceptSet(Concept)}
+	 * @should expand nested sets
+	 * @should not loop on sets that contain each other
+	 */
+	List<Integer> getMemberIds(Integer setId) {
+		return getClosure(setId).memberIds;
+	}
+	
+	/**
+	 * @param conceptId the id of the concept
+	 * @param setId the id of the concept set
+	 * @return the number of levels the concept is nested below the set, 1 for a direct member, or
+	 *         null if it is not in the set
+	 * @should return the shortest depth of a nested member
+	 * @should return null if the concept is not in the set
+	 */
+	Integer getDepth(Integer conceptId, Integer setId) {
+		if (conceptId == null) {
+			return null;
+		}
+		return getClosure(setId).depths.get(conceptId);
+	}
+	
+	/**
+	 * Gets the sets the given concept is in at any depth, the nearest sets first
+	 *
+	 * @param conceptId the id of the concept
+	 * @return the ids of the sets containing the concept
+	 * @should return the sets containing the concept nearest first
+	 */
+	List<Integer> getAncestorIds(Integer conceptId) {
+		if (conceptId == null) {
+			return Collections.emptyList();
+		}
+		lock.readLock().lock();
+		try {
+			return new ArrayList<Integer>(findAncestorIds(conceptId));
+		}
+		finally {
+			lock.readLock().unlock();
+		}
+	}
+	
+	private Set<Integer> findAncestorIds(Integer conceptId) {
+		Set<Integer> ancestors = new LinkedHashSet<Integer>();
+		List<Integer> level = Collections.singletonList(conceptId);
+		while (!level.isEmpty()) {
+			Set<Integer> parentIds = new HashSet<Integer>();
+			for (Integer id : level) {
+				Set<Integer> parents = setIdsByMemberId.get(id);
+				if (parents != null) {
+					parentIds.addAll(parents);
+				}
+			}
+			List<Integer> next = new ArrayList<Integer>(parentIds);
+			Collections.sort(next);
+			level = new ArrayList<Integer>();
+			for (Integer parentId : next) {
+				// a set is only expanded inside its own parents if it is marked as a set
+				if (!parentId.equals(conceptId) && ancestors.add(parentId) && setConceptIds.contains(parentId)) {
+					level.add(parentId);
+				}
+			}
+		}
+		return ancestors;
+	}
+	
+	/**
+	 * Drops the expansions that the members of the given concept are part of, i.e. those of the
+	 * concept itself and of the sets it is nested in, while the graph still links it to its
+	 * previous sets
+	 */
+	private void dropClosures(Integer conceptId) {
+		if (closures.isEmpty()) {
+			return;
+		}
+		closures.remove(conceptId);
+		for (Integer ancestorId : findAncestorIds(conceptId)) {
+			closures.remove(ancestorId);
+		}
+	}
+	
+	private Closure getClosure(Integer setId) {
+		if (setId == null) {
+			return Closure.EMPTY;
+		}
+		lock.readLock().lock();
+		try {
+			Closure closure = closures.get(setId);
+			if (closure != null) {
+				return closure;
+			}
+		}
+		finally {
+			lock.readLock().unlock();
+		}
+		lock.writeLock().lock();
+		try {
+			Closure closure = closures.get(setId);
+			if (closure == null) {
+				closure = computeClosure(setId);
+				closures.put(setId, closure);
+			}
+			return closure;
+		}
+		finally {
+			lock.writeLock().unlock();
+		}
+	}
+	
+	private Closure computeClosure(Integer setId) {
+		List<Integer> memberIds = new ArrayList<Integer>();
+		expand(setId, memberIds, new HashSet<Integer>());
+		
+		Map<Integer, Integer> depths = new HashMap<Integer, Integer>();
+		List<Integer> level = Collections.singletonList(setId);
+		int depth = 0;
+		while (!level.isEmpty()) {
+			depth++;
+			List<Integer> next = new ArrayList<Integer>();
+			for (Integer id : level) {
+				for (Integer memberId : getMembers(id)) {
+					if (!depths.containsKey(memberId)) {
+						depths.put(memberId, depth);
+						if (setConceptIds.contains(memberId)) {
+							next.add(memberId);
+						}
+					}
+				}
+			}
+			level = next;
+		}
+		return new Closure(Collections.unmodifiableList(memberIds), depths);
+	}
+	
+	/**
+	 * Mirrors the traversal of ConceptServiceImpl#explodeConceptSetHelper, a set that has already
+	 * been expanded is listed again but not expanded a second time
+	 */
+	private void expand(Integer setId, List<Integer> memberIds, Set<Integer> alreadySeen) {
+		alreadySeen.add(setId);
+		for (Integer memberId : getMembers(setId)) {
+			memberIds.add(memberId);
+			if (setConceptIds.contains(memberId) && !alreadySeen.contains(memberId)) {
+				expand(memberId, memberIds, alreadySeen);
+			}
+		}
+	}
+	
+	private List<Integer> getMembers(Integer setId) {
+		List<Integer> members = memberIdsBySetId.get(setId);
+		return members == null ? Collections.<Integer> emptyList() : members;
+	}
+	
+	private void removeMembers(Integer setId) {
+		List<Integer> members = memberIdsBySetId.remove(setId);
+		if (members != null) {
+			for (Integer memberId : members) {
+				Set<Integer> parents = setIdsByMemberId.get(memberId);
+				if (parents != null) {
+					parents.remove(setId);
+					if (parents.isEmpty()) {
+						setIdsByMemberId.remove(memberId);
+					}
+				}
+			}
+		}
+	}
+	
+	private void setIsSet(Integer conceptId, Boolean isSet) {
+		if (Boolean.TRUE.equals(isSet)) {
+			setConceptIds.add(conceptId);
+		} else {
+			setConceptIds.remove(conceptId);
+		}
+	}
+	
+	private static <K, V> void addToSet(Map<K, Set<V>> map, K key, V value) {
+		Set<V> values = map.get(key);
+		if (values == null) {
+			values = new HashSet<V>(2);
+			map.put(key, values);
+		}
+		values.add(value);
+	}
+	
+	/**
+	 * The expanded members of a single set and the depth of each of them
+	 */
+	private static class Closure {
+		
+		private static final Closure EMPTY = new Closure(Collections.<Integer> emptyList(), Collections
+		        .<Integer, Integer> emptyMap());
+		
+		private final List<Integer> memberIds;
+		
+		private final Map<Integer, Integer> depths;
+		
+		private Closure(List<Integer> memberIds, Map<Integer, Integer> depths) {
+			this.memberIds = memberIds;
+			this.depths = depths;
+		}
+	}
+}
@@ -0,0 +1,477 @@
+/**
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.api.impl;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+
+import org.openmrs.Concept;
+import org.openmrs.ConceptName;
+import org.openmrs.Drug;
+import org.openmrs.api.ConceptNameType;
+
+/**
+ * A memory resident index of the words in the names of the non retired concepts and drugs, used to
+ * suggest concepts and drugs as a name is being typed without running a full text search for every
+ * keystroke. Names are normalized to lower case without accents or punctuation, and a search
+ * matches the names in which every typed word is the start of one of the words of the name.
+ * <p>
+ * Concept names are partitioned by the language of their locale and can be restricted to a set of
+ * concept classes. The matches are ranked with names that start with the typed text first, then
+ * preferred names, fully specified names and other names, then shorter names first.
+ * <p>
+ * The index is filled with {@link #addConceptName} and {@link #addDrug} when it is loaded and kept
+ * current with {@link #indexConcept(Concept)}, {@link #indexDrug(Drug)} and the remove methods as
+ * concepts and drugs are saved. Every committed change moves the generation of the index on with
+ * {@link #changed()}, so that a load that ran while a change was committed is not marked as loaded.
+ *
+ * @since 2.2.0
+ */
+class ConceptTypeaheadIndex {
+	
+	private static final Pattern DIACRITICS = Pattern.compile("\\p{InCombiningDiacriticalMarks}+");
+	
+	private static final Pattern SEPARATORS = Pattern.compile("[^\\p{L}\\p{N}]+");
+	
+	private static final String DRUGS = "";
+	
+	private final ReadWriteLock lock = new ReentrantReadWriteLock();
+	
+	/**
+	 * The entries with each word by partition, the sets use the identity of the entries so that an
+	 * entry is removed from a word shared by many names without scanning them
+	 */
+	private final Map<String, NavigableMap<String, Set<Entry>>> wordsByPartition = new HashMap<String, NavigableMap<String, Set<Entry>>>();
+	
+	private final Map<Integer, List<Entry>> entriesByConceptId = new HashMap<Integer, List<Entry>>();
+	
+	private final Map<Integer, List<Entry>> entriesByDrugId = new HashMap<Integer, List<Entry>>();
+	
+	private final AtomicLong generation = new AtomicLong();
+	
+	private volatile boolean loaded = false;
+	
+	/**
+	 * @return true if the index has been loaded and can answer lookups
+	 */
+	boolean isLoaded() {
+		return loaded;
+	}
+	
+	/**
+	 * @return the value to pass to {@link #setLoaded(long)} for a load started from now on
+	 */
+	long getGeneration() {
+		return generation.get();
+	}
+	
+	/**
+	 * Records that a change to the names was committed
+	 */
+	void changed() {
+		generation.incrementAndGet();
+	}
+	
+	/**
+	 * Marks the index as loaded once all the names have been added, unless a change was committed
+	 * or the index was emptied since the load started
+	 *
+	 * @param loadGeneration the value of {@link #getGeneration()} before the load started
+	 * @return true if the index is now loaded
+	 * @should not mark the index as loaded after a change
+	 */
+	boolean setLoaded(long loadGeneration) {
+		lock.writeLock().lock();
+		try {
+			loaded = generation.get() == loadGeneration;
+			return loaded;
+		}
+		finally {
+			lock.writeLock().unlock();
+		}
+	}
+	
+	/**
+	 * Empties the index, it has to be loaded again before it can answer lookups
+	 */
+	void clear() {
+		lock.writeLock().lock();
+		try {
+			generation.incrementAndGet();
+			loaded = false;
+			wordsByPartition.clear();
+			entriesByConceptId.clear();
+			entriesByDrugId.clear();
+		}
+		finally {
+			lock.writeLock().unlock();
+		}
+	}
+	
+	/**
+	 * Adds a single name of a non retired concept while the index is being loaded
+	 *
+	 * @param conceptId the id of the concept
+	 * @param conceptClassId the id of the class of the concept
+	 * @param name the name
+	 * @param locale the locale of the name
+	 * @param type the type of the name
+	 * @param localePreferred whether the name is the preferred name in its locale
+	 */
+	void addConceptName(Integer conceptId, Integer conceptClassId, String name, Locale locale, ConceptNameType type,
+	        Boolean localePreferred) {
+		lock.writeLock().lock();
+		try {
+			addConceptEntry(conceptId, conceptClassId, name, locale, type, localePreferred);
+		}
+		finally {
+			lock.writeLock().unlock();
+		}
+	}
+	
+	/**
+	 * Adds a single non retired drug while the index is being loaded
+	 *
+	 * @param drugId the id of the drug
+	 * @param name the name of the drug
+	 */
+	void addDrug(Integer drugId, String name) {
+		lock.writeLock().lock();
+		try {
+			addEntry(entriesByDrugId, DRUGS, new Entry(drugId, null, name, 0));
+		}
+		finally {
+			lock.writeLock().unlock();
+		}
+	}
+	
+	/**
+	 * Replaces the names of the given saved concept, a retired concept is removed from the index
+	 *
+	 * @param concept the concept to index
+	 * @should replace the previous names of the concept
+	 * @should remove a retired concept
+	 * @should index a name with a repeated word once
+	 */
+	void indexConcept(Concept concept) {
+		Integer conceptId = concept.getConceptId();
+		if (conceptId == null) {
+			return;
+		}
+		Integer conceptClassId = concept.getConceptClass() == null ? null : concept.getConceptClass().getConceptClassId();
+		lock.writeLock().lock();
+		try {
+			removeEntries(entriesByConceptId, conceptId);
+			if (!concept.getRetired()) {
+				for (ConceptName name : concept.getNames()) {
+					addConceptEntry(conceptId, conceptClassId, name.getName(), name.getLocale(), name.getConceptNameType(),
+					    name.getLocalePreferred());
+				}
+			}
+		}
+		finally {
+			lock.writeLock().unlock();
+		}
+	}
+	
+	/**
+	 * Removes all names of the concept with the given id
+	 *
+	 * @param conceptId the id of the concept
+	 */
+	void removeConcept(Integer conceptId) {
+		if (conceptId == null) {
+			return;
+		}
+		lock.writeLock().lock();
+		try {
+			removeEntries(entriesByConceptId, conceptId);
+		}
+		finally {
+			lock.writeLock().unlock();
+		}
+	}
+	
+	/**
+	 * Replaces the name of the given saved drug, a retired drug is removed from the index
+	 *
+	 * @param drug the drug to index
+	 */
+	void indexDrug(Drug drug) {
+		Integer drugId = drug.getDrugId();
+		if (drugId == null) {
+			return;
+		}
+		lock.writeLock().lock();
+		try {
+			removeEntries(entriesByDrugId, drugId);
+			if (!drug.getRetired()) {
+				addEntry(entriesByDrugId, DRUGS, new Entry(drugId, null, drug.getName(), 0));
+			}
+		}
+		finally {
+			lock.writeLock().unlock();
+		}
+	}
+	
+	/**
+	 * Removes the drug with the given id
+	 *
+	 * @param drugId the id of the drug
+	 */
+	void removeDrug(Integer drugId) {
+		if (drugId == null) {
+			return;
+		}
+		lock.writeLock().lock();
+		try {
+			removeEntries(entriesByDrugId, drugId);
+		}
+		finally {
+			lock.writeLock().unlock();
+		}
+	}
+	
+	/**
+	 * Gets the ids of the best matching concepts for the given typed text
+	 *
+	 * @param text the text typed so far
+	 * @param locale the locale whose language the names have to be in
+	 * @param conceptClassIds the ids of the classes the concepts have to be in, or null for any class
+	 * @param limit the maximum number of ids to return
+	 * @return the ids of the matching concepts, the best match first
+	 * @should match the start of any word ignoring case and accents
+	 * @should require every typed word to match
+	 * @should rank preferred names before other names
+	 * @should rank a concept by its best matching name
+	 * @should only return concepts of the given classes
+	 */
+	List<Integer> getConceptIds(String text, Locale locale, Set<Integer> conceptClassIds, int limit) {
+		if (locale == null) {
+			return Collections.emptyList();
+		}
+		return search(locale.getLanguage(), text, conceptClassIds, limit);
+	}
+	
+	/**
+	 * Gets the ids of the best matching drugs for the given typed text
+	 *
+	 * @param text the text typed so far
+	 * @param limit the maximum number of ids to return
+	 * @return the ids of the matching drugs, the best match first
+	 * @should match the start of any word of the drug name
+	 */
+	List<Integer> getDrugIds(String text, int limit) {
+		return search(DRUGS, text, null, limit);
+	}
+	
+	private List<Integer> search(String partition, String text, Set<Integer> groupIds, int limit) {
+		String query = normalize(text);
+		String[] queryWords = split(query);
+		if (queryWords.length == 0 || limit <= 0) {
+			return Collections.emptyList();
+		}
+		// the longest word has the fewest names starting with it
+		String longest = queryWords[0];
+		for (String word : queryWords) {
+			if (word.length() > longest.length()) {
+				longest = word;
+			}
+		}
+		
+		Comparator<Entry> ranking = Comparator.comparing((Entry entry) -> !entry.name.startsWith(query))
+		        .thenComparingInt(entry -> entry.rank).thenComparingInt(entry -> entry.name.length()).thenComparing(
+		            entry -> entry.id);
+		// only the best name of each of the best matches so far is kept, the worst of them on top
+		PriorityQueue<Entry> best = new PriorityQueue<Entry>(ranking.reversed());
+		Map<Integer, Entry> bestById = new HashMap<Integer, Entry>();
+		lock.readLock().lock();
+		try {
+			NavigableMap<String, Set<Entry>> words = wordsByPartition.get(partition);
+			if (words == null) {
+				return Collections.emptyList();
+			}
+			for (Set<Entry> entries : words.subMap(longest, true, longest + Character.MAX_VALUE, false).values()) {
+				for (Entry entry : entries) {
+					if ((groupIds != null && !groupIds.contains(entry.groupId)) || !entry.matches(queryWords)) {
+						continue;
+					}
+					Entry previous = bestById.get(entry.id);
+					if (previous != null) {
+						if (ranking.compare(entry, previous) >= 0) {
+							continue;
+						}
+						best.remove(previous);
+					} else if (best.size() == limit) {
+						if (ranking.compare(entry, best.peek()) >= 0) {
+							continue;
+						}
+						bestById.remove(best.poll().id);
+					}
+					best.add(entry);
+					bestById.put(entry.id, entry);
+				}
+			}
+		}
+		finally {
+			lock.readLock().unlock();
+		}
+		
+		Entry[] matches = best.toArray(new Entry[best.size()]);
+		Arrays.sort(matches, ranking);
+		List<Integer> ids = new ArrayList<Integer>(matches.length);
+		for (Entry match : matches) {
+			ids.add(match.id);
+		}
+		return ids;
+	}
+	
+	private void addConceptEntry(Integer conceptId, Integer conceptClassId, String name, Locale locale,
+	        ConceptNameType type, Boolean localePreferred) {
+		if (locale == null) {
+			return;
+		}
+		int rank;
+		if (Boolean.TRUE.equals(localePreferred)) {
+			rank = 0;
+		} else if (type == ConceptNameType.FULLY_SPECIFIED) {
+			rank = 1;
+		} else if (type == ConceptNameType.INDEX_TERM) {
+			rank = 3;
+		} else {
+			rank = 2;
+		}
+		addEntry(entriesByConceptId, locale.getLanguage(), new Entry(conceptId, conceptClassId, name, rank));
+	}
+	
+	private void addEntry(Map<Integer, List<Entry>> entriesById, String partition, Entry entry) {
+		if (entry.words.length == 0) {
+			return;
+		}
+		entry.partition = partition;
+		NavigableMap<String, Set<Entry>> words = wordsByPartition.get(partition);
+		if (words == null) {
+			words = new TreeMap<String, Set<Entry>>();
+			wordsByPartition.put(partition, words);
+		}
+		for (String word : entry.words) {
+			Set<Entry> entries = words.get(word);
+			if (entries == null) {
+				entries = new HashSet<Entry>(2);
+				words.put(word, entries);
+			}
+			entries.add(entry);
+		}
+		List<Entry> entries = entriesById.get(entry.id);
+		if (entries == null) {
+			entries = new ArrayList<Entry>(2);
+			entriesById.put(entry.id, entries);
+		}
+		entries.add(entry);
+	}
+	
+	private void removeEntries(Map<Integer, List<Entry>> entriesById, Integer id) {
+		List<Entry> entries = entriesById.remove(id);
+		if (entries == null) {
+			return;
+		}
+		for (Entry entry : entries) {
+			NavigableMap<String, Set<Entry>> words = wordsByPartition.get(entry.partition);
+			for (String word : entry.words) {
+				Set<Entry> withWord = words.get(word);
+				if (withWord != null) {
+					withWord.remove(entry);
+					if (withWord.isEmpty()) {
+						words.remove(word);
+					}
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Lower cases the given text and strips accents and punctuation, so that names and typed text
+	 * can be compared word by word
+	 */
+	static String normalize(String text) {
+		if (text == null) {
+			return "";
+		}
+		String stripped = DIACRITICS.matcher(Normalizer.normalize(text, Normalizer.Form.NFD)).replaceAll("");
+		return SEPARATORS.matcher(stripped.toLowerCase(Locale.ENGLISH)).replaceAll(" ").trim();
+	}
+	
+	private static String[] split(String normalized) {
+		return normalized.isEmpty() ? new String[0] : normalized.split(" ");
+	}
+	
+	/**
+	 * A single name of a concept or drug with its distinct words, entries are compared and hashed by
+	 * identity
+	 */
+	private static class Entry {
+		
+		private final Integer id;
+		
+		private final Integer groupId;
+		
+		private final String name;
+		
+		private final String[] words;
+		
+		private final int rank;
+		
+		private String partition;
+		
+		private Entry(Integer id, Integer groupId, String name, int rank) {
+			this.id = id;
+			this.groupId = groupId;
+			this.name = normalize(name);
+			this.words = new LinkedHashSet<String>(Arrays.asList(split(this.name))).toArray(new String[0]);
+			this.rank = rank;
+		}
+		
+		/**
+		 * @return true if each of the given words is the start of a word of this name
+		 */
+		private boolean matches(String[] queryWords) {
+			for (String queryWord : queryWords) {
+				boolean found = false;
+				for (String word : words) {
+					if (word.startsWith(queryWord)) {
+						found = true;
+						break;
+					}
+				}
+				if (!found) {
+					return false;
+				}
+			}
+			return true;
+		}
+	}
+}
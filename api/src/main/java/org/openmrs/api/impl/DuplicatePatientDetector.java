@@ -0,0 +1,406 @@
+/**
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.api.impl;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.regex.Pattern;
+
+import org.openmrs.api.APIException;
+import org.openmrs.util.Soundex;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Finds the pairs of patients that may be the same person in a single pass over the names,
+ * birthdates and genders of all patients. Each patient is put in a few blocks, by the phonetic
+ * code of its family name and birth year, by the phonetic codes of its given and family names and
+ * its gender, and by the phonetic code of its given name and its birthdate, so that only the
+ * patients that share a block are compared with each other. The blocks are scored in parallel,
+ * and the pairs that score at least the minimum score are ranked from the best match down.
+ * <p>
+ * The rows of each patient are added with {@link #addRow(Object[])}, then {@link #detect()} finds
+ * the matches. A detector is used for one detection only.
+ *
+ * @since 2.2.0
+ */
+class DuplicatePatientDetector {
+	
+	private static final Logger log = LoggerFactory.getLogger(DuplicatePatientDetector.class);
+	
+	/**
+	 * The minimum score used when none is given
+	 */
+	static final double DEFAULT_MINIMUM_SCORE = 0.8;
+	
+	/**
+	 * Blocks with more patients than this are skipped, as comparing every pair in them would take
+	 * too long and they are made of common names that the other blocks narrow down better. How many
+	 * blocks and patients were skipped is logged and reported with the matches.
+	 */
+	static final int MAX_BLOCK_SIZE = 500;
+	
+	private static final Pattern DIACRITICS = Pattern.compile("\\p{InCombiningDiacriticalMarks}+");
+	
+	private static final Pattern SEPARATORS = Pattern.compile("[^\\p{L}]+");
+	
+	private final double minimumScore;
+	
+	private final int maxBlockSize;
+	
+	private final Date startDate = new Date();
+	
+	private List<Record> records = new ArrayList<Record>();
+	
+	private List<Match> matches;
+	
+	private int skippedBlockCount;
+	
+	private int skippedPatientCount;
+	
+	/**
+	 * @param minimumScore the lowest score, from 0 to 1, of the pairs to find
+	 */
+	DuplicatePatientDetector(double minimumScore) {
+		this(minimumScore, MAX_BLOCK_SIZE);
+	}
+	
+	/**
+	 * @param minimumScore the lowest score, from 0 to 1, of the pairs to find
+	 * @param maxBlockSize the number of patients above which a block is skipped
+	 */
+	DuplicatePatientDetector(double minimumScore, int maxBlockSize) {
+		this.minimumScore = minimumScore;
+		this.maxBlockSize = maxBlockSize;
+	}
+	
+	/**
+	 * @return the lowest score of the pairs to find
+	 */
+	double getMinimumScore() {
+		return minimumScore;
+	}
+	
+	/**
+	 * @return the date the detector was created, before any patient was read
+	 */
+	Date getStartDate() {
+		return startDate;
+	}
+	
+	/**
+	 * Adds a name of a patient, the rows of a patient must be added one after the other
+	 *
+	 * @param row an array of the patient id, gender, birthdate, given name, middle name, family name
+	 *            and second family name
+	 */
+	void addRow(Object[] row) {
+		int patientId = (Integer) row[0];
+		Record record = records.isEmpty() ? null : records.get(records.size() - 1);
+		if (record == null || record.patientId != patientId) {
+			record = new Record(patientId, (String) row[1], (Date) row[2]);
+			records.add(record);
+		}
+		addTokens(record.givenNames, (String) row[3]);
+		addTokens(record.givenNames, (String) row[4]);
+		addTokens(record.familyNames, (String) row[5]);
+		addTokens(record.familyNames, (String) row[6]);
+	}
+	
+	/**
+	 * Groups the added patients into blocks and scores the pairs in each block
+	 *
+	 * @should find patients with similar names and the same birthdate
+	 * @should not match patients with different birthdates and genders
+	 * @should rank the best matches first
+	 * @should report each pair once
+	 * @should count the blocks and patients that are too large to score
+	 */
+	void detect() {
+		Map<String, List<Integer>> blocks = new HashMap<String, List<Integer>>();
+		for (int i = 0; i < records.size(); i++) {
+			for (String key : records.get(i).getBlockingKeys()) {
+				blocks.computeIfAbsent(key, k -> new ArrayList<Integer>(2)).add(i);
+			}
+		}
+		
+		List<List<Integer>> blocksToScore = new ArrayList<List<Integer>>();
+		BitSet skippedPatients = new BitSet(records.size());
+		for (Map.Entry<String, List<Integer>> block : blocks.entrySet()) {
+			int size = block.getValue().size();
+			if (size > maxBlockSize) {
+				log.debug("Skipping the duplicate patient block {} of {} patients", block.getKey(), size);
+				skippedBlockCount++;
+				for (Integer index : block.getValue()) {
+					skippedPatients.set(index);
+				}
+			} else if (size > 1) {
+				blocksToScore.add(block.getValue());
+			}
+		}
+		skippedPatientCount = skippedPatients.cardinality();
+		if (skippedBlockCount > 0) {
+			log.warn("Skipped {} duplicate patient blocks of more than {} patients, {} patients were not compared within"
+			        + " them", skippedBlockCount, maxBlockSize, skippedPatientCount);
+		}
+		
+		Map<Long, Match> found = new ConcurrentHashMap<Long, Match>();
+		ForkJoinPool pool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+		try {
+			pool.submit(() -> blocksToScore.parallelStream().forEach(block -> scoreBlock(block, found))).get();
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new APIException("Patient.duplicate.detection.failed", null, e);
+		}
+		catch (ExecutionException e) {
+			throw new APIException("Patient.duplicate.detection.failed", null, e.getCause());
+		}
+		finally {
+			pool.shutdown();
+		}
+		
+		List<Match> ranked = new ArrayList<Match>(found.values());
+		ranked.sort(Comparator.comparingDouble((Match match) -> -match.score).thenComparingInt(match -> match.patientId)
+		        .thenComparingInt(match -> match.duplicateId));
+		matches = Collections.unmodifiableList(ranked);
+		records = null;
+	}
+	
+	/**
+	 * @return the pairs found by {@link #detect()}, from the best match down
+	 */
+	List<Match> getMatches() {
+		return matches;
+	}
+	
+	/**
+	 * @return the number of blocks {@link #detect()} skipped for having more than the maximum
+	 *         number of patients
+	 */
+	int getSkippedBlockCount() {
+		return skippedBlockCount;
+	}
+	
+	/**
+	 * @return the number of patients in at least one skipped block, who may have been compared in
+	 *         their other blocks
+	 */
+	int getSkippedPatientCount() {
+		return skippedPatientCount;
+	}
+	
+	private void scoreBlock(List<Integer> block, Map<Long, Match> found) {
+		for (int i = 0; i < block.size(); i++) {
+			Record first = records.get(block.get(i));
+			for (int j = i + 1; j < block.size(); j++) {
+				Record second = records.get(block.get(j));
+				Record patient = first.patientId < second.patientId ? first : second;
+				Record duplicate = patient == first ? second : first;
+				long pairKey = ((long) patient.patientId << 32) | (duplicate.patientId & 0xffffffffL);
+				if (!found.containsKey(pairKey)) {
+					double score = score(patient, duplicate);
+					if (score >= minimumScore) {
+						found.putIfAbsent(pairKey, new Match(patient.patientId, duplicate.patientId, score));
+					}
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Scores how closely two patients match, with the given and family names weighing 0.3 each,
+	 * the birthdate 0.25 and the gender 0.15
+	 */
+	static double score(Record first, Record second) {
+		double givenName = nameSimilarity(first.givenNames, second.givenNames);
+		double familyName = nameSimilarity(first.familyNames, second.familyNames);
+		
+		double birthdate;
+		if (first.birthDay == 0 || second.birthDay == 0) {
+			birthdate = 0.3;
+		} else if (first.birthDay == second.birthDay) {
+			birthdate = 1;
+		} else if (first.birthDay / 10000 == second.birthDay / 10000) {
+			birthdate = 0.5;
+		} else {
+			birthdate = 0;
+		}
+		
+		double gender;
+		if (first.gender == 0 || second.gender == 0) {
+			gender = 0.5;
+		} else {
+			gender = first.gender == second.gender ? 1 : 0;
+		}
+		
+		return 0.3 * givenName + 0.3 * familyName + 0.25 * birthdate + 0.15 * gender;
+	}
+	
+	private static double nameSimilarity(List<String> first, List<String> second) {
+		double best = 0;
+		for (String a : first) {
+			for (String b : second) {
+				best = Math.max(best, jaroWinkler(a, b));
+			}
+		}
+		return best;
+	}
+	
+	/**
+	 * Computes the Jaro-Winkler similarity of two strings, from 0 for nothing in common to 1 for
+	 * equal strings, which favours strings with the same start as names often do
+	 */
+	static double jaroWinkler(String first, String second) {
+		if (first.equals(second)) {
+			return 1;
+		}
+		int window = Math.max(0, Math.max(first.length(), second.length()) / 2 - 1);
+		boolean[] firstMatched = new boolean[first.length()];
+		boolean[] secondMatched = new boolean[second.length()];
+		int matching = 0;
+		for (int i = 0; i < first.length(); i++) {
+			int end = Math.min(i + window + 1, second.length());
+			for (int j = Math.max(0, i - window); j < end; j++) {
+				if (!secondMatched[j] && first.charAt(i) == second.charAt(j)) {
+					firstMatched[i] = true;
+					secondMatched[j] = true;
+					matching++;
+					break;
+				}
+			}
+		}
+		if (matching == 0) {
+			return 0;
+		}
+		
+		int transpositions = 0;
+		for (int i = 0, j = 0; i < first.length(); i++) {
+			if (firstMatched[i]) {
+				while (!secondMatched[j]) {
+					j++;
+				}
+				if (first.charAt(i) != second.charAt(j)) {
+					transpositions++;
+				}
+				j++;
+			}
+		}
+		
+		double m = matching;
+		double jaro = (m / first.length() + m / second.length() + (m - transpositions / 2.0) / m) / 3;
+		int prefix = 0;
+		while (prefix < 4 && prefix < first.length() && prefix < second.length()
+		        && first.charAt(prefix) == second.charAt(prefix)) {
+			prefix++;
+		}
+		return jaro + prefix * 0.1 * (1 - jaro);
+	}
+	
+	private static void addTokens(List<String> tokens, String name) {
+		if (name == null) {
+			return;
+		}
+		String normalized = DIACRITICS.matcher(Normalizer.normalize(name, Normalizer.Form.NFD)).replaceAll("")
+		        .toUpperCase(Locale.ENGLISH);
+		for (String token : SEPARATORS.split(normalized)) {
+			if (!token.isEmpty() && !tokens.contains(token)) {
+				tokens.add(token);
+			}
+		}
+	}
+	
+	/**
+	 * The normalized names, gender and birthdate of a patient
+	 */
+	static class Record {
+		
+		final int patientId;
+		
+		final char gender;
+		
+		/**
+		 * The birthdate as a yyyymmdd number, or 0 if it is not known
+		 */
+		final int birthDay;
+		
+		final List<String> givenNames = new ArrayList<String>(2);
+		
+		final List<String> familyNames = new ArrayList<String>(1);
+		
+		Record(int patientId, String gender, Date birthdate) {
+			this.patientId = patientId;
+			this.gender = gender == null || gender.isEmpty() ? 0 : Character.toUpperCase(gender.charAt(0));
+			if (birthdate == null) {
+				this.birthDay = 0;
+			} else {
+				Calendar calendar = Calendar.getInstance();
+				calendar.setTime(birthdate);
+				this.birthDay = calendar.get(Calendar.YEAR) * 10000 + (calendar.get(Calendar.MONTH) + 1) * 100
+				        + calendar.get(Calendar.DAY_OF_MONTH);
+			}
+		}
+		
+		Set<String> getBlockingKeys() {
+			Set<String> keys = new LinkedHashSet<String>();
+			for (String familyName : familyNames) {
+				String family = Soundex.encode(familyName);
+				if (family != null && birthDay != 0) {
+					keys.add("F" + family + (birthDay / 10000));
+				}
+				for (String givenName : givenNames) {
+					String given = Soundex.encode(givenName);
+					if (family != null && given != null) {
+						keys.add("N" + given + family + gender);
+					}
+				}
+			}
+			for (String givenName : givenNames) {
+				String given = Soundex.encode(givenName);
+				if (given != null && birthDay != 0) {
+					keys.add("B" + given + birthDay);
+				}
+			}
+			return keys;
+		}
+	}
+	
+	/**
+	 * A pair of patients that may be the same person
+	 */
+	static class Match {
+		
+		final int patientId;
+		
+		final int duplicateId;
+		
+		final double score;
+		
+		Match(int patientId, int duplicateId, double score) {
+			this.patientId = patientId;
+			this.duplicateId = duplicateId;
+			this.score = score;
+		}
+	}
+}
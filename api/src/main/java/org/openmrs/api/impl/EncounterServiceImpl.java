@@ -17,6 +17,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.Vector;
+import java.util.function.BiConsumer;
 
 import org.apache.commons.collections.CollectionUtils;
 import org.apache.commons.lang.StringUtils;
@@ -84,8 +85,7 @@ public class EncounterServiceImpl extends BaseOpenmrsService implements Encounte
 			throw new IllegalArgumentException("The 'query' parameter is required and cannot be null");
 		}
 		
-		return Context.getEncounterService().filterEncountersByViewPermissions(
-		    dao.getEncounters(query, null, null, null, includeVoided), null);
+		return dao.getEncounters(query, null, null, null, includeVoided, getEncounterTypesHiddenFromUser());
 	}
 	
 	/**
@@ -203,19 +203,28 @@ public class EncounterServiceImpl extends BaseOpenmrsService implements Encounte
 		ObsService os = Context.getObsService();
 		List<Obs> obsToRemove = new ArrayList<>();
 		List<Obs> obsToAdd = new ArrayList<>();
+		List<Obs> obsToCreate = new ArrayList<>();
+		List<Obs> obsToUpdate = new ArrayList<>();
 		for (Obs o : encounter.getObsAtTopLevel(true)) {
 			if (o.getId() == null) {
-				os.saveObs(o, null);
+				obsToCreate.add(o);
 			} else {
-				Obs newObs = os.saveObs(o, changeMessage);
-				//The logic in saveObs evicts the old obs instance, so we need to update the collection
-				//with the newly loaded and voided instance, apparently reloading the encounter
-				//didn't do the tick
-				obsToRemove.add(o);
-				obsToAdd.add(os.getObs(o.getId()));
-				obsToAdd.add(newObs);
+				obsToUpdate.add(o);
 			}
 		}
+		// new obs are saved as one batch, since large forms can add hundreds of them
+		if (!obsToCreate.isEmpty()) {
+			os.saveObservations(obsToCreate, null);
+		}
+		for (Obs o : obsToUpdate) {
+			Obs newObs = os.saveObs(o, changeMessage);
+			//The logic in saveObs evicts the old obs instance, so we need to update the collection
+			//with the newly loaded and voided instance, apparently reloading the encounter
+			//didn't do the tick
+			obsToRemove.add(o);
+			obsToAdd.add(os.getObs(o.getId()));
+			obsToAdd.add(newObs);
+		}
 
 		removeGivenObsAndTheirGroupMembersFromEncounter(obsToRemove, encounter);
 		addGivenObsAndTheirGroupMembersToEncounter(obsToAdd, encounter);
@@ -354,9 +363,7 @@ public class EncounterServiceImpl extends BaseOpenmrsService implements Encounte
 	 */
 	@Override
 	public List<Encounter> getEncounters(EncounterSearchCriteria encounterSearchCriteria) {
-		// the second search parameter is null as it defaults to authenticated user from context
-		return Context.getEncounterService().filterEncountersByViewPermissions(dao.getEncounters(encounterSearchCriteria),
-		    null);
+		return dao.getEncounters(encounterSearchCriteria, getEncounterTypesHiddenFromUser());
 	}
 	
 	/**
@@ -607,6 +614,27 @@ public class EncounterServiceImpl extends BaseOpenmrsService implements Encounte
 		return dao.getAllEncounters(patients);
 	}
 	
+	/**
+	 * @see org.openmrs.api.EncounterService#streamEncounters(org.openmrs.Cohort,
+	 *      java.util.function.BiConsumer)
+	 */
+	@Override
+	@Transactional(readOnly = true)
+	public void streamEncounters(Cohort patients, BiConsumer<Integer, List<Encounter>> action) {
+		dao.streamEncounters(patients, action);
+	}
+	
+	/**
+	 * @see org.openmrs.api.EncounterService#streamEncounterProperties(org.openmrs.Cohort,
+	 *      java.util.List, java.util.function.BiConsumer)
+	 */
+	@Override
+	@Transactional(readOnly = true)
+	public void streamEncounterProperties(Cohort patients, List<String> properties,
+	        BiConsumer<Integer, List<Object[]>> action) {
+		dao.streamEncounterProperties(patients, properties, action);
+	}
+	
 	/**
 	 * @see org.openmrs.api.EncounterService#getEncounters(java.lang.String, java.lang.Integer,
 	 *      java.lang.Integer, boolean)
@@ -615,8 +643,7 @@ public class EncounterServiceImpl extends BaseOpenmrsService implements Encounte
 	@Transactional(readOnly = true)
 	public List<Encounter> getEncounters(String query, Integer start, Integer length, boolean includeVoided)
 	    throws APIException {
-		return Context.getEncounterService().filterEncountersByViewPermissions(
-		    dao.getEncounters(query, null, start, length, includeVoided), null);
+		return dao.getEncounters(query, null, start, length, includeVoided, getEncounterTypesHiddenFromUser());
 	}
 	
 	/**
@@ -627,8 +654,7 @@ public class EncounterServiceImpl extends BaseOpenmrsService implements Encounte
 	@Transactional(readOnly = true)
 	public List<Encounter> getEncounters(String query, Integer patientId, Integer start, Integer length,
 	                                     boolean includeVoided) throws APIException {
-		return Context.getEncounterService().filterEncountersByViewPermissions(
-		    dao.getEncounters(query, patientId, start, length, includeVoided), null);
+		return dao.getEncounters(query, patientId, start, length, includeVoided, getEncounterTypesHiddenFromUser());
 	}
 	
 	/**
@@ -637,7 +663,8 @@ public class EncounterServiceImpl extends BaseOpenmrsService implements Encounte
 	@Override
 	@Transactional(readOnly = true)
 	public Integer getCountOfEncounters(String query, boolean includeVoided) {
-		return OpenmrsUtil.convertToInteger(dao.getCountOfEncounters(query, null, includeVoided));
+		return OpenmrsUtil.convertToInteger(dao.getCountOfEncounters(query, null, includeVoided,
+		    getEncounterTypesHiddenFromUser()));
 	}
 	
 	/**
@@ -790,8 +817,8 @@ public class EncounterServiceImpl extends BaseOpenmrsService implements Encounte
 	@Transactional(readOnly = true)
 	public List<Encounter> getEncountersByVisitsAndPatient(Patient patient, boolean includeVoided, String query,
 	                                                       Integer start, Integer length) throws APIException {
-		return Context.getEncounterService().filterEncountersByViewPermissions(
-		    dao.getEncountersByVisitsAndPatient(patient, includeVoided, query, start, length), null);
+		return dao.getEncountersByVisitsAndPatient(patient, includeVoided, query, start, length,
+		    getEncounterTypesHiddenFromUser());
 	}
 	
 	/**
@@ -802,7 +829,7 @@ public class EncounterServiceImpl extends BaseOpenmrsService implements Encounte
 	@Transactional(readOnly = true)
 	public Integer getEncountersByVisitsAndPatientCount(Patient patient, boolean includeVoided, String query)
 	    throws APIException {
-		return dao.getEncountersByVisitsAndPatientCount(patient, includeVoided, query);
+		return dao.getEncountersByVisitsAndPatientCount(patient, includeVoided, query, getEncounterTypesHiddenFromUser());
 	}
 	
 	/**
@@ -907,6 +934,25 @@ public class EncounterServiceImpl extends BaseOpenmrsService implements Encounte
 		return userHasEncounterPrivilege(encounter.getEncounterType().getViewPrivilege(), user);
 	}
 	
+	/**
+	 * Resolves the encounter types that the authenticated user is not allowed to view once per
+	 * search, so that the query leaves their encounters out and the batches and counts it returns
+	 * only hold encounters the user can see
+	 * 
+	 * @return the encounter types with a view privilege the user does not have
+	 */
+	private List<EncounterType> getEncounterTypesHiddenFromUser() {
+		User user = Context.getAuthenticatedUser();
+		List<EncounterType> hiddenEncounterTypes = new ArrayList<EncounterType>();
+		for (EncounterType encounterType : dao.getAllEncounterTypes(true)) {
+			Privilege privilege = encounterType.getViewPrivilege();
+			if (privilege != null && (user == null || !user.hasPrivilege(privilege.getPrivilege()))) {
+				hiddenEncounterTypes.add(encounterType);
+			}
+		}
+		return hiddenEncounterTypes;
+	}
+	
 	/**
 	 * Convenient method that safely checks if user has given encounter privilege
 	 * 
@@ -25,8 +25,10 @@ import org.openmrs.api.LocationService;
 import org.openmrs.api.context.Context;
 import org.openmrs.api.db.LocationDAO;
 import org.openmrs.customdatatype.CustomDatatypeUtil;
+import org.openmrs.hl7.HL7Constants;
 import org.openmrs.util.OpenmrsConstants;
 import org.openmrs.util.OpenmrsUtil;
+import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.util.StringUtils;
 
@@ -57,6 +59,7 @@ public class LocationServiceImpl extends BaseOpenmrsService implements LocationS
 	 * @see org.openmrs.api.LocationService#saveLocation(org.openmrs.Location)
 	 */
 	@Override
+	@CacheEvict(value = HL7Constants.HL7_LOCATION_ID_CACHE, allEntries = true)
 	public Location saveLocation(Location location) throws APIException {
 		if (location.getName() == null) {
 			throw new APIException("Location.name.required", (Object[]) null);
@@ -251,6 +254,7 @@ public class LocationServiceImpl extends BaseOpenmrsService implements LocationS
 	 * @see org.openmrs.api.LocationService#purgeLocation(org.openmrs.Location)
 	 */
 	@Override
+	@CacheEvict(value = HL7Constants.HL7_LOCATION_ID_CACHE, allEntries = true)
 	public void purgeLocation(Location location) throws APIException {
 		dao.deleteLocation(location);
 	}
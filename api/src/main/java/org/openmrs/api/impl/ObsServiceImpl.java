@@ -10,15 +10,23 @@
 package org.openmrs.api.impl;
 
 import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.WritableByteChannel;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Date;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Vector;
+import java.util.function.BiFunction;
 
+import org.openmrs.Cohort;
 import org.openmrs.Concept;
 import org.openmrs.ConceptName;
 import org.openmrs.Encounter;
+import org.openmrs.GlobalProperty;
 import org.openmrs.Location;
 import org.openmrs.Obs;
 import org.openmrs.Patient;
@@ -26,6 +34,7 @@ import org.openmrs.Person;
 import org.openmrs.aop.RequiredDataAdvice;
 import org.openmrs.api.APIException;
 import org.openmrs.api.EncounterService;
+import org.openmrs.api.GlobalPropertyListener;
 import org.openmrs.api.ObsService;
 import org.openmrs.api.PatientService;
 import org.openmrs.api.context.Context;
@@ -33,11 +42,17 @@ import org.openmrs.api.db.ObsDAO;
 import org.openmrs.api.handler.SaveHandler;
 import org.openmrs.obs.ComplexData;
 import org.openmrs.obs.ComplexObsHandler;
+import org.openmrs.obs.ObsTimeSeries;
+import org.openmrs.obs.ObsTimeSeriesCache;
+import org.openmrs.obs.StreamingComplexObsHandler;
 import org.openmrs.obs.handler.AbstractHandler;
 import org.openmrs.util.OpenmrsClassLoader;
+import org.openmrs.util.OpenmrsConstants;
 import org.openmrs.util.OpenmrsConstants.PERSON_TYPE;
 import org.openmrs.util.OpenmrsUtil;
 import org.openmrs.util.PrivilegeConstants;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.transaction.annotation.Transactional;
 
 /**
@@ -46,7 +61,9 @@ import org.springframework.transaction.annotation.Transactional;
  * @see org.openmrs.api.ObsService
  */
 @Transactional
-public class ObsServiceImpl extends BaseOpenmrsService implements ObsService {
+public class ObsServiceImpl extends BaseOpenmrsService implements ObsService, GlobalPropertyListener {
+	
+	private final Logger log = LoggerFactory.getLogger(getClass());
 	
 	/**
 	 * The data access object for the obs service
@@ -59,6 +76,15 @@ public class ObsServiceImpl extends BaseOpenmrsService implements ObsService {
 	 */
 	private static Map<String, ComplexObsHandler> handlers = null;
 	
+	/**
+	 * The observation histories of recently charted persons, shared with the
+	 * {@link org.openmrs.api.db.hibernate.ImmutableObsInterceptor} so that it can drop the histories
+	 * of persons whose observations are saved outside of this service
+	 */
+	private ObsTimeSeriesCache timeSeriesCache = new ObsTimeSeriesCache();
+	
+	private volatile Integer timeSeriesCacheSize;
+	
 	/**
 	 * Default empty constructor for this obs service
 	 */
@@ -73,6 +99,14 @@ public class ObsServiceImpl extends BaseOpenmrsService implements ObsService {
 		this.dao = dao;
 	}
 	
+	/**
+	 * @param timeSeriesCache the cache of observation histories to use
+	 * @since 2.2.0
+	 */
+	public void setTimeSeriesCache(ObsTimeSeriesCache timeSeriesCache) {
+		this.timeSeriesCache = timeSeriesCache;
+	}
+	
 	/**
 	 * Clean up after this class. Set the static var to null so that the classloader can reclaim the
 	 * space.
@@ -97,20 +131,61 @@ public class ObsServiceImpl extends BaseOpenmrsService implements ObsService {
 			throw new APIException("Obs.error.ChangeMessage.required", (Object[]) null);
 		}
 
+		return saveObs(obs, changeMessage, Context.getObsService()::saveObs);
+	}
+
+	/**
+	 * @see org.openmrs.api.ObsService#saveObservations(java.util.Collection, String)
+	 */
+	@Override
+	public List<Obs> saveObservations(Collection<Obs> observations, String changeMessage) throws APIException {
+		if (observations == null) {
+			throw new APIException("Obs.error.cannot.be.null", (Object[]) null);
+		}
+		
+		List<Obs> savedObs = new ArrayList<>(observations.size());
+		for (Obs obs : observations) {
+			savedObs.add(saveBatchObs(obs, changeMessage));
+		}
+		return savedObs;
+	}
+
+	/**
+	 * Saves an obs of a batch and its group members without going back through the service proxy,
+	 * the save handlers and validators have already been run on the whole batch by the AOP advice
+	 */
+	private Obs saveBatchObs(Obs obs, String changeMessage) {
+		if(obs == null){
+			throw new APIException("Obs.error.cannot.be.null", (Object[]) null);
+		}
+
+		if(obs.getId() != null && changeMessage == null){
+			throw new APIException("Obs.error.ChangeMessage.required", (Object[]) null);
+		}
+
+		return saveObs(obs, changeMessage, this::saveBatchObs);
+	}
+
+	/**
+	 * @param groupMemberSaver saves the group members of the obs
+	 */
+	private Obs saveObs(Obs obs, String changeMessage, BiFunction<Obs, String, Obs> groupMemberSaver) {
 		handleExistingObsWithComplexConcept(obs);
 
 		ensureRequirePrivilege(obs);
 
+		evictTimeSeries(obs);
+
 		//Should allow updating a voided Obs, it seems to be pointless to restrict it,
 		//otherwise operations like merge patients won't be possible when to moving voided obs
 		if (obs.getObsId() == null || obs.getVoided()) {
-			return saveNewOrVoidedObs(obs,changeMessage);
+			return saveNewOrVoidedObs(obs,changeMessage, groupMemberSaver);
 		} else if(!obs.isDirty()){
 			setPersonFromEncounter(obs);
-			return saveObsNotDirty(obs, changeMessage);
+			return saveObsNotDirty(obs, changeMessage, groupMemberSaver);
 		} else {
 			setPersonFromEncounter(obs);
-			return saveExistingObs(obs,changeMessage);
+			return saveExistingObs(obs,changeMessage, groupMemberSaver);
 		}
 	}
 
@@ -146,7 +221,7 @@ public class ObsServiceImpl extends BaseOpenmrsService implements ObsService {
 		}
 	}
 
-	private Obs saveExistingObs(Obs obs, String changeMessage) {
+	private Obs saveExistingObs(Obs obs, String changeMessage, BiFunction<Obs, String, Obs> groupMemberSaver) {
 		// get a copy of the passed in obs and save it to the
 		// database. This allows us to create a new row and new obs_id
 		// this method doesn't copy the obs_id
@@ -160,7 +235,7 @@ public class ObsServiceImpl extends BaseOpenmrsService implements ObsService {
 		// have been made to it
 		dao.saveObs(newObs);
 
-		saveObsGroup(newObs,null);
+		saveObsGroup(newObs,null, groupMemberSaver);
 
 		voidExistingObs(obs, changeMessage, newObs);
 
@@ -178,18 +253,17 @@ public class ObsServiceImpl extends BaseOpenmrsService implements ObsService {
 		newObs.setPreviousVersion(obs);
         }
 
-	private Obs saveObsNotDirty(Obs obs, String changeMessage) {
+	private Obs saveObsNotDirty(Obs obs, String changeMessage, BiFunction<Obs, String, Obs> groupMemberSaver) {
 		if(!obs.isObsGrouping()){
 			return obs;
 		}
 
-		ObsService os = Context.getObsService();
 		boolean refreshNeeded = false;
 		for (Obs o : obs.getGroupMembers(true)) {
 			if (o.getId() == null) {
-				os.saveObs(o, null);
+				groupMemberSaver.apply(o, null);
 			} else {
-				Obs newObs = os.saveObs(o, changeMessage);
+				Obs newObs = groupMemberSaver.apply(o, changeMessage);
 				refreshNeeded = !newObs.equals(o) || refreshNeeded;
 			}
 		}
@@ -200,9 +274,9 @@ public class ObsServiceImpl extends BaseOpenmrsService implements ObsService {
 		return obs;
 	}
 
-	private Obs saveNewOrVoidedObs(Obs obs, String changeMessage) {
+	private Obs saveNewOrVoidedObs(Obs obs, String changeMessage, BiFunction<Obs, String, Obs> groupMemberSaver) {
 		Obs ret = dao.saveObs(obs);
-		saveObsGroup(ret,changeMessage);
+		saveObsGroup(ret,changeMessage, groupMemberSaver);
 		return ret;
 	}
 
@@ -223,10 +297,10 @@ public class ObsServiceImpl extends BaseOpenmrsService implements ObsService {
 		}
 	}
 
-	private void saveObsGroup(Obs obs, String changeMessage){
+	private void saveObsGroup(Obs obs, String changeMessage, BiFunction<Obs, String, Obs> groupMemberSaver){
 		if (obs.isObsGrouping()) {
 			for (Obs o : obs.getGroupMembers(true)) {
-				Context.getObsService().saveObs(o, changeMessage);
+				groupMemberSaver.apply(o, changeMessage);
 			}
 		}
 	}
@@ -267,6 +341,7 @@ public class ObsServiceImpl extends BaseOpenmrsService implements ObsService {
 	 */
 	@Override
 	public Obs voidObs(Obs obs, String reason) throws APIException {
+		evictTimeSeries(obs);
 		return dao.saveObs(obs);
 	}
 	
@@ -283,6 +358,7 @@ public class ObsServiceImpl extends BaseOpenmrsService implements ObsService {
 	 */
 	@Override
 	public Obs unvoidObs(Obs obs) throws APIException {
+		evictTimeSeries(obs);
 		return dao.saveObs(obs);
 	}
 	
@@ -302,6 +378,7 @@ public class ObsServiceImpl extends BaseOpenmrsService implements ObsService {
 			// orders?
 		}
 		
+		evictTimeSeries(obs);
 		dao.deleteObs(obs);
 	}
 	
@@ -469,6 +546,124 @@ public class ObsServiceImpl extends BaseOpenmrsService implements ObsService {
 		    null, false);
 	}
 	
+	/**
+	 * @see org.openmrs.api.ObsService#getObsTimeSeries(org.openmrs.Person, org.openmrs.Concept)
+	 */
+	@Override
+	@Transactional(readOnly = true)
+	public ObsTimeSeries getObsTimeSeries(Person who, Concept question) throws APIException {
+		if (who == null || who.getPersonId() == null || question == null || question.getConceptId() == null) {
+			return ObsTimeSeries.EMPTY;
+		}
+		
+		Map<Integer, ObsTimeSeries> seriesByConcept;
+		if (isTimeSeriesCacheEnabled()) {
+			seriesByConcept = timeSeriesCache.get(who.getPersonId());
+			if (seriesByConcept == null) {
+				long generation = timeSeriesCache.getGeneration();
+				seriesByConcept = ObsTimeSeriesCache.toSeriesByConcept(dao.getObsTimeSeriesValues(who.getPersonId(),
+				    null));
+				timeSeriesCache.put(who.getPersonId(), seriesByConcept, generation);
+			}
+		} else {
+			seriesByConcept = ObsTimeSeriesCache.toSeriesByConcept(dao.getObsTimeSeriesValues(who.getPersonId(),
+			    question.getConceptId()));
+		}
+		
+		ObsTimeSeries series = seriesByConcept.get(question.getConceptId());
+		return series == null ? ObsTimeSeries.EMPTY : series;
+	}
+	
+	/**
+	 * @see org.openmrs.api.ObsService#getObsTimeSeries(org.openmrs.Person, org.openmrs.Concept,
+	 *      java.util.Date, java.util.Date, java.lang.Integer)
+	 */
+	@Override
+	@Transactional(readOnly = true)
+	public ObsTimeSeries getObsTimeSeries(Person who, Concept question, Date fromDate, Date toDate, Integer mostRecentN)
+	        throws APIException {
+		ObsTimeSeries series = Context.getObsService().getObsTimeSeries(who, question).between(fromDate, toDate);
+		return mostRecentN == null ? series : series.last(mostRecentN);
+	}
+	
+	/**
+	 * @see org.openmrs.api.ObsService#getObsTimeSeries(org.openmrs.Cohort, org.openmrs.Concept)
+	 */
+	@Override
+	@Transactional(readOnly = true)
+	public Map<Integer, ObsTimeSeries> getObsTimeSeries(Cohort who, Concept question) throws APIException {
+		if (who == null || who.isEmpty() || question == null || question.getConceptId() == null) {
+			return new LinkedHashMap<Integer, ObsTimeSeries>();
+		}
+		
+		// each row goes straight into the primitive arrays of its person's history
+		Map<Integer, ObsTimeSeries.Builder> builders = new LinkedHashMap<Integer, ObsTimeSeries.Builder>();
+		dao.streamObsTimeSeriesValuesForPersons(who.getMemberIds(), question.getConceptId(), row -> builders
+		        .computeIfAbsent((Integer) row[0], personId -> new ObsTimeSeries.Builder()).add((Integer) row[1],
+		            ((Date) row[2]).getTime(), row[3] == null ? Double.NaN : ((Number) row[3]).doubleValue(),
+		            row[4] == null ? 0 : (Integer) row[4]));
+		
+		Map<Integer, ObsTimeSeries> seriesByPerson = new LinkedHashMap<Integer, ObsTimeSeries>(builders.size() * 2);
+		for (Map.Entry<Integer, ObsTimeSeries.Builder> entry : builders.entrySet()) {
+			seriesByPerson.put(entry.getKey(), entry.getValue().build());
+		}
+		return seriesByPerson;
+	}
+	
+	private boolean isTimeSeriesCacheEnabled() {
+		Integer size = timeSeriesCacheSize;
+		if (size == null) {
+			String value = Context.getAdministrationService().getGlobalProperty(
+			    OpenmrsConstants.GP_OBS_TIME_SERIES_CACHE_SIZE, "0");
+			try {
+				size = Integer.valueOf(value.trim());
+			}
+			catch (NumberFormatException e) {
+				log.warn("Invalid value '{}' for the {} global property, not caching observation histories", value,
+				    OpenmrsConstants.GP_OBS_TIME_SERIES_CACHE_SIZE);
+				size = 0;
+			}
+			timeSeriesCache.setMaxSize(size);
+			timeSeriesCacheSize = size;
+		}
+		return size > 0;
+	}
+	
+	/**
+	 * Drops the cached observation histories of the person of the given obs
+	 */
+	private void evictTimeSeries(Obs obs) {
+		Person person = obs.getPerson();
+		if (person != null) {
+			timeSeriesCache.evict(person.getPersonId());
+		}
+	}
+	
+	/**
+	 * @see GlobalPropertyListener#supportsPropertyName(String)
+	 */
+	@Override
+	public boolean supportsPropertyName(String propertyName) {
+		return OpenmrsConstants.GP_OBS_TIME_SERIES_CACHE_SIZE.equals(propertyName);
+	}
+	
+	/**
+	 * @see GlobalPropertyListener#globalPropertyChanged(GlobalProperty)
+	 */
+	@Override
+	public void globalPropertyChanged(GlobalProperty newValue) {
+		globalPropertyDeleted(newValue.getProperty());
+	}
+	
+	/**
+	 * @see GlobalPropertyListener#globalPropertyDeleted(String)
+	 */
+	@Override
+	public void globalPropertyDeleted(String propertyName) {
+		timeSeriesCacheSize = null;
+		timeSeriesCache.clear();
+	}
+	
 	/**
 	 * @see org.openmrs.api.ObsService#getObsByUuid(java.lang.String)
 	 */
@@ -541,6 +736,66 @@ public class ObsServiceImpl extends BaseOpenmrsService implements ObsService {
 		return null;
 	}
 	
+	/**
+	 * @see org.openmrs.api.ObsService#getComplexDataLength(org.openmrs.Obs)
+	 */
+	@Override
+	@Transactional(readOnly = true)
+	public long getComplexDataLength(Obs obs) throws APIException {
+		try {
+			return getStreamingHandler(obs).getComplexDataLength(obs);
+		}
+		catch (IOException e) {
+			throw new APIException("Obs.error.while.trying.get.binary.complex", null, e);
+		}
+	}
+	
+	/**
+	 * @see org.openmrs.api.ObsService#getComplexDataStream(org.openmrs.Obs, long, long)
+	 */
+	@Override
+	@Transactional(readOnly = true)
+	public InputStream getComplexDataStream(Obs obs, long offset, long length) throws APIException {
+		validateComplexDataOffset(obs, offset);
+		try {
+			return getStreamingHandler(obs).openComplexDataStream(obs, offset, length);
+		}
+		catch (IOException e) {
+			throw new APIException("Obs.error.while.trying.get.binary.complex", null, e);
+		}
+	}
+	
+	/**
+	 * @see org.openmrs.api.ObsService#transferComplexData(org.openmrs.Obs, long, long,
+	 *      java.nio.channels.WritableByteChannel)
+	 */
+	@Override
+	@Transactional(readOnly = true)
+	public long transferComplexData(Obs obs, long offset, long length, WritableByteChannel target)
+	        throws APIException {
+		validateComplexDataOffset(obs, offset);
+		try {
+			return getStreamingHandler(obs).transferComplexData(obs, offset, length, target);
+		}
+		catch (IOException e) {
+			throw new APIException("Obs.error.while.trying.get.binary.complex", null, e);
+		}
+	}
+	
+	private void validateComplexDataOffset(Obs obs, long offset) {
+		if (offset < 0) {
+			throw new APIException("Obs.error.complex.negative.offset", new Object[] { offset, obs });
+		}
+	}
+	
+	private StreamingComplexObsHandler getStreamingHandler(Obs obs) {
+		ComplexObsHandler handler = getHandler(obs);
+		if (!(handler instanceof StreamingComplexObsHandler)) {
+			throw new APIException("Obs.error.complex.streaming.not.supported", new Object[] { obs });
+		}
+		return (StreamingComplexObsHandler) handler;
+	}
+	
 	/**
 	 * @see org.openmrs.api.ObsService#getHandler(java.lang.String)
 	 */
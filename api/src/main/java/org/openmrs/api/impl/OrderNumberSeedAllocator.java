@@ -0,0 +1,88 @@
+/**
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.api.impl;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntFunction;
+
+/**
+ * Hands out order number seeds from blocks that are reserved in the database a block at a time,
+ * so that only one in every blockSize calls has to go to the database. Seeds within a block are
+ * handed out through an atomic counter, threads only synchronize when a block is used up and a new
+ * one has to be reserved.
+ * <p>
+ * Seeds left in a block when the allocator is discarded are never handed out, so order numbers
+ * are unique but not necessarily consecutive.
+ *
+ * @since 2.2.0
+ */
+class OrderNumberSeedAllocator {
+	
+	private final int blockSize;
+	
+	private final IntFunction<Long> blockReserver;
+	
+	private volatile Block currentBlock;
+	
+	/**
+	 * @param blockSize the number of seeds to reserve at a time
+	 * @param blockReserver reserves the given number of seeds and returns the first one
+	 */
+	OrderNumberSeedAllocator(int blockSize, IntFunction<Long> blockReserver) {
+		if (blockSize < 1) {
+			throw new IllegalArgumentException("blockSize must be greater than zero");
+		}
+		this.blockSize = blockSize;
+		this.blockReserver = blockReserver;
+	}
+	
+	/**
+	 * @return the number of seeds reserved at a time
+	 */
+	int getBlockSize() {
+		return blockSize;
+	}
+	
+	/**
+	 * @return the next unused order number seed
+	 */
+	long nextSeed() {
+		while (true) {
+			Block block = currentBlock;
+			if (block != null) {
+				long seed = block.next.getAndIncrement();
+				if (seed < block.end) {
+					return seed;
+				}
+			}
+			reserveBlock(block);
+		}
+	}
+	
+	private synchronized void reserveBlock(Block exhausted) {
+		// another thread may have already replaced the block while we were waiting
+		if (currentBlock == exhausted) {
+			long first = blockReserver.apply(blockSize);
+			currentBlock = new Block(first, first + blockSize);
+		}
+	}
+	
+	private static class Block {
+		
+		private final AtomicLong next;
+		
+		private final long end;
+		
+		private Block(long first, long end) {
+			this.next = new AtomicLong(first);
+			this.end = end;
+		}
+	}
+}
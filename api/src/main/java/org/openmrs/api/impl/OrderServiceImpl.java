@@ -18,8 +18,10 @@ import java.util.Arrays;
 import java.util.Calendar;
 import java.util.Collections;
 import java.util.Date;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Locale;
+import java.util.Set;
 import java.util.Vector;
 
 import org.apache.commons.lang.time.DateUtils;
@@ -55,6 +57,8 @@ import org.openmrs.api.order.exception.CannotStopInactiveOrderException;
 import org.openmrs.api.order.exception.CannotUnvoidOrderException;
 import org.openmrs.api.order.exception.EditedOrderDoesNotMatchPreviousException;
 import org.openmrs.api.order.exception.OrderEntryException;
+import org.openmrs.order.ActiveOrderCache;
+import org.openmrs.order.ActiveOrderCache.ActiveOrders;
 import org.openmrs.order.OrderUtil;
 import org.openmrs.util.OpenmrsConstants;
 import org.openmrs.util.OpenmrsUtil;
@@ -79,9 +83,26 @@ public class OrderServiceImpl extends BaseOpenmrsService implements OrderService
 	
 	private static final String ORDER_NUMBER_PREFIX = "ORD-";
 	
+	/**
+	 * How long before the current time the date active orders are asked for can be and still be
+	 * read into the active order cache as the current time, in milliseconds
+	 */
+	private static final long ACTIVE_ORDER_CACHE_TOLERANCE = 60 * 1000;
+	
 	protected OrderDAO dao;
 	
 	private static OrderNumberGenerator orderNumberGenerator = null;
+	
+	private volatile OrderNumberSeedAllocator orderNumberSeedAllocator = null;
+	
+	/**
+	 * The active and scheduled orders of recently viewed patients, shared with the
+	 * {@link org.openmrs.api.db.hibernate.ImmutableOrderInterceptor} so that it can drop the orders
+	 * of patients whose orders are saved outside of this service
+	 */
+	private ActiveOrderCache activeOrderCache = new ActiveOrderCache();
+	
+	private volatile Integer activeOrderCacheSize;
 
 	public OrderServiceImpl() {
 	}
@@ -94,11 +115,19 @@ public class OrderServiceImpl extends BaseOpenmrsService implements OrderService
 		this.dao = dao;
 	}
 	
+	/**
+	 * @param activeOrderCache the cache of active orders to use
+	 * @since 2.2.0
+	 */
+	public void setActiveOrderCache(ActiveOrderCache activeOrderCache) {
+		this.activeOrderCache = activeOrderCache;
+	}
+	
 	/**
 	 * @see org.openmrs.api.OrderService#saveOrder(org.openmrs.Order, org.openmrs.api.OrderContext)
 	 */
 	@Override
-	public synchronized Order saveOrder(Order order, OrderContext orderContext) throws APIException {
+	public Order saveOrder(Order order, OrderContext orderContext) throws APIException {
 		return saveOrder(order, orderContext, false);
 	}
 	
@@ -123,7 +152,7 @@ public class OrderServiceImpl extends BaseOpenmrsService implements OrderService
 	 * @see org.openmrs.api.OrderService#saveOrder(org.openmrs.Order, org.openmrs.api.OrderContext)
 	 */
 	@Override
-	public synchronized Order saveRetrospectiveOrder(Order order, OrderContext orderContext) {
+	public Order saveRetrospectiveOrder(Order order, OrderContext orderContext) {
 		return saveOrder(order, orderContext, true);
 	}
 
@@ -288,6 +317,7 @@ public class OrderServiceImpl extends BaseOpenmrsService implements OrderService
 	}
 	
 	private Order saveOrderInternal(Order order, OrderContext orderContext) {
+		evictActiveOrders(order);
 		if (order.getOrderId() == null) {
 			setProperty(order, "orderNumber", getOrderNumberGenerator().getNewOrderNumber(orderContext));
 			
@@ -448,6 +478,7 @@ public class OrderServiceImpl extends BaseOpenmrsService implements OrderService
 			dao.deleteObsThatReference(order);
 		}
 		
+		evictActiveOrders(order);
 		dao.deleteOrder(order);
 	}
 	
@@ -558,7 +589,47 @@ public class OrderServiceImpl extends BaseOpenmrsService implements OrderService
 	 */
 	@Override
 	public String getNewOrderNumber(OrderContext orderContext) throws APIException {
-		return ORDER_NUMBER_PREFIX + Context.getOrderService().getNextOrderNumberSeedSequenceValue();
+		return ORDER_NUMBER_PREFIX + getOrderNumberSeedAllocator().nextSeed();
+	}
+	
+	/**
+	 * Gets the allocator the default order number generator takes its seeds from, creating one with
+	 * the configured block size if necessary
+	 * 
+	 * @return the order number seed allocator
+	 */
+	private OrderNumberSeedAllocator getOrderNumberSeedAllocator() {
+		OrderNumberSeedAllocator allocator = orderNumberSeedAllocator;
+		if (allocator == null) {
+			synchronized (this) {
+				allocator = orderNumberSeedAllocator;
+				if (allocator == null) {
+					allocator = new OrderNumberSeedAllocator(getOrderNumberSeedBlockSize(),
+					        blockSize -> Context.getOrderService().getNextOrderNumberSeedSequenceValue(blockSize));
+					orderNumberSeedAllocator = allocator;
+				}
+			}
+		}
+		return allocator;
+	}
+	
+	private int getOrderNumberSeedBlockSize() {
+		String blockSize = Context.getAdministrationService().getGlobalProperty(
+		    OpenmrsConstants.GP_ORDER_NUMBER_SEED_BLOCK_SIZE);
+		if (StringUtils.hasText(blockSize)) {
+			try {
+				int value = Integer.parseInt(blockSize.trim());
+				if (value > 0) {
+					return value;
+				}
+			}
+			catch (NumberFormatException e) {
+				//fall through to the default
+			}
+			log.warn("Invalid value '{}' for global property {}, using {}", blockSize,
+			    OpenmrsConstants.GP_ORDER_NUMBER_SEED_BLOCK_SIZE, OpenmrsConstants.DEFAULT_ORDER_NUMBER_SEED_BLOCK_SIZE);
+		}
+		return OpenmrsConstants.DEFAULT_ORDER_NUMBER_SEED_BLOCK_SIZE;
 	}
 	
 	/**
@@ -598,6 +669,15 @@ public class OrderServiceImpl extends BaseOpenmrsService implements OrderService
 		return dao.getNextOrderNumberSeedSequenceValue();
 	}
 	
+	/**
+	 * @see org.openmrs.api.OrderService#getNextOrderNumberSeedSequenceValue(int)
+	 */
+	@Override
+	@Transactional(propagation = Propagation.REQUIRES_NEW)
+	public synchronized Long getNextOrderNumberSeedSequenceValue(int blockSize) {
+		return dao.getNextOrderNumberSeedSequenceValue(blockSize);
+	}
+	
 	/**
 	 * @see org.openmrs.api.OrderService#getOrderHistoryByOrderNumber(java.lang.String)
 	 */
@@ -632,9 +712,94 @@ public class OrderServiceImpl extends BaseOpenmrsService implements OrderService
 			orderTypes.add(orderType);
 			orderTypes.addAll(getSubtypes(orderType, true));
 		}
+		if (isActiveOrderCacheEnabled()) {
+			List<Order> activeOrders = getCachedActiveOrders(patient, orderTypes, careSetting, asOfDate);
+			if (activeOrders != null) {
+				return activeOrders;
+			}
+		}
 		return dao.getActiveOrders(patient, orderTypes, careSetting, asOfDate);
 	}
 	
+	/**
+	 * Finds the active orders of a patient from the cached active and scheduled orders of the
+	 * patient, which are read first if they are not cached and the given date is the current time.
+	 * A transaction that has changed any orders reads them from the database instead.
+	 * 
+	 * @return the active orders, or null if they cannot be found from the cache
+	 */
+	private List<Order> getCachedActiveOrders(Patient patient, List<OrderType> orderTypes, CareSetting careSetting,
+	        Date asOfDate) {
+		Integer patientId = patient.getPatientId();
+		if (patientId == null || (careSetting != null && careSetting.getCareSettingId() == null)
+		        || activeOrderCache.isChangedInTransaction()) {
+			return null;
+		}
+		
+		long generation = activeOrderCache.getReadGeneration();
+		ActiveOrders activeOrders = activeOrderCache.get(patientId);
+		if (activeOrders == null) {
+			Date readTime = new Date();
+			if (asOfDate.before(readTime)) {
+				if (readTime.getTime() - asOfDate.getTime() > ACTIVE_ORDER_CACHE_TOLERANCE) {
+					return null;
+				}
+				readTime = asOfDate;
+			}
+			activeOrders = new ActiveOrders(dao.getActiveOrderDates(patientId, readTime), readTime);
+			activeOrderCache.put(patientId, activeOrders, generation);
+		}
+		
+		Set<Integer> orderTypeIds = null;
+		if (orderTypes != null) {
+			orderTypeIds = new HashSet<Integer>();
+			for (OrderType type : orderTypes) {
+				orderTypeIds.add(type.getOrderTypeId());
+			}
+		}
+		List<Integer> orderIds = activeOrders.getActiveOrderIds(careSetting == null ? null : careSetting
+		        .getCareSettingId(), orderTypeIds, asOfDate);
+		if (orderIds == null) {
+			return null;
+		}
+		
+		List<Order> orders = dao.getOrdersByIds(orderIds);
+		//the orders may have been changed in this session without being saved through this service
+		orders.removeIf(order -> order.getVoided() || !patientId.equals(order.getPatient().getPatientId())
+		        || !ActiveOrderCache.isActive(order.getDateActivated(), order.getDateStopped(), order.getAutoExpireDate(),
+		            asOfDate));
+		return orders;
+	}
+	
+	private boolean isActiveOrderCacheEnabled() {
+		Integer size = activeOrderCacheSize;
+		if (size == null) {
+			String value = Context.getAdministrationService().getGlobalProperty(
+			    OpenmrsConstants.GP_ACTIVE_ORDER_CACHE_SIZE, "0");
+			try {
+				size = Integer.valueOf(value.trim());
+			}
+			catch (NumberFormatException e) {
+				log.warn("Invalid value '{}' for the {} global property, not caching active orders", value,
+				    OpenmrsConstants.GP_ACTIVE_ORDER_CACHE_SIZE);
+				size = 0;
+			}
+			activeOrderCache.setMaxSize(size);
+			activeOrderCacheSize = size;
+		}
+		return size > 0;
+	}
+	
+	/**
+	 * Drops the cached active orders of the patient of the given order
+	 */
+	private void evictActiveOrders(Order order) {
+		Patient patient = order.getPatient();
+		if (patient != null) {
+			activeOrderCache.evict(patient.getPatientId());
+		}
+	}
+	
 	/**
 	 * @see org.openmrs.api.OrderService#getCareSetting(Integer)
 	 */
@@ -842,7 +1007,9 @@ public class OrderServiceImpl extends BaseOpenmrsService implements OrderService
 	 */
 	@Override
 	public boolean supportsPropertyName(String propertyName) {
-		return OpenmrsConstants.GP_ORDER_NUMBER_GENERATOR_BEAN_ID.equals(propertyName);
+		return OpenmrsConstants.GP_ORDER_NUMBER_GENERATOR_BEAN_ID.equals(propertyName)
+		        || OpenmrsConstants.GP_ORDER_NUMBER_SEED_BLOCK_SIZE.equals(propertyName)
+		        || OpenmrsConstants.GP_ACTIVE_ORDER_CACHE_SIZE.equals(propertyName);
 	}
 	
 	/**
@@ -850,7 +1017,7 @@ public class OrderServiceImpl extends BaseOpenmrsService implements OrderService
 	 */
 	@Override
 	public void globalPropertyChanged(GlobalProperty newValue) {
-		setOrderNumberGenerator(null);
+		propertyChanged(newValue.getProperty());
 	}
 	
 	/**
@@ -858,7 +1025,18 @@ public class OrderServiceImpl extends BaseOpenmrsService implements OrderService
 	 */
 	@Override
 	public void globalPropertyDeleted(String propertyName) {
-		setOrderNumberGenerator(null);
+		propertyChanged(propertyName);
+	}
+	
+	private void propertyChanged(String propertyName) {
+		if (OpenmrsConstants.GP_ORDER_NUMBER_SEED_BLOCK_SIZE.equals(propertyName)) {
+			orderNumberSeedAllocator = null;
+		} else if (OpenmrsConstants.GP_ACTIVE_ORDER_CACHE_SIZE.equals(propertyName)) {
+			activeOrderCacheSize = null;
+			activeOrderCache.clear();
+		} else {
+			setOrderNumberGenerator(null);
+		}
 	}
 	
 	/**
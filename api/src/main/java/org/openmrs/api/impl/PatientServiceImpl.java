@@ -20,6 +20,8 @@ import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
 import java.util.Vector;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
 
 import org.apache.commons.lang.StringUtils;
 import org.openmrs.Allergen;
@@ -59,6 +61,8 @@ import org.openmrs.api.context.Context;
 import org.openmrs.api.db.PatientDAO;
 import org.openmrs.parameter.EncounterSearchCriteria;
 import org.openmrs.parameter.EncounterSearchCriteriaBuilder;
+import org.openmrs.patient.DuplicatePatientCandidate;
+import org.openmrs.patient.DuplicatePatientCandidatePage;
 import org.openmrs.patient.IdentifierValidator;
 import org.openmrs.patient.impl.LuhnIdentifierValidator;
 import org.openmrs.person.PersonMergeLog;
@@ -93,6 +97,17 @@ public class PatientServiceImpl extends BaseOpenmrsService implements PatientSer
 	 */
 	private static Map<Class<? extends IdentifierValidator>, IdentifierValidator> identifierValidators = null;
 	
+	/**
+	 * The last search for duplicate patients, which all pages of duplicate patient candidates are
+	 * taken from
+	 */
+	private volatile DuplicatePatientDetector duplicatePatientDetector;
+	
+	/**
+	 * Held while a search for duplicate patients runs, so that only one runs at a time
+	 */
+	private final Lock duplicatePatientDetectionLock = new ReentrantLock();
+	
 	/**
 	 * @see org.openmrs.api.PatientService#setPatientDAO(org.openmrs.api.db.PatientDAO)
 	 */
@@ -533,6 +548,71 @@ public class PatientServiceImpl extends BaseOpenmrsService implements PatientSer
 		return dao.getDuplicatePatientsByAttributes(attributes);
 	}
 	
+	/**
+	 * @see org.openmrs.api.PatientService#detectDuplicatePatients(Double)
+	 */
+	@Override
+	@Transactional(readOnly = true)
+	public boolean detectDuplicatePatients(Double minimumScore) throws APIException {
+		if (!duplicatePatientDetectionLock.tryLock()) {
+			log.info("Not searching for duplicate patients, as another search is running");
+			return false;
+		}
+		try {
+			DuplicatePatientDetector detector = new DuplicatePatientDetector(minimumScore == null
+			        ? DuplicatePatientDetector.DEFAULT_MINIMUM_SCORE : minimumScore);
+			dao.streamDuplicatePatientDetectionRows(detector::addRow);
+			detector.detect();
+			duplicatePatientDetector = detector;
+			return true;
+		}
+		finally {
+			duplicatePatientDetectionLock.unlock();
+		}
+	}
+	
+	/**
+	 * @see org.openmrs.api.PatientService#getDuplicatePatientCandidates(Double, Integer, Integer)
+	 */
+	@Override
+	@Transactional(readOnly = true)
+	public DuplicatePatientCandidatePage getDuplicatePatientCandidates(Double minimumScore, Integer start, Integer length)
+	        throws APIException {
+		DuplicatePatientDetector detector = duplicatePatientDetector;
+		if (detector == null) {
+			return new DuplicatePatientCandidatePage(new ArrayList<>(), 0, 0, 0, null);
+		}
+		
+		// leave out the pairs below the score and the ones with a patient voided, merged or deleted
+		// since the search was run before taking the page, so that every page is full
+		double score = minimumScore == null ? DuplicatePatientDetector.DEFAULT_MINIMUM_SCORE : minimumScore;
+		Set<Integer> patientIds = new HashSet<>();
+		for (DuplicatePatientDetector.Match match : detector.getMatches()) {
+			if (match.score >= score) {
+				patientIds.add(match.patientId);
+				patientIds.add(match.duplicateId);
+			}
+		}
+		Set<Integer> currentPatientIds = dao.getNonVoidedPatientIds(patientIds);
+		List<DuplicatePatientDetector.Match> matches = new ArrayList<>();
+		for (DuplicatePatientDetector.Match match : detector.getMatches()) {
+			if (match.score >= score && currentPatientIds.contains(match.patientId)
+			        && currentPatientIds.contains(match.duplicateId)) {
+				matches.add(match);
+			}
+		}
+		
+		int from = start == null ? 0 : Math.min(Math.max(start, 0), matches.size());
+		int to = length == null ? matches.size() : Math.min(from + Math.max(length, 0), matches.size());
+		List<DuplicatePatientCandidate> candidates = new ArrayList<>(to - from);
+		for (DuplicatePatientDetector.Match match : matches.subList(from, to)) {
+			candidates.add(new DuplicatePatientCandidate(dao.getPatient(match.patientId), dao.getPatient(match.duplicateId),
+			        match.score));
+		}
+		return new DuplicatePatientCandidatePage(candidates, matches.size(), detector.getSkippedBlockCount(),
+		        detector.getSkippedPatientCount(), detector.getStartDate());
+	}
+	
 	/**
 	 * generate a relationship hash for use in mergePatients; follows the convention:
 	 * [relationshipType][A|B][relativeId]
@@ -30,6 +30,7 @@ import org.openmrs.api.APIException;
 import org.openmrs.api.CannotDeleteRoleWithChildrenException;
 import org.openmrs.api.UserService;
 import org.openmrs.api.context.Context;
+import org.openmrs.api.context.UserContext;
 import org.openmrs.api.db.DAOException;
 import org.openmrs.api.db.LoginCredential;
 import org.openmrs.api.db.UserDAO;
@@ -149,12 +150,29 @@ public class UserServiceImpl extends BaseOpenmrsService implements UserService {
 		
 		checkPrivileges(user);
 		
+		// read before anything flushes the changes to the user
+		boolean rolesChanged = !dao.getSavedRoleNames(user).equals(getRoleNames(user));
+		
 		if (hasDuplicateUsername(user)) {
 			throw new DAOException("Username " + user.getUsername() + " or system id " + user.getSystemId()
 			        + " is already in use.");
 		}
 		
-		return dao.saveUser(user, null);
+		User savedUser = dao.saveUser(user, null);
+		if (rolesChanged) {
+			UserContext.clearCachedPrivileges();
+		}
+		return savedUser;
+	}
+	
+	private Set<String> getRoleNames(User user) {
+		Set<String> roleNames = new HashSet<String>();
+		if (user.getRoles() != null) {
+			for (Role role : user.getRoles()) {
+				roleNames.add(role.getRole());
+			}
+		}
+		return roleNames;
 	}
 	
 	/**
@@ -234,6 +252,7 @@ public class UserServiceImpl extends BaseOpenmrsService implements UserService {
 		}
 		
 		dao.deletePrivilege(privilege);
+		UserContext.clearCachedPrivileges();
 	}
 	
 	/**
@@ -241,7 +260,9 @@ public class UserServiceImpl extends BaseOpenmrsService implements UserService {
 	 */
 	@Override
 	public Privilege savePrivilege(Privilege privilege) throws APIException {
-		return dao.savePrivilege(privilege);
+		Privilege savedPrivilege = dao.savePrivilege(privilege);
+		UserContext.clearCachedPrivileges();
+		return savedPrivilege;
 	}
 
 	/**
@@ -280,6 +301,7 @@ public class UserServiceImpl extends BaseOpenmrsService implements UserService {
 		}
 		
 		dao.deleteRole(role);
+		UserContext.clearCachedPrivileges();
 	}
 	
 	/**
@@ -295,7 +317,9 @@ public class UserServiceImpl extends BaseOpenmrsService implements UserService {
 		
 		checkPrivileges(role);
 		
-		return dao.saveRole(role);
+		Role savedRole = dao.saveRole(role);
+		UserContext.clearCachedPrivileges();
+		return savedRole;
 	}
 	
 	/**
@@ -100,6 +100,13 @@ public class HL7Constants {
 	 */
 	public static final String NUMBER_OF_FAILED_TRANSFERS_KEY = "failures";
 	
+	/**
+	 * the key to be used for the number of archives migrated per second in the progressStatusMap
+	 * 
+	 * @since 2.2.0
+	 */
+	public static final String ROWS_PER_SECOND_KEY = "rowsPerSecond";
+	
 	/**
 	 * time taken before static/state properties of an instance of the hl7 in archive migration
 	 * thread are reset
@@ -146,4 +153,25 @@ public class HL7Constants {
 	 * provider uuid
 	 */
 	public static final String PROVIDER_ASSIGNING_AUTH_PROV_UUID = "PROVIDER.UUID";
+	
+	/**
+	 * Name of the cache of user ids resolved from XCN components
+	 *
+	 * @since 2.2.0
+	 */
+	public static final String HL7_USER_ID_CACHE = "hl7ResolvedUserIds";
+	
+	/**
+	 * Name of the cache of location ids resolved from PL components
+	 *
+	 * @since 2.2.0
+	 */
+	public static final String HL7_LOCATION_ID_CACHE = "hl7ResolvedLocationIds";
+	
+	/**
+	 * Name of the cache of person ids resolved from CX identifier lists
+	 *
+	 * @since 2.2.0
+	 */
+	public static final String HL7_PERSON_ID_CACHE = "hl7ResolvedPersonIds";
 }
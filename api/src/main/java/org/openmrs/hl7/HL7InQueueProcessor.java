@@ -9,7 +9,23 @@
  */
 package org.openmrs.hl7;
 
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.lang.StringUtils;
 import org.openmrs.api.context.Context;
+import org.openmrs.api.context.UserContext;
+import org.openmrs.util.OpenmrsConstants;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.transaction.annotation.Transactional;
@@ -31,7 +47,9 @@ public class HL7InQueueProcessor /* implements Runnable */{
 	
 	private static Boolean isRunning = false; // allow only one running
 	
-	private static Integer count = 0;
+	private static final AtomicInteger count = new AtomicInteger();
+	
+	private static final int DEFAULT_BATCH_SIZE = 100;
 	
 	// processor per JVM
 	
@@ -43,11 +61,13 @@ public class HL7InQueueProcessor /* implements Runnable */{
 	}
 	
 	public static void setCount(Integer count) {
-		HL7InQueueProcessor.count = count;
+		HL7InQueueProcessor.count.set(count);
 	}
 	
 	/**
-	 * Process a single queue entry from the inbound HL7 queue
+	 * Process a single queue entry from the inbound HL7 queue. Each entry is processed in its own
+	 * transaction, afterwards the session is cleared so that the objects loaded while processing
+	 * the entry do not pile up in the session for the rest of the run.
 	 *
 	 * @param hl7InQueue queue entry to be processed
 	 */
@@ -58,24 +78,46 @@ public class HL7InQueueProcessor /* implements Runnable */{
 			        + hl7InQueue.getHL7SourceKey() + ")");
 		}
 		
+		long allocatedBefore = getAllocatedBytes();
 		try {
 			Context.getHL7Service().processHL7InQueue(hl7InQueue);
 		}
 		catch (HL7Exception e) {
 			log.error("Unable to process hl7 in queue", e);
 		}
-		setCount(count + 1);
-		if (count > 25) {
-			// clean up memory after processing each queue entry (otherwise, the
-			// memory-intensive process may crash or eat up all our memory)
+		finally {
+			// the transaction is over, nothing loaded while processing the entry is needed anymore
 			try {
-				Context.getHL7Service().garbageCollect();
+				Context.clearSession();
 			}
 			catch (Exception e) {
-				log.error("Exception while performing garbagecollect in hl7 inbound processor", e);
+				log.error("Exception while clearing the session in hl7 inbound processor", e);
 			}
 		}
+		int processed = count.incrementAndGet();
 		
+		long allocatedAfter = getAllocatedBytes();
+		if (allocatedBefore >= 0 && allocatedAfter >= 0) {
+			log.debug("Processed HL7 inbound queue entry {} (#{}), allocated {} bytes", hl7InQueue.getHL7InQueueId(),
+			    processed, allocatedAfter - allocatedBefore);
+		}
+	}
+	
+	/**
+	 * @return the number of bytes allocated by the current thread so far, or -1 if the JVM does not
+	 *         support measuring it or debug logging is off
+	 */
+	private long getAllocatedBytes() {
+		if (log.isDebugEnabled()) {
+			ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+			if (threadMXBean instanceof com.sun.management.ThreadMXBean) {
+				com.sun.management.ThreadMXBean allocationBean = (com.sun.management.ThreadMXBean) threadMXBean;
+				if (allocationBean.isThreadAllocatedMemorySupported() && allocationBean.isThreadAllocatedMemoryEnabled()) {
+					return allocationBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+				}
+			}
+		}
+		return -1;
 	}
 	
 	/**
@@ -96,7 +138,9 @@ public class HL7InQueueProcessor /* implements Runnable */{
 	}
 	
 	/**
-	 * Starts up a thread to process all existing HL7InQueue entries
+	 * Starts up a thread to process all existing HL7InQueue entries. If the
+	 * {@link OpenmrsConstants#GP_HL7_PROCESSOR_WORKER_THREADS} global property is greater than one,
+	 * the queue is processed concurrently, see {@link #processHL7InQueueConcurrently(int, int)}
 	 */
 	public void processHL7InQueue() throws HL7Exception {
 		synchronized (isRunning) {
@@ -108,8 +152,14 @@ public class HL7InQueueProcessor /* implements Runnable */{
 		}
 		try {
 			log.debug("Start processing hl7 in queue");
-			while (processNextHL7InQueue()) {
-				// loop until queue is empty
+			int workerThreads = getIntegerGlobalProperty(OpenmrsConstants.GP_HL7_PROCESSOR_WORKER_THREADS, 1);
+			if (workerThreads > 1) {
+				processHL7InQueueConcurrently(workerThreads, getIntegerGlobalProperty(
+				    OpenmrsConstants.GP_HL7_PROCESSOR_BATCH_SIZE, DEFAULT_BATCH_SIZE));
+			} else {
+				while (processNextHL7InQueue()) {
+					// loop until queue is empty
+				}
 			}
 			log.debug("Done processing hl7 in queue");
 		}
@@ -118,4 +168,104 @@ public class HL7InQueueProcessor /* implements Runnable */{
 		}
 	}
 	
+	/**
+	 * Processes all pending queue entries with a pool of worker threads. The queue is read in batches,
+	 * each batch is split into partitions by patient identifier so that all messages for the same
+	 * patient are processed by the same thread in the order they were received, and the partitions
+	 * are processed concurrently. Every partition is processed in its own session, with its own copy
+	 * of the user context of the calling thread, and each message is processed in its own
+	 * transaction. A batch is finished before the next one is read.
+	 *
+	 * @param workerThreads the number of threads to process partitions with
+	 * @param batchSize the number of queue entries to read at a time
+	 */
+	void processHL7InQueueConcurrently(int workerThreads, int batchSize) throws HL7Exception {
+		final UserContext userContext = Context.getUserContext();
+		ExecutorService executor = Executors.newFixedThreadPool(workerThreads);
+		try {
+			HL7Service hl7Service = Context.getHL7Service();
+			Integer lastQueueId = null;
+			List<HL7InQueue> batch = hl7Service.getNextHL7InQueueBatch(lastQueueId, batchSize);
+			while (!batch.isEmpty()) {
+				lastQueueId = batch.get(batch.size() - 1).getHL7InQueueId();
+				
+				List<Future<?>> futures = new ArrayList<>();
+				for (final List<Integer> partition : partitionByPatient(batch, workerThreads)) {
+					final UserContext partitionUserContext = userContext.copy();
+					futures.add(executor.submit(() -> processPartition(partitionUserContext, partition)));
+				}
+				// the queue entries are reloaded by the workers, there is no need to keep them around
+				Context.clearSession();
+				
+				for (Future<?> future : futures) {
+					try {
+						future.get();
+					}
+					catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+						throw new HL7Exception("Interrupted while processing hl7 in queue", e);
+					}
+					catch (ExecutionException e) {
+						log.error("Unable to process hl7 in queue partition", e.getCause());
+					}
+				}
+				
+				batch = hl7Service.getNextHL7InQueueBatch(lastQueueId, batchSize);
+			}
+		}
+		finally {
+			executor.shutdown();
+		}
+	}
+	
+	/**
+	 * Splits queue entries into at most the given number of partitions, messages for the same
+	 * patient always end up in the same partition in the order they were given
+	 *
+	 * @param queue the queue entries to split
+	 * @param partitions the maximum number of partitions
+	 * @return the ids of the queue entries per partition
+	 * @should keep messages for the same patient in the same partition and in order
+	 */
+	static Collection<List<Integer>> partitionByPatient(List<HL7InQueue> queue, int partitions) {
+		Map<Integer, List<Integer>> partitioned = new LinkedHashMap<>();
+		for (HL7InQueue hl7InQueue : queue) {
+			String identifier = HL7Util.getPatientIdentifier(hl7InQueue.getHL7Data());
+			int partition = identifier == null ? 0 : Math.abs(identifier.hashCode() % partitions);
+			partitioned.computeIfAbsent(partition, key -> new ArrayList<>()).add(hl7InQueue.getHL7InQueueId());
+		}
+		return partitioned.values();
+	}
+	
+	private void processPartition(UserContext userContext, List<Integer> queueIds) {
+		Context.setUserContext(userContext);
+		Context.openSessionWithCurrentUser();
+		try {
+			HL7Service hl7Service = Context.getHL7Service();
+			for (Integer queueId : queueIds) {
+				HL7InQueue hl7InQueue = hl7Service.getHL7InQueue(queueId);
+				if (hl7InQueue != null && HL7Constants.HL7_STATUS_PENDING.equals(hl7InQueue.getMessageState())) {
+					processHL7InQueue(hl7InQueue);
+				}
+			}
+		}
+		finally {
+			Context.closeSessionWithCurrentUser();
+			Context.clearUserContext();
+		}
+	}
+	
+	private int getIntegerGlobalProperty(String propertyName, int defaultValue) {
+		String value = Context.getAdministrationService().getGlobalProperty(propertyName);
+		if (StringUtils.isNotBlank(value)) {
+			try {
+				return Integer.parseInt(value.trim());
+			}
+			catch (NumberFormatException e) {
+				log.warn("Invalid value '{}' for global property {}, using {}", value, propertyName, defaultValue);
+			}
+		}
+		return defaultValue;
+	}
+	
 }
@@ -218,6 +218,19 @@ public interface HL7Service extends OpenmrsService {
 	@Authorized(PrivilegeConstants.GET_HL7_IN_QUEUE)
 	public HL7InQueue getNextHL7InQueue() throws APIException;
 	
+	/**
+	 * Get the next pending queue items in the order they were received
+	 * 
+	 * @param afterHL7InQueueId only queue items with a greater id are returned, null to start from
+	 *            the beginning of the queue
+	 * @param batchSize the maximum number of queue items to return
+	 * @return the pending queue items
+	 * @since 2.2.0
+	 * @should return pending queue items after the given id in order
+	 */
+	@Authorized(PrivilegeConstants.GET_HL7_IN_QUEUE)
+	public List<HL7InQueue> getNextHL7InQueueBatch(Integer afterHL7InQueueId, int batchSize) throws APIException;
+	
 	/**
 	 * Completely delete the hl7 in queue item from the database.
 	 * 
@@ -400,9 +413,24 @@ public interface HL7Service extends OpenmrsService {
 	 */
 	public Person resolvePersonFromIdentifiers(CX[] identifiers) throws HL7Exception;
 	
+	/**
+	 * Gets the number of lookups that were answered from, or missed by, the caches that remember
+	 * which users, locations and persons HL7 components resolved to
+	 * 
+	 * @return the counts keyed by cache name followed by ".hits" or ".misses"
+	 * @since 2.2.0
+	 * @should count hits and misses when resolving users
+	 */
+	@Authorized(PrivilegeConstants.GET_HL7_IN_QUEUE)
+	public Map<String, Long> getResolverCacheStatistics();
+	
 	/**
 	 * Clean up the current memory consumption
+	 * 
+	 * @deprecated As of 2.2.0, the {@link HL7InQueueProcessor} clears the session after every
+	 *             queue entry, use {@link org.openmrs.api.context.Context#clearSession()} instead
 	 */
+	@Deprecated
 	public void garbageCollect();
 	
 	/**
@@ -457,6 +485,31 @@ public interface HL7Service extends OpenmrsService {
 			PrivilegeConstants.PRIV_ADD_HL7_IN_QUEUE })
 	public void migrateHl7InArchivesToFileSystem(Map<String, Integer> progressStatusMap) throws APIException;
 	
+	/**
+	 * Moves the next chunk of hl7 in archives to the file system in a single transaction. The
+	 * archives are read with a forward only cursor starting after the
+	 * {@link org.openmrs.util.OpenmrsConstants#GP_HL7_ARCHIVE_MIGRATION_CHECKPOINT}, the files are
+	 * synced to disk together before the archives are updated, and the new checkpoint is saved in the
+	 * same transaction as the archives so that an interrupted migration resumes where it stopped. The
+	 * file of an archive always has the same name, a file left by a chunk that was not committed is
+	 * reused when the chunk is run again.
+	 * 
+	 * @param chunkSize the maximum number of archives to move, must be positive
+	 * @param progressStatusMap the map holding the number of archives transferred and failed
+	 *            transfers
+	 * @return the number of archives looked at, 0 if there are none left to move
+	 * @throws APIException if the chunk size is not positive or the checkpoint is not an archive id
+	 * @since 2.2.0
+	 * @should move archives to the file system and save a checkpoint
+	 * @should resume after the checkpoint
+	 * @should reuse the files written by a chunk that was not committed
+	 * @should fail for a chunk size that is not positive
+	 * @should fail for a checkpoint that is not an archive id
+	 */
+	@Authorized(requireAll = true, value = { PrivilegeConstants.GET_HL7_IN_ARCHIVE, PrivilegeConstants.PRIV_PURGE_HL7_IN_ARCHIVE,
+			PrivilegeConstants.PRIV_ADD_HL7_IN_QUEUE })
+	public int migrateNextHl7InArchivesChunk(int chunkSize, Map<String, Integer> progressStatusMap) throws APIException;
+	
 	/**
 	 * finds a UUID from an array of identifiers
 	 * 
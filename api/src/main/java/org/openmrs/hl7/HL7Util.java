@@ -297,4 +297,36 @@ public class HL7Util {
 		
 		return OpenmrsUtil.getDirectoryInApplicationDataDirectory(archiveDir);
 	}
+	
+	/**
+	 * Gets the first patient identifier (PID-3) of a raw HL7 message without parsing the whole
+	 * message
+	 *
+	 * @param hl7Message the raw HL7 message
+	 * @return the identifier, or null if the message does not contain one
+	 * @should return the first identifier in the PID segment
+	 * @should return null if the message has no PID segment
+	 * @should return null for a message that does not start with an MSH segment
+	 */
+	public static String getPatientIdentifier(String hl7Message) {
+		String message = StringUtils.trimToEmpty(hl7Message);
+		if (!message.startsWith("MSH") || message.length() < 8) {
+			return null;
+		}
+		char fieldSeparator = message.charAt(3);
+		String componentSeparator = String.valueOf(message.charAt(4));
+		String repetitionSeparator = String.valueOf(message.charAt(5));
+		for (String segment : message.split("[\\r\\n]+")) {
+			if (segment.startsWith("PID" + fieldSeparator)) {
+				String[] fields = StringUtils.splitPreserveAllTokens(segment, fieldSeparator);
+				if (fields.length < 4) {
+					return null;
+				}
+				String identifier = StringUtils.substringBefore(StringUtils.substringBefore(fields[3], repetitionSeparator),
+				    componentSeparator);
+				return StringUtils.trimToNull(identifier);
+			}
+		}
+		return null;
+	}
 }
@@ -19,9 +19,11 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
- * Separate thread to move the hl7 in archives from the database tables to the filesystem. It is
- * highly recommended to start this thread via DWRHL7Service as opposed to calling the thread's
- * start() method to ensure the thread is started after making all the necessary checks.
+ * Separate thread to move the hl7 in archives from the database tables to the filesystem. The
+ * archives are moved in chunks, each committed on its own, so a migration that is stopped or
+ * interrupted resumes where it left off the next time it is started. It is highly recommended to
+ * start this thread via DWRHL7Service as opposed to calling the thread's start() method to ensure
+ * the thread is started after making all the necessary checks.
  */
 public class Hl7InArchivesMigrateThread extends Thread {
 	
@@ -76,6 +78,7 @@ public class Hl7InArchivesMigrateThread extends Thread {
 		setProgressStatusMap(new HashMap<String, Integer>());
 		progressStatusMap.put(HL7Constants.NUMBER_TRANSFERRED_KEY, 0);
 		progressStatusMap.put(HL7Constants.NUMBER_OF_FAILED_TRANSFERS_KEY, 0);
+		progressStatusMap.put(HL7Constants.ROWS_PER_SECOND_KEY, 0);
 	}
 	
 	/**
@@ -193,6 +196,17 @@ public class Hl7InArchivesMigrateThread extends Thread {
 		return progressStatusMap.get(HL7Constants.NUMBER_OF_FAILED_TRANSFERS_KEY);
 	}
 	
+	/**
+	 * @return the number of archives migrated per second so far
+	 * @since 2.2.0
+	 */
+	public static Integer getRowsPerSecond() {
+		if (progressStatusMap == null || progressStatusMap.get(HL7Constants.ROWS_PER_SECOND_KEY) == null) {
+			return 0;
+		}
+		return progressStatusMap.get(HL7Constants.ROWS_PER_SECOND_KEY);
+	}
+	
 	/**
 	 * @return the userContext
 	 */
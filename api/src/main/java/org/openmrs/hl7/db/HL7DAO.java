@@ -10,6 +10,7 @@
 package org.openmrs.hl7.db;
 
 import java.util.List;
+import java.util.function.Consumer;
 
 import org.openmrs.api.db.DAOException;
 import org.openmrs.hl7.HL7InArchive;
@@ -80,6 +81,11 @@ public interface HL7DAO {
 	 */
 	public HL7InQueue getNextHL7InQueue() throws DAOException;
 	
+	/**
+	 * @see org.openmrs.hl7.HL7Service#getNextHL7InQueueBatch(Integer, int)
+	 */
+	public List<HL7InQueue> getNextHL7InQueueBatch(Integer afterHL7InQueueId, int batchSize) throws DAOException;
+	
 	/**
 	 * @see org.openmrs.hl7.HL7Service#deleteHL7InQueue(org.openmrs.hl7.HL7InQueue)
 	 */
@@ -159,6 +165,27 @@ public interface HL7DAO {
 	 */
 	public List<HL7InArchive> getHL7InArchivesToMigrate();
 	
+	/**
+	 * Streams the archives to be migrated with a forward only cursor in the order of their ids, each
+	 * archive is evicted from the session as soon as the consumer is done with it
+	 * 
+	 * @param afterHL7InArchiveId only archives with a greater id are streamed, null to start from the
+	 *            first archive
+	 * @param maxResults the maximum number of archives to stream
+	 * @param consumer called with each archive
+	 * @since 2.2.0
+	 */
+	public void streamHL7InArchivesToMigrate(Integer afterHL7InArchiveId, int maxResults, Consumer<HL7InArchive> consumer);
+	
+	/**
+	 * Marks an archive as migrated without loading it
+	 * 
+	 * @param hl7InArchiveId the id of the archive
+	 * @param hl7Data the location the data of the archive was migrated to
+	 * @since 2.2.0
+	 */
+	public void markHL7InArchiveMigrated(Integer hl7InArchiveId, String hl7Data) throws DAOException;
+	
 	/* HL7InError */
 
 	/**
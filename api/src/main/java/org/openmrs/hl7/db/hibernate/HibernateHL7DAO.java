@@ -11,9 +11,13 @@ package org.openmrs.hl7.db.hibernate;
 
 import java.util.Calendar;
 import java.util.List;
+import java.util.function.Consumer;
 
 import org.hibernate.Criteria;
 import org.hibernate.Query;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
+import org.hibernate.Session;
 import org.hibernate.SessionFactory;
 import org.hibernate.criterion.MatchMode;
 import org.hibernate.criterion.Order;
@@ -209,6 +213,19 @@ public class HibernateHL7DAO implements HL7DAO {
 		return (HL7InQueue) query.uniqueResult();
 	}
 	
+	/**
+	 * @see org.openmrs.hl7.db.HL7DAO#getNextHL7InQueueBatch(Integer, int)
+	 */
+	@Override
+	@SuppressWarnings("unchecked")
+	public List<HL7InQueue> getNextHL7InQueueBatch(Integer afterHL7InQueueId, int batchSize) throws DAOException {
+		return sessionFactory.getCurrentSession().createQuery(
+		    "from HL7InQueue as hiq where hiq.messageState = :state and hiq.HL7InQueueId > :afterId order by HL7InQueueId")
+		        .setParameter("state", HL7Constants.HL7_STATUS_PENDING, StandardBasicTypes.INTEGER).setParameter("afterId",
+		            afterHL7InQueueId == null ? 0 : afterHL7InQueueId, StandardBasicTypes.INTEGER).setMaxResults(batchSize)
+		        .list();
+	}
+	
 	/**
 	 * @see org.openmrs.hl7.db.HL7DAO#deleteHL7InQueue(org.openmrs.hl7.HL7InQueue)
 	 */
@@ -362,15 +379,58 @@ public class HibernateHL7DAO implements HL7DAO {
 	@Override
 	@SuppressWarnings("unchecked")
 	public List<HL7InArchive> getHL7InArchivesToMigrate() {
+		Criteria crit = getHL7InArchivesToMigrateCriteria();
+		crit.setMaxResults(HL7Constants.MIGRATION_MAX_BATCH_SIZE);
+		return crit.list();
+	}
+	
+	/**
+	 * @see org.openmrs.hl7.db.HL7DAO#streamHL7InArchivesToMigrate(Integer, int, Consumer)
+	 */
+	@Override
+	public void streamHL7InArchivesToMigrate(Integer afterHL7InArchiveId, int maxResults, Consumer<HL7InArchive> consumer) {
+		Session session = sessionFactory.getCurrentSession();
+		Criteria crit = getHL7InArchivesToMigrateCriteria();
+		if (afterHL7InArchiveId != null) {
+			crit.add(Restrictions.gt("HL7InArchiveId", afterHL7InArchiveId));
+		}
+		crit.addOrder(Order.asc("HL7InArchiveId"));
+		crit.setMaxResults(maxResults);
+		crit.setFetchSize(Math.min(maxResults, 1000));
+		
+		ScrollableResults results = crit.scroll(ScrollMode.FORWARD_ONLY);
+		try {
+			while (results.next()) {
+				HL7InArchive archive = (HL7InArchive) results.get(0);
+				consumer.accept(archive);
+				session.evict(archive);
+			}
+		}
+		finally {
+			results.close();
+		}
+	}
+	
+	/**
+	 * @see org.openmrs.hl7.db.HL7DAO#markHL7InArchiveMigrated(Integer, String)
+	 */
+	@Override
+	public void markHL7InArchiveMigrated(Integer hl7InArchiveId, String hl7Data) throws DAOException {
+		sessionFactory.getCurrentSession().createQuery(
+		    "update HL7InArchive set HL7Data = :data, messageState = :state where HL7InArchiveId = :id").setParameter(
+		    "data", hl7Data, StandardBasicTypes.STRING).setParameter("state", HL7Constants.HL7_STATUS_MIGRATED,
+		    StandardBasicTypes.INTEGER).setParameter("id", hl7InArchiveId, StandardBasicTypes.INTEGER).executeUpdate();
+	}
+	
+	private Criteria getHL7InArchivesToMigrateCriteria() {
 		Integer daysToKeep = Hl7InArchivesMigrateThread.getDaysKept();
 		Criteria crit = getHL7SearchCriteria(HL7InArchive.class, HL7Constants.HL7_STATUS_PROCESSED, null);
-		crit.setMaxResults(HL7Constants.MIGRATION_MAX_BATCH_SIZE);
 		if (daysToKeep != null) {
 			Calendar cal = Calendar.getInstance();
 			cal.add(Calendar.DATE, -1 * daysToKeep);
 			crit.add(Restrictions.lt("dateCreated", cal.getTime()));
 		}
-		return crit.list();
+		return crit;
 	}
 	
 }
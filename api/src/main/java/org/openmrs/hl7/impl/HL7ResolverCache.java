@@ -0,0 +1,144 @@
+/**
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.hl7.impl;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.cache.Cache;
+
+import ca.uhn.hl7v2.HL7Exception;
+
+/**
+ * Remembers the internal ids that HL7 components were resolved to, so that the users, locations and
+ * patients that show up in almost every message of a feed are only looked up once. Only successful
+ * resolutions are remembered, a component that could not be resolved is looked up again the next
+ * time since the user, location or patient may have been created in the meantime.
+ * <p>
+ * Size and time to live of the backing caches are configured in ehcache-api.xml. Only the location
+ * service evicts its cache, as locations rarely change. The user and person caches are not evicted
+ * when users, persons or patients are saved, which are written far too often to scan the caches
+ * for, instead their short time to live bounds how long a renamed user or a moved identifier can
+ * still resolve to what it used to. A person that was deleted or voided since is never returned.
+ *
+ * @since 2.2.0
+ */
+class HL7ResolverCache {
+	
+	private final Cache cache;
+	
+	private final AtomicLong hits = new AtomicLong();
+	
+	private final AtomicLong misses = new AtomicLong();
+	
+	/**
+	 * @param cache the backing cache, or null to resolve every component
+	 */
+	HL7ResolverCache(Cache cache) {
+		this.cache = cache;
+	}
+	
+	/**
+	 * Gets the id the given key resolved to before, or resolves it
+	 *
+	 * @param key the normalized values of the HL7 component
+	 * @param resolver resolves the key if it is not cached
+	 * @return the resolved id, or null if it could not be resolved
+	 * @throws HL7Exception if thrown by the resolver
+	 * @should only call the resolver on a miss
+	 * @should not cache unresolved keys
+	 */
+	Integer get(String key, Resolver resolver) throws HL7Exception {
+		Integer id = get(key);
+		if (id == null) {
+			id = resolver.resolve();
+			put(key, id);
+		}
+		return id;
+	}
+	
+	/**
+	 * @param key the normalized values of the HL7 component
+	 * @return the id the given key resolved to before, or null
+	 */
+	Integer get(String key) {
+		Integer id = cache == null ? null : cache.get(key, Integer.class);
+		if (id == null) {
+			misses.incrementAndGet();
+		} else {
+			hits.incrementAndGet();
+		}
+		return id;
+	}
+	
+	/**
+	 * Remembers what the given key resolved to, unresolved keys are not remembered
+	 *
+	 * @param key the normalized values of the HL7 component
+	 * @param id the resolved id, or null
+	 */
+	void put(String key, Integer id) {
+		if (cache != null && id != null) {
+			cache.put(key, id);
+		}
+	}
+	
+	/**
+	 * Forgets what the given key resolved to
+	 *
+	 * @param key the normalized values of the HL7 component
+	 */
+	void evict(String key) {
+		if (cache != null) {
+			cache.evict(key);
+		}
+	}
+	
+	/**
+	 * @return the number of lookups answered from the cache
+	 */
+	long getHitCount() {
+		return hits.get();
+	}
+	
+	/**
+	 * @return the number of lookups that had to be resolved
+	 */
+	long getMissCount() {
+		return misses.get();
+	}
+	
+	/**
+	 * Resolves an HL7 component to an internal id
+	 */
+	interface Resolver {
+		
+		Integer resolve() throws HL7Exception;
+	}
+	
+	/**
+	 * Builds a cache key out of the values of an HL7 component, blank values are treated the same as
+	 * missing ones
+	 *
+	 * @param values the component values
+	 * @return the key
+	 */
+	static String key(String... values) {
+		StringBuilder key = new StringBuilder();
+		for (String value : values) {
+			if (key.length() > 0) {
+				key.append('^');
+			}
+			if (value != null) {
+				key.append(value.trim());
+			}
+		}
+		return key.toString();
+	}
+}
@@ -10,17 +10,24 @@
 package org.openmrs.hl7.impl;
 
 import java.io.File;
-import java.io.FileNotFoundException;
 import java.io.IOException;
-import java.io.PrintWriter;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.text.DecimalFormat;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Calendar;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Date;
-import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -55,6 +62,8 @@ import org.openmrs.util.PrivilegeConstants;
 import org.openmrs.validator.PatientIdentifierValidator;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.cache.CacheManager;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
 import ca.uhn.hl7v2.HL7Exception;
@@ -92,6 +101,12 @@ public class HL7ServiceImpl extends BaseOpenmrsService implements HL7Service {
 	
 	private MessageTypeRouter router;
 	
+	private HL7ResolverCache userIdCache = new HL7ResolverCache(null);
+	
+	private HL7ResolverCache locationIdCache = new HL7ResolverCache(null);
+	
+	private HL7ResolverCache personIdCache = new HL7ResolverCache(null);
+	
 	/**
 	 * Private constructor to only support on singleton instance.
 	 *
@@ -138,6 +153,19 @@ public class HL7ServiceImpl extends BaseOpenmrsService implements HL7Service {
 		this.router = router;
 	}
 	
+	/**
+	 * Used by spring to inject the cache manager holding the caches of resolved users, locations
+	 * and persons
+	 *
+	 * @param cacheManager the cache manager to use
+	 * @since 2.2.0
+	 */
+	public void setCacheManager(CacheManager cacheManager) {
+		this.userIdCache = new HL7ResolverCache(cacheManager.getCache(HL7Constants.HL7_USER_ID_CACHE));
+		this.locationIdCache = new HL7ResolverCache(cacheManager.getCache(HL7Constants.HL7_LOCATION_ID_CACHE));
+		this.personIdCache = new HL7ResolverCache(cacheManager.getCache(HL7Constants.HL7_PERSON_ID_CACHE));
+	}
+	
 	/**
 	 * @see org.openmrs.hl7.HL7Service#saveHL7Source(org.openmrs.hl7.HL7Source)
 	 */
@@ -308,6 +336,15 @@ public class HL7ServiceImpl extends BaseOpenmrsService implements HL7Service {
 		return dao.getNextHL7InQueue();
 	}
 	
+	/**
+	 * @see org.openmrs.hl7.HL7Service#getNextHL7InQueueBatch(Integer, int)
+	 */
+	@Override
+	@Transactional(readOnly = true)
+	public List<HL7InQueue> getNextHL7InQueueBatch(Integer afterHL7InQueueId, int batchSize) {
+		return dao.getNextHL7InQueueBatch(afterHL7InQueueId, batchSize);
+	}
+	
 	/**
 	 * @see org.openmrs.hl7.HL7Service#getHL7InArchiveByState(java.lang.Integer)
 	 */
@@ -365,13 +402,6 @@ public class HL7ServiceImpl extends BaseOpenmrsService implements HL7Service {
 		return dao.getHL7InArchive(hl7InArchiveId);
 	}
 	
-	/**
-	 * get a list of archives to be migrated to the filesystem
-	 */
-	private List<HL7InArchive> getHL7InArchivesToMigrate() {
-		return dao.getHL7InArchivesToMigrate();
-	}
-	
 	/**
 	 * @see org.openmrs.hl7.HL7Service#getAllHL7InErrors()
 	 */
@@ -440,6 +470,11 @@ public class HL7ServiceImpl extends BaseOpenmrsService implements HL7Service {
 		String familyName = xcn.getFamilyName().getSurname().getValue();
 		String givenName = xcn.getGivenName().getValue();
 		
+		return userIdCache.get(HL7ResolverCache.key(idNumber, familyName, givenName),
+		    () -> resolveUserId(idNumber, familyName, givenName));
+	}
+	
+	private Integer resolveUserId(String idNumber, String familyName, String givenName) {
 		// unused
 		// String assigningAuthority = xcn.getAssigningAuthority()
 		// .getUniversalID().getValue();
@@ -541,10 +576,16 @@ public class HL7ServiceImpl extends BaseOpenmrsService implements HL7Service {
 	@Override
 	@Transactional(readOnly = true)
 	public Integer resolveLocationId(PL pl) throws HL7Exception {
-		// TODO: Get rid of hack that allows first component to be an integer
-		// location.location_id
 		String pointOfCare = pl.getPointOfCare().getValue();
 		String facility = pl.getFacility().getUniversalID().getValue();
+		
+		return locationIdCache.get(HL7ResolverCache.key(pointOfCare, facility),
+		    () -> resolveLocationId(pointOfCare, facility));
+	}
+	
+	private Integer resolveLocationId(String pointOfCare, String facility) throws HL7Exception {
+		// TODO: Get rid of hack that allows first component to be an integer
+		// location.location_id
 		// HACK: try to treat the first component (which should be "Point of
 		// Care" as an internal openmrs location_id
 		try {
@@ -610,6 +651,29 @@ public class HL7ServiceImpl extends BaseOpenmrsService implements HL7Service {
 			throw new HL7Exception("Missing patient identifier in PID segment");
 		}
 		
+		StringBuilder key = new StringBuilder();
+		for (CX identifier : identifiers) {
+			key.append(HL7ResolverCache.key(identifier.getIDNumber().getValue(), identifier.getAssigningAuthority()
+			        .getNamespaceID().getValue(), identifier.getIdentifierTypeCode().getValue())).append('~');
+		}
+		Integer personId = personIdCache.get(key.toString());
+		if (personId != null) {
+			Person person = Context.getPersonService().getPerson(personId);
+			// a patient that was merged into another one since is voided, resolve its identifiers again
+			if (person != null && !Boolean.TRUE.equals(person.getPersonVoided())) {
+				return person;
+			}
+			personIdCache.evict(key.toString());
+		}
+		
+		Person person = resolvePersonFromIdentifiersUncached(identifiers);
+		if (person != null) {
+			personIdCache.put(key.toString(), person.getPersonId());
+		}
+		return person;
+	}
+	
+	private Person resolvePersonFromIdentifiersUncached(CX[] identifiers) throws HL7Exception {
 		// TODO other potential identifying characteristics in PID we could use
 		// to identify the patient
 		// XPN[] patientName = pid.getPersonName();
@@ -703,10 +767,28 @@ public class HL7ServiceImpl extends BaseOpenmrsService implements HL7Service {
 		return null;
 	}
 	
+	/**
+	 * @see org.openmrs.hl7.HL7Service#getResolverCacheStatistics()
+	 */
+	@Override
+	public Map<String, Long> getResolverCacheStatistics() {
+		Map<String, Long> statistics = new LinkedHashMap<>();
+		addResolverCacheStatistics(statistics, HL7Constants.HL7_USER_ID_CACHE, userIdCache);
+		addResolverCacheStatistics(statistics, HL7Constants.HL7_LOCATION_ID_CACHE, locationIdCache);
+		addResolverCacheStatistics(statistics, HL7Constants.HL7_PERSON_ID_CACHE, personIdCache);
+		return statistics;
+	}
+	
+	private void addResolverCacheStatistics(Map<String, Long> statistics, String name, HL7ResolverCache cache) {
+		statistics.put(name + ".hits", cache.getHitCount());
+		statistics.put(name + ".misses", cache.getMissCount());
+	}
+	
 	/**
 	 * @see org.openmrs.hl7.HL7Service#garbageCollect()
 	 */
 	@Override
+	@Deprecated
 	public void garbageCollect() {
 		dao.garbageCollect();
 	}
@@ -1074,34 +1156,29 @@ public class HL7ServiceImpl extends BaseOpenmrsService implements HL7Service {
 	 * @see org.openmrs.hl7.HL7Service#migrateHl7InArchivesToFileSystem(Map)
 	 */
 	@Override
+	@Transactional(propagation = Propagation.NOT_SUPPORTED)
 	public void migrateHl7InArchivesToFileSystem(Map<String, Integer> progressStatusMap) throws APIException {
-		int numberTransferred = 0;
-		int numberOfFailedTransfers = 0;
-		
-		// HL7Constants.HL7_STATUS_ARCHIVED indicates the HL7 has been archived to the filesystem
-		List<HL7InArchive> hl7InArchives = getHL7InArchivesToMigrate();
+		int chunkSize = getMigrationChunkSize();
+		long started = System.currentTimeMillis();
+		int numberRead = 0;
 		
-		// while we still we have any archives to be processed, process them
+		// every chunk is migrated and committed in its own transaction
+		int chunkRead = -1;
 		while (Hl7InArchivesMigrateThread.isActive() && Hl7InArchivesMigrateThread.getTransferStatus() == Status.RUNNING
-		        && hl7InArchives != null && !hl7InArchives.isEmpty()) {
-			
-			Iterator<HL7InArchive> iterator = hl7InArchives.iterator();
+		        && chunkRead != 0) {
+			chunkRead = Context.getHL7Service().migrateNextHl7InArchivesChunk(chunkSize, progressStatusMap);
+			Context.clearSession();
 			
-			while (Hl7InArchivesMigrateThread.isActive() && Hl7InArchivesMigrateThread.getTransferStatus() == Status.RUNNING
-			        && iterator.hasNext()) {
-				HL7InArchive archive = iterator.next();
-				
-				try {
-					migrateHL7InArchive(archive);
-					progressStatusMap.put(HL7Constants.NUMBER_TRANSFERRED_KEY, numberTransferred++);
-				}
-				catch (DAOException e) {
-					progressStatusMap.put(HL7Constants.NUMBER_OF_FAILED_TRANSFERS_KEY, numberOfFailedTransfers++);
-				}
-			}
-			
-			// fetch more archives to be processed
-			hl7InArchives = getHL7InArchivesToMigrate();
+			numberRead += chunkRead;
+			long elapsed = Math.max(System.currentTimeMillis() - started, 1);
+			int rowsPerSecond = (int) (numberRead * 1000L / elapsed);
+			progressStatusMap.put(HL7Constants.ROWS_PER_SECOND_KEY, rowsPerSecond);
+			log.info("Migrated {} hl7 archives so far ({} rows per second)", numberRead, rowsPerSecond);
+		}
+		
+		if (chunkRead == 0) {
+			// start from the beginning next time, archives that failed to migrate get another chance
+			Context.getAdministrationService().setGlobalProperty(OpenmrsConstants.GP_HL7_ARCHIVE_MIGRATION_CHECKPOINT, "");
 		}
 		
 		if (log.isDebugEnabled()) {
@@ -1110,30 +1187,108 @@ public class HL7ServiceImpl extends BaseOpenmrsService implements HL7Service {
 	}
 	
 	/**
-	 * moves data to the filesystem from an HL7InArchive
-	 *
-	 * @param archive
-	 * @throws APIException
+	 * @see org.openmrs.hl7.HL7Service#migrateNextHl7InArchivesChunk(int, Map)
 	 */
-	private void migrateHL7InArchive(HL7InArchive archive) throws APIException {
-		if (archive == null) {
-			throw new APIException("Hl7Service.migrate.null.archive", (Object[]) null);
+	@Override
+	public int migrateNextHl7InArchivesChunk(int chunkSize, Map<String, Integer> progressStatusMap) throws APIException {
+		if (chunkSize <= 0) {
+			throw new APIException("Hl7Service.migrate.invalid.chunk.size", new Object[] { chunkSize });
 		}
 		
-		if (!OpenmrsUtil.nullSafeEquals(archive.getMessageState(), HL7Constants.HL7_STATUS_PROCESSED)) {
-			throw new APIException("Hl7Service.migrate.archive.state", (Object[]) null);
+		Integer checkpoint = null;
+		String checkpointValue = Context.getAdministrationService().getGlobalProperty(
+		    OpenmrsConstants.GP_HL7_ARCHIVE_MIGRATION_CHECKPOINT);
+		if (StringUtils.isNotBlank(checkpointValue)) {
+			try {
+				checkpoint = Integer.valueOf(checkpointValue.trim());
+			}
+			catch (NumberFormatException e) {
+				throw new APIException("Hl7Service.migrate.invalid.checkpoint", new Object[] { checkpointValue,
+				        OpenmrsConstants.GP_HL7_ARCHIVE_MIGRATION_CHECKPOINT }, e);
+			}
 		}
 		
-		try {
-			URI uri = writeHL7InArchiveToFileSystem(archive);
-			archive.setHL7Data(uri.toString());
-			archive.setMessageState(HL7Constants.HL7_STATUS_MIGRATED);
-			saveHL7InArchive(archive);
+		MigrationChunk chunk = new MigrationChunk();
+		dao.streamHL7InArchivesToMigrate(checkpoint, chunkSize, archive -> {
+			chunk.lastHL7InArchiveId = archive.getHL7InArchiveId();
+			chunk.numberRead++;
+			try {
+				chunk.files.put(archive.getHL7InArchiveId(), writeHL7InArchiveToFileSystem(archive));
+			}
+			catch (APIException e) {
+				chunk.numberOfFailedTransfers++;
+			}
+		});
+		
+		if (chunk.numberRead == 0) {
+			return 0;
 		}
-		catch (APIException e) {
-			throw new APIException("Hl7Service.migrate.archive", null, e);
+		
+		// sync the whole chunk at once before any of the archives point to their files
+		syncToDisk(chunk.files.values());
+		for (Map.Entry<Integer, URI> entry : chunk.files.entrySet()) {
+			dao.markHL7InArchiveMigrated(entry.getKey(), entry.getValue().toString());
 		}
+		Context.getAdministrationService().setGlobalProperty(OpenmrsConstants.GP_HL7_ARCHIVE_MIGRATION_CHECKPOINT,
+		    chunk.lastHL7InArchiveId.toString());
 		
+		addToProgress(progressStatusMap, HL7Constants.NUMBER_TRANSFERRED_KEY, chunk.files.size());
+		addToProgress(progressStatusMap, HL7Constants.NUMBER_OF_FAILED_TRANSFERS_KEY, chunk.numberOfFailedTransfers);
+		return chunk.numberRead;
+	}
+	
+	private int getMigrationChunkSize() {
+		String chunkSize = Context.getAdministrationService().getGlobalProperty(
+		    OpenmrsConstants.GP_HL7_ARCHIVE_MIGRATION_CHUNK_SIZE);
+		if (StringUtils.isNotBlank(chunkSize)) {
+			try {
+				int size = Integer.parseInt(chunkSize.trim());
+				if (size > 0) {
+					return size;
+				}
+			}
+			catch (NumberFormatException e) {
+				// fall through to the warning below
+			}
+			log.warn("Invalid value '{}' for global property {}, it must be a positive number", chunkSize,
+			    OpenmrsConstants.GP_HL7_ARCHIVE_MIGRATION_CHUNK_SIZE);
+		}
+		return HL7Constants.MIGRATION_MAX_BATCH_SIZE;
+	}
+	
+	private void addToProgress(Map<String, Integer> progressStatusMap, String key, int count) {
+		Integer current = progressStatusMap.get(key);
+		progressStatusMap.put(key, (current == null ? 0 : current) + count);
+	}
+	
+	/**
+	 * Forces the given files to disk
+	 *
+	 * @param files the files to sync
+	 */
+	private void syncToDisk(Collection<URI> files) throws APIException {
+		for (URI file : files) {
+			try (FileChannel channel = FileChannel.open(Paths.get(file), StandardOpenOption.WRITE)) {
+				channel.force(true);
+			}
+			catch (IOException e) {
+				throw new APIException("Hl7Service.write.error", null, e);
+			}
+		}
+	}
+	
+	/**
+	 * The archives looked at by a single chunk of the archive migration
+	 */
+	private static class MigrationChunk {
+		
+		private Integer lastHL7InArchiveId;
+		
+		private int numberRead = 0;
+		
+		private int numberOfFailedTransfers = 0;
+		
+		private Map<Integer, URI> files = new LinkedHashMap<>();
 	}
 	
 	/**
@@ -1143,7 +1298,6 @@ public class HL7ServiceImpl extends BaseOpenmrsService implements HL7Service {
 	 */
 	private URI writeHL7InArchiveToFileSystem(HL7InArchive hl7InArchive) throws APIException {
 		
-		PrintWriter writer = null;
 		File destinationDir = HL7Util.getHl7ArchivesDirectory();
 		try {
 			// number formatter used to format month and day with zero padding
@@ -1177,33 +1331,31 @@ public class HL7ServiceImpl extends BaseOpenmrsService implements HL7Service {
 			        + (StringUtils.isBlank(hl7InArchive.getHL7SourceKey()) ? "" : "_" + hl7InArchive.getHL7SourceKey())
 			        + ".txt");
 			
-			//write the hl7 data to the file
-			writer = new PrintWriter(fileToWriteTo);
-			writer.write(hl7InArchive.getHL7Data());
-			
-			//check if there was an error while writing to the current file
-			if (writer.checkError()) {
-				log.warn("An Error occured while writing hl7 archive with id '" + hl7InArchive.getHL7InArchiveId()
-				        + "' to the file system");
-				throw new APIException("Hl7Service.write.no.error", (Object[]) null);
+			//the files of a chunk that was not committed are written again when the migration resumes,
+			//reuse a file that already holds the same data instead of writing it a second time
+			byte[] data = hl7InArchive.getHL7Data().getBytes(Charset.defaultCharset());
+			Path target = fileToWriteTo.toPath();
+			if (Files.isRegularFile(target) && Files.size(target) == data.length
+			        && Arrays.equals(Files.readAllBytes(target), data)) {
+				return fileToWriteTo.toURI();
 			}
 			
+			//write the hl7 data to a temporary file first so that a crash never leaves a partly written file
+			Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+			Files.write(temp, data);
+			Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			
 			// hand back the URI for the file
 			return fileToWriteTo.toURI();
 			
 		}
-		catch (FileNotFoundException e) {
+		catch (IOException e) {
 			log
 			        .warn("Failed to write hl7 archive with id '" + hl7InArchive.getHL7InArchiveId()
 			                + "' to the file system ", e);
 			throw new APIException("Hl7Service.write.error", null, e);
 			
 		}
-		finally {
-			if (writer != null) {
-				writer.close();
-			}
-		}
 	}
 	
 	@Override
@@ -0,0 +1,278 @@
+/**
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.logic;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+
+import org.openmrs.Cohort;
+import org.openmrs.logic.datasource.LogicDataSource;
+import org.openmrs.logic.op.Operator;
+import org.openmrs.logic.result.NumericResultSeries;
+import org.openmrs.logic.result.Result;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Evaluates a list of criteria for a whole cohort at once, for use by implementations of
+ * {@link LogicService#eval(Cohort, List)}.
+ * <p>
+ * Criteria whose root token is a key of a registered {@link LogicDataSource} are resolved with
+ * set-based reads: every criterion that only differs in its transform (for example
+ * <code>"CD4 COUNT"</code>, <code>LAST "CD4 COUNT"</code> and <code>AVERAGE "CD4 COUNT"</code>)
+ * and has the same logic parameters shares a single read of the key for the whole cohort, and the {@link Operator#LAST},
+ * {@link Operator#FIRST}, {@link Operator#COUNT}, {@link Operator#AVERAGE},
+ * {@link Operator#EXISTS}, {@link Operator#NOT_EXISTS} and {@link Operator#DISTINCT} transforms are
+ * then applied in memory to each patient's results. Criteria that carry comparisons (e.g.
+ * {@link Operator#WITHIN}) or index dates (e.g. {@link Operator#ASOF}) are handed to their data source
+ * as they are, still one read for the whole cohort, since the data source knows how to apply them in
+ * the most efficient manner. The criteria passed in are never modified. Criteria that
+ * do not resolve to a data source (i.e. rules) are evaluated through the logic service.
+ *
+ * @since 2.2.0
+ */
+public class CohortLogicEvaluator {
+	
+	private static final Logger log = LoggerFactory.getLogger(CohortLogicEvaluator.class);
+	
+	private final LogicService logicService;
+	
+	/**
+	 * @param logicService the logic service used to look up data sources and evaluate rules
+	 */
+	public CohortLogicEvaluator(LogicService logicService) {
+		this.logicService = logicService;
+	}
+	
+	/**
+	 * Evaluates each of the given criteria for every patient in the cohort
+	 *
+	 * @param context the logic context to read from the data sources with
+	 * @param who the patients to evaluate the criteria for
+	 * @param criterias the criteria to evaluate
+	 * @return the results per patient id for each of the criteria
+	 * @throws LogicException
+	 * @should read each data source key only once for criteria that only differ in their transform
+	 * @should read the key separately for criteria with different logic parameters
+	 * @should not modify the given criteria
+	 * @should apply last and first transforms in memory
+	 * @should apply count average and exists transforms in memory
+	 * @should pass criteria with comparisons to the data source
+	 * @should evaluate criteria without a data source through the logic service
+	 */
+	public Map<LogicCriteria, Map<Integer, Result>> eval(LogicContext context, Cohort who, List<LogicCriteria> criterias)
+	        throws LogicException {
+		Map<LogicCriteria, Map<Integer, Result>> results = new LinkedHashMap<LogicCriteria, Map<Integer, Result>>();
+		Map<String, LogicDataSource> dataSourcesByToken = new HashMap<String, LogicDataSource>();
+		Map<LogicDataSource, Map<List<Object>, List<LogicCriteria>>> sharedReads = new LinkedHashMap<LogicDataSource, Map<List<Object>, List<LogicCriteria>>>();
+		
+		for (LogicCriteria criteria : criterias) {
+			if (results.containsKey(criteria)) {
+				continue;
+			}
+			String token = criteria.getRootToken();
+			LogicDataSource dataSource = getDataSource(token, dataSourcesByToken);
+			if (dataSource == null) {
+				results.put(criteria, logicService.eval(who, criteria));
+			} else if (isSharedRead(criteria)) {
+				Map<List<Object>, List<LogicCriteria>> byReadKey = sharedReads.get(dataSource);
+				if (byReadKey == null) {
+					byReadKey = new LinkedHashMap<List<Object>, List<LogicCriteria>>();
+					sharedReads.put(dataSource, byReadKey);
+				}
+				List<Object> readKey = Arrays.<Object> asList(token, getLogicParameters(criteria));
+				List<LogicCriteria> group = byReadKey.get(readKey);
+				if (group == null) {
+					group = new ArrayList<LogicCriteria>();
+					byReadKey.put(readKey, group);
+				}
+				group.add(criteria);
+				// reserve the position so results come back in the order they were asked for
+				results.put(criteria, null);
+			} else {
+				results.put(criteria, dataSource.read(context, who, criteria));
+			}
+		}
+		
+		for (Map.Entry<LogicDataSource, Map<List<Object>, List<LogicCriteria>>> entry : sharedReads.entrySet()) {
+			LogicDataSource dataSource = entry.getKey();
+			for (List<LogicCriteria> group : entry.getValue().values()) {
+				Map<Integer, Result> patientResults = readUntransformed(context, who, dataSource, group.get(0));
+				log.debug("Read {} for {} criteria over {} patients", group.get(0).getRootToken(), group.size(), who.size());
+				for (LogicCriteria criteria : group) {
+					results.put(criteria, applyTransform(criteria.getExpression().getTransform(), patientResults));
+				}
+			}
+		}
+		
+		return results;
+	}
+	
+	private LogicDataSource getDataSource(String token, Map<String, LogicDataSource> dataSourcesByToken) {
+		if (token == null) {
+			return null;
+		}
+		if (dataSourcesByToken.containsKey(token)) {
+			return dataSourcesByToken.get(token);
+		}
+		LogicDataSource found = null;
+		for (LogicDataSource dataSource : logicService.getLogicDataSources().values()) {
+			if (dataSource.hasKey(token)) {
+				found = dataSource;
+				break;
+			}
+		}
+		dataSourcesByToken.put(token, found);
+		return found;
+	}
+	
+	/**
+	 * A criteria can share a read with other criteria on the same key if it is a bare token with at
+	 * most a transform that can be applied in memory, and the token can be quoted to read it bare
+	 */
+	private boolean isSharedRead(LogicCriteria criteria) {
+		LogicExpression expression = criteria.getExpression();
+		if (expression == null || expression.getOperator() != null || criteria.getRootToken().contains("'")) {
+			return false;
+		}
+		LogicTransform transform = expression.getTransform();
+		if (transform == null) {
+			return true;
+		}
+		if (transform.getSortColumn() != null) {
+			return false;
+		}
+		Operator operator = transform.getTransformOperator();
+		return operator == null || operator == Operator.LAST || operator == Operator.FIRST || operator == Operator.COUNT
+		        || operator == Operator.AVERAGE || operator == Operator.EXISTS || operator == Operator.NOT_EXISTS
+		        || operator == Operator.DISTINCT;
+	}
+	
+	private static Map<String, Object> getLogicParameters(LogicCriteria criteria) {
+		Map<String, Object> parameters = criteria.getLogicParameters();
+		return parameters == null ? Collections.<String, Object> emptyMap() : parameters;
+	}
+	
+	/**
+	 * Reads the bare key of the given criteria with its logic parameters, so that the data source
+	 * returns every result for each patient. The key is read through a newly parsed criteria rather
+	 * than by detaching the transform of the given one, which may be shared with other threads, and
+	 * is quoted so that a token of several words is parsed as one token.
+	 */
+	private Map<Integer, Result> readUntransformed(LogicContext context, Cohort who, LogicDataSource dataSource,
+	        LogicCriteria criteria) throws LogicException {
+		LogicCriteria bare = logicService.parse("'" + criteria.getRootToken() + "'");
+		if (criteria.getLogicParameters() != null) {
+			bare.setLogicParameters(new HashMap<String, Object>(criteria.getLogicParameters()));
+		}
+		return dataSource.read(context, who, bare);
+	}
+	
+	private Map<Integer, Result> applyTransform(LogicTransform transform, Map<Integer, Result> patientResults) {
+		if (transform == null || transform.getTransformOperator() == null) {
+			return patientResults;
+		}
+		Map<Integer, Result> transformed = new HashMap<Integer, Result>(patientResults.size());
+		for (Map.Entry<Integer, Result> entry : patientResults.entrySet()) {
+			transformed.put(entry.getKey(), applyTransform(transform, entry.getValue()));
+		}
+		return transformed;
+	}
+	
+	/**
+	 * Applies a transform to the results of a single patient, working on the primitive values of a
+	 * {@link NumericResultSeries} where it can
+	 *
+	 * @param transform the transform to apply
+	 * @param result the results of the patient
+	 * @return the transformed result
+	 * @should count check and average an empty numeric series as having no values
+	 */
+	public static Result applyTransform(LogicTransform transform, Result result) {
+		List<Result> values = toList(result);
+		Operator operator = transform.getTransformOperator();
+		
+		if (operator == Operator.COUNT) {
+			return new Result(values.size());
+		}
+		if (operator == Operator.EXISTS) {
+			return new Result(!values.isEmpty());
+		}
+		if (operator == Operator.NOT_EXISTS) {
+			return new Result(values.isEmpty());
+		}
+		if (values.isEmpty()) {
+			return Result.emptyResult();
+		}
+		if (result instanceof NumericResultSeries) {
+			// work on the primitive values rather than creating a result per value
+			NumericResultSeries series = (NumericResultSeries) result;
+			boolean single = transform.getNumResults() == null || transform.getNumResults() == 1;
+			if (operator == Operator.AVERAGE) {
+				Double average = series.average();
+				return average == null ? Result.emptyResult() : new Result(average);
+			} else if (operator == Operator.LAST && single) {
+				return series.latest();
+			} else if (operator == Operator.FIRST && single) {
+				return series.earliest();
+			}
+		}
+		if (operator == Operator.AVERAGE) {
+			double sum = 0;
+			int count = 0;
+			for (Result value : values) {
+				Double number = value.toNumber();
+				if (number != null) {
+					sum += number;
+					count++;
+				}
+			}
+			return count == 0 ? Result.emptyResult() : new Result(sum / count);
+		}
+		if (operator == Operator.DISTINCT) {
+			return new Result(new ArrayList<Result>(new LinkedHashSet<Result>(values)));
+		}
+		if (operator == Operator.LAST || operator == Operator.FIRST) {
+			List<Result> sorted = new ArrayList<Result>(values);
+			Comparator<Result> byDate = Comparator.comparing(Result::getResultDate,
+			    Comparator.nullsFirst(Comparator.<Date> naturalOrder()));
+			Collections.sort(sorted, operator == Operator.LAST ? byDate.reversed() : byDate);
+			int numResults = transform.getNumResults() == null ? 1 : transform.getNumResults();
+			if (numResults == 1) {
+				return sorted.get(0);
+			}
+			return new Result(sorted.subList(0, Math.min(numResults, sorted.size())));
+		}
+		return result;
+	}
+	
+	private static List<Result> toList(Result result) {
+		if (result instanceof NumericResultSeries) {
+			// a list of values even when it is empty
+			return result;
+		}
+		if (result == null || result.isNull()) {
+			return Collections.emptyList();
+		}
+		if (result.isEmpty()) {
+			// a single result
+			return Collections.singletonList(result);
+		}
+		return result;
+	}
+}
@@ -0,0 +1,127 @@
+/**
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.logic.datasource;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.openmrs.Cohort;
+import org.openmrs.Concept;
+import org.openmrs.api.context.Context;
+import org.openmrs.logic.CohortLogicEvaluator;
+import org.openmrs.logic.LogicContext;
+import org.openmrs.logic.LogicCriteria;
+import org.openmrs.logic.LogicException;
+import org.openmrs.logic.LogicExpression;
+import org.openmrs.logic.LogicTransform;
+import org.openmrs.logic.result.Result;
+import org.openmrs.obs.ObsTimeSeries;
+import org.springframework.stereotype.Component;
+
+/**
+ * Reads the observations of numeric questions as a
+ * {@link org.openmrs.logic.result.NumericResultSeries} per patient, so that transforms such as
+ * <code>LAST</code> and <code>AVERAGE</code> work on the primitive values instead of a result per
+ * observation. The keys are the names of the numeric concepts prefixed with {@link #KEY_PREFIX}, for
+ * example <code>numericObs.WEIGHT (KG)</code>, so that plain concept names are still left to the
+ * obs data source of the logic module; the observations of all patients of the cohort are read in
+ * as few queries as possible.
+ * <p>
+ * Only bare keys with at most a transform are supported, criteria that carry comparisons or sort
+ * columns are left to the obs data source of the logic module.
+ *
+ * @see org.openmrs.api.ObsService#getObsTimeSeries(Cohort, Concept)
+ * @since 2.2.0
+ */
+@Component("numericObsLogicDataSource")
+public class NumericObsDataSource implements LogicDataSource {
+	
+	public static final String NAME = "numericObs";
+	
+	/**
+	 * The prefix of the keys of this data source, followed by the name of a numeric concept
+	 */
+	public static final String KEY_PREFIX = NAME + ".";
+	
+	/**
+	 * @see org.openmrs.logic.datasource.LogicDataSource#read(org.openmrs.logic.LogicContext,
+	 *      org.openmrs.Cohort, org.openmrs.logic.LogicCriteria)
+	 * @should read the values of each patient as a numeric result series
+	 * @should fail for criteria with comparisons
+	 */
+	@Override
+	public Map<Integer, Result> read(LogicContext context, Cohort patients, LogicCriteria criteria) throws LogicException {
+		Concept question = getNumericConcept(criteria.getRootToken());
+		if (question == null) {
+			throw new LogicException("No numeric concept named " + criteria.getRootToken());
+		}
+		LogicExpression expression = criteria.getExpression();
+		LogicTransform transform = expression == null ? null : expression.getTransform();
+		if (expression != null && expression.getOperator() != null) {
+			throw new LogicException("The " + NAME + " data source does not support " + expression.getOperator());
+		}
+		if (transform != null && transform.getSortColumn() != null) {
+			throw new LogicException("The " + NAME + " data source does not support sorting on "
+			        + transform.getSortColumn());
+		}
+		
+		Map<Integer, ObsTimeSeries> seriesByPatient = Context.getObsService().getObsTimeSeries(patients, question);
+		Map<Integer, Result> results = new HashMap<Integer, Result>(patients.size());
+		for (Integer patientId : patients.getMemberIds()) {
+			ObsTimeSeries series = seriesByPatient.get(patientId);
+			Result result = (series == null ? ObsTimeSeries.EMPTY : series).toNumericResultSeries();
+			if (transform != null && transform.getTransformOperator() != null) {
+				result = CohortLogicEvaluator.applyTransform(transform, result);
+			}
+			results.put(patientId, result);
+		}
+		return results;
+	}
+	
+	/**
+	 * The prefixed names of all numeric concepts are keys, they are not listed
+	 *
+	 * @see org.openmrs.logic.datasource.LogicDataSource#getKeys()
+	 */
+	@Override
+	public Collection<String> getKeys() {
+		return Collections.emptyList();
+	}
+	
+	/**
+	 * @see org.openmrs.logic.datasource.LogicDataSource#hasKey(java.lang.String)
+	 * @should only have the prefixed names of numeric concepts as keys
+	 */
+	@Override
+	public boolean hasKey(String key) {
+		return key != null && key.startsWith(KEY_PREFIX) && getNumericConcept(key) != null;
+	}
+	
+	/**
+	 * @see org.openmrs.logic.datasource.LogicDataSource#getDefaultTTL()
+	 */
+	@Override
+	public int getDefaultTTL() {
+		return 0;
+	}
+	
+	private Concept getNumericConcept(String key) {
+		if (key == null || !key.startsWith(KEY_PREFIX)) {
+			return null;
+		}
+		Concept concept = Context.getConceptService().getConceptByName(key.substring(KEY_PREFIX.length()));
+		if (concept == null || concept.getDatatype() == null || !concept.getDatatype().isNumeric()) {
+			return null;
+		}
+		return concept;
+	}
+}
@@ -0,0 +1,334 @@
+/**
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.logic.result;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.function.UnaryOperator;
+
+/**
+ * An immutable list of numeric results backed by primitive arrays. Data sources that return many
+ * numeric values per patient (e.g. a lab result over years of visits) can hand one of these back
+ * instead of a list with a {@link Result} object per value. Counting, averaging and picking the
+ * first or latest value work directly on the arrays; the individual {@link Result} members are only
+ * created the first time the list is iterated or accessed by index. A series can be read by several
+ * threads, the members are created once under the lock of the series.
+ *
+ * @since 2.2.0
+ */
+public class NumericResultSeries extends Result {
+	
+	private static final long serialVersionUID = 4325183047839150671L;
+	
+	/**
+	 * Timestamp used for values that do not have a result date
+	 */
+	public static final long NO_DATE = Long.MIN_VALUE;
+	
+	private final double[] values;
+	
+	private final long[] timestamps;
+	
+	private volatile boolean materialized = false;
+	
+	/**
+	 * Creates a series from parallel arrays of values and result dates. The arrays are not copied,
+	 * so callers must not modify them afterwards.
+	 *
+	 * @param values the numeric values
+	 * @param timestamps the result date of each value in milliseconds, or {@link #NO_DATE}
+	 * @should fail if the arrays have different lengths
+	 */
+	public NumericResultSeries(double[] values, long[] timestamps) {
+		if (values.length != timestamps.length) {
+			throw new IllegalArgumentException("values and timestamps must have the same length");
+		}
+		this.values = values;
+		this.timestamps = timestamps;
+	}
+	
+	/**
+	 * @param index the index of the value
+	 * @return the numeric value at the given index
+	 */
+	public double getValue(int index) {
+		return values[index];
+	}
+	
+	/**
+	 * @param index the index of the value
+	 * @return the result date of the value at the given index in milliseconds, or {@link #NO_DATE}
+	 */
+	public long getTimestamp(int index) {
+		return timestamps[index];
+	}
+	
+	/**
+	 * @return the average of all values, or null if the series is empty
+	 * @should return the average of all values
+	 * @should return null for an empty series
+	 */
+	public Double average() {
+		if (values.length == 0) {
+			return null;
+		}
+		double sum = 0;
+		for (double value : values) {
+			sum += value;
+		}
+		return sum / values.length;
+	}
+	
+	/**
+	 * @see org.openmrs.logic.result.Result#toNumber()
+	 */
+	@Override
+	public Double toNumber() {
+		return values.length == 0 ? null : values[0];
+	}
+	
+	/**
+	 * @see org.openmrs.logic.result.Result#exists()
+	 */
+	@Override
+	public boolean exists() {
+		for (double value : values) {
+			if (value != 0) {
+				return true;
+			}
+		}
+		return false;
+	}
+	
+	/**
+	 * @see org.openmrs.logic.result.Result#earliest()
+	 * @should get the value with the earliest result date without materializing the series
+	 */
+	@Override
+	public Result earliest() {
+		if (values.length == 0) {
+			return emptyResult();
+		}
+		int earliest = 0;
+		for (int i = 1; i < values.length; i++) {
+			if (timestamps[i] != NO_DATE
+			        && (timestamps[earliest] == NO_DATE || timestamps[i] < timestamps[earliest])) {
+				earliest = i;
+			}
+		}
+		return newResult(earliest);
+	}
+	
+	/**
+	 * @see org.openmrs.logic.result.Result#latest()
+	 * @should get the value with the latest result date without materializing the series
+	 */
+	@Override
+	public Result latest() {
+		if (values.length == 0) {
+			return emptyResult();
+		}
+		int latest = 0;
+		for (int i = 1; i < values.length; i++) {
+			if (timestamps[latest] == NO_DATE || (timestamps[i] != NO_DATE && timestamps[i] > timestamps[latest])) {
+				latest = i;
+			}
+		}
+		return newResult(latest);
+	}
+	
+	/**
+	 * @return whether the individual {@link Result} members have been created
+	 */
+	public boolean isMaterialized() {
+		return materialized;
+	}
+	
+	private Result newResult(int index) {
+		Date resultDate = timestamps[index] == NO_DATE ? null : new Date(timestamps[index]);
+		return new Result(resultDate, values[index], null);
+	}
+	
+	private synchronized void materialize() {
+		if (!materialized) {
+			List<Result> results = new ArrayList<Result>(values.length);
+			for (int i = 0; i < values.length; i++) {
+				results.add(newResult(i));
+			}
+			super.addAll(results);
+			materialized = true;
+		}
+	}
+	
+	// list access, the members are created on first use
+	
+	@Override
+	public int size() {
+		return values.length;
+	}
+	
+	@Override
+	public boolean isEmpty() {
+		return values.length == 0;
+	}
+	
+	@Override
+	public Result get(int index) {
+		materialize();
+		return super.get(index);
+	}
+	
+	@Override
+	public Iterator<Result> iterator() {
+		materialize();
+		return super.iterator();
+	}
+	
+	@Override
+	public ListIterator<Result> listIterator() {
+		materialize();
+		return super.listIterator();
+	}
+	
+	@Override
+	public ListIterator<Result> listIterator(int index) {
+		materialize();
+		return super.listIterator(index);
+	}
+	
+	@Override
+	public List<Result> subList(int fromIndex, int toIndex) {
+		materialize();
+		return super.subList(fromIndex, toIndex);
+	}
+	
+	@Override
+	public Spliterator<Result> spliterator() {
+		materialize();
+		return super.spliterator();
+	}
+	
+	@Override
+	public void forEach(Consumer<? super Result> action) {
+		materialize();
+		super.forEach(action);
+	}
+	
+	@Override
+	public Object[] toArray() {
+		materialize();
+		return super.toArray();
+	}
+	
+	@Override
+	public <T> T[] toArray(T[] a) {
+		materialize();
+		return super.toArray(a);
+	}
+	
+	@Override
+	public int indexOf(Object o) {
+		materialize();
+		return super.indexOf(o);
+	}
+	
+	@Override
+	public int lastIndexOf(Object o) {
+		materialize();
+		return super.lastIndexOf(o);
+	}
+	
+	@Override
+	public boolean contains(Object o) {
+		materialize();
+		return super.contains(o);
+	}
+	
+	@Override
+	public int hashCode() {
+		materialize();
+		return super.hashCode();
+	}
+	
+	// the series is immutable
+	
+	@Override
+	public boolean add(Result value) {
+		throw new ImmutableResultException("Cannot add to NumericResultSeries");
+	}
+	
+	@Override
+	public void add(int index, Result element) {
+		throw new ImmutableResultException("Cannot add to NumericResultSeries");
+	}
+	
+	@Override
+	public boolean addAll(Collection<? extends Result> c) {
+		throw new ImmutableResultException("Cannot add to NumericResultSeries");
+	}
+	
+	@Override
+	public boolean addAll(int index, Collection<? extends Result> c) {
+		throw new ImmutableResultException("Cannot add to NumericResultSeries");
+	}
+	
+	@Override
+	public Result set(int index, Result element) {
+		throw new ImmutableResultException("Cannot set values within NumericResultSeries");
+	}
+	
+	@Override
+	public Result remove(int index) {
+		throw new ImmutableResultException("Cannot remove from NumericResultSeries");
+	}
+	
+	@Override
+	public boolean remove(Object o) {
+		throw new ImmutableResultException("Cannot remove from NumericResultSeries");
+	}
+	
+	@Override
+	public boolean removeAll(Collection<?> c) {
+		throw new ImmutableResultException("Cannot remove from NumericResultSeries");
+	}
+	
+	@Override
+	public boolean retainAll(Collection<?> c) {
+		throw new ImmutableResultException("Cannot remove from NumericResultSeries");
+	}
+	
+	@Override
+	public boolean removeIf(Predicate<? super Result> filter) {
+		throw new ImmutableResultException("Cannot remove from NumericResultSeries");
+	}
+	
+	@Override
+	public void replaceAll(UnaryOperator<Result> operator) {
+		throw new ImmutableResultException("Cannot set values within NumericResultSeries");
+	}
+	
+	@Override
+	public void sort(Comparator<? super Result> c) {
+		throw new ImmutableResultException("Cannot sort NumericResultSeries");
+	}
+	
+	@Override
+	public void clear() {
+		throw new ImmutableResultException("Cannot clear NumericResultSeries");
+	}
+}
@@ -0,0 +1,263 @@
+/**
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.obs;
+
+import java.util.Arrays;
+import java.util.Date;
+
+import org.openmrs.logic.result.NumericResultSeries;
+
+/**
+ * An immutable history of the non voided observations of one person for one question concept,
+ * ordered by obs datetime. Only the obs id, obs datetime, numeric value and coded answer of each
+ * observation are kept, in parallel primitive arrays, so that charts and rules can work on years
+ * of values without loading an {@link org.openmrs.Obs} per value. Range and last-N views share the
+ * arrays of the series they are taken from.
+ *
+ * @see org.openmrs.api.ObsService#getObsTimeSeries(org.openmrs.Person, org.openmrs.Concept)
+ * @since 2.2.0
+ */
+public final class ObsTimeSeries {
+	
+	/**
+	 * A series without any observations
+	 */
+	public static final ObsTimeSeries EMPTY = new ObsTimeSeries(new int[0], new long[0], new double[0], new int[0]);
+	
+	private final int[] obsIds;
+	
+	private final long[] obsDatetimes;
+	
+	private final double[] valueNumerics;
+	
+	private final int[] valueCodedIds;
+	
+	private final int offset;
+	
+	private final int size;
+	
+	/**
+	 * Creates a series from parallel arrays that are sorted by obs datetime. The arrays are not
+	 * copied, so callers must not modify them afterwards.
+	 *
+	 * @param obsIds the obs ids
+	 * @param obsDatetimes the obs datetime of each observation in milliseconds
+	 * @param valueNumerics the numeric value of each observation, or {@link Double#NaN} if it has
+	 *            none
+	 * @param valueCodedIds the concept id of the coded answer of each observation, or 0 if it has
+	 *            none
+	 * @should fail if the arrays have different lengths
+	 */
+	public ObsTimeSeries(int[] obsIds, long[] obsDatetimes, double[] valueNumerics, int[] valueCodedIds) {
+		this(obsIds, obsDatetimes, valueNumerics, valueCodedIds, 0, obsIds.length);
+		if (obsDatetimes.length != size || valueNumerics.length != size || valueCodedIds.length != size) {
+			throw new IllegalArgumentException(
+			        "obsIds, obsDatetimes, valueNumerics and valueCodedIds must have the same length");
+		}
+	}
+	
+	private ObsTimeSeries(int[] obsIds, long[] obsDatetimes, double[] valueNumerics, int[] valueCodedIds, int offset,
+	    int size) {
+		this.obsIds = obsIds;
+		this.obsDatetimes = obsDatetimes;
+		this.valueNumerics = valueNumerics;
+		this.valueCodedIds = valueCodedIds;
+		this.offset = offset;
+		this.size = size;
+	}
+	
+	/**
+	 * @return the number of observations in the series
+	 */
+	public int size() {
+		return size;
+	}
+	
+	/**
+	 * @return true if the series has no observations
+	 */
+	public boolean isEmpty() {
+		return size == 0;
+	}
+	
+	/**
+	 * @param index the index of the observation
+	 * @return the obs id of the observation at the given index
+	 */
+	public int getObsId(int index) {
+		return obsIds[toArrayIndex(index)];
+	}
+	
+	/**
+	 * @param index the index of the observation
+	 * @return the obs datetime of the observation at the given index in milliseconds
+	 */
+	public long getObsDatetime(int index) {
+		return obsDatetimes[toArrayIndex(index)];
+	}
+	
+	/**
+	 * @param index the index of the observation
+	 * @return the numeric value of the observation at the given index, or {@link Double#NaN} if it
+	 *         has none
+	 */
+	public double getValueNumeric(int index) {
+		return valueNumerics[toArrayIndex(index)];
+	}
+	
+	/**
+	 * @param index the index of the observation
+	 * @return the concept id of the coded answer of the observation at the given index, or null if
+	 *         it has none
+	 */
+	public Integer getValueCodedId(int index) {
+		int valueCodedId = valueCodedIds[toArrayIndex(index)];
+		return valueCodedId == 0 ? null : valueCodedId;
+	}
+	
+	/**
+	 * Gets the observations with an obs datetime within the given range
+	 *
+	 * @param fromDate the earliest obs datetime to include, null for no lower bound
+	 * @param toDate the latest obs datetime to include, null for no upper bound
+	 * @return a view of the observations in the range
+	 * @should include observations on both bounds
+	 * @should not bound the range on null dates
+	 */
+	public ObsTimeSeries between(Date fromDate, Date toDate) {
+		int from = fromDate == null ? offset : firstIndexAfter(fromDate.getTime() - 1);
+		int to = toDate == null ? offset + size : firstIndexAfter(toDate.getTime());
+		if (from >= to) {
+			return EMPTY;
+		}
+		return new ObsTimeSeries(obsIds, obsDatetimes, valueNumerics, valueCodedIds, from, to - from);
+	}
+	
+	/**
+	 * Gets the most recent observations
+	 *
+	 * @param n the maximum number of observations to include
+	 * @return a view of the last n observations, oldest first
+	 * @should return the last n observations
+	 * @should return the whole series if it has fewer than n observations
+	 */
+	public ObsTimeSeries last(int n) {
+		if (n >= size) {
+			return this;
+		}
+		if (n <= 0) {
+			return EMPTY;
+		}
+		return new ObsTimeSeries(obsIds, obsDatetimes, valueNumerics, valueCodedIds, offset + size - n, n);
+	}
+	
+	/**
+	 * Converts the observations that have a numeric value to a logic result, for rules that work on
+	 * numeric values
+	 *
+	 * @return the numeric values with their obs datetimes
+	 * @should skip observations without a numeric value
+	 */
+	public NumericResultSeries toNumericResultSeries() {
+		double[] values = new double[size];
+		long[] timestamps = new long[size];
+		int count = 0;
+		for (int i = offset; i < offset + size; i++) {
+			if (!Double.isNaN(valueNumerics[i])) {
+				values[count] = valueNumerics[i];
+				timestamps[count] = obsDatetimes[i];
+				count++;
+			}
+		}
+		if (count < size) {
+			values = Arrays.copyOf(values, count);
+			timestamps = Arrays.copyOf(timestamps, count);
+		}
+		return new NumericResultSeries(values, timestamps);
+	}
+	
+	/**
+	 * Collects observations in order of obs datetime straight into primitive arrays, for callers
+	 * that read them one at a time
+	 */
+	public static final class Builder {
+		
+		private int[] obsIds = new int[8];
+		
+		private long[] obsDatetimes = new long[8];
+		
+		private double[] valueNumerics = new double[8];
+		
+		private int[] valueCodedIds = new int[8];
+		
+		private int size;
+		
+		/**
+		 * Adds an observation after the ones added before
+		 *
+		 * @param obsId the obs id
+		 * @param obsDatetime the obs datetime in milliseconds
+		 * @param valueNumeric the numeric value, or {@link Double#NaN} if it has none
+		 * @param valueCodedId the concept id of the coded answer, or 0 if it has none
+		 * @return this builder
+		 */
+		public Builder add(int obsId, long obsDatetime, double valueNumeric, int valueCodedId) {
+			if (size == obsIds.length) {
+				int capacity = size * 2;
+				obsIds = Arrays.copyOf(obsIds, capacity);
+				obsDatetimes = Arrays.copyOf(obsDatetimes, capacity);
+				valueNumerics = Arrays.copyOf(valueNumerics, capacity);
+				valueCodedIds = Arrays.copyOf(valueCodedIds, capacity);
+			}
+			obsIds[size] = obsId;
+			obsDatetimes[size] = obsDatetime;
+			valueNumerics[size] = valueNumeric;
+			valueCodedIds[size] = valueCodedId;
+			size++;
+			return this;
+		}
+		
+		/**
+		 * @return the series of the observations added so far
+		 * @should build a series of the added observations
+		 */
+		public ObsTimeSeries build() {
+			if (size == 0) {
+				return EMPTY;
+			}
+			return new ObsTimeSeries(obsIds, obsDatetimes, valueNumerics, valueCodedIds, 0, size);
+		}
+	}
+	
+	private int toArrayIndex(int index) {
+		if (index < 0 || index >= size) {
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+		}
+		return offset + index;
+	}
+	
+	/**
+	 * Binary searches for the first observation of this view with an obs datetime after the given
+	 * time
+	 */
+	private int firstIndexAfter(long time) {
+		int low = offset;
+		int high = offset + size;
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			if (obsDatetimes[mid] <= time) {
+				low = mid + 1;
+			} else {
+				high = mid;
+			}
+		}
+		return low;
+	}
+}
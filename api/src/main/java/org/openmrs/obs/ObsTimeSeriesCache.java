@@ -0,0 +1,214 @@
+/**
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.obs;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Keeps the observation histories of the most recently charted persons, as a map of question
+ * concept id to {@link ObsTimeSeries} per person. The histories of a person are loaded together
+ * and dropped together whenever any of the person's observations is saved, voided or deleted, both
+ * right away and again once the transaction that made the change completes, so that a history read
+ * by another thread before the change was committed is not kept.
+ * <p>
+ * The cache holds no persons until it is given a maximum size, which the obs service takes from
+ * the {@link org.openmrs.util.OpenmrsConstants#GP_OBS_TIME_SERIES_CACHE_SIZE} global property.
+ *
+ * @see org.openmrs.api.ObsService#getObsTimeSeries(org.openmrs.Person, org.openmrs.Concept)
+ * @since 2.2.0
+ */
+@Component("obsTimeSeriesCache")
+public class ObsTimeSeriesCache {
+	
+	/**
+	 * The number of dropped persons remembered, histories read before older drops are not cached
+	 */
+	private static final int MAX_EVICTED_PERSONS = 1000;
+	
+	private final Map<Integer, Map<Integer, ObsTimeSeries>> seriesByPerson = new LinkedHashMap<Integer, Map<Integer, ObsTimeSeries>>(
+	        16, 0.75f, true) {
+		
+		private static final long serialVersionUID = 1L;
+		
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<Integer, Map<Integer, ObsTimeSeries>> eldest) {
+			return size() > maxSize;
+		}
+	};
+	
+	/**
+	 * The most recent persons whose histories were dropped, with the value of the generation right
+	 * after each drop, so that histories read from the database before the drop are not put in the
+	 * cache after it
+	 */
+	private final Map<Integer, Long> evictedGenerations = new LinkedHashMap<Integer, Long>(16, 0.75f, false) {
+		
+		private static final long serialVersionUID = 1L;
+		
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<Integer, Long> eldest) {
+			if (size() > MAX_EVICTED_PERSONS) {
+				forgottenGeneration = eldest.getValue();
+				return true;
+			}
+			return false;
+		}
+	};
+	
+	private int maxSize = 0;
+	
+	/**
+	 * Incremented whenever histories are dropped
+	 */
+	private long generation = 0;
+	
+	/**
+	 * Histories read before this generation are not cached, because all histories were dropped or
+	 * the persons dropped since are no longer remembered
+	 */
+	private long forgottenGeneration = 0;
+	
+	/**
+	 * @return the maximum number of persons whose histories are kept
+	 */
+	public synchronized int getMaxSize() {
+		return maxSize;
+	}
+	
+	/**
+	 * Sets the maximum number of persons whose histories are kept, the least recently used persons
+	 * are dropped first once it is reached
+	 *
+	 * @param maxSize the maximum number of persons, 0 to not keep any
+	 */
+	public synchronized void setMaxSize(int maxSize) {
+		this.maxSize = Math.max(maxSize, 0);
+		clear();
+	}
+	
+	/**
+	 * @return the value to pass to {@link #put(Integer, Map, long)} for histories read from the
+	 *         database from now on
+	 */
+	public synchronized long getGeneration() {
+		return generation;
+	}
+	
+	/**
+	 * @param personId the person id
+	 * @return the histories of the given person by question concept id, or null if they are not
+	 *         cached
+	 */
+	public synchronized Map<Integer, ObsTimeSeries> get(Integer personId) {
+		return seriesByPerson.get(personId);
+	}
+	
+	/**
+	 * Caches the histories of a person, unless the histories of that person were dropped since they
+	 * were read
+	 *
+	 * @param personId the person id
+	 * @param series the histories of the person by question concept id
+	 * @param readGeneration the value of {@link #getGeneration()} before the histories were read
+	 * @should not cache histories read before an eviction
+	 * @should cache histories read before the eviction of another person
+	 */
+	public synchronized void put(Integer personId, Map<Integer, ObsTimeSeries> series, long readGeneration) {
+		if (maxSize == 0 || readGeneration < forgottenGeneration) {
+			return;
+		}
+		Long evictedGeneration = evictedGenerations.get(personId);
+		if (evictedGeneration == null || readGeneration >= evictedGeneration) {
+			seriesByPerson.put(personId, Collections.unmodifiableMap(series));
+		}
+	}
+	
+	/**
+	 * Drops the histories of a person now and again when the current transaction completes
+	 *
+	 * @param personId the person id
+	 * @should drop the histories again after the transaction completes
+	 */
+	public void evict(final Integer personId) {
+		if (personId == null) {
+			return;
+		}
+		remove(personId);
+		if (TransactionSynchronizationManager.isSynchronizationActive()) {
+			TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+				
+				@Override
+				public void afterCompletion(int status) {
+					remove(personId);
+				}
+			});
+		}
+	}
+	
+	/**
+	 * Drops the histories of all persons
+	 */
+	public synchronized void clear() {
+		generation++;
+		forgottenGeneration = generation;
+		evictedGenerations.clear();
+		seriesByPerson.clear();
+	}
+	
+	private synchronized void remove(Integer personId) {
+		generation++;
+		evictedGenerations.remove(personId);
+		evictedGenerations.put(personId, generation);
+		seriesByPerson.remove(personId);
+	}
+	
+	/**
+	 * Groups observation rows ordered by obs datetime into a history per question concept
+	 *
+	 * @param rows arrays of the obs id, question concept id, obs datetime, numeric value and coded
+	 *            answer concept id of each observation
+	 * @return the histories by question concept id
+	 * @should group the rows by question concept
+	 */
+	public static Map<Integer, ObsTimeSeries> toSeriesByConcept(List<Object[]> rows) {
+		Map<Integer, List<Object[]>> rowsByConcept = new HashMap<Integer, List<Object[]>>();
+		for (Object[] row : rows) {
+			rowsByConcept.computeIfAbsent((Integer) row[1], conceptId -> new ArrayList<Object[]>()).add(row);
+		}
+		
+		Map<Integer, ObsTimeSeries> seriesByConcept = new HashMap<Integer, ObsTimeSeries>(rowsByConcept.size() * 2);
+		for (Map.Entry<Integer, List<Object[]>> entry : rowsByConcept.entrySet()) {
+			List<Object[]> conceptRows = entry.getValue();
+			int[] obsIds = new int[conceptRows.size()];
+			long[] obsDatetimes = new long[obsIds.length];
+			double[] valueNumerics = new double[obsIds.length];
+			int[] valueCodedIds = new int[obsIds.length];
+			for (int i = 0; i < obsIds.length; i++) {
+				Object[] row = conceptRows.get(i);
+				obsIds[i] = (Integer) row[0];
+				obsDatetimes[i] = ((Date) row[2]).getTime();
+				valueNumerics[i] = row[3] == null ? Double.NaN : ((Number) row[3]).doubleValue();
+				valueCodedIds[i] = row[4] == null ? 0 : (Integer) row[4];
+			}
+			seriesByConcept.put(entry.getKey(), new ObsTimeSeries(obsIds, obsDatetimes, valueNumerics, valueCodedIds));
+		}
+		return seriesByConcept;
+	}
+}
@@ -0,0 +1,70 @@
+/**
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.obs;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.WritableByteChannel;
+
+import org.openmrs.Obs;
+
+/**
+ * A {@link ComplexObsHandler} that can serve the stored bytes of a complex obs, or any byte range
+ * of them, without reading them into memory first. This lets large files such as scanned
+ * documents or radiology images be sent to a client as they are read from storage, where
+ * {@link ComplexObsHandler#getObs(Obs, String)} would load the whole file or decode the image. <br>
+ * <br>
+ * Use case:
+ *
+ * <pre>
+ *   long length = Context.getObsService().getComplexDataLength(complexObs);
+ *   Context.getObsService().transferComplexData(complexObs, 0, length, Channels.newChannel(responseStream));
+ * </pre>
+ *
+ * @see org.openmrs.api.ObsService#transferComplexData(Obs, long, long, WritableByteChannel)
+ * @since 2.2.0
+ */
+public interface StreamingComplexObsHandler extends ComplexObsHandler {
+	
+	/**
+	 * Gets the number of stored bytes of a complex obs
+	 *
+	 * @param obs the complex obs
+	 * @return the number of bytes
+	 * @throws IOException if the stored data cannot be found or read
+	 */
+	public long getComplexDataLength(Obs obs) throws IOException;
+	
+	/**
+	 * Opens a stream over a range of the stored bytes of a complex obs. The caller must close the
+	 * stream.
+	 *
+	 * @param obs the complex obs
+	 * @param offset the index of the first byte to read
+	 * @param length the maximum number of bytes to read, or a negative number to read to the end
+	 * @return the stream
+	 * @throws IOException if the stored data cannot be found or read
+	 */
+	public InputStream openComplexDataStream(Obs obs, long offset, long length) throws IOException;
+	
+	/**
+	 * Writes a range of the stored bytes of a complex obs to the given channel, letting the
+	 * operating system copy them directly where it can
+	 *
+	 * @param obs the complex obs
+	 * @param offset the index of the first byte to write
+	 * @param length the maximum number of bytes to write, or a negative number to write to the end
+	 * @param target the channel to write to, which is left open
+	 * @return the number of bytes written
+	 * @throws IOException if the stored data cannot be found or read, or the channel cannot be
+	 *             written to
+	 */
+	public long transferComplexData(Obs obs, long offset, long length, WritableByteChannel target) throws IOException;
+}
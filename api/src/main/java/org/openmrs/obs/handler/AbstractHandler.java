@@ -10,7 +10,16 @@
 package org.openmrs.obs.handler;
 
 import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FilterInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.text.NumberFormat;
 import java.text.SimpleDateFormat;
 import java.util.Arrays;
@@ -18,6 +27,7 @@ import java.util.Date;
 
 import org.apache.commons.lang.StringUtils;
 import org.openmrs.Obs;
+import org.openmrs.api.APIException;
 import org.openmrs.api.context.Context;
 import org.openmrs.obs.ComplexData;
 import org.openmrs.util.OpenmrsConstants;
@@ -28,6 +38,9 @@ import org.slf4j.LoggerFactory;
 /**
  * Abstract handler for some convenience methods Files are stored in the location specified by the
  * global property: "obs.complex_obs_dir"
+ * <p>
+ * The stored files can be streamed, or read a byte range at a time, through the
+ * {@link org.openmrs.obs.StreamingComplexObsHandler} methods implemented here.
  * 
  * @since 1.5
  */
@@ -140,13 +153,90 @@ public class AbstractHandler {
 	}
 	
 	/**
+	 * @see org.openmrs.obs.StreamingComplexObsHandler#getComplexDataLength(Obs)
+	 */
+	public long getComplexDataLength(Obs obs) throws IOException {
+		File file = getComplexDataFile(obs);
+		if (!file.isFile()) {
+			throw new FileNotFoundException(file.getAbsolutePath());
+		}
+		return file.length();
+	}
+	
+	/**
+	 * @see org.openmrs.obs.StreamingComplexObsHandler#openComplexDataStream(Obs, long, long)
+	 */
+	public InputStream openComplexDataStream(Obs obs, long offset, long length) throws IOException {
+		validateOffset(obs, offset);
+		FileChannel channel = FileChannel.open(getComplexDataFile(obs).toPath(), StandardOpenOption.READ);
+		try {
+			channel.position(offset);
+		}
+		catch (IOException | RuntimeException e) {
+			channel.close();
+			throw e;
+		}
+		InputStream in = Channels.newInputStream(channel);
+		return length < 0 ? in : new RangeInputStream(in, length);
+	}
+	
+	/**
+	 * @see org.openmrs.obs.StreamingComplexObsHandler#transferComplexData(Obs, long, long,
+	 *      WritableByteChannel)
+	 */
+	public long transferComplexData(Obs obs, long offset, long length, WritableByteChannel target) throws IOException {
+		validateOffset(obs, offset);
+		try (FileChannel channel = FileChannel.open(getComplexDataFile(obs).toPath(), StandardOpenOption.READ)) {
+			long end = length < 0 ? channel.size() : Math.min(channel.size(), offset + length);
+			long position = offset;
+			while (position < end) {
+				long transferred = channel.transferTo(position, end - position, target);
+				if (transferred <= 0) {
+					break;
+				}
+				position += transferred;
+			}
+			return Math.max(position - offset, 0);
+		}
+	}
+	
+	private static void validateOffset(Obs obs, long offset) {
+		if (offset < 0) {
+			throw new APIException("Obs.error.complex.negative.offset", new Object[] { offset, obs });
+		}
+	}
+	
+	/**
+	 * Writes data to the file of a complex obs. An existing file is replaced rather than written
+	 * over. When the {@link OpenmrsConstants#GP_COMPLEX_OBS_DEDUPLICATION_ENABLED} global property
+	 * is true, data that is already stored for another obs is not stored again.
+	 * 
+	 * @param in the data, which is read to the end but not closed
+	 * @param outfile the file to write to, as returned by {@link #getOutputFileToWrite(Obs)}
+	 * @throws IOException if the data cannot be read or written
+	 * @since 2.2.0
+	 */
+	protected void writeComplexDataFile(InputStream in, File outfile) throws IOException {
+		if (Boolean.parseBoolean(Context.getAdministrationService().getGlobalProperty(
+		    OpenmrsConstants.GP_COMPLEX_OBS_DEDUPLICATION_ENABLED, "false"))) {
+			new ComplexDataContentStore(outfile.getParentFile()).write(in, outfile);
+		} else {
+			Files.copy(in, outfile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+		}
+	}
+	
+	/**
+	 * Deletes the file of a complex obs. Stored content that was shared through
+	 * {@link OpenmrsConstants#GP_COMPLEX_OBS_DEDUPLICATION_ENABLED} is deleted along with the last
+	 * file linked to it.
+	 * 
 	 * @see org.openmrs.obs.ComplexObsHandler#purgeComplexData(org.openmrs.Obs)
 	 */
 	public boolean purgeComplexData(Obs obs) {
 		File file = getComplexDataFile(obs);
 		if (!file.exists()) {
 			return true;
-		} else if (file.delete()) {
+		} else if (deleteComplexDataFile(file)) {
 			obs.setComplexData(null);
 			// obs.setValueComplex(null);
 			return true;
@@ -157,6 +247,17 @@ public class AbstractHandler {
 		return false;
 	}
 	
+	private boolean deleteComplexDataFile(File file) {
+		// the content store is checked even if deduplication was turned off since the file was written
+		try {
+			return new ComplexDataContentStore(file.getParentFile()).delete(file);
+		}
+		catch (IOException e) {
+			log.warn("Could not delete complex data file " + file.getAbsolutePath(), e);
+			return false;
+		}
+	}
+	
 	/**
 	 * Convenience method to create and return a file for the stored ComplexData.data Object
 	 * 
@@ -185,4 +286,57 @@ public class AbstractHandler {
 		return Arrays.asList(getSupportedViews()).contains(view);
 	}
 	
+	/**
+	 * Reads at most a given number of bytes from the stream it wraps
+	 */
+	private static class RangeInputStream extends FilterInputStream {
+		
+		private long remaining;
+		
+		RangeInputStream(InputStream in, long length) {
+			super(in);
+			this.remaining = length;
+		}
+		
+		@Override
+		public int read() throws IOException {
+			if (remaining <= 0) {
+				return -1;
+			}
+			int b = super.read();
+			if (b != -1) {
+				remaining--;
+			}
+			return b;
+		}
+		
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException {
+			if (remaining <= 0) {
+				return -1;
+			}
+			int read = super.read(b, off, (int) Math.min(len, remaining));
+			if (read > 0) {
+				remaining -= read;
+			}
+			return read;
+		}
+		
+		@Override
+		public long skip(long n) throws IOException {
+			long skipped = super.skip(Math.min(n, remaining));
+			remaining -= skipped;
+			return skipped;
+		}
+		
+		@Override
+		public int available() throws IOException {
+			return (int) Math.min(super.available(), remaining);
+		}
+		
+		@Override
+		public boolean markSupported() {
+			return false;
+		}
+	}
 }
@@ -9,8 +9,8 @@
  */
 package org.openmrs.obs.handler;
 
+import java.io.ByteArrayInputStream;
 import java.io.File;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 
@@ -18,6 +18,7 @@ import org.openmrs.Obs;
 import org.openmrs.api.APIException;
 import org.openmrs.obs.ComplexData;
 import org.openmrs.obs.ComplexObsHandler;
+import org.openmrs.obs.StreamingComplexObsHandler;
 import org.openmrs.util.OpenmrsUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -29,7 +30,7 @@ import org.springframework.util.Assert;
  * 
  * @since 1.5
  */
-public class BinaryDataHandler extends AbstractHandler implements ComplexObsHandler {
+public class BinaryDataHandler extends AbstractHandler implements StreamingComplexObsHandler {
 	
 	/** Views supported by this handler */
 	private static final String[] supportedViews = { ComplexObsHandler.RAW_VIEW, };
@@ -108,17 +109,15 @@ public class BinaryDataHandler extends AbstractHandler implements ComplexObsHand
 			return obs;
 		}
 		
-		FileOutputStream fout = null;
 		try {
 			File outfile = getOutputFileToWrite(obs);
-			fout = new FileOutputStream(outfile);
 			
 			Object data = obs.getComplexData().getData();
 			if (data instanceof byte[]) {
-				fout.write((byte[]) data);
+				writeComplexDataFile(new ByteArrayInputStream((byte[]) data), outfile);
 			} else if (InputStream.class.isAssignableFrom(data.getClass())) {
 				try {
-					OpenmrsUtil.copyFile((InputStream) data, fout);
+					writeComplexDataFile((InputStream) data, outfile);
 				}
 				catch (IOException e) {
 					throw new APIException("Obs.error.unable.convert.complex.data", new Object[] { "input stream" }, e);
@@ -135,14 +134,6 @@ public class BinaryDataHandler extends AbstractHandler implements ComplexObsHand
 		catch (IOException ioe) {
 			throw new APIException("Obs.error.trying.write.complex", null, ioe);
 		}
-		finally {
-			try {
-				fout.close();
-			}
-			catch (Exception e) {
-				// pass
-			}
-		}
 		
 		return obs;
 	}
@@ -0,0 +1,199 @@
+/**
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.obs.handler;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Stores each distinct complex obs file once, under a content directory inside the complex obs
+ * directory, named by the SHA-256 digest of its bytes. The file of each obs is a hard link to the
+ * stored content, so obs files keep their names and can be deleted one at a time as before, while
+ * the same document attached to many obs takes up disk space once. Where the file system does not
+ * support hard links, the content is copied to the obs file instead.
+ * <p>
+ * Content is deleted once the last obs file linked to it is deleted or replaced through
+ * {@link #delete(File)}, which relies on the link counts the file system keeps. Where those are not
+ * available, content is kept, as there is no telling whether other obs files still have its bytes.
+ *
+ * @since 2.2.0
+ */
+final class ComplexDataContentStore {
+	
+	private static final Logger log = LoggerFactory.getLogger(ComplexDataContentStore.class);
+	
+	/**
+	 * The name of the directory inside the complex obs directory that holds the stored content
+	 */
+	static final String CONTENT_DIRECTORY_NAME = ".content";
+	
+	private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+	
+	/**
+	 * Held while content is linked to or deleted, so that content is not deleted between being
+	 * found to be stored already and being linked to a new obs file
+	 */
+	private static final Object LINK_LOCK = new Object();
+	
+	private final Path contentDirectory;
+	
+	/**
+	 * @param complexObsDirectory the complex obs directory
+	 */
+	ComplexDataContentStore(File complexObsDirectory) {
+		this.contentDirectory = complexObsDirectory.toPath().resolve(CONTENT_DIRECTORY_NAME);
+	}
+	
+	/**
+	 * Writes the given data to the given obs file, storing the data only if no data with the same
+	 * digest is stored yet. An existing obs file is replaced rather than written over, since it may
+	 * be linked to content that other obs share.
+	 *
+	 * @param in the data, which is read to the end but not closed
+	 * @param outfile the obs file
+	 * @return the stored content that the obs file has the bytes of
+	 * @throws IOException if the data cannot be read or stored
+	 * @should delete content no obs file is linked to after it is replaced
+	 */
+	Path write(InputStream in, File outfile) throws IOException {
+		Files.createDirectories(contentDirectory);
+		Path upload = Files.createTempFile(contentDirectory, "upload", ".tmp");
+		try {
+			MessageDigest digest = newDigest();
+			try (OutputStream out = new DigestOutputStream(Files.newOutputStream(upload), digest)) {
+				byte[] buffer = new byte[8192];
+				int read;
+				while ((read = in.read(buffer)) != -1) {
+					out.write(buffer, 0, read);
+				}
+			}
+			
+			Path content = getContentPath(digest.digest());
+			synchronized (LINK_LOCK) {
+				Files.createDirectories(content.getParent());
+				try {
+					Files.move(upload, content);
+				}
+				catch (FileAlreadyExistsException e) {
+					log.debug("Complex obs content {} is already stored", content.getFileName());
+				}
+				
+				delete(outfile.toPath(), content);
+				link(content, outfile.toPath());
+			}
+			return content;
+		}
+		finally {
+			Files.deleteIfExists(upload);
+		}
+	}
+	
+	/**
+	 * Deletes an obs file, and the stored content it is linked to if no other obs file is linked to
+	 * that content
+	 *
+	 * @param obsFile the obs file
+	 * @return true if the obs file existed
+	 * @throws IOException if the obs file or its content cannot be deleted
+	 * @should delete the content once the last obs file linked to it is deleted
+	 */
+	boolean delete(File obsFile) throws IOException {
+		synchronized (LINK_LOCK) {
+			return delete(obsFile.toPath(), null);
+		}
+	}
+	
+	private boolean delete(Path obsFile, Path contentToKeep) throws IOException {
+		if (!Files.isRegularFile(obsFile)) {
+			return Files.deleteIfExists(obsFile);
+		}
+		// only a file with one other link, the stored content, can leave that content unused
+		Path content = null;
+		if (getLinkCount(obsFile) == 2 && Files.isDirectory(contentDirectory)) {
+			content = getContentPath(digest(obsFile));
+		}
+		boolean deleted = Files.deleteIfExists(obsFile);
+		if (content != null && !content.equals(contentToKeep) && Files.exists(content) && getLinkCount(content) == 1) {
+			log.debug("Deleting complex obs content {} as no obs file is linked to it anymore", content.getFileName());
+			Files.deleteIfExists(content);
+		}
+		return deleted;
+	}
+	
+	private void link(Path content, Path outfile) throws IOException {
+		try {
+			Files.createLink(outfile, content);
+		}
+		catch (UnsupportedOperationException | IOException e) {
+			log.debug("Unable to link {} to {}, copying it instead", outfile, content, e);
+			Files.copy(content, outfile, StandardCopyOption.REPLACE_EXISTING);
+		}
+	}
+	
+	private Path getContentPath(byte[] digest) {
+		String hash = toHex(digest);
+		return contentDirectory.resolve(hash.substring(0, 2)).resolve(hash);
+	}
+	
+	private static byte[] digest(Path file) throws IOException {
+		MessageDigest digest = newDigest();
+		try (InputStream in = Files.newInputStream(file)) {
+			byte[] buffer = new byte[8192];
+			int read;
+			while ((read = in.read(buffer)) != -1) {
+				digest.update(buffer, 0, read);
+			}
+		}
+		return digest.digest();
+	}
+	
+	/**
+	 * @return the number of hard links to the given file, or -1 if the file system does not tell
+	 */
+	private static int getLinkCount(Path file) throws IOException {
+		try {
+			return ((Number) Files.getAttribute(file, "unix:nlink")).intValue();
+		}
+		catch (UnsupportedOperationException | IllegalArgumentException e) {
+			return -1;
+		}
+	}
+	
+	private static MessageDigest newDigest() {
+		try {
+			return MessageDigest.getInstance("SHA-256");
+		}
+		catch (NoSuchAlgorithmException e) {
+			// every Java platform is required to support SHA-256
+			throw new IllegalStateException(e);
+		}
+	}
+	
+	private static String toHex(byte[] bytes) {
+		char[] chars = new char[bytes.length * 2];
+		for (int i = 0; i < bytes.length; i++) {
+			chars[i * 2] = HEX_DIGITS[(bytes[i] >> 4) & 0xf];
+			chars[i * 2 + 1] = HEX_DIGITS[bytes[i] & 0xf];
+		}
+		return new String(chars);
+	}
+}
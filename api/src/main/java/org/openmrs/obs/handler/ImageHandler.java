@@ -24,8 +24,11 @@ import javax.imageio.stream.FileImageInputStream;
 
 import org.openmrs.Obs;
 import org.openmrs.api.APIException;
+import org.openmrs.api.context.Context;
 import org.openmrs.obs.ComplexData;
 import org.openmrs.obs.ComplexObsHandler;
+import org.openmrs.obs.StreamingComplexObsHandler;
+import org.openmrs.util.OpenmrsConstants;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -34,19 +37,26 @@ import org.slf4j.LoggerFactory;
  * taken from the image name. if the .* image name suffix matches
  * {@link javax.imageio.ImageIO#getWriterFormatNames()} then that mime type will be used to save the
  * image. Images are stored in the location specified by the global property: "obs.complex_obs_dir"
+ * <p>
+ * The {@link ComplexObsHandler#PREVIEW_VIEW} gives a scaled down copy of the image, sized by the
+ * {@link OpenmrsConstants#GP_COMPLEX_OBS_PREVIEW_SIZE} global property. Previews are created once
+ * and kept in the ".previews" directory of the complex obs directory, so that lists of images can
+ * be shown without reading every original image.
  * 
  * @see org.openmrs.util.OpenmrsConstants#GLOBAL_PROPERTY_COMPLEX_OBS_DIR
  * @since 1.5
  */
-public class ImageHandler extends AbstractHandler implements ComplexObsHandler {
+public class ImageHandler extends AbstractHandler implements StreamingComplexObsHandler {
 	
 	/** Views supported by this handler */
-	private static final String[] supportedViews = { ComplexObsHandler.RAW_VIEW };
+	private static final String[] supportedViews = { ComplexObsHandler.RAW_VIEW, ComplexObsHandler.PREVIEW_VIEW };
 	
 	public static final Logger log = LoggerFactory.getLogger(ImageHandler.class);
 	
 	private Set<String> extensions;
 	
+	private ImagePreviewCache previewCache;
+	
 	/**
 	 * Constructor initializes formats for alternative file names to protect from unintentionally
 	 * overwriting existing files.
@@ -62,7 +72,7 @@ public class ImageHandler extends AbstractHandler implements ComplexObsHandler {
 	}
 	
 	/**
-	 * Currently supports all views and puts the Image file data into the ComplexData object
+	 * Supports the raw and preview views and puts the Image file data into the ComplexData object
 	 * 
 	 * @see org.openmrs.obs.ComplexObsHandler#getObs(org.openmrs.Obs, java.lang.String)
 	 */
@@ -100,6 +110,18 @@ public class ImageHandler extends AbstractHandler implements ComplexObsHandler {
 				log.error("Trying to determine MIME type of " + file.getAbsolutePath(), e);
 			}
 			
+			obs.setComplexData(complexData);
+		} else if (ComplexObsHandler.PREVIEW_VIEW.equals(view)) {
+			BufferedImage img = null;
+			try {
+				img = ImageIO.read(getPreviewFile(obs));
+			}
+			catch (IOException e) {
+				log.error("Trying to read the preview of file: " + file.getAbsolutePath(), e);
+			}
+			
+			ComplexData complexData = new ComplexData(file.getName(), img);
+			complexData.setMimeType("image/" + ImagePreviewCache.PREVIEW_FORMAT);
 			obs.setComplexData(complexData);
 		} else {
 			// No other view supported
@@ -110,6 +132,53 @@ public class ImageHandler extends AbstractHandler implements ComplexObsHandler {
 		return obs;
 	}
 	
+	/**
+	 * Gets the file of the preview image of an obs, creating it if needed. The file can be sent to
+	 * clients as it is, without decoding it.
+	 * 
+	 * @param obs the image complex obs
+	 * @return the preview file, in the png format
+	 * @throws IOException if the image cannot be read or the preview cannot be written
+	 * @since 2.2.0
+	 */
+	public File getPreviewFile(Obs obs) throws IOException {
+		File file = getComplexDataFile(obs);
+		int size = Context.getAdministrationService().getGlobalPropertyValue(
+		    OpenmrsConstants.GP_COMPLEX_OBS_PREVIEW_SIZE, 200);
+		return getPreviewCache(file).getPreview(obs.getUuid(), file, Math.max(size, 1));
+	}
+	
+	/**
+	 * Deletes the previews of the image along with the image
+	 * 
+	 * @see org.openmrs.obs.handler.AbstractHandler#purgeComplexData(org.openmrs.Obs)
+	 */
+	@Override
+	public boolean purgeComplexData(Obs obs) {
+		File file = getComplexDataFile(obs);
+		boolean purged = super.purgeComplexData(obs);
+		if (purged) {
+			getPreviewCache(file).evict(obs.getUuid());
+		}
+		return purged;
+	}
+	
+	/**
+	 * Gets the preview cache of the directory of an image, which is kept for as long as the complex
+	 * obs directory stays the same, so that it remembers the order its previews were used in
+	 */
+	private synchronized ImagePreviewCache getPreviewCache(File file) {
+		int maxEntries = Context.getAdministrationService().getGlobalPropertyValue(
+		    OpenmrsConstants.GP_COMPLEX_OBS_PREVIEW_CACHE_SIZE, 10000);
+		File previewDirectory = new File(file.getParentFile(), ImagePreviewCache.PREVIEW_DIRECTORY_NAME);
+		if (previewCache == null || !previewCache.getPreviewDirectory().equals(previewDirectory)) {
+			previewCache = new ImagePreviewCache(file.getParentFile(), maxEntries);
+		} else {
+			previewCache.setMaxEntries(maxEntries);
+		}
+		return previewCache;
+	}
+	
 	/**
 	 * @see org.openmrs.obs.ComplexObsHandler#getSupportedViews()
 	 */
@@ -0,0 +1,264 @@
+/**
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.obs.handler;
+
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Keeps scaled down copies of image complex obs files in a preview directory inside the complex
+ * obs directory, named by the obs uuid and the preview size. A preview is created the first time
+ * it is asked for, and is served from the preview directory from then on without reading the
+ * original image, until the original file changes. Once the directory holds more previews than the
+ * maximum, the least recently used ones are deleted. The order the previews were used in is kept in
+ * memory, read from the modification times of the files the first time a preview is created, so
+ * the directory doesn't have to be listed and sorted again for each new preview. Previews written
+ * to the directory by anything other than this cache are only counted after it is created again.
+ *
+ * @since 2.2.0
+ */
+final class ImagePreviewCache {
+	
+	private static final Logger log = LoggerFactory.getLogger(ImagePreviewCache.class);
+	
+	/**
+	 * The name of the directory inside the complex obs directory that holds the previews
+	 */
+	static final String PREVIEW_DIRECTORY_NAME = ".previews";
+	
+	/**
+	 * The format the previews are written in
+	 */
+	static final String PREVIEW_FORMAT = "png";
+	
+	private final File previewDirectory;
+	
+	private volatile int maxEntries;
+	
+	/**
+	 * The names of the preview files from the least to the most recently used, null until the
+	 * preview directory is first read
+	 */
+	private LinkedHashMap<String, Boolean> recentlyUsed;
+	
+	/**
+	 * @param complexObsDirectory the complex obs directory
+	 * @param maxEntries the maximum number of previews to keep
+	 */
+	ImagePreviewCache(File complexObsDirectory, int maxEntries) {
+		this.previewDirectory = new File(complexObsDirectory, PREVIEW_DIRECTORY_NAME);
+		setMaxEntries(maxEntries);
+	}
+	
+	/**
+	 * @return the directory the previews are kept in
+	 */
+	File getPreviewDirectory() {
+		return previewDirectory;
+	}
+	
+	/**
+	 * @param maxEntries the maximum number of previews to keep, applied when the next preview is
+	 *            created
+	 */
+	void setMaxEntries(int maxEntries) {
+		this.maxEntries = Math.max(maxEntries, 1);
+	}
+	
+	/**
+	 * Gets the preview of an image, creating it if there is none yet or the image has changed since
+	 * it was created
+	 *
+	 * @param uuid the uuid of the obs the image belongs to
+	 * @param image the image file
+	 * @param size the size in pixels of the longer side of the preview, smaller images are not
+	 *            scaled up
+	 * @return the preview file
+	 * @throws IOException if the image cannot be read or the preview cannot be written
+	 * @should create a preview no larger than the given size
+	 * @should not scale up smaller images
+	 * @should reuse the preview until the image changes
+	 * @should delete the least recently used previews over the maximum
+	 * @should keep the previews used since they were created
+	 * @should order the previews already in the directory by their modification time
+	 */
+	File getPreview(String uuid, File image, int size) throws IOException {
+		File preview = new File(previewDirectory, uuid + "_" + size + "." + PREVIEW_FORMAT);
+		if (preview.isFile() && preview.lastModified() >= image.lastModified()) {
+			// lets the order the previews were used in be read again once the cache is created again
+			if (!preview.setLastModified(System.currentTimeMillis())) {
+				log.debug("Unable to update the modification time of {}", preview);
+			}
+			used(preview);
+			return preview;
+		}
+		
+		BufferedImage scaled = scale(image, size);
+		Files.createDirectories(previewDirectory.toPath());
+		Path upload = Files.createTempFile(previewDirectory.toPath(), "preview", ".tmp");
+		try {
+			if (!ImageIO.write(scaled, PREVIEW_FORMAT, upload.toFile())) {
+				throw new IOException("No image writer for " + PREVIEW_FORMAT);
+			}
+			Files.move(upload, preview.toPath(), StandardCopyOption.REPLACE_EXISTING);
+		}
+		finally {
+			Files.deleteIfExists(upload);
+		}
+		
+		created(preview);
+		return preview;
+	}
+	
+	/**
+	 * Deletes all previews of the image of an obs
+	 *
+	 * @param uuid the uuid of the obs
+	 * @should delete the previews of every size
+	 */
+	void evict(String uuid) {
+		File[] previews = previewDirectory.listFiles((dir, name) -> name.startsWith(uuid + "_"));
+		if (previews == null) {
+			return;
+		}
+		for (File preview : previews) {
+			if (!preview.delete()) {
+				log.warn("Unable to delete the image preview {}", preview.getAbsolutePath());
+			}
+			synchronized (this) {
+				if (recentlyUsed != null) {
+					recentlyUsed.remove(preview.getName());
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Moves a preview to the most recently used end of the order, if the order has been read
+	 */
+	private synchronized void used(File preview) {
+		if (recentlyUsed != null) {
+			recentlyUsed.get(preview.getName());
+		}
+	}
+	
+	/**
+	 * Adds a new preview as the most recently used one, and deletes the least recently used
+	 * previews until there are no more than the maximum
+	 */
+	private synchronized void created(File preview) {
+		if (recentlyUsed == null) {
+			recentlyUsed = readOrder();
+		}
+		recentlyUsed.remove(preview.getName());
+		recentlyUsed.put(preview.getName(), Boolean.TRUE);
+		
+		Iterator<String> names = recentlyUsed.keySet().iterator();
+		while (recentlyUsed.size() > maxEntries && names.hasNext()) {
+			String name = names.next();
+			if (name.equals(preview.getName())) {
+				break;
+			}
+			File file = new File(previewDirectory, name);
+			if (!file.delete() && file.exists()) {
+				log.warn("Unable to delete the image preview {}", file.getAbsolutePath());
+			}
+			names.remove();
+		}
+	}
+	
+	/**
+	 * Reads the previews in the directory ordered by their modification times, which are read once
+	 * for each file rather than on every comparison
+	 */
+	private LinkedHashMap<String, Boolean> readOrder() {
+		LinkedHashMap<String, Boolean> order = new LinkedHashMap<String, Boolean>(16, 0.75f, true);
+		File[] previews = previewDirectory.listFiles((dir, name) -> name.endsWith("." + PREVIEW_FORMAT));
+		if (previews == null) {
+			return order;
+		}
+		String[] names = new String[previews.length];
+		long[] lastModified = new long[previews.length];
+		Integer[] indexes = new Integer[previews.length];
+		for (int i = 0; i < previews.length; i++) {
+			names[i] = previews[i].getName();
+			lastModified[i] = previews[i].lastModified();
+			indexes[i] = i;
+		}
+		Arrays.sort(indexes, Comparator.comparingLong(i -> lastModified[i]));
+		for (Integer i : indexes) {
+			order.put(names[i], Boolean.TRUE);
+		}
+		return order;
+	}
+	
+	/**
+	 * Reads an image scaled down to the given size. Large images are subsampled while they are
+	 * decoded, so that their full resolution is never held in memory.
+	 */
+	private static BufferedImage scale(File image, int size) throws IOException {
+		BufferedImage decoded;
+		try (ImageInputStream in = ImageIO.createImageInputStream(image)) {
+			Iterator<ImageReader> readers = in == null ? null : ImageIO.getImageReaders(in);
+			if (readers == null || !readers.hasNext()) {
+				throw new IOException("No image reader for " + image.getAbsolutePath());
+			}
+			ImageReader reader = readers.next();
+			try {
+				reader.setInput(in, true, true);
+				int longerSide = Math.max(reader.getWidth(0), reader.getHeight(0));
+				ImageReadParam param = reader.getDefaultReadParam();
+				// decode at no less than twice the preview size, for a smooth result when scaling down
+				int subsampling = Math.max(1, longerSide / (size * 2));
+				param.setSourceSubsampling(subsampling, subsampling, 0, 0);
+				decoded = reader.read(0, param);
+			}
+			finally {
+				reader.dispose();
+			}
+		}
+		
+		int longerSide = Math.max(decoded.getWidth(), decoded.getHeight());
+		if (longerSide <= size) {
+			return decoded;
+		}
+		int width = Math.max(1, (int) Math.round((double) decoded.getWidth() * size / longerSide));
+		int height = Math.max(1, (int) Math.round((double) decoded.getHeight() * size / longerSide));
+		int type = decoded.getColorModel().hasAlpha() ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB;
+		BufferedImage scaled = new BufferedImage(width, height, type);
+		Graphics2D graphics = scaled.createGraphics();
+		try {
+			graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+			graphics.drawImage(decoded, 0, 0, width, height, null);
+		}
+		finally {
+			graphics.dispose();
+		}
+		return scaled;
+	}
+}
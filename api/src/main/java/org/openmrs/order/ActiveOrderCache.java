@@ -0,0 +1,363 @@
+/**
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.order;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Keeps the orders of the most recently viewed patients that are active or scheduled as of the
+ * time they were read, with their care settings, order types and the dates they start and stop,
+ * so that the active orders of a patient can be found again without running the date criteria in
+ * the database. Orders that are scheduled to start or to expire later are kept too, and are only
+ * reported as active between those dates. The orders of a patient are dropped whenever any of them
+ * is saved, stopped, voided or deleted, both right away and again once the transaction that made
+ * the change completes, so that orders read by another thread before the change was committed are
+ * not kept.
+ * <p>
+ * A transaction that has changed any orders does not use the cache at all, so that it never caches
+ * orders that may be rolled back. The orders of a patient are only cached if that patient's orders
+ * were not dropped since the reading transaction first used the cache, and are kept for {@link #DEFAULT_MAX_AGE} at most, which
+ * bounds how long orders read from a database snapshot older than that can be served.
+ * <p>
+ * The cache holds no patients until it is given a maximum size, which the order service takes from
+ * the {@link org.openmrs.util.OpenmrsConstants#GP_ACTIVE_ORDER_CACHE_SIZE} global property.
+ *
+ * @see org.openmrs.api.OrderService#getActiveOrders(org.openmrs.Patient, org.openmrs.OrderType,
+ *      org.openmrs.CareSetting, java.util.Date)
+ * @since 2.2.0
+ */
+@Component("activeOrderCache")
+public class ActiveOrderCache {
+	
+	/**
+	 * The number of dropped patients remembered, orders read before older drops are not cached
+	 */
+	private static final int MAX_EVICTED_PATIENTS = 1000;
+	
+	private final Map<Integer, ActiveOrders> ordersByPatient = new LinkedHashMap<Integer, ActiveOrders>(16, 0.75f, true) {
+		
+		private static final long serialVersionUID = 1L;
+		
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<Integer, ActiveOrders> eldest) {
+			return size() > maxSize;
+		}
+	};
+	
+	/**
+	 * The default for how long orders are kept after they were read, in milliseconds
+	 */
+	public static final long DEFAULT_MAX_AGE = 60 * 1000;
+	
+	private int maxSize = 0;
+	
+	private long maxAge = DEFAULT_MAX_AGE;
+	
+	/**
+	 * The most recent patients whose orders were dropped, with the value of the generation right
+	 * after each drop, so that orders read from the database before the drop are not put in the
+	 * cache after it
+	 */
+	private final Map<Integer, Long> evictedGenerations = new LinkedHashMap<Integer, Long>(16, 0.75f, false) {
+		
+		private static final long serialVersionUID = 1L;
+		
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<Integer, Long> eldest) {
+			if (size() > MAX_EVICTED_PATIENTS) {
+				forgottenGeneration = eldest.getValue();
+				return true;
+			}
+			return false;
+		}
+	};
+	
+	/**
+	 * Incremented whenever orders are dropped
+	 */
+	private long generation = 0;
+	
+	/**
+	 * Orders read before this generation are not cached, because all orders were dropped or the
+	 * patients dropped since are no longer remembered
+	 */
+	private long forgottenGeneration = 0;
+	
+	/**
+	 * The key of the generation the current transaction first used the cache at
+	 */
+	private final Object readGenerationKey = new Object();
+	
+	/**
+	 * @return the maximum number of patients whose orders are kept
+	 */
+	public synchronized int getMaxSize() {
+		return maxSize;
+	}
+	
+	/**
+	 * Sets the maximum number of patients whose orders are kept, the least recently used patients
+	 * are dropped first once it is reached
+	 *
+	 * @param maxSize the maximum number of patients, 0 to not keep any
+	 */
+	public synchronized void setMaxSize(int maxSize) {
+		this.maxSize = Math.max(maxSize, 0);
+		clear();
+	}
+	
+	/**
+	 * Sets how long orders are kept after they were read
+	 *
+	 * @param maxAge the maximum age in milliseconds
+	 */
+	public synchronized void setMaxAge(long maxAge) {
+		this.maxAge = maxAge;
+	}
+	
+	/**
+	 * @return the value to pass to {@link #put(Integer, ActiveOrders, long)} for orders read from
+	 *         the database from now on
+	 */
+	public synchronized long getGeneration() {
+		return generation;
+	}
+	
+	/**
+	 * Gets the generation as of the first time the current transaction used the cache, so that the
+	 * orders of a patient are not cached if that patient's orders were dropped during the
+	 * transaction, even before it read them
+	 *
+	 * @return the value to pass to {@link #put(Integer, ActiveOrders, long)} for orders read by the
+	 *         current transaction
+	 * @should not cache orders read by a transaction that started before an eviction
+	 */
+	public long getReadGeneration() {
+		if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+			return getGeneration();
+		}
+		Long readGeneration = (Long) TransactionSynchronizationManager.getResource(readGenerationKey);
+		if (readGeneration == null) {
+			readGeneration = getGeneration();
+			bindToTransaction(readGenerationKey, readGeneration);
+		}
+		return readGeneration;
+	}
+	
+	/**
+	 * @return true if the current transaction has changed any orders, in which case it should
+	 *         neither read nor fill the cache
+	 * @should be true in a transaction that evicted orders
+	 */
+	public boolean isChangedInTransaction() {
+		return TransactionSynchronizationManager.hasResource(this);
+	}
+	
+	/**
+	 * @param patientId the patient id
+	 * @return the active and scheduled orders of the given patient, or null if they are not cached
+	 *         or were read longer ago than the maximum age
+	 * @should not return orders older than the maximum age
+	 */
+	public synchronized ActiveOrders get(Integer patientId) {
+		ActiveOrders orders = ordersByPatient.get(patientId);
+		if (orders != null && System.currentTimeMillis() - orders.cachedTime > maxAge) {
+			ordersByPatient.remove(patientId);
+			return null;
+		}
+		return orders;
+	}
+	
+	/**
+	 * Caches the active and scheduled orders of a patient, unless the orders of that patient were
+	 * dropped since they were read
+	 *
+	 * @param patientId the patient id
+	 * @param orders the active and scheduled orders of the patient
+	 * @param readGeneration the value of {@link #getGeneration()} before the orders were read
+	 * @should not cache orders read before an eviction
+	 * @should cache orders read before the eviction of another patient
+	 */
+	public synchronized void put(Integer patientId, ActiveOrders orders, long readGeneration) {
+		if (maxSize == 0 || readGeneration < forgottenGeneration) {
+			return;
+		}
+		Long evictedGeneration = evictedGenerations.get(patientId);
+		if (evictedGeneration == null || readGeneration >= evictedGeneration) {
+			ordersByPatient.put(patientId, orders);
+		}
+	}
+	
+	/**
+	 * Drops the orders of a patient now and again when the current transaction completes, and
+	 * stops the current transaction from using the cache
+	 *
+	 * @param patientId the patient id
+	 * @should drop the orders again after the transaction completes
+	 */
+	public void evict(final Integer patientId) {
+		if (patientId == null) {
+			return;
+		}
+		remove(patientId);
+		if (TransactionSynchronizationManager.isSynchronizationActive()) {
+			if (!isChangedInTransaction()) {
+				bindToTransaction(this, Boolean.TRUE);
+			}
+			TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+				
+				@Override
+				public void afterCompletion(int status) {
+					remove(patientId);
+				}
+			});
+		}
+	}
+	
+	private void bindToTransaction(final Object key, Object value) {
+		TransactionSynchronizationManager.bindResource(key, value);
+		TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+			
+			@Override
+			public void afterCompletion(int status) {
+				TransactionSynchronizationManager.unbindResourceIfPossible(key);
+			}
+		});
+	}
+	
+	/**
+	 * Drops the orders of all patients
+	 */
+	public synchronized void clear() {
+		generation++;
+		forgottenGeneration = generation;
+		evictedGenerations.clear();
+		ordersByPatient.clear();
+	}
+	
+	private synchronized void remove(Integer patientId) {
+		generation++;
+		evictedGenerations.remove(patientId);
+		evictedGenerations.put(patientId, generation);
+		ordersByPatient.remove(patientId);
+	}
+	
+	/**
+	 * Checks whether an order is active at a point in time, in the same way as the active orders
+	 * query of the order DAO: it must have been activated by then, and neither stopped nor, unless
+	 * it was stopped later, expired before then
+	 *
+	 * @param dateActivated the date the order was activated
+	 * @param dateStopped the date the order was stopped, if any
+	 * @param autoExpireDate the date the order expires, if any
+	 * @param asOfDate the point in time
+	 * @return true if the order is active at the given point in time
+	 */
+	public static boolean isActive(Date dateActivated, Date dateStopped, Date autoExpireDate, Date asOfDate) {
+		return dateActivated != null && !dateActivated.after(asOfDate)
+		        && getEnd(dateStopped, autoExpireDate) >= asOfDate.getTime();
+	}
+	
+	private static long getEnd(Date dateStopped, Date autoExpireDate) {
+		if (dateStopped != null) {
+			return dateStopped.getTime();
+		}
+		return autoExpireDate == null ? Long.MAX_VALUE : autoExpireDate.getTime();
+	}
+	
+	/**
+	 * The orders of a patient that were active, or were scheduled to become active, at the time
+	 * they were read from the database
+	 */
+	public static final class ActiveOrders {
+		
+		private final long readTime;
+		
+		private final long cachedTime = System.currentTimeMillis();
+		
+		private final int[] orderIds;
+		
+		private final int[] careSettingIds;
+		
+		private final int[] orderTypeIds;
+		
+		private final long[] starts;
+		
+		private final long[] ends;
+		
+		/**
+		 * @param rows arrays of the order id, care setting id, order type id, date activated, date
+		 *            stopped and auto expire date of each order that had not stopped or expired at
+		 *            the read time
+		 * @param readTime the time the orders were read as of
+		 */
+		public ActiveOrders(List<Object[]> rows, Date readTime) {
+			this.readTime = readTime.getTime();
+			orderIds = new int[rows.size()];
+			careSettingIds = new int[orderIds.length];
+			orderTypeIds = new int[orderIds.length];
+			starts = new long[orderIds.length];
+			ends = new long[orderIds.length];
+			for (int i = 0; i < orderIds.length; i++) {
+				Object[] row = rows.get(i);
+				orderIds[i] = (Integer) row[0];
+				careSettingIds[i] = (Integer) row[1];
+				orderTypeIds[i] = (Integer) row[2];
+				starts[i] = ((Date) row[3]).getTime();
+				ends[i] = getEnd((Date) row[4], (Date) row[5]);
+			}
+		}
+		
+		/**
+		 * @return the number of orders
+		 */
+		public int size() {
+			return orderIds.length;
+		}
+		
+		/**
+		 * Gets the ids of the orders that are active at a point in time, which can only be found
+		 * from these orders at or after the time they were read
+		 *
+		 * @param careSettingId the care setting id to match on, null for all care settings
+		 * @param orderTypeIds the order type ids to match on, null or empty for all order types
+		 * @param asOfDate the point in time
+		 * @return the order ids, or null if the point in time is before the orders were read
+		 * @should return the orders active at the given time
+		 * @should leave out orders scheduled to start later or expired earlier
+		 * @should filter on care setting and order types
+		 * @should return null for a time before the orders were read
+		 */
+		public List<Integer> getActiveOrderIds(Integer careSettingId, Collection<Integer> orderTypeIds, Date asOfDate) {
+			long asOf = asOfDate.getTime();
+			if (asOf < readTime) {
+				return null;
+			}
+			List<Integer> activeOrderIds = new ArrayList<Integer>();
+			for (int i = 0; i < orderIds.length; i++) {
+				if (starts[i] <= asOf && ends[i] >= asOf
+				        && (careSettingId == null || careSettingId == careSettingIds[i])
+				        && (orderTypeIds == null || orderTypeIds.isEmpty() || orderTypeIds.contains(this.orderTypeIds[i]))) {
+					activeOrderIds.add(orderIds[i]);
+				}
+			}
+			return activeOrderIds;
+		}
+	}
+}
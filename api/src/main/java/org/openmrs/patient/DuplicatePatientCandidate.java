@@ -0,0 +1,65 @@
+/**
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.patient;
+
+import org.openmrs.Patient;
+
+/**
+ * A pair of patients that may be the same person, with a score from 0 to 1 of how closely their
+ * names, birthdates and genders match
+ *
+ * @see org.openmrs.api.PatientService#getDuplicatePatientCandidates(Double, Integer, Integer)
+ * @since 2.2.0
+ */
+public class DuplicatePatientCandidate {
+	
+	private final Patient patient;
+	
+	private final Patient duplicate;
+	
+	private final double score;
+	
+	/**
+	 * @param patient the patient with the lower patient id
+	 * @param duplicate the patient that may be a duplicate of the first
+	 * @param score how closely the patients match, from 0 to 1
+	 */
+	public DuplicatePatientCandidate(Patient patient, Patient duplicate, double score) {
+		this.patient = patient;
+		this.duplicate = duplicate;
+		this.score = score;
+	}
+	
+	/**
+	 * @return the patient with the lower patient id
+	 */
+	public Patient getPatient() {
+		return patient;
+	}
+	
+	/**
+	 * @return the patient that may be a duplicate of {@link #getPatient()}
+	 */
+	public Patient getDuplicate() {
+		return duplicate;
+	}
+	
+	/**
+	 * @return how closely the patients match, from 0 to 1
+	 */
+	public double getScore() {
+		return score;
+	}
+	
+	@Override
+	public String toString() {
+		return "DuplicatePatientCandidate[" + patient + ", " + duplicate + ", score=" + score + "]";
+	}
+}
@@ -0,0 +1,94 @@
+/**
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.patient;
+
+import java.util.Date;
+import java.util.List;
+
+/**
+ * A page of the pairs of patients found by a search for duplicate patients, with how many pairs
+ * the search found in all and how much of the search was skipped. Blocks of patients that share a
+ * very common name are not compared within, so a search that skipped blocks may have missed pairs.
+ *
+ * @see org.openmrs.api.PatientService#getDuplicatePatientCandidates(Double, Integer, Integer)
+ * @since 2.2.0
+ */
+public class DuplicatePatientCandidatePage {
+	
+	private final List<DuplicatePatientCandidate> candidates;
+	
+	private final int totalCount;
+	
+	private final int skippedBlockCount;
+	
+	private final int skippedPatientCount;
+	
+	private final Date detectionDate;
+	
+	/**
+	 * @param candidates the pairs on this page
+	 * @param totalCount the number of pairs the search found
+	 * @param skippedBlockCount the number of blocks of patients the search did not compare within
+	 * @param skippedPatientCount the number of patients in those blocks
+	 * @param detectionDate the date the search started, null if it has not been run yet
+	 */
+	public DuplicatePatientCandidatePage(List<DuplicatePatientCandidate> candidates, int totalCount,
+	    int skippedBlockCount, int skippedPatientCount, Date detectionDate) {
+		this.candidates = candidates;
+		this.totalCount = totalCount;
+		this.skippedBlockCount = skippedBlockCount;
+		this.skippedPatientCount = skippedPatientCount;
+		this.detectionDate = detectionDate;
+	}
+	
+	/**
+	 * @return the pairs on this page, from the best match down
+	 */
+	public List<DuplicatePatientCandidate> getCandidates() {
+		return candidates;
+	}
+	
+	/**
+	 * @return the number of pairs the search found, leaving out pairs with a patient that was
+	 *         voided since the search was run
+	 */
+	public int getTotalCount() {
+		return totalCount;
+	}
+	
+	/**
+	 * @return the number of blocks of patients the search did not compare within for being too large
+	 */
+	public int getSkippedBlockCount() {
+		return skippedBlockCount;
+	}
+	
+	/**
+	 * @return the number of patients in the skipped blocks, who may still have been compared in
+	 *         their other blocks
+	 */
+	public int getSkippedPatientCount() {
+		return skippedPatientCount;
+	}
+	
+	/**
+	 * @return the date the search started reading the patients, or null if it has not been run yet
+	 */
+	public Date getDetectionDate() {
+		return detectionDate;
+	}
+	
+	/**
+	 * @return true if no blocks were skipped, so that every likely pair was compared
+	 */
+	public boolean isComplete() {
+		return skippedBlockCount == 0;
+	}
+}
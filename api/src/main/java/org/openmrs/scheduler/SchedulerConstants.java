@@ -33,4 +33,23 @@ public class SchedulerConstants {
 	/** Scheduler admin email property - Used to email administrator if a task fails */
 	public static String SCHEDULER_ADMIN_EMAIL_PROPERTY = "scheduler.admin_email";
 	
+	/**
+	 * Scheduler thread pool size property - The number of threads shared by all scheduled tasks
+	 * 
+	 * @since 2.2.0
+	 */
+	public final static String SCHEDULER_THREAD_POOL_SIZE_PROPERTY = "scheduler.thread_pool_size";
+	
+	/** The default number of threads shared by all scheduled tasks */
+	public final static int SCHEDULER_DEFAULT_THREAD_POOL_SIZE = 10;
+	
+	/**
+	 * Scheduler start jitter property - The maximum number of seconds a repeating task without a
+	 * start time is randomly delayed when it is scheduled, so that tasks scheduled together do not
+	 * all run at the same moment
+	 * 
+	 * @since 2.2.0
+	 */
+	public final static String SCHEDULER_START_JITTER_PROPERTY = "scheduler.start_jitter_seconds";
+	
 }
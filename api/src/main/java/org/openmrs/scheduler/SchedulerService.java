@@ -157,4 +157,17 @@ public interface SchedulerService extends OpenmrsService {
 	 */
 	public void scheduleIfNotRunning(TaskDefinition taskDef);
 	
+	/**
+	 * Gets how often and how long the scheduled instance of a task ran, and how late each run
+	 * started compared to when it was due
+	 * 
+	 * @param id the identifier of the task
+	 * @return the statistics of the task, or null if the task is not scheduled
+	 * @since 2.2.0
+	 * @should return null for a task that is not scheduled
+	 * @should return the statistics of a scheduled task
+	 */
+	@Authorized( { "Manage Scheduler" })
+	public TaskStatistics getTaskStatistics(Integer id);
+	
 }
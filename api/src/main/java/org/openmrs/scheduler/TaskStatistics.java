@@ -0,0 +1,121 @@
+/**
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.scheduler;
+
+import java.io.Serializable;
+import java.util.Date;
+
+/**
+ * How often and how long a scheduled task ran since it was scheduled. The lag of an execution is
+ * the time between when it was due and when it actually started, a growing lag means the task does
+ * not finish within its repeat interval or the scheduler has no free thread to run it on.
+ *
+ * @see SchedulerService#getTaskStatistics(Integer)
+ * @since 2.2.0
+ */
+public class TaskStatistics implements Serializable {
+	
+	private static final long serialVersionUID = 1L;
+	
+	private final long executionCount;
+	
+	private final long failureCount;
+	
+	private final long skippedCount;
+	
+	private final Date lastExecutionStart;
+	
+	private final long lastRuntime;
+	
+	private final long totalRuntime;
+	
+	private final long maxRuntime;
+	
+	private final long lastLag;
+	
+	private final long maxLag;
+	
+	public TaskStatistics(long executionCount, long failureCount, long skippedCount, Date lastExecutionStart,
+	    long lastRuntime, long totalRuntime, long maxRuntime, long lastLag, long maxLag) {
+		this.executionCount = executionCount;
+		this.failureCount = failureCount;
+		this.skippedCount = skippedCount;
+		this.lastExecutionStart = lastExecutionStart;
+		this.lastRuntime = lastRuntime;
+		this.totalRuntime = totalRuntime;
+		this.maxRuntime = maxRuntime;
+		this.lastLag = lastLag;
+		this.maxLag = maxLag;
+	}
+	
+	/**
+	 * @return the number of times the task ran, including the failed executions
+	 */
+	public long getExecutionCount() {
+		return executionCount;
+	}
+	
+	/**
+	 * @return the number of times the task failed with an exception
+	 */
+	public long getFailureCount() {
+		return failureCount;
+	}
+	
+	/**
+	 * @return the number of times the task was due but skipped because an earlier scheduling of the
+	 *         same task definition was still running
+	 */
+	public long getSkippedCount() {
+		return skippedCount;
+	}
+	
+	/**
+	 * @return when the task last started, or null if it has not run yet
+	 */
+	public Date getLastExecutionStart() {
+		return lastExecutionStart == null ? null : new Date(lastExecutionStart.getTime());
+	}
+	
+	/**
+	 * @return the runtime of the last execution in milliseconds
+	 */
+	public long getLastRuntime() {
+		return lastRuntime;
+	}
+	
+	/**
+	 * @return the average runtime of the executions in milliseconds
+	 */
+	public long getAverageRuntime() {
+		return executionCount == 0 ? 0 : totalRuntime / executionCount;
+	}
+	
+	/**
+	 * @return the longest runtime of an execution in milliseconds
+	 */
+	public long getMaxRuntime() {
+		return maxRuntime;
+	}
+	
+	/**
+	 * @return the lag of the last execution in milliseconds
+	 */
+	public long getLastLag() {
+		return lastLag;
+	}
+	
+	/**
+	 * @return the largest lag of an execution in milliseconds
+	 */
+	public long getMaxLag() {
+		return maxLag;
+	}
+}
@@ -0,0 +1,68 @@
+/**
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.scheduler.tasks;
+
+import org.apache.commons.lang.StringUtils;
+import org.openmrs.api.context.Context;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A scheduled task that searches for duplicate patients, so that the pairs it finds can be paged
+ * through without running the search while a user waits. The lowest score of the pairs to keep
+ * can be set with the {@link #MINIMUM_SCORE_PROPERTY} task property.
+ *
+ * @see org.openmrs.api.PatientService#detectDuplicatePatients(Double)
+ * @since 2.2.0
+ */
+public class DuplicatePatientDetectionTask extends AbstractTask {
+	
+	private static final Logger log = LoggerFactory.getLogger(DuplicatePatientDetectionTask.class);
+	
+	/**
+	 * The task property with the lowest score, from 0 to 1, of the pairs to keep
+	 */
+	public static final String MINIMUM_SCORE_PROPERTY = "minimumScore";
+	
+	/**
+	 * @see org.openmrs.scheduler.tasks.AbstractTask#execute()
+	 */
+	@Override
+	public void execute() {
+		if (!isExecuting) {
+			log.debug("Starting Duplicate Patient Detection Task...");
+			
+			startExecuting();
+			try {
+				Context.getPatientService().detectDuplicatePatients(getMinimumScore());
+			}
+			catch (Exception e) {
+				log.error("Error while searching for duplicate patients:", e);
+			}
+			finally {
+				stopExecuting();
+			}
+		}
+	}
+	
+	private Double getMinimumScore() {
+		String minimumScore = taskDefinition == null ? null : taskDefinition.getProperty(MINIMUM_SCORE_PROPERTY);
+		if (StringUtils.isBlank(minimumScore)) {
+			return null;
+		}
+		try {
+			return Double.valueOf(minimumScore.trim());
+		}
+		catch (NumberFormatException e) {
+			log.warn("Ignoring the invalid minimum score {} of the duplicate patient detection task", minimumScore);
+			return null;
+		}
+	}
+}
@@ -12,17 +12,23 @@ package org.openmrs.scheduler.timer;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Date;
-import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.SortedMap;
-import java.util.Timer;
 import java.util.TreeMap;
-import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
+import org.apache.commons.lang3.StringUtils;
 import org.openmrs.api.APIException;
+import org.openmrs.api.context.Context;
 import org.openmrs.api.impl.BaseOpenmrsService;
 import org.openmrs.scheduler.SchedulerConstants;
 import org.openmrs.scheduler.SchedulerException;
@@ -31,6 +37,7 @@ import org.openmrs.scheduler.SchedulerUtil;
 import org.openmrs.scheduler.Task;
 import org.openmrs.scheduler.TaskDefinition;
 import org.openmrs.scheduler.TaskFactory;
+import org.openmrs.scheduler.TaskStatistics;
 import org.openmrs.scheduler.db.SchedulerDAO;
 import org.openmrs.util.OpenmrsMemento;
 import org.slf4j.Logger;
@@ -39,7 +46,10 @@ import org.springframework.orm.ObjectRetrievalFailureException;
 import org.springframework.transaction.annotation.Transactional;
 
 /**
- * Simple scheduler service that uses JDK timer to trigger and execute scheduled tasks.
+ * Simple scheduler service that uses a JDK scheduled thread pool to trigger and execute scheduled
+ * tasks. All tasks share the pool, whose size is set by the
+ * {@link SchedulerConstants#SCHEDULER_THREAD_POOL_SIZE_PROPERTY} global property, and each task
+ * definition runs at most once at a time.
  */
 @Transactional
 public class TimerSchedulerServiceImpl extends BaseOpenmrsService implements SchedulerService {
@@ -57,17 +67,22 @@ public class TimerSchedulerServiceImpl extends BaseOpenmrsService implements Sch
 	/**
 	 * Scheduled Task Map
 	 */
-	private static Map<Integer, TimerSchedulerTask> scheduledTasks = new WeakHashMap<Integer, TimerSchedulerTask>();
+	private static Map<Integer, TimerSchedulerTask> scheduledTasks = new ConcurrentHashMap<Integer, TimerSchedulerTask>();
 	
 	/**
-	 * A single timer used to keep track of all scheduled tasks. The Timer's associated thread
-	 * should run as a daemon. A deamon thread is called for if the timer will be used to schedule
-	 * repeating "maintenance activities", which must be performed as long as the application is
-	 * running, but should not prolong the lifetime of the application.
-	 *
-	 * @see java.util.Timer#Timer(boolean)
+	 * The permit each task definition holds while it runs, kept across reschedules so that a new
+	 * instance of a task does not start while the execution of the instance it replaced is still
+	 * finishing. A permit is dropped when its task is shut down while not running, or deleted.
+	 */
+	private Map<Integer, Semaphore> executionPermits = new ConcurrentHashMap<Integer, Semaphore>();
+	
+	/**
+	 * The thread pool shared by all scheduled tasks, created when the first task is scheduled. Its
+	 * threads run as daemons since they perform repeating "maintenance activities", which must be
+	 * performed as long as the application is running, but should not prolong the lifetime of the
+	 * application.
 	 */
-	private Map<TaskDefinition, Timer> taskDefinitionTimerMap = new HashMap<TaskDefinition, Timer>();
+	private ScheduledThreadPoolExecutor executor;
 	
 	/**
 	 * Global data access object context
@@ -120,7 +135,7 @@ public class TimerSchedulerServiceImpl extends BaseOpenmrsService implements Sch
 		if (scheduledTasks != null) {
 			TimerSchedulerServiceImpl.scheduledTasks = scheduledTasks;
 		} else {
-			TimerSchedulerServiceImpl.scheduledTasks = new WeakHashMap<Integer, TimerSchedulerTask>();
+			TimerSchedulerServiceImpl.scheduledTasks = new ConcurrentHashMap<Integer, TimerSchedulerTask>();
 		}
 	}
 	
@@ -133,7 +148,7 @@ public class TimerSchedulerServiceImpl extends BaseOpenmrsService implements Sch
 		// gracefully shutdown all tasks and remove all references to the timers, scheduler
 		try {
 			shutdownAllTasks();
-			cancelAllTimers(); // Just a precaution - this shouldn't be necessary if shutdownAllTasks() does its job
+			shutdownExecutor(); // Just a precaution - this shouldn't be necessary if shutdownAllTasks() does its job
 		}
 		catch (APIException e) {
 			log.error("Failed to stop all tasks due to API exception", e);
@@ -145,11 +160,12 @@ public class TimerSchedulerServiceImpl extends BaseOpenmrsService implements Sch
 	}
 	
 	/**
-	 * Convenience method to stop all tasks in the {@link #taskDefinitionTimerMap}
+	 * Convenience method to stop the thread pool and any task still scheduled on it
 	 */
-	private void cancelAllTimers() {
-		for (Timer timer : taskDefinitionTimerMap.values()) {
-			timer.cancel();
+	private synchronized void shutdownExecutor() {
+		if (executor != null) {
+			executor.shutdownNow();
+			executor = null;
 		}
 	}
 	
@@ -175,22 +191,56 @@ public class TimerSchedulerServiceImpl extends BaseOpenmrsService implements Sch
 	}
 	
 	/**
-	 * Get the {@link Timer} that is assigned to the given {@link TaskDefinition} object. If a Timer
-	 * doesn't exist yet, one is created, added to {@link #taskDefinitionTimerMap} and then returned
+	 * Gets the thread pool shared by all scheduled tasks, creating it if it doesn't exist yet
 	 *
-	 * @param taskDefinition the {@link TaskDefinition} to look for
-	 * @return the {@link Timer} associated with the given {@link TaskDefinition}
+	 * @return the scheduler's thread pool
 	 */
-	private Timer getTimer(TaskDefinition taskDefinition) {
-		Timer timer;
-		if (taskDefinitionTimerMap.containsKey(taskDefinition)) {
-			timer = taskDefinitionTimerMap.get(taskDefinition);
-		} else {
-			timer = new Timer(true);
-			taskDefinitionTimerMap.put(taskDefinition, timer);
+	private synchronized ScheduledThreadPoolExecutor getExecutor() {
+		if (executor == null) {
+			int poolSize = getIntegerGlobalProperty(SchedulerConstants.SCHEDULER_THREAD_POOL_SIZE_PROPERTY,
+			    SchedulerConstants.SCHEDULER_DEFAULT_THREAD_POOL_SIZE);
+			AtomicInteger threadCount = new AtomicInteger();
+			executor = new ScheduledThreadPoolExecutor(Math.max(poolSize, 1), runnable -> {
+				Thread thread = new Thread(runnable, "OpenMRS Scheduler " + threadCount.incrementAndGet());
+				thread.setDaemon(true);
+				return thread;
+			});
+			executor.setRemoveOnCancelPolicy(true);
+			log.info("Started scheduler thread pool with " + executor.getCorePoolSize() + " threads");
 		}
-		
-		return timer;
+		return executor;
+	}
+	
+	private int getIntegerGlobalProperty(String propertyName, int defaultValue) {
+		String value = Context.getAdministrationService().getGlobalProperty(propertyName);
+		if (StringUtils.isNotBlank(value)) {
+			try {
+				return Integer.parseInt(value.trim());
+			}
+			catch (NumberFormatException e) {
+				log.warn("Invalid value '" + value + "' for global property " + propertyName + ", using " + defaultValue);
+			}
+		}
+		return defaultValue;
+	}
+	
+	/**
+	 * Works out how long to wait before a task without a start time first runs. Repeating tasks
+	 * are delayed by up to {@link SchedulerConstants#SCHEDULER_START_JITTER_PROPERTY} seconds on top
+	 * of the default delay, so tasks that are scheduled together (e.g. on startup) spread out over
+	 * the pool instead of all running at the same moment.
+	 */
+	private long getInitialDelay(long repeatInterval) {
+		if (repeatInterval <= 0) {
+			return 0;
+		}
+		long delay = SchedulerConstants.SCHEDULER_DEFAULT_DELAY;
+		long maxJitter = Math.min(getIntegerGlobalProperty(SchedulerConstants.SCHEDULER_START_JITTER_PROPERTY, 0)
+		        * SchedulerConstants.SCHEDULER_MILLIS_PER_SECOND, repeatInterval);
+		if (maxJitter > 0) {
+			delay += ThreadLocalRandom.current().nextLong(maxJitter);
+		}
+		return delay;
 	}
 	
 	/**
@@ -207,7 +257,7 @@ public class TimerSchedulerServiceImpl extends BaseOpenmrsService implements Sch
 			// Cancel any existing timer tasks for the same task definition
 			// TODO Make sure this is the desired behavior 
 			// TODO Do we ever want the same task definition to run more than once?
-			TimerSchedulerTask schedulerTask = scheduledTasks.get(taskDefinition.getId());
+			TimerSchedulerTask schedulerTask = getScheduledTask(taskDefinition.getId());
 			if (schedulerTask != null) {
 				//schedulerTask.cancel();					
 				log.info("Shutting down the existing instance of this task to avoid conflicts!!");
@@ -225,8 +275,7 @@ public class TimerSchedulerServiceImpl extends BaseOpenmrsService implements Sch
 					schedulerTask = new TimerSchedulerTask(clientTask);
 					taskDefinition.setTaskInstance(clientTask);
 					
-					// Once this method is called, the timer is set to start at the given start time.
-					// NOTE:  We need to adjust the repeat interval as the JDK Timer expects time in milliseconds and 
+					// NOTE:  We need to adjust the repeat interval as the executor is given time in milliseconds and 
 					// we record by seconds.  
 					
 					long repeatInterval = 0;
@@ -234,42 +283,48 @@ public class TimerSchedulerServiceImpl extends BaseOpenmrsService implements Sch
 						repeatInterval = taskDefinition.getRepeatInterval() * SchedulerConstants.SCHEDULER_MILLIS_PER_SECOND;
 					}
 					
+					long initialDelay;
 					if (taskDefinition.getStartTime() != null) {
 						// Need to calculate the "next execution time" because the scheduled time is most likely in the past
-						// and the JDK timer will run the task X number of times from the start time until now to catch up.
+						// and a fixed rate schedule would run the task X number of times from the start time until now to catch up.
 						Date nextTime = SchedulerUtil.getNextExecution(taskDefinition);
-						
-						// Start task at fixed rate at given future date and repeat as directed 							
 						log.info("Starting task ... the task will execute for the first time at " + nextTime);
-						
+						initialDelay = Math.max(nextTime.getTime() - System.currentTimeMillis(), 0);
+					} else {
+						initialDelay = getInitialDelay(repeatInterval);
 						if (repeatInterval > 0) {
-							// Schedule the task to run at a fixed rate
-							getTimer(taskDefinition).scheduleAtFixedRate(schedulerTask, nextTime, repeatInterval);
+							log.info("Delaying start time by " + initialDelay + " milliseconds");
 						} else {
-							// Schedule the task to be non-repeating
-							getTimer(taskDefinition).schedule(schedulerTask, nextTime);
+							log.info("Starting one-shot task");
 						}
-						
-					} else if (repeatInterval > 0) {
-						// Start task on repeating schedule, delay for SCHEDULER_DEFAULT_DELAY seconds	
-						log.info("Delaying start time by " + SchedulerConstants.SCHEDULER_DEFAULT_DELAY + " seconds");
-						getTimer(taskDefinition).scheduleAtFixedRate(schedulerTask,
-						    SchedulerConstants.SCHEDULER_DEFAULT_DELAY, repeatInterval);
+					}
+					
+					// Update the timer status in the database, this also assigns an id to a new task definition
+					taskDefinition.setStarted(true);
+					saveTaskDefinition(taskDefinition);
+					
+					if (taskDefinition.getId() != null) {
+						schedulerTask.setExecutionPermit(executionPermits.computeIfAbsent(taskDefinition.getId(),
+						    id -> new Semaphore(1)));
+					}
+					schedulerTask.setSchedule(System.currentTimeMillis() + initialDelay, repeatInterval);
+					
+					ScheduledFuture<?> future;
+					if (repeatInterval > 0) {
+						// Schedule the task to run at a fixed rate
+						future = getExecutor().scheduleAtFixedRate(schedulerTask, initialDelay, repeatInterval,
+						    TimeUnit.MILLISECONDS);
 					} else {
-						// schedule for single execution, starting now
-						log.info("Starting one-shot task");
-						getTimer(taskDefinition).schedule(schedulerTask, new Date());
+						// Schedule the task to be non-repeating
+						future = getExecutor().schedule(schedulerTask, initialDelay, TimeUnit.MILLISECONDS);
 					}
+					schedulerTask.setScheduledFuture(future);
 					
 					// Update task that has been started
 					log.debug("Registering timer for task " + taskDefinition.getId());
 					
 					//  Add the new timer to the scheduler running task list  
 					scheduledTasks.put(taskDefinition.getId(), schedulerTask);
-					
-					// Update the timer status in the database
-					taskDefinition.setStarted(true);
-					saveTaskDefinition(taskDefinition);
 				}
 			}
 			catch (Exception e) {
@@ -291,10 +346,12 @@ public class TimerSchedulerServiceImpl extends BaseOpenmrsService implements Sch
 		if (taskDefinition != null) {
 			
 			// Remove the task from the scheduled tasks and shutdown the timer
-			TimerSchedulerTask schedulerTask = scheduledTasks.remove(taskDefinition.getId());
+			TimerSchedulerTask schedulerTask = taskDefinition.getId() == null ? null : scheduledTasks.remove(taskDefinition
+			        .getId());
 			if (schedulerTask != null) {
 				schedulerTask.shutdown(); // Stops the timer and tells the timer task to release its resources 
 			}
+			releaseExecutionPermit(taskDefinition.getId());
 			
 			// Update task that has been started
 			taskDefinition.setStarted(false);
@@ -433,6 +490,24 @@ public class TimerSchedulerServiceImpl extends BaseOpenmrsService implements Sch
 		
 		// delete the task
 		getSchedulerDAO().deleteTask(id);
+		executionPermits.remove(id);
+	}
+	
+	/**
+	 * Drops the execution permit of a task that was shut down, unless an execution is still running,
+	 * in which case the permit is kept for the next scheduling of the task to wait for. A dropped
+	 * permit stays taken, so that the instance that was shut down cannot run with it again.
+	 *
+	 * @param taskId the id of the task definition
+	 */
+	private void releaseExecutionPermit(Integer taskId) {
+		if (taskId == null) {
+			return;
+		}
+		Semaphore permit = executionPermits.get(taskId);
+		if (permit != null && permit.tryAcquire()) {
+			executionPermits.remove(taskId, permit);
+		}
 	}
 	
 	/**
@@ -513,11 +588,12 @@ public class TimerSchedulerServiceImpl extends BaseOpenmrsService implements Sch
 	public String getStatus(Integer id) {
 		
 		// Get the scheduled timer task
-		TimerSchedulerTask scheduledTask = scheduledTasks.get(id);
+		TimerSchedulerTask scheduledTask = getScheduledTask(id);
 		
 		if (scheduledTask != null) {
-			if (scheduledTask.scheduledExecutionTime() > 0) {
-				return "Scheduled to execute at " + new Date(scheduledTask.scheduledExecutionTime());
+			Date nextExecutionTime = scheduledTask.getNextExecutionTime();
+			if (!scheduledTask.isExecuting() && nextExecutionTime != null) {
+				return "Scheduled to execute at " + nextExecutionTime;
 			} else {
 				return "Currently executing";
 			}
@@ -525,6 +601,19 @@ public class TimerSchedulerServiceImpl extends BaseOpenmrsService implements Sch
 		return "Not Running";
 	}
 	
+	/**
+	 * @see org.openmrs.scheduler.SchedulerService#getTaskStatistics(java.lang.Integer)
+	 */
+	@Override
+	public TaskStatistics getTaskStatistics(Integer id) {
+		TimerSchedulerTask scheduledTask = getScheduledTask(id);
+		return scheduledTask == null ? null : scheduledTask.getStatistics();
+	}
+	
+	private TimerSchedulerTask getScheduledTask(Integer id) {
+		return id == null ? null : scheduledTasks.get(id);
+	}
+	
 	@Override
 	public void scheduleIfNotRunning(TaskDefinition taskDef) {
 		Task task = taskDef.getTaskInstance();
@@ -11,6 +11,8 @@ package org.openmrs.scheduler.timer;
 
 import java.util.Date;
 import java.util.TimerTask;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ScheduledFuture;
 
 import org.openmrs.api.context.Context;
 import org.openmrs.api.context.Daemon;
@@ -18,17 +20,55 @@ import org.openmrs.scheduler.SchedulerService;
 import org.openmrs.scheduler.SchedulerUtil;
 import org.openmrs.scheduler.Task;
 import org.openmrs.scheduler.TaskDefinition;
+import org.openmrs.scheduler.TaskStatistics;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 public class TimerSchedulerTask extends TimerTask {
 	
-	/** The task that will be executed by the JDK timer. */
+	/** The task that will be executed by the scheduler. */
 	private Task task;
 	
 	/** Logger */
 	private static Logger log = LoggerFactory.getLogger(TimerSchedulerTask.class);
 	
+	/**
+	 * Held while the task runs, shared by every scheduling of the same task definition. The
+	 * executor never overlaps the runs of one scheduling, but a task that is rescheduled while it
+	 * runs, e.g. when modules are restarted, would otherwise start again before the run of the
+	 * instance it replaced has finished.
+	 */
+	private Semaphore executionPermit = new Semaphore(1);
+	
+	/** The handle of this task in the scheduler's executor */
+	private volatile ScheduledFuture<?> scheduledFuture;
+	
+	/** The repeat interval in milliseconds, 0 for a one-shot task */
+	private long period;
+	
+	/** When the next execution is due */
+	private volatile long expectedExecutionTime;
+	
+	private volatile boolean executing = false;
+	
+	private long executionCount;
+	
+	private long failureCount;
+	
+	private long skippedCount;
+	
+	private Date lastExecutionStart;
+	
+	private long lastRuntime;
+	
+	private long totalRuntime;
+	
+	private long maxRuntime;
+	
+	private long lastLag;
+	
+	private long maxLag;
+	
 	/** * Public constructor */
 	public TimerSchedulerTask(Task task) {
 		this.task = task;
@@ -41,16 +81,99 @@ public class TimerSchedulerTask extends TimerTask {
 	 */
 	@Override
 	public void run() {
+		long start = System.currentTimeMillis();
+		long lag = Math.max(start - expectedExecutionTime, 0);
+		if (period > 0) {
+			expectedExecutionTime += period;
+		}
+		
+		if (!executionPermit.tryAcquire()) {
+			log.warn("Skipping task [" + task.getClass()
+			        + "] because an earlier scheduling of the same task definition is still running");
+			synchronized (this) {
+				skippedCount++;
+			}
+			return;
+		}
+		
+		boolean failed = false;
+		executing = true;
 		try {
 			Daemon.executeScheduledTask(task);
 		}
 		catch (Exception t) {
 			// Fix #862: IllegalStateException: Timer already cancelled.
-			// Suppress error in order to keep the scheduler's Timer from completely failing.
+			// Suppress error in order to keep the scheduler from completely failing.
+			failed = true;
 			log.error(
 			    "FATAL ERROR: Task [" + task.getClass() + "] failed due to exception [" + t.getClass().getName() + "]", t);
 			SchedulerUtil.sendSchedulerError(t);
 		}
+		finally {
+			executing = false;
+			executionPermit.release();
+			recordExecution(start, lag, failed);
+		}
+	}
+	
+	private synchronized void recordExecution(long start, long lag, boolean failed) {
+		long runtime = System.currentTimeMillis() - start;
+		executionCount++;
+		if (failed) {
+			failureCount++;
+		}
+		lastExecutionStart = new Date(start);
+		lastRuntime = runtime;
+		totalRuntime += runtime;
+		maxRuntime = Math.max(maxRuntime, runtime);
+		lastLag = lag;
+		maxLag = Math.max(maxLag, lag);
+	}
+	
+	/**
+	 * @return a snapshot of how often and how long this task ran since it was scheduled
+	 */
+	public synchronized TaskStatistics getStatistics() {
+		return new TaskStatistics(executionCount, failureCount, skippedCount, lastExecutionStart, lastRuntime,
+		        totalRuntime, maxRuntime, lastLag, maxLag);
+	}
+	
+	/**
+	 * @return whether the task is running at the moment
+	 */
+	public boolean isExecuting() {
+		return executing;
+	}
+	
+	/**
+	 * @return when the task is due to run next, or null if it will not run again
+	 */
+	public Date getNextExecutionTime() {
+		ScheduledFuture<?> future = scheduledFuture;
+		if (future == null || future.isDone()) {
+			return null;
+		}
+		return new Date(expectedExecutionTime);
+	}
+	
+	/**
+	 * Sets when the task is first due and how often it repeats, used to work out the lag of each
+	 * execution
+	 *
+	 * @param firstExecutionTime when the first execution is due
+	 * @param period the repeat interval in milliseconds, 0 for a one-shot task
+	 */
+	void setSchedule(long firstExecutionTime, long period) {
+		this.expectedExecutionTime = firstExecutionTime;
+		this.period = period;
+	}
+	
+	void setScheduledFuture(ScheduledFuture<?> scheduledFuture) {
+		this.scheduledFuture = scheduledFuture;
+	}
+	
+	void setExecutionPermit(Semaphore executionPermit) {
+		this.executionPermit = executionPermit;
 	}
 	
 	/**
@@ -80,10 +203,15 @@ public class TimerSchedulerTask extends TimerTask {
 	}
 	
 	/**
-	 * Shutdown the timer task and invoke the task's shutdown() callback method.
+	 * Shutdown the timer task and invoke the task's shutdown() callback method. An execution that is
+	 * already running is allowed to finish.
 	 */
 	public void shutdown() {
 		super.cancel();
+		ScheduledFuture<?> future = scheduledFuture;
+		if (future != null) {
+			future.cancel(false);
+		}
 		task.shutdown();
 	}
 	
@@ -330,6 +330,35 @@ public final class OpenmrsConstants {
 	
 	public static final String GLOBAL_PROPERTY_IGNORE_MISSING_NONLOCAL_PATIENTS = "hl7_processor.ignore_missing_patient_non_local";
 	
+	/**
+	 * The number of threads the hl7 processor uses to process the inbound queue
+	 * 
+	 * @since 2.2.0
+	 */
+	public static final String GP_HL7_PROCESSOR_WORKER_THREADS = "hl7_processor.worker_threads";
+	
+	/**
+	 * The number of inbound queue entries the hl7 processor hands out to its threads at a time
+	 * 
+	 * @since 2.2.0
+	 */
+	public static final String GP_HL7_PROCESSOR_BATCH_SIZE = "hl7_processor.batch_size";
+	
+	/**
+	 * The number of hl7 archives moved to the file system per transaction by the archive migration
+	 * 
+	 * @since 2.2.0
+	 */
+	public static final String GP_HL7_ARCHIVE_MIGRATION_CHUNK_SIZE = "hl7_archive.migration_chunk_size";
+	
+	/**
+	 * The id of the last hl7 archive looked at by an unfinished archive migration, the migration
+	 * resumes after it
+	 * 
+	 * @since 2.2.0
+	 */
+	public static final String GP_HL7_ARCHIVE_MIGRATION_CHECKPOINT = "hl7_archive.migration_checkpoint";
+	
 	public static final String GLOBAL_PROPERTY_TRUE_CONCEPT = "concept.true";
 	
 	public static final String GLOBAL_PROPERTY_FALSE_CONCEPT = "concept.false";
@@ -488,6 +517,60 @@ public final class OpenmrsConstants {
 	 */
 	public static final String GP_DEFAULT_CONCEPT_MAP_TYPE = "concept.defaultConceptMapType";
 	
+	/**
+	 * Whether concepts are looked up by mapping through an in-memory index of all concept mappings
+	 * rather than by querying the database
+	 * 
+	 * @since 2.2.0
+	 */
+	public static final String GP_CONCEPT_MAPPING_INDEX_ENABLED = "concept.mappingIndexEnabled";
+	
+	/**
+	 * Whether nested concept sets are expanded from an in-memory graph of all concept set members
+	 * rather than by querying the members of each nested set
+	 * 
+	 * @since 2.2.0
+	 */
+	public static final String GP_CONCEPT_SET_CLOSURE_ENABLED = "concept.setClosureEnabled";
+	
+	/**
+	 * Whether concepts and drugs are suggested by name from an in-memory index of the words in their
+	 * names rather than by a full text search
+	 * 
+	 * @since 2.2.0
+	 */
+	public static final String GP_CONCEPT_TYPEAHEAD_INDEX_ENABLED = "concept.typeaheadIndexEnabled";
+	
+	/**
+	 * The number of persons whose observation histories are kept in memory for charts and rules, 0
+	 * to read them from the database every time
+	 * 
+	 * @since 2.2.0
+	 */
+	public static final String GP_OBS_TIME_SERIES_CACHE_SIZE = "obs.timeSeriesCacheSize";
+	
+	/**
+	 * Whether complex obs files with the same bytes are stored once, with the file of each obs
+	 * linked to the stored content
+	 * 
+	 * @since 2.2.0
+	 */
+	public static final String GP_COMPLEX_OBS_DEDUPLICATION_ENABLED = "obs.complexObsDeduplicationEnabled";
+	
+	/**
+	 * The size in pixels of the longer side of the preview images of image complex obs
+	 * 
+	 * @since 2.2.0
+	 */
+	public static final String GP_COMPLEX_OBS_PREVIEW_SIZE = "obs.complexObsPreviewSize";
+	
+	/**
+	 * The maximum number of preview images of image complex obs that are kept on disk
+	 * 
+	 * @since 2.2.0
+	 */
+	public static final String GP_COMPLEX_OBS_PREVIEW_CACHE_SIZE = "obs.complexObsPreviewCacheSize";
+	
 	/**
 	 * Global property name of the allowed concept classes for the dosage form field of the concept drug management form.
 	 */
@@ -556,6 +639,24 @@ public final class OpenmrsConstants {
 	
 	public static final String GP_ORDER_NUMBER_GENERATOR_BEAN_ID = "order.orderNumberGeneratorBeanId";
 	
+	/**
+	 * Specifies how many order number seeds the default order number generator reserves per
+	 * database round-trip
+	 * 
+	 * @since 2.2.0
+	 */
+	public static final String GP_ORDER_NUMBER_SEED_BLOCK_SIZE = "order.orderNumberSeedBlockSize";
+	
+	public static final int DEFAULT_ORDER_NUMBER_SEED_BLOCK_SIZE = 100;
+	
+	/**
+	 * The number of patients whose active and scheduled orders are kept in memory, 0 to read the
+	 * active orders from the database every time
+	 * 
+	 * @since 2.2.0
+	 */
+	public static final String GP_ACTIVE_ORDER_CACHE_SIZE = "order.activeOrderCacheSize";
+	
 	/**
 	 * Specifies the uuid of the concept set where its members represent the possible drug routes
 	 */
@@ -711,6 +812,12 @@ public final class OpenmrsConstants {
 		        "Username for the OpenMRS user that will perform the scheduler activities"));
 		props.add(new GlobalProperty("scheduler.password", SchedulerConstants.SCHEDULER_DEFAULT_PASSWORD,
 		        "Password for the OpenMRS user that will perform the scheduler activities"));
+		props.add(new GlobalProperty(SchedulerConstants.SCHEDULER_THREAD_POOL_SIZE_PROPERTY, String
+		        .valueOf(SchedulerConstants.SCHEDULER_DEFAULT_THREAD_POOL_SIZE),
+		        "The number of threads shared by all scheduled tasks, takes effect when the scheduler is restarted"));
+		props.add(new GlobalProperty(SchedulerConstants.SCHEDULER_START_JITTER_PROPERTY, "0",
+		        "The maximum number of seconds a repeating task without a start time is randomly delayed when it is "
+		                + "scheduled, so that tasks scheduled at the same time do not all run at once"));
 		
 		props.add(new GlobalProperty(GLOBAL_PROPERTY_CONCEPTS_LOCKED, "false", "if true, do not allow editing concepts",
 		        BooleanDatatype.class, null));
@@ -865,6 +972,20 @@ public final class OpenmrsConstants {
 		        "If true, hl7 messages for patients that are not found and are non-local will silently be dropped/ignored",
 		        BooleanDatatype.class, null));
 		
+		props.add(new GlobalProperty(GP_HL7_PROCESSOR_WORKER_THREADS, "1",
+		        "The number of threads used to process the hl7 inbound queue, messages for the same patient are always "
+		                + "processed in the order they were received. 1 processes the queue one message at a time"));
+		
+		props.add(new GlobalProperty(GP_HL7_PROCESSOR_BATCH_SIZE, "100",
+		        "The number of hl7 inbound queue entries handed out to the processing threads at a time"));
+		
+		props.add(new GlobalProperty(GP_HL7_ARCHIVE_MIGRATION_CHUNK_SIZE, String.valueOf(HL7Constants.MIGRATION_MAX_BATCH_SIZE),
+		        "The number of hl7 archives moved to the file system per transaction when migrating the archives"));
+		
+		props.add(new GlobalProperty(GP_HL7_ARCHIVE_MIGRATION_CHECKPOINT, "",
+		        "The id of the last hl7 archive looked at by an unfinished archive migration, the next migration "
+		                + "resumes after it. Cleared once a migration completes"));
+		
 		props
 		        .add(new GlobalProperty(
 		                GLOBAL_PROPERTY_SHOW_PATIENT_NAME,
@@ -958,6 +1079,37 @@ public final class OpenmrsConstants {
 		props.add(new GlobalProperty(GP_DEFAULT_CONCEPT_MAP_TYPE, "NARROWER-THAN",
 		        "Default concept map type which is used when no other is set"));
 		
+		props.add(new GlobalProperty(GP_CONCEPT_MAPPING_INDEX_ENABLED, "false",
+		        "Set to true to look up concepts by mapping (e.g. when processing HL7 messages) through an in-memory "
+		                + "index of all concept mappings, which is loaded on first use",
+		        BooleanDatatype.class, null));
+		
+		props.add(new GlobalProperty(GP_CONCEPT_SET_CLOSURE_ENABLED, "false",
+		        "Set to true to expand nested concept sets and check set membership through an in-memory graph of "
+		                + "all concept set members, which is loaded on first use",
+		        BooleanDatatype.class, null));
+		
+		props.add(new GlobalProperty(GP_CONCEPT_TYPEAHEAD_INDEX_ENABLED, "false",
+		        "Set to true to suggest concepts and drugs by name through an in-memory index of the words in the "
+		                + "names of all non retired concepts and drugs, which is loaded on first use",
+		        BooleanDatatype.class, null));
+		
+		props.add(new GlobalProperty(GP_OBS_TIME_SERIES_CACHE_SIZE, "0",
+		        "The number of persons whose observation histories are kept in memory for charts and rules, "
+		                + "set to 0 to read the observations from the database every time"));
+		
+		props.add(new GlobalProperty(GP_COMPLEX_OBS_DEDUPLICATION_ENABLED, "false",
+		        "Set to true to store complex obs files with the same content once, under the .content directory of "
+		                + "the complex obs directory, with the file of each obs linked to the stored content",
+		        BooleanDatatype.class, null));
+		
+		props.add(new GlobalProperty(GP_COMPLEX_OBS_PREVIEW_SIZE, "200",
+		        "The size in pixels of the longer side of the preview images of image complex obs"));
+		
+		props.add(new GlobalProperty(GP_COMPLEX_OBS_PREVIEW_CACHE_SIZE, "10000",
+		        "The maximum number of preview images of image complex obs kept under the .previews directory of the "
+		                + "complex obs directory, the least recently used previews are deleted first"));
+		
 		props
 		        .add(new GlobalProperty(GP_CONCEPT_DRUG_DOSAGE_FORM_CONCEPT_CLASSES, "",
 		                "A comma-separated list of the allowed concept classes for the dosage form field of the concept drug management form."));
@@ -1009,6 +1161,14 @@ public final class OpenmrsConstants {
 		props.add(new GlobalProperty(GP_ORDER_NUMBER_GENERATOR_BEAN_ID, "",
 		        "Specifies spring bean id of the order generator to use when assigning order numbers"));
 		
+		props.add(new GlobalProperty(GP_ORDER_NUMBER_SEED_BLOCK_SIZE, String.valueOf(DEFAULT_ORDER_NUMBER_SEED_BLOCK_SIZE),
+		        "The number of order number seeds the default order number generator reserves at a time, unused seeds "
+		                + "of a reserved block are skipped when the server restarts or this value changes"));
+		
+		props.add(new GlobalProperty(GP_ACTIVE_ORDER_CACHE_SIZE, "0",
+		        "The number of patients whose active and scheduled orders are kept in memory for order entry and "
+		                + "patient dashboards, set to 0 to read the active orders from the database every time"));
+		
 		props.add(new GlobalProperty(GP_DRUG_ROUTES_CONCEPT_UUID, "",
 		        "Specifies the uuid of the concept set where its members represent the possible drug routes"));
 		
@@ -30,6 +30,7 @@ import java.lang.reflect.Method;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.nio.charset.Charset;
+import java.nio.file.Files;
 import java.sql.Timestamp;
 import java.text.DateFormat;
 import java.text.SimpleDateFormat;
@@ -240,26 +241,13 @@ public class OpenmrsUtil {
 	 * @throws IOException
 	 */
 	public static byte[] getFileAsBytes(File file) throws IOException {
-		FileInputStream fileInputStream = null;
 		try {
-			fileInputStream = new FileInputStream(file);
-			byte[] b = new byte[fileInputStream.available()];
-			fileInputStream.read(b);
-			return b;
+			// reads until the end of the file, a single read of available() bytes may stop short
+			return Files.readAllBytes(file.toPath());
 		}
 		catch (Exception e) {
 			log.error("Unable to get file as byte array", e);
 		}
-		finally {
-			if (fileInputStream != null) {
-				try {
-					fileInputStream.close();
-				}
-				catch (IOException io) {
-					log.warn("Couldn't close fileInputStream: " + io);
-				}
-			}
-		}
 		
 		return null;
 	}
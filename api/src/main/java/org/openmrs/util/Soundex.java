@@ -0,0 +1,79 @@
+/**
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.util;
+
+import java.text.Normalizer;
+import java.util.Locale;
+
+/**
+ * Computes American Soundex codes of names in Java, so that they are the same whichever database
+ * is used and can be stored and indexed, unlike the soundex functions of the databases which differ
+ * from each other and cannot use an index.
+ *
+ * @since 2.2.0
+ */
+public final class Soundex {
+	
+	/**
+	 * The digit of each letter from A to Z, 0 for the vowels and Y which separate letters with the
+	 * same digit, and a dash for H and W which do not
+	 */
+	private static final String DIGITS = "0123012-02245501262301-202";
+	
+	private static final int LENGTH = 4;
+	
+	private Soundex() {
+	}
+	
+	/**
+	 * Gets the Soundex code of a name, a letter followed by three digits. Accents are removed and
+	 * any characters other than the letters A to Z are skipped.
+	 *
+	 * @param name the name
+	 * @return the code, or null if the name is null or has no letters from A to Z
+	 * @should encode names that sound alike to the same code
+	 * @should ignore case, accents and punctuation
+	 * @should not separate letters with the same digit by h or w
+	 * @should return null for names without letters
+	 */
+	public static String encode(String name) {
+		if (name == null) {
+			return null;
+		}
+		String letters = Normalizer.normalize(name, Normalizer.Form.NFD).toUpperCase(Locale.ENGLISH);
+		
+		char[] code = new char[LENGTH];
+		int length = 0;
+		char previousDigit = 0;
+		for (int i = 0; i < letters.length() && length < LENGTH; i++) {
+			char letter = letters.charAt(i);
+			if (letter < 'A' || letter > 'Z') {
+				continue;
+			}
+			char digit = DIGITS.charAt(letter - 'A');
+			if (length == 0) {
+				code[length++] = letter;
+			} else if (digit != '0' && digit != '-' && digit != previousDigit) {
+				code[length++] = digit;
+			}
+			if (digit != '-') {
+				previousDigit = digit;
+			}
+		}
+		
+		if (length == 0) {
+			return null;
+		}
+		while (length < LENGTH) {
+			code[length++] = '0';
+		}
+		return new String(code);
+	}
+}
@@ -0,0 +1,130 @@
+/**
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.util.databasechange;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import org.openmrs.util.Soundex;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import liquibase.change.custom.CustomTaskChange;
+import liquibase.database.Database;
+import liquibase.database.jvm.JdbcConnection;
+import liquibase.exception.CustomChangeException;
+import liquibase.exception.DatabaseException;
+import liquibase.exception.SetupException;
+import liquibase.exception.ValidationErrors;
+import liquibase.resource.ResourceAccessor;
+
+/**
+ * This change set is run to compute the Soundex codes of the existing person names, that are
+ * otherwise written by Hibernate from the names themselves. Rows inserted with plain SQL need it to
+ * be run again, by removing the 20261017-1001 change set from the liquibasechangelog table.
+ *
+ * @see Soundex
+ * @since 2.2.0
+ */
+public class PopulatePersonNameSoundexChangeSet implements CustomTaskChange {
+	
+	private static final Logger log = LoggerFactory.getLogger(PopulatePersonNameSoundexChangeSet.class);
+	
+	private static final int BATCH_SIZE = 1000;
+	
+	/**
+	 * @see CustomTaskChange#execute(Database)
+	 */
+	@Override
+	public void execute(Database database) throws CustomChangeException {
+		JdbcConnection connection = (JdbcConnection) database.getConnection();
+		Statement stmt = null;
+		PreparedStatement pStmt = null;
+		
+		try {
+			stmt = connection.createStatement();
+			stmt.setFetchSize(BATCH_SIZE);
+			ResultSet rs = stmt
+			        .executeQuery("SELECT person_name_id, given_name, middle_name, family_name, family_name2 FROM person_name");
+			pStmt = connection.prepareStatement("UPDATE person_name SET given_name_soundex = ?, middle_name_soundex = ?,"
+			        + " family_name_soundex = ?, family_name2_soundex = ? WHERE person_name_id = ?");
+			int batched = 0;
+			while (rs.next()) {
+				pStmt.setString(1, Soundex.encode(rs.getString("given_name")));
+				pStmt.setString(2, Soundex.encode(rs.getString("middle_name")));
+				pStmt.setString(3, Soundex.encode(rs.getString("family_name")));
+				pStmt.setString(4, Soundex.encode(rs.getString("family_name2")));
+				pStmt.setInt(5, rs.getInt("person_name_id"));
+				pStmt.addBatch();
+				if (++batched % BATCH_SIZE == 0) {
+					pStmt.executeBatch();
+				}
+			}
+			pStmt.executeBatch();
+		}
+		catch (DatabaseException e) {
+			throw new CustomChangeException("Failed to compute the Soundex codes of person names: " + e);
+		}
+		catch (SQLException e) {
+			throw new CustomChangeException("Failed to compute the Soundex codes of person names: " + e);
+		}
+		finally {
+			if (stmt != null) {
+				try {
+					stmt.close();
+				}
+				catch (SQLException e) {
+					log.warn("Failed to close the statement object");
+				}
+			}
+			
+			if (pStmt != null) {
+				try {
+					pStmt.close();
+				}
+				catch (SQLException e) {
+					log.warn("Failed to close the prepared statement object");
+				}
+			}
+		}
+	}
+	
+	/**
+	 * @see liquibase.change.custom.CustomChange#getConfirmationMessage()
+	 */
+	@Override
+	public String getConfirmationMessage() {
+		return "Finished computing the Soundex codes of person names";
+	}
+	
+	/**
+	 * @see liquibase.change.custom.CustomChange#setUp()
+	 */
+	@Override
+	public void setUp() throws SetupException {
+	}
+	
+	/**
+	 * @see liquibase.change.custom.CustomChange#setFileOpener(liquibase.resource.ResourceAccessor)
+	 */
+	@Override
+	public void setFileOpener(ResourceAccessor resourceAccessor) {
+	}
+	
+	/**
+	 * @see liquibase.change.custom.CustomChange#validate(liquibase.database.Database)
+	 */
+	@Override
+	public ValidationErrors validate(Database database) {
+		return null;
+	}
+}
@@ -172,7 +172,7 @@ public class ConceptValidator extends BaseCustomizableValidator implements Valid
 				}
 				
 				//find duplicate names for a non-retired concept
-				if (Context.getConceptService().isConceptNameDuplicate(nameInLocale)) {
+				if (isConceptNameDuplicate(nameInLocale)) {
 					throw new DuplicateConceptNameException("'" + nameInLocale.getName()
 					        + "' is a duplicate name in locale '" + conceptNameLocale.toString() + "'");
 				}
@@ -258,4 +258,16 @@ public class ConceptValidator extends BaseCustomizableValidator implements Valid
 		ValidateUtil.validateFieldLengths(errors, obj.getClass(), "version", "retireReason");
 		super.validateAttributes(conceptToValidate, errors, Context.getConceptService().getAllConceptAttributeTypes());
 	}
+	
+	/**
+	 * Checks whether the given name is a duplicate of a name of another non retired concept
+	 *
+	 * @param name the name to check
+	 * @return true if the name is a duplicate
+	 * @see org.openmrs.api.ConceptService#isConceptNameDuplicate(ConceptName)
+	 * @since 2.2.0
+	 */
+	protected boolean isConceptNameDuplicate(ConceptName name) {
+		return Context.getConceptService().isConceptNameDuplicate(name);
+	}
 }
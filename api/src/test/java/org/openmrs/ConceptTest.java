@@ -84,6 +84,75 @@ public class ConceptTest extends BaseContextSensitiveTest {
 		Assert.assertEquals(0, concept.getCompatibleNames(new Locale("en")).size());
 	}
 	
+	/**
+	 * @see Concept#getPreferredName(Locale)
+	 */
+	@Test
+	public void getPreferredName_shouldReturnANameMarkedAsPreferredAfterAnEarlierLookup() {
+		Concept concept = new Concept();
+		ConceptName fullySpecifiedName = new ConceptName("fully specified", Locale.ENGLISH);
+		ConceptName synonym = new ConceptName("synonym", Locale.ENGLISH);
+		concept.addName(fullySpecifiedName);
+		concept.addName(synonym);
+		assertEquals(fullySpecifiedName, concept.getPreferredName(Locale.ENGLISH));
+		
+		synonym.setLocalePreferred(true);
+		
+		assertEquals(synonym, concept.getPreferredName(Locale.ENGLISH));
+		assertEquals(synonym, concept.getName(Locale.ENGLISH));
+	}
+	
+	/**
+	 * @see Concept#getName(Locale)
+	 */
+	@Test
+	public void getName_shouldNotReturnANameVoidedAfterAnEarlierLookup() {
+		Concept concept = new Concept();
+		ConceptName englishName = new ConceptName("english", Locale.ENGLISH);
+		ConceptName frenchName = new ConceptName("french", Locale.FRENCH);
+		frenchName.setConceptNameType(ConceptNameType.FULLY_SPECIFIED);
+		concept.addName(englishName);
+		concept.addName(frenchName);
+		assertEquals(englishName, concept.getName(Locale.ENGLISH, true));
+		
+		englishName.setVoided(true);
+		
+		assertThat(concept.getName(Locale.ENGLISH, true), is(nullValue()));
+		assertThat(concept.getFullySpecifiedName(Locale.ENGLISH), is(nullValue()));
+	}
+	
+	/**
+	 * @see Concept#getName(Locale)
+	 */
+	@Test
+	public void getName_shouldNotReturnANameMovedToAnotherLocaleAfterAnEarlierLookup() {
+		Concept concept = new Concept();
+		ConceptName name = new ConceptName("name", Locale.ENGLISH);
+		concept.addName(name);
+		assertEquals(name, concept.getName(Locale.ENGLISH, true));
+		
+		name.setLocale(Locale.FRENCH);
+		
+		assertThat(concept.getName(Locale.ENGLISH, true), is(nullValue()));
+		assertEquals(name, concept.getName(Locale.FRENCH, true));
+	}
+	
+	/**
+	 * @see Concept#getShortNameInLocale(Locale)
+	 */
+	@Test
+	public void getShortNameInLocale_shouldNotReturnANameRemovedAfterAnEarlierLookup() {
+		Concept concept = new Concept();
+		concept.addName(new ConceptName("fully specified", Locale.ENGLISH));
+		ConceptName shortName = new ConceptName("short", Locale.ENGLISH);
+		concept.setShortName(shortName);
+		assertEquals(shortName, concept.getShortNameInLocale(Locale.US));
+		
+		concept.removeName(shortName);
+		
+		assertThat(concept.getShortNameInLocale(Locale.US), is(nullValue()));
+	}
+	
 	/**
 	 * The Concept should unmark the old conceptName as the locale preferred one to enforce the rule
 	 * that a each locale should have only one preferred name per concept
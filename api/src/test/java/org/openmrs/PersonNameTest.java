@@ -366,4 +366,24 @@ public class PersonNameTest {
 		Assert.assertEquals(pn.getFullName(), "Sr. Taylor Bob Mark");
 	}
 	
+	/**
+	 * @see PersonName#getGivenNameSoundex()
+	 */
+	@Test
+	public void getGivenNameSoundex_shouldComputeTheCodeOfTheCurrentName() {
+		PersonName pn = new PersonName(" Robert ", "", "Tymczak");
+		Assert.assertEquals("R163", pn.getGivenNameSoundex());
+		Assert.assertNull(pn.getMiddleNameSoundex());
+		Assert.assertEquals("T522", pn.getFamilyNameSoundex());
+		Assert.assertNull(pn.getFamilyName2Soundex());
+		
+		pn.setGivenName("Rupert");
+		pn.setFamilyName2("Pfister");
+		Assert.assertEquals("R163", pn.getGivenNameSoundex());
+		Assert.assertEquals("P236", pn.getFamilyName2Soundex());
+		
+		pn.setGivenName("Alice");
+		Assert.assertEquals("A420", pn.getGivenNameSoundex());
+	}
+	
 }
@@ -75,12 +75,15 @@ import org.openmrs.Person;
 import org.openmrs.User;
 import org.openmrs.api.context.Context;
 import org.openmrs.api.db.DAOException;
+import org.openmrs.api.impl.ConceptServiceImpl;
 import org.openmrs.customdatatype.datatype.FreeTextDatatype;
 import org.openmrs.test.BaseContextSensitiveTest;
 import org.openmrs.util.ConceptMapTypeComparator;
 import org.openmrs.util.DateUtil;
 import org.openmrs.util.LocaleUtility;
 import org.openmrs.util.OpenmrsConstants;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import org.springframework.validation.Errors;
 
 /**
@@ -436,6 +439,65 @@ public class ConceptServiceTest extends BaseContextSensitiveTest {
 		Assert.assertEquals(numberofconcepts, iteratorCount);
 	}
 	
+	/**
+	 * @see ConceptService#conceptIterator(List,List,Date)
+	 */
+	@Test
+	public void conceptIterator_shouldIterateOverAllConceptsIfNoCriteriaAreGiven() {
+		List<Integer> expected = new ArrayList<Integer>();
+		for (Concept concept : conceptService.getAllConcepts("conceptId", true, true)) {
+			expected.add(concept.getConceptId());
+		}
+		
+		List<Integer> actual = new ArrayList<Integer>();
+		Iterator<Concept> iterator = conceptService.conceptIterator(null, null, null);
+		while (iterator.hasNext()) {
+			actual.add(iterator.next().getConceptId());
+		}
+		assertEquals(expected, actual);
+	}
+	
+	/**
+	 * @see ConceptService#conceptIterator(List,List,Date)
+	 */
+	@Test
+	public void conceptIterator_shouldOnlyReturnConceptsOfTheGivenClassesAndDatatypes() {
+		Concept weight = conceptService.getConcept(5089);
+		ConceptClass conceptClass = weight.getConceptClass();
+		ConceptDatatype datatype = weight.getDatatype();
+		
+		List<Integer> expected = new ArrayList<Integer>();
+		for (Concept concept : conceptService.getAllConcepts("conceptId", true, true)) {
+			if (conceptClass.equals(concept.getConceptClass()) && datatype.equals(concept.getDatatype())) {
+				expected.add(concept.getConceptId());
+			}
+		}
+		
+		List<Integer> actual = new ArrayList<Integer>();
+		Iterator<Concept> iterator = conceptService.conceptIterator(Collections.singletonList(conceptClass), Collections
+		        .singletonList(datatype), null);
+		while (iterator.hasNext()) {
+			actual.add(iterator.next().getConceptId());
+		}
+		assertTrue(actual.contains(5089));
+		assertEquals(expected, actual);
+	}
+	
+	/**
+	 * @see ConceptService#conceptIterator(List,List,Date)
+	 */
+	@Test
+	public void conceptIterator_shouldOnlyReturnConceptsChangedSinceTheGivenDate() {
+		Date since = new Date(System.currentTimeMillis() - 1000);
+		assertFalse(conceptService.conceptIterator(null, null, since).hasNext());
+		
+		conceptService.saveConcept(conceptService.getConcept(5089));
+		
+		Iterator<Concept> iterator = conceptService.conceptIterator(null, null, since);
+		assertEquals(5089, iterator.next().getConceptId().intValue());
+		assertFalse(iterator.hasNext());
+	}
+	
 	/**
 	 * @see ConceptService#saveConcept(Concept)
 	 */
@@ -3510,4 +3572,282 @@ public class ConceptServiceTest extends BaseContextSensitiveTest {
 		Assert.assertEquals(1, searchResults.size());
 		assertThat(searchResults.get(0).getWord(), is("SALBUTAMOL INHALER NOT"));
 	}
+	
+	/**
+	 * @see ConceptService#getConceptsByMapping(String,String,boolean)
+	 */
+	@Test
+	public void getConceptsByMapping_shouldFindConceptsThroughTheMappingIndexWhenItIsEnabled() {
+		AdministrationService administrationService = Context.getAdministrationService();
+		administrationService.saveGlobalProperty(new GlobalProperty(OpenmrsConstants.GP_CONCEPT_MAPPING_INDEX_ENABLED,
+		        "true"));
+		try {
+			assertEquals(5089, conceptService.getConceptByMapping("WGT234", "SSTRM").getId().intValue());
+			assertEquals(5089, conceptService.getConceptByMapping("wgt234", "some standardized terminology").getId()
+			        .intValue());
+			assertEquals(24, conceptService.getConceptByMapping("454545", "SSTRM", true).getId().intValue());
+			assertNull(conceptService.getConceptByMapping("454545", "SSTRM", false));
+			
+			List<Concept> concepts = conceptService.getConceptsByMapping("127689", "Some Standardized Terminology");
+			assertEquals(2, concepts.size());
+			assertTrue(containsId(concepts, 16));
+			assertTrue(containsId(concepts, 6));
+			
+			// mappings saved after the index was loaded are found too
+			Concept concept = conceptService.getConcept(5497);
+			ConceptMap map = new ConceptMap();
+			map.getConceptReferenceTerm().setCode("indexed code");
+			map.getConceptReferenceTerm().setConceptSource(conceptService.getConceptSource(1));
+			concept.addConceptMapping(map);
+			conceptService.saveConcept(concept);
+			
+			String sourceName = conceptService.getConceptSource(1).getName();
+			assertEquals(concept, conceptService.getConceptByMapping("indexed code", sourceName));
+		}
+		finally {
+			administrationService.saveGlobalProperty(new GlobalProperty(OpenmrsConstants.GP_CONCEPT_MAPPING_INDEX_ENABLED,
+			        "false"));
+		}
+	}
+	
+	/**
+	 * @see ConceptService#getAllSetsContainingConcept(Concept)
+	 */
+	@Test
+	public void getAllSetsContainingConcept_shouldReturnDirectAndNestedParentSetsNearestFirst() {
+		executeDataSet(GET_CONCEPTS_BY_SET_XML);
+		
+		List<Concept> sets = conceptService.getAllSetsContainingConcept(conceptService.getConcept(6));
+		
+		assertThat(sets, contains(hasId(4), hasId(3), hasId(1)));
+	}
+	
+	/**
+	 * @see ConceptService#getAllSetsContainingConcept(Concept)
+	 */
+	@Test
+	public void getAllSetsContainingConcept_shouldGiveAnEmptyListIfConceptIdIsNull() {
+		assertThat(conceptService.getAllSetsContainingConcept(new Concept()), empty());
+	}
+	
+	/**
+	 * @see ConceptService#isConceptInSet(Concept,Concept)
+	 */
+	@Test
+	public void isConceptInSet_shouldReturnTrueForANestedMemberOfTheSet() {
+		executeDataSet(GET_CONCEPTS_BY_SET_XML);
+		
+		assertTrue(conceptService.isConceptInSet(conceptService.getConcept(6), conceptService.getConcept(1)));
+	}
+	
+	/**
+	 * @see ConceptService#isConceptInSet(Concept,Concept)
+	 */
+	@Test
+	public void isConceptInSet_shouldReturnFalseForAConceptThatIsNotInTheSet() {
+		executeDataSet(GET_CONCEPTS_BY_SET_XML);
+		
+		assertFalse(conceptService.isConceptInSet(conceptService.getConcept(2), conceptService.getConcept(3)));
+	}
+	
+	/**
+	 * @see ConceptService#getConceptsByConceptSet(Concept)
+	 */
+	@Test
+	public void getConceptsByConceptSet_shouldExpandNestedSetsThroughTheSetClosureWhenItIsEnabled() {
+		executeDataSet(GET_CONCEPTS_BY_SET_XML);
+		AdministrationService administrationService = Context.getAdministrationService();
+		administrationService.saveGlobalProperty(new GlobalProperty(OpenmrsConstants.GP_CONCEPT_SET_CLOSURE_ENABLED,
+		        "true"));
+		try {
+			Concept set = conceptService.getConcept(1);
+			assertThat(conceptService.getConceptsByConceptSet(set), contains(hasId(2), hasId(3), hasId(4), hasId(6),
+			    hasId(5)));
+			assertTrue(conceptService.isConceptInSet(conceptService.getConcept(6), set));
+			assertFalse(conceptService.isConceptInSet(conceptService.getConcept(2), conceptService.getConcept(3)));
+			assertThat(conceptService.getAllSetsContainingConcept(conceptService.getConcept(6)), contains(hasId(4),
+			    hasId(3), hasId(1)));
+			
+			// members saved after the closure was loaded are found too
+			Concept member = conceptService.getConcept(5089);
+			Concept otherSet = conceptService.getConcept(23);
+			assertFalse(conceptService.isConceptInSet(member, otherSet));
+			otherSet.addSetMember(member);
+			conceptService.saveConcept(otherSet);
+			assertTrue(conceptService.isConceptInSet(member, otherSet));
+		}
+		finally {
+			administrationService.saveGlobalProperty(new GlobalProperty(OpenmrsConstants.GP_CONCEPT_SET_CLOSURE_ENABLED,
+			        "false"));
+		}
+	}
+	
+	/**
+	 * @see ConceptService#importConcepts(Iterator)
+	 */
+	@Test
+	public void importConcepts_shouldImportNewConceptsWithTheirNamesMappingsAnswersAndSetMembers() {
+		Concept set = newConcept("imported set");
+		Concept question = newConcept("imported question");
+		Concept answer = newConcept("imported answer");
+		ConceptMap map = new ConceptMap();
+		map.getConceptReferenceTerm().setCode("imported code");
+		map.getConceptReferenceTerm().setConceptSource(conceptService.getConceptSource(1));
+		question.addConceptMapping(map);
+		question.addAnswer(new ConceptAnswer(answer));
+		// the set comes before its members
+		set.addSetMember(question);
+		set.addSetMember(answer);
+		
+		assertEquals(3, conceptService.importConcepts(Arrays.asList(set, question, answer).iterator()));
+		Context.flushSession();
+		Context.clearSession();
+		
+		Concept imported = conceptService.getConceptByUuid(question.getUuid());
+		assertEquals("imported question", imported.getName(Context.getLocale()).getName());
+		assertEquals("imported code", imported.getConceptMappings().iterator().next().getConceptReferenceTerm()
+		        .getCode());
+		assertEquals(answer.getUuid(), imported.getAnswers().iterator().next().getAnswerConcept().getUuid());
+		
+		Concept importedSet = conceptService.getConceptByUuid(set.getUuid());
+		assertTrue(importedSet.getSet());
+		assertThat(importedSet.getSetMembers(), contains(imported, conceptService.getConceptByUuid(answer.getUuid())));
+	}
+	
+	/**
+	 * @see ConceptService#importConcepts(Iterator)
+	 */
+	@Test
+	public void importConcepts_shouldSaveExistingConceptsWithSaveConcept() {
+		Concept concept = conceptService.getConcept(5089);
+		concept.setVersion("imported");
+		
+		assertEquals(1, conceptService.importConcepts(Collections.singletonList(concept).iterator()));
+		Context.flushSession();
+		Context.clearSession();
+		
+		assertEquals("imported", conceptService.getConcept(5089).getVersion());
+	}
+	
+	/**
+	 * @see ConceptService#importConcepts(Iterator)
+	 */
+	@Test
+	public void importConcepts_shouldFailIfANameIsADuplicateOfTheNameOfAnotherConcept() {
+		ConceptName existingName = conceptService.getConcept(5089).getName();
+		Concept concept = newConcept(existingName.getName());
+		concept.getNames().iterator().next().setLocale(existingName.getLocale());
+		
+		expectedException.expect(DuplicateConceptNameException.class);
+		conceptService.importConcepts(Collections.singletonList(concept).iterator());
+	}
+	
+	/**
+	 * @see ConceptService#importConcepts(Iterator)
+	 */
+	@Test
+	public void importConcepts_shouldAddTheNamesOfTheNewConceptsToTheSearchIndex() {
+		Concept concept = newConcept("importedindexedname");
+		
+		assertEquals(1, conceptService.importConcepts(Collections.singletonList(concept).iterator()));
+		
+		List<ConceptSearchResult> results = conceptService.getConcepts("importedindexedname", Context.getLocale(), false);
+		assertEquals(1, results.size());
+		assertEquals(concept.getUuid(), results.get(0).getConcept().getUuid());
+	}
+	
+	/**
+	 * @see ConceptService#getConceptsByNamePrefix(String,Locale,List,int)
+	 */
+	@Test
+	public void getConceptsByNamePrefix_shouldReturnConceptsWithAWordStartingWithTheTypedText() {
+		setTypeaheadIndexEnabled(true);
+		try {
+			assertThat(conceptService.getConceptsByNamePrefix("food ass", Locale.ENGLISH, null, 10), contains(hasId(18),
+			    hasId(21), hasId(20)));
+			assertThat(conceptService.getConceptsByNamePrefix("food ass", Locale.ENGLISH, null, 1), contains(hasId(18)));
+		}
+		finally {
+			setTypeaheadIndexEnabled(false);
+		}
+	}
+	
+	/**
+	 * @see ConceptService#getConceptsByNamePrefix(String,Locale,List,int)
+	 */
+	@Test
+	public void getConceptsByNamePrefix_shouldOnlyReturnConceptsOfTheGivenClasses() {
+		setTypeaheadIndexEnabled(true);
+		try {
+			List<ConceptClass> conceptClasses = Collections.singletonList(conceptService.getConceptClass(10));
+			assertThat(conceptService.getConceptsByNamePrefix("food", Locale.ENGLISH, conceptClasses, 10),
+			    contains(hasId(23)));
+		}
+		finally {
+			setTypeaheadIndexEnabled(false);
+		}
+	}
+	
+	/**
+	 * @see ConceptService#getConceptsByNamePrefix(String,Locale,List,int)
+	 */
+	@Test
+	public void getConceptsByNamePrefix_shouldSuggestAConceptByANameAddedAfterTheIndexWasLoaded() {
+		setTypeaheadIndexEnabled(true);
+		try {
+			assertThat(conceptService.getConceptsByNamePrefix("zebr", Locale.ENGLISH, null, 10), is(empty()));
+			
+			Concept concept = conceptService.getConcept(5089);
+			concept.addName(new ConceptName("Zebra weight", Locale.ENGLISH));
+			conceptService.saveConcept(concept);
+			completeConceptIndexUpdates();
+			
+			assertThat(conceptService.getConceptsByNamePrefix("zebr", Locale.ENGLISH, null, 10), contains(hasId(5089)));
+		}
+		finally {
+			setTypeaheadIndexEnabled(false);
+		}
+	}
+	
+	/**
+	 * @see ConceptService#getDrugsByNamePrefix(String,int)
+	 */
+	@Test
+	public void getDrugsByNamePrefix_shouldReturnDrugsWithAWordStartingWithTheTypedText() {
+		setTypeaheadIndexEnabled(true);
+		try {
+			assertThat(conceptService.getDrugsByNamePrefix("trio 30", 10), contains(hasId(2)));
+			// retired drugs are not suggested
+			assertThat(conceptService.getDrugsByNamePrefix("test_drug", 10), is(empty()));
+		}
+		finally {
+			setTypeaheadIndexEnabled(false);
+		}
+	}
+	
+	private void setTypeaheadIndexEnabled(boolean enabled) {
+		Context.getAdministrationService().saveGlobalProperty(
+		    new GlobalProperty(OpenmrsConstants.GP_CONCEPT_TYPEAHEAD_INDEX_ENABLED, String.valueOf(enabled)));
+	}
+	
+	/**
+	 * Runs the index updates the concept service left to be applied once the current transaction
+	 * commits, as the test transaction is never committed
+	 */
+	private void completeConceptIndexUpdates() {
+		for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+			if (ConceptServiceImpl.class.equals(synchronization.getClass().getEnclosingClass())) {
+				synchronization.afterCommit();
+				synchronization.afterCompletion(TransactionSynchronization.STATUS_COMMITTED);
+			}
+		}
+	}
+	
+	private Concept newConcept(String name) {
+		Concept concept = new Concept();
+		concept.addName(new ConceptName(name, Context.getLocale()));
+		concept.setDatatype(new ConceptDatatype(1));
+		concept.setConceptClass(new ConceptClass(1));
+		return concept;
+	}
 }
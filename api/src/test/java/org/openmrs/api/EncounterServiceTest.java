@@ -1596,6 +1596,75 @@ public class EncounterServiceTest extends BaseContextSensitiveTest {
 		Assert.assertEquals(3, allEncounters.get(7).size());
 	}
 	
+	/**
+	 * @see EncounterService#streamEncounters(Cohort,java.util.function.BiConsumer)
+	 */
+	@Test
+	public void streamEncounters_shouldStreamTheEncountersOfEachPatientInACohortInPatientIdOrder() {
+		Cohort cohort = new Cohort();
+		cohort.addMember(7);
+		cohort.addMember(2);
+		List<Integer> patientIds = new ArrayList<Integer>();
+		Map<Integer, List<Encounter>> encounters = new HashMap<Integer, List<Encounter>>();
+		
+		Context.getEncounterService().streamEncounters(cohort, (patientId, patientEncounters) -> {
+			patientIds.add(patientId);
+			encounters.put(patientId, patientEncounters);
+		});
+		
+		assertEquals(Arrays.asList(2, 7), patientIds);
+		assertEquals(1, encounters.get(2).size());
+		assertEquals(Arrays.asList(5, 4, 3), Arrays.asList(encounters.get(7).get(0).getEncounterId(), encounters.get(7)
+		        .get(1).getEncounterId(), encounters.get(7).get(2).getEncounterId()));
+	}
+	
+	/**
+	 * @see EncounterService#streamEncounters(Cohort,java.util.function.BiConsumer)
+	 */
+	@Test
+	public void streamEncounters_shouldSkipVoidedEncountersAndPatientsWithoutEncounters() {
+		EncounterService es = Context.getEncounterService();
+		es.voidEncounter(es.getEncounter(6), "testing");
+		Cohort cohort = new Cohort();
+		cohort.addMember(2);
+		cohort.addMember(6);
+		cohort.addMember(7);
+		List<Integer> patientIds = new ArrayList<Integer>();
+		
+		es.streamEncounters(cohort, (patientId, patientEncounters) -> patientIds.add(patientId));
+		
+		assertEquals(Arrays.asList(7), patientIds);
+	}
+	
+	/**
+	 * @see EncounterService#streamEncounterProperties(Cohort,List,java.util.function.BiConsumer)
+	 */
+	@Test
+	public void streamEncounterProperties_shouldStreamTheGivenPropertiesOfTheEncountersOfEachPatient() {
+		Cohort cohort = new Cohort();
+		cohort.addMember(7);
+		Map<Integer, List<Object[]>> rows = new HashMap<Integer, List<Object[]>>();
+		
+		Context.getEncounterService().streamEncounterProperties(cohort,
+		    Arrays.asList("encounterId", "encounterType.encounterTypeId"), rows::put);
+		
+		assertEquals(1, rows.size());
+		assertEquals(3, rows.get(7).size());
+		assertEquals(5, rows.get(7).get(0)[0]);
+		assertEquals(1, rows.get(7).get(0)[1]);
+		assertEquals(3, rows.get(7).get(2)[0]);
+		assertEquals(2, rows.get(7).get(2)[1]);
+	}
+	
+	/**
+	 * @see EncounterService#streamEncounterProperties(Cohort,List,java.util.function.BiConsumer)
+	 */
+	@Test(expected = APIException.class)
+	public void streamEncounterProperties_shouldFailForAnInvalidProperty() {
+		Context.getEncounterService().streamEncounterProperties(null, Arrays.asList("encounterId from Obs"),
+		    (patientId, patientRows) -> {});
+	}
+	
 	/**
 	 * @see EncounterService#getEncounters(Patient, Location, Date, Date, java.util.Collection,
 	 *      java.util.Collection, java.util.Collection, java.util.Collection, java.util.Collection,
@@ -2638,6 +2707,44 @@ public class EncounterServiceTest extends BaseContextSensitiveTest {
 		return encounter;
 	}
 	
+	/**
+	 * @see EncounterService#getEncounters(String,Integer,Integer,Integer,boolean)
+	 */
+	@Test
+	public void getEncounters_shouldLeaveOutEncountersTheUserCannotViewBeforeTakingTheBatch() {
+		EncounterService encounterService = Context.getEncounterService();
+		EncounterType encounterType = encounterService.getEncounterType(1);
+		encounterType.setViewPrivilege(Context.getUserService().getPrivilege("Some Privilege For View Encounter Types"));
+		encounterService.saveEncounterType(encounterType);
+		
+		Context.becomeUser(Context.getUserService().getUserByUsername("test_user").getSystemId());
+		Context.addProxyPrivilege(PrivilegeConstants.GET_ENCOUNTERS);
+		
+		// patient 7 has one encounter of type 2 and two of type 1
+		List<Encounter> encounters = encounterService.getEncounters(null, 7, 0, 1, false);
+		assertEquals(1, encounters.size());
+		assertEquals(3, encounters.get(0).getEncounterId().intValue());
+	}
+	
+	/**
+	 * @see EncounterService#getEncounters(EncounterSearchCriteria)
+	 */
+	@Test
+	public void getEncounters_shouldLeaveOutEncountersOfTypesTheUserCannotView() {
+		EncounterService encounterService = Context.getEncounterService();
+		EncounterType encounterType = encounterService.getEncounterType(1);
+		encounterType.setViewPrivilege(Context.getUserService().getPrivilege("Some Privilege For View Encounter Types"));
+		encounterService.saveEncounterType(encounterType);
+		
+		Context.becomeUser(Context.getUserService().getUserByUsername("test_user").getSystemId());
+		Context.addProxyPrivilege(PrivilegeConstants.GET_ENCOUNTERS);
+		
+		List<Encounter> encounters = encounterService.getEncounters(new EncounterSearchCriteriaBuilder().setPatient(
+		    new Patient(7)).createEncounterSearchCriteria());
+		assertEquals(1, encounters.size());
+		assertEquals(3, encounters.get(0).getEncounterId().intValue());
+	}
+	
 	/**
 	 * @see EncounterService#getEncounters(String,Integer,Integer,Integer,null)
 	 */
@@ -17,10 +17,15 @@ import static org.junit.Assert.assertTrue;
 
 import java.awt.image.BufferedImage;
 import java.awt.image.WritableRaster;
+import java.io.ByteArrayOutputStream;
 import java.io.CharArrayReader;
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.Reader;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.text.DateFormat;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
@@ -42,10 +47,12 @@ import org.junit.Assert;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
+import org.openmrs.Cohort;
 import org.openmrs.Concept;
 import org.openmrs.ConceptName;
 import org.openmrs.ConceptProposal;
 import org.openmrs.Encounter;
+import org.openmrs.GlobalProperty;
 import org.openmrs.Location;
 import org.openmrs.Obs;
 import org.openmrs.Order;
@@ -55,6 +62,7 @@ import org.openmrs.api.context.Context;
 import org.openmrs.api.impl.ObsServiceImpl;
 import org.openmrs.obs.ComplexData;
 import org.openmrs.obs.ComplexObsHandler;
+import org.openmrs.obs.ObsTimeSeries;
 import org.openmrs.obs.handler.BinaryDataHandler;
 import org.openmrs.obs.handler.ImageHandler;
 import org.openmrs.obs.handler.TextHandler;
@@ -538,6 +546,104 @@ public class ObsServiceTest extends BaseContextSensitiveTest {
 		Assert.assertFalse(normalObs.isComplex());
 	}
 	
+	/**
+	 * @see ObsService#getComplexDataLength(Obs)
+	 */
+	@Test
+	public void getComplexDataLength_shouldReturnTheLengthOfTheStoredData() throws IOException {
+		executeDataSet(COMPLEX_OBS_XML);
+		File createdFile = writeComplexObsFile("openmrs_logo_small.gif", "0123456789");
+		try {
+			assertEquals(10L, Context.getObsService().getComplexDataLength(Context.getObsService().getObs(44)));
+		}
+		finally {
+			createdFile.delete();
+		}
+	}
+	
+	/**
+	 * @see ObsService#getComplexDataStream(Obs,long,long)
+	 */
+	@Test
+	public void getComplexDataStream_shouldReadTheGivenRangeOfTheStoredData() throws IOException {
+		executeDataSet(COMPLEX_OBS_XML);
+		File createdFile = writeComplexObsFile("openmrs_logo_small.gif", "0123456789");
+		ObsService os = Context.getObsService();
+		try {
+			try (InputStream in = os.getComplexDataStream(os.getObs(44), 3, 4)) {
+				ByteArrayOutputStream out = new ByteArrayOutputStream();
+				OpenmrsUtil.copyFile(in, out);
+				assertEquals("3456", new String(out.toByteArray(), StandardCharsets.US_ASCII));
+			}
+			try (InputStream in = os.getComplexDataStream(os.getObs(44), 7, -1)) {
+				ByteArrayOutputStream out = new ByteArrayOutputStream();
+				OpenmrsUtil.copyFile(in, out);
+				assertEquals("789", new String(out.toByteArray(), StandardCharsets.US_ASCII));
+			}
+		}
+		finally {
+			createdFile.delete();
+		}
+	}
+	
+	/**
+	 * @see ObsService#transferComplexData(Obs,long,long,java.nio.channels.WritableByteChannel)
+	 */
+	@Test
+	public void transferComplexData_shouldWriteTheGivenRangeOfTheStoredDataToTheChannel() throws IOException {
+		executeDataSet(COMPLEX_OBS_XML);
+		File createdFile = writeComplexObsFile("openmrs_logo_small.gif", "0123456789");
+		ObsService os = Context.getObsService();
+		try {
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			long transferred = os.transferComplexData(os.getObs(44), 2, 100, Channels.newChannel(out));
+			assertEquals(8L, transferred);
+			assertEquals("23456789", new String(out.toByteArray(), StandardCharsets.US_ASCII));
+		}
+		finally {
+			createdFile.delete();
+		}
+	}
+	
+	/**
+	 * @see ObsService#getComplexDataStream(Obs,long,long)
+	 */
+	@Test(expected = APIException.class)
+	public void getComplexDataStream_shouldFailForANegativeOffset() throws IOException {
+		executeDataSet(COMPLEX_OBS_XML);
+		File createdFile = writeComplexObsFile("openmrs_logo_small.gif", "0123456789");
+		try {
+			Context.getObsService().getComplexDataStream(Context.getObsService().getObs(44), -1, 4);
+		}
+		finally {
+			createdFile.delete();
+		}
+	}
+	
+	/**
+	 * @see ObsService#transferComplexData(Obs,long,long,java.nio.channels.WritableByteChannel)
+	 */
+	@Test(expected = APIException.class)
+	public void transferComplexData_shouldFailForANegativeOffset() throws IOException {
+		executeDataSet(COMPLEX_OBS_XML);
+		File createdFile = writeComplexObsFile("openmrs_logo_small.gif", "0123456789");
+		try {
+			Context.getObsService().transferComplexData(Context.getObsService().getObs(44), -1, 4,
+			    Channels.newChannel(new ByteArrayOutputStream()));
+		}
+		finally {
+			createdFile.delete();
+		}
+	}
+	
+	private File writeComplexObsFile(String filename, String content) throws IOException {
+		File complexObsDir = OpenmrsUtil.getDirectoryInApplicationDataDirectory(Context.getAdministrationService()
+		        .getGlobalProperty(OpenmrsConstants.GLOBAL_PROPERTY_COMPLEX_OBS_DIR));
+		File file = new File(complexObsDir, filename);
+		Files.write(file.toPath(), content.getBytes(StandardCharsets.US_ASCII));
+		return file;
+	}
+	
 	/**
 	 * @see ObsService#getHandler(String)
 	 */
@@ -797,6 +903,78 @@ public class ObsServiceTest extends BaseContextSensitiveTest {
 		Assert.assertTrue(obs.getVoided());
 	}
 	
+	/**
+	 * @see ObsService#saveObservations(java.util.Collection,String)
+	 */
+	@Test
+	public void saveObservations_shouldSaveNewObservationsAndTheirGroupMembers() {
+		ObsService obsService = Context.getObsService();
+		Obs weight = new Obs(new Person(7), new Concept(5089), new Date(), new Location(1));
+		weight.setValueNumeric(70.0);
+		Obs member = new Obs(new Person(7), new Concept(3), new Date(), new Location(1));
+		member.setValueText("member obs value text");
+		Obs group = new Obs(new Person(7), new Concept(23), new Date(), new Location(1));
+		group.addGroupMember(member);
+		
+		List<Obs> savedObs = obsService.saveObservations(Arrays.asList(weight, group), null);
+		
+		assertEquals(Arrays.asList(weight, group), savedObs);
+		assertNotNull(weight.getObsId());
+		assertNotNull(weight.getCreator());
+		assertNotNull(weight.getUuid());
+		assertNotNull(member.getObsId());
+		assertNotNull(member.getCreator());
+		Context.flushSession();
+		Context.clearSession();
+		assertEquals(group.getObsId(), obsService.getObs(member.getObsId()).getObsGroup().getObsId());
+	}
+	
+	/**
+	 * @see ObsService#saveObservations(java.util.Collection,String)
+	 */
+	@Test
+	public void saveObservations_shouldVoidEditedObservationsAndLinkThemToTheirNewRevisions() {
+		ObsService obsService = Context.getObsService();
+		Obs edited = obsService.getObs(7);
+		edited.setValueNumeric(52.0);
+		Obs weight = new Obs(new Person(7), new Concept(5089), new Date(), new Location(1));
+		weight.setValueNumeric(70.0);
+		
+		List<Obs> savedObs = obsService.saveObservations(Arrays.asList(edited, weight), "just testing");
+		
+		Obs revision = savedObs.get(0);
+		assertFalse(Integer.valueOf(7).equals(revision.getObsId()));
+		assertEquals(52.0, revision.getValueNumeric(), 0);
+		Obs original = obsService.getObs(7);
+		assertEquals(original, revision.getPreviousVersion());
+		assertTrue(original.getVoided());
+		assertEquals("just testing", original.getVoidReason());
+		assertNotNull(savedObs.get(1).getObsId());
+	}
+	
+	/**
+	 * @see ObsService#saveObservations(java.util.Collection,String)
+	 */
+	@Test(expected = ValidationException.class)
+	public void saveObservations_shouldFailIfAnObservationFailsToValidate() {
+		Obs weight = new Obs(new Person(7), new Concept(5089), new Date(), new Location(1));
+		weight.setValueNumeric(70.0);
+		Obs withoutConcept = new Obs(new Person(7), null, new Date(), new Location(1));
+		
+		Context.getObsService().saveObservations(Arrays.asList(weight, withoutConcept), null);
+	}
+	
+	/**
+	 * @see ObsService#saveObservations(java.util.Collection,String)
+	 */
+	@Test(expected = APIException.class)
+	public void saveObservations_shouldFailIfAnExistingObservationIsGivenWithoutAChangeMessage() {
+		Obs edited = Context.getObsService().getObs(7);
+		edited.setValueNumeric(52.0);
+		
+		Context.getObsService().saveObservations(Collections.singletonList(edited), null);
+	}
+	
 	/**
 	 * @see ObsService#getObs(Integer)
 	 */
@@ -1302,6 +1480,101 @@ public class ObsServiceTest extends BaseContextSensitiveTest {
 		obsService.getObservationsByPersonAndConcept(null, new Concept(7));
 	}
 	
+	/**
+	 * @see ObsService#getObsTimeSeries(Person,Concept)
+	 */
+	@Test
+	public void getObsTimeSeries_shouldGetTheValuesOfTheObservationsOfThePersonForTheQuestionOrderedByObsDatetime()
+	        throws Exception {
+		ObsService obsService = Context.getObsService();
+		
+		ObsTimeSeries weights = obsService.getObsTimeSeries(new Person(7), new Concept(5089));
+		
+		assertEquals(3, weights.size());
+		assertEquals(7, weights.getObsId(0));
+		assertEquals(10, weights.getObsId(1));
+		assertEquals(16, weights.getObsId(2));
+		assertEquals(55.0, weights.getValueNumeric(1), 0);
+		assertEquals(new SimpleDateFormat("yyyy-MM-dd").parse("2008-08-19").getTime(), weights.getObsDatetime(2));
+		assertEquals(Integer.valueOf(22), obsService.getObsTimeSeries(new Person(7), new Concept(21)).getValueCodedId(0));
+		assertNull(obsService.getObsTimeSeries(new Person(7), new Concept(5497)).last(1).getValueCodedId(0));
+	}
+	
+	/**
+	 * @see ObsService#getObsTimeSeries(Person,Concept)
+	 */
+	@Test
+	public void getObsTimeSeries_shouldNotIncludeVoidedObservations() {
+		ObsService obsService = Context.getObsService();
+		
+		obsService.voidObs(obsService.getObs(10), "testing");
+		
+		ObsTimeSeries weights = obsService.getObsTimeSeries(new Person(7), new Concept(5089));
+		assertEquals(2, weights.size());
+		assertEquals(16, weights.getObsId(1));
+	}
+	
+	/**
+	 * @see ObsService#getObsTimeSeries(Person,Concept)
+	 */
+	@Test
+	public void getObsTimeSeries_shouldNotReturnACachedHistoryAfterAnObservationOfThePersonIsSaved() {
+		ObsService obsService = Context.getObsService();
+		setObsTimeSeriesCacheSize(10);
+		try {
+			assertEquals(3, obsService.getObsTimeSeries(new Person(7), new Concept(5089)).size());
+			
+			Obs obs = new Obs(new Person(7), new Concept(5089), new Date(), new Location(1));
+			obs.setValueNumeric(62.0);
+			obsService.saveObs(obs, null);
+			
+			ObsTimeSeries weights = obsService.getObsTimeSeries(new Person(7), new Concept(5089));
+			assertEquals(4, weights.size());
+			assertEquals(62.0, weights.getValueNumeric(3), 0);
+			
+			obsService.voidObs(obsService.getObs(7), "testing");
+			assertEquals(3, obsService.getObsTimeSeries(new Person(7), new Concept(5089)).size());
+		}
+		finally {
+			setObsTimeSeriesCacheSize(0);
+		}
+	}
+	
+	/**
+	 * @see ObsService#getObsTimeSeries(Person,Concept,Date,Date,Integer)
+	 */
+	@Test
+	public void getObsTimeSeries_shouldGetTheMostRecentObservationsWithinTheRange() throws Exception {
+		DateFormat df = new SimpleDateFormat("yyyy-MM-dd");
+		
+		ObsTimeSeries weights = Context.getObsService().getObsTimeSeries(new Person(7), new Concept(5089),
+		    df.parse("2008-07-01"), df.parse("2008-08-15"), 1);
+		
+		assertEquals(1, weights.size());
+		assertEquals(10, weights.getObsId(0));
+		assertEquals(2, Context.getObsService().getObsTimeSeries(new Person(7), new Concept(5089),
+		    df.parse("2008-07-01"), df.parse("2008-08-15"), null).size());
+	}
+	
+	/**
+	 * @see ObsService#getObsTimeSeries(Cohort,Concept)
+	 */
+	@Test
+	public void getObsTimeSeries_shouldGetTheHistoriesOfTheMembersOfTheCohortForTheQuestion() {
+		Map<Integer, ObsTimeSeries> weights = Context.getObsService().getObsTimeSeries(new Cohort(Arrays.asList(7, 2)),
+		    new Concept(5089));
+		
+		assertEquals(Collections.singleton(7), weights.keySet());
+		assertEquals(3, weights.get(7).size());
+		assertEquals(16, weights.get(7).getObsId(2));
+		assertEquals(61.0, weights.get(7).getValueNumeric(2), 0);
+	}
+	
+	private void setObsTimeSeriesCacheSize(int size) {
+		Context.getAdministrationService().saveGlobalProperty(
+		    new GlobalProperty(OpenmrsConstants.GP_OBS_TIME_SERIES_CACHE_SIZE, String.valueOf(size)));
+	}
+	
 	/**
 	 * @see ObsService#purgeObs(Obs)
 	 */
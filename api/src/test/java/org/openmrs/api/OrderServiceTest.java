@@ -74,6 +74,7 @@ import org.openmrs.api.order.exception.CannotUnvoidOrderException;
 import org.openmrs.api.order.exception.EditedOrderDoesNotMatchPreviousException;
 import org.openmrs.api.order.exception.OrderEntryException;
 import org.openmrs.messagesource.MessageSourceService;
+import org.openmrs.order.ActiveOrderCache;
 import org.openmrs.order.OrderUtil;
 import org.openmrs.order.OrderUtilTest;
 import org.openmrs.orders.TimestampOrderNumberGenerator;
@@ -256,6 +257,16 @@ public class OrderServiceTest extends BaseContextSensitiveTest {
 		Assert.assertEquals(N, uniqueOrderNumbers.size());
 	}
 	
+	/**
+	 * @see OrderService#getNextOrderNumberSeedSequenceValue(int)
+	 */
+	@Test
+	public void getNextOrderNumberSeedSequenceValue_shouldReserveTheRequestedNumberOfSeeds() {
+		Long first = orderService.getNextOrderNumberSeedSequenceValue(100);
+		Long next = orderService.getNextOrderNumberSeedSequenceValue(1);
+		assertEquals(Long.valueOf(first + 100), next);
+	}
+	
 	/**
 	 * @see OrderService#getOrderByOrderNumber(String)
 	 */
@@ -567,6 +578,87 @@ public class OrderServiceTest extends BaseContextSensitiveTest {
 		assertThat(orders, hasItems(expectedOrder2));
 	}
 	
+	/**
+	 * @see OrderService#getActiveOrders(org.openmrs.Patient, org.openmrs.OrderType,
+	 *      org.openmrs.CareSetting, java.util.Date)
+	 */
+	@Test
+	public void getActiveOrders_shouldReturnTheSameActiveOrdersFromTheActiveOrderCache() throws ParseException {
+		setActiveOrderCacheSize(10);
+		try {
+			Patient patient = patientService.getPatient(2);
+			assertEquals(5, orderService.getActiveOrders(patient, null, null, null).size());
+			
+			List<Order> orders = orderService.getActiveOrders(patient, null, orderService.getCareSetting(1), null);
+			assertEquals(4, orders.size());
+			assertThat(orders, hasItems(orderService.getOrder(3), orderService.getOrder(444), orderService.getOrder(5),
+			    orderService.getOrder(7)));
+			
+			orders = orderService.getActiveOrders(patient, orderService.getOrderType(1), null, new Date());
+			assertEquals(4, orders.size());
+			assertThat(orders, hasItems(orderService.getOrder(222), orderService.getOrder(3), orderService.getOrder(444),
+			    orderService.getOrder(5)));
+			
+			orders = orderService.getActiveOrders(patient, null, null, Context.getDateFormat().parse("10/04/2008"));
+			assertEquals(3, orders.size());
+			assertThat(orders, hasItems(orderService.getOrder(3), orderService.getOrder(4), orderService.getOrder(222)));
+		}
+		finally {
+			setActiveOrderCacheSize(0);
+		}
+	}
+	
+	/**
+	 * @see OrderService#getActiveOrders(org.openmrs.Patient, org.openmrs.OrderType,
+	 *      org.openmrs.CareSetting, java.util.Date)
+	 */
+	@Test
+	public void getActiveOrders_shouldNotReturnACachedOrderAfterItIsDiscontinued() {
+		setActiveOrderCacheSize(10);
+		try {
+			Patient patient = patientService.getPatient(2);
+			Order order = orderService.getOrder(7);
+			assertTrue(orderService.getActiveOrders(patient, null, null, null).contains(order));
+			
+			orderService.discontinueOrder(order, "testing", null, providerService.getProvider(1), encounterService
+			        .getEncounter(6));
+			
+			List<Order> orders = orderService.getActiveOrders(patient, null, null, null);
+			assertEquals(4, orders.size());
+			assertFalse(orders.contains(order));
+		}
+		finally {
+			setActiveOrderCacheSize(0);
+		}
+	}
+	
+	/**
+	 * @see OrderService#getActiveOrders(org.openmrs.Patient, org.openmrs.OrderType,
+	 *      org.openmrs.CareSetting, java.util.Date)
+	 */
+	@Test
+	public void getActiveOrders_shouldNotCacheActiveOrdersReadByATransactionThatChangedOrders() {
+		setActiveOrderCacheSize(10);
+		try {
+			ActiveOrderCache cache = Context.getRegisteredComponent("activeOrderCache", ActiveOrderCache.class);
+			Patient patient = patientService.getPatient(2);
+			Order order = orderService.getOrder(7);
+			orderService.discontinueOrder(order, "testing", null, providerService.getProvider(1), encounterService
+			        .getEncounter(6));
+			
+			assertFalse(orderService.getActiveOrders(patient, null, null, null).contains(order));
+			assertNull(cache.get(patient.getPatientId()));
+		}
+		finally {
+			setActiveOrderCacheSize(0);
+		}
+	}
+	
+	private void setActiveOrderCacheSize(int size) {
+		adminService.saveGlobalProperty(new GlobalProperty(OpenmrsConstants.GP_ACTIVE_ORDER_CACHE_SIZE, String
+		        .valueOf(size)));
+	}
+	
 	/**
 	 * @see OrderService#discontinueOrder(org.openmrs.Order, String, java.util.Date,
 	 *      org.openmrs.Provider, org.openmrs.Encounter)
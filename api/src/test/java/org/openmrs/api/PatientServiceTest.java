@@ -69,6 +69,8 @@ import org.openmrs.Visit;
 import org.openmrs.api.context.Context;
 import org.openmrs.api.impl.PatientServiceImpl;
 import org.openmrs.comparator.PatientIdentifierTypeDefaultComparator;
+import org.openmrs.patient.DuplicatePatientCandidate;
+import org.openmrs.patient.DuplicatePatientCandidatePage;
 import org.openmrs.patient.IdentifierValidator;
 import org.openmrs.patient.impl.LuhnIdentifierValidator;
 import org.openmrs.person.PersonMergeLog;
@@ -3188,5 +3190,72 @@ public class PatientServiceTest extends BaseContextSensitiveTest {
 		assertEquals(1, encounterService.getEncounter(57).getObsAtTopLevel(false).size());
 		assertEquals(2, encounterService.getEncounter(57).getObsAtTopLevel(true).size());
 	}
+	
+	/**
+	 * @see PatientService#detectDuplicatePatients(Double)
+	 */
+	@Test
+	public void detectDuplicatePatients_shouldFindPatientsWithSimilarNamesAndTheSameBirthdate() {
+		makePatientSevenADuplicateOfPatientSix();
+		
+		assertTrue(patientService.detectDuplicatePatients(null));
+		DuplicatePatientCandidatePage candidates = patientService.getDuplicatePatientCandidates(null, 0, null);
+		
+		assertTrue(containsPair(candidates, 6, 7));
+		assertEquals(candidates.getTotalCount(), candidates.getCandidates().size());
+		assertNotNull(candidates.getDetectionDate());
+	}
+	
+	/**
+	 * @see PatientService#getDuplicatePatientCandidates(Double, Integer, Integer)
+	 */
+	@Test
+	public void getDuplicatePatientCandidates_shouldReturnTheLaterPagesFromTheSameRun() {
+		patientService.detectDuplicatePatients(null);
+		DuplicatePatientCandidatePage firstPage = patientService.getDuplicatePatientCandidates(null, 0, 1);
+		assertFalse(containsPair(firstPage, 6, 7));
+		makePatientSevenADuplicateOfPatientSix();
+		
+		assertFalse(containsPair(patientService.getDuplicatePatientCandidates(null, 1, null), 6, 7));
+		assertEquals(firstPage.getTotalCount(), patientService.getDuplicatePatientCandidates(null, 0, 1).getTotalCount());
+		
+		patientService.detectDuplicatePatients(null);
+		assertTrue(containsPair(patientService.getDuplicatePatientCandidates(null, 0, null), 6, 7));
+	}
+	
+	/**
+	 * @see PatientService#getDuplicatePatientCandidates(Double, Integer, Integer)
+	 */
+	@Test
+	public void getDuplicatePatientCandidates_shouldLeaveOutThePairsWithAPatientVoidedSinceTheSearchWasRun() {
+		makePatientSevenADuplicateOfPatientSix();
+		patientService.detectDuplicatePatients(null);
+		int totalCount = patientService.getDuplicatePatientCandidates(null, 0, null).getTotalCount();
+		
+		patientService.voidPatient(patientService.getPatient(7), "duplicate");
+		
+		DuplicatePatientCandidatePage candidates = patientService.getDuplicatePatientCandidates(null, 0, null);
+		assertFalse(containsPair(candidates, 6, 7));
+		assertTrue(candidates.getTotalCount() < totalCount);
+		assertEquals(candidates.getTotalCount(), candidates.getCandidates().size());
+	}
+	
+	private void makePatientSevenADuplicateOfPatientSix() {
+		Patient patient = patientService.getPatient(6);
+		Patient duplicate = patientService.getPatient(7);
+		duplicate.setGender(patient.getGender());
+		duplicate.setBirthdate(patient.getBirthdate());
+		duplicate.addName(new PersonName("Jonny", null, "Doe"));
+		patientService.savePatient(duplicate);
+	}
+	
+	private boolean containsPair(DuplicatePatientCandidatePage candidates, int patientId, int duplicateId) {
+		for (DuplicatePatientCandidate candidate : candidates.getCandidates()) {
+			if (candidate.getPatient().getPatientId() == patientId && candidate.getDuplicate().getPatientId() == duplicateId) {
+				return true;
+			}
+		}
+		return false;
+	}
 
 }
@@ -514,6 +514,21 @@ public class PersonServiceTest extends BaseContextSensitiveTest {
 		Assert.assertTrue(TestUtil.containsId(people, 4));
 	}
 	
+	/**
+	 * @see PersonService#getSimilarPeople(String,Integer,String)
+	 */
+	@Test
+	public void getSimilarPeople_shouldMatchNamesThatSoundAlikeOnceSaved() throws Exception {
+		Person person = new Person();
+		person.setGender("M");
+		person.addName(new PersonName("Rupert", null, "Tymczak"));
+		Context.getPersonService().savePerson(person);
+		
+		Set<Person> people = Context.getPersonService().getSimilarPeople("Robert Tymczak", null, "M");
+		Assert.assertEquals(1, people.size());
+		Assert.assertTrue(people.contains(person));
+	}
+	
 	/**
 	 * @see PersonService#getAllPersonAttributeTypes()
 	 */
@@ -18,6 +18,8 @@ import org.junit.Test;
 import org.openmrs.Location;
 import org.openmrs.Person;
 import org.openmrs.PersonName;
+import org.openmrs.Privilege;
+import org.openmrs.Role;
 import org.openmrs.User;
 import org.openmrs.api.APIException;
 import org.openmrs.api.PatientService;
@@ -27,6 +29,7 @@ import org.openmrs.api.handler.ExistingOrNewVisitAssignmentHandler;
 import org.openmrs.test.BaseContextSensitiveTest;
 import org.openmrs.util.LocaleUtility;
 import org.openmrs.util.OpenmrsConstants;
+import org.openmrs.util.PrivilegeConstants;
 import org.springframework.validation.Validator;
 
 /**
@@ -242,4 +245,120 @@ public class ContextTest extends BaseContextSensitiveTest {
 		Assert.assertEquals("pt_BR", Context.getLocale().toString());
 		
 	}
+	
+	/**
+	 * @see Context#hasPrivilege(String)
+	 */
+	@Test
+	public void hasPrivilege_shouldSeePrivilegesAddedToARoleOfTheAuthenticatedUser() {
+		final String privilegeName = "Some Test Privilege";
+		UserService userService = Context.getUserService();
+		
+		// butch only has the Provider role
+		Context.becomeUser("butch");
+		Assert.assertFalse(Context.hasPrivilege(privilegeName));
+		
+		Context.addProxyPrivilege(PrivilegeConstants.MANAGE_PRIVILEGES);
+		Context.addProxyPrivilege(PrivilegeConstants.MANAGE_ROLES);
+		Context.addProxyPrivilege(privilegeName);
+		try {
+			Privilege privilege = userService.savePrivilege(new Privilege(privilegeName, "test"));
+			Role provider = userService.getRole("Provider");
+			provider.addPrivilege(privilege);
+			userService.saveRole(provider);
+		}
+		finally {
+			Context.removeProxyPrivilege(PrivilegeConstants.MANAGE_PRIVILEGES);
+			Context.removeProxyPrivilege(PrivilegeConstants.MANAGE_ROLES);
+			Context.removeProxyPrivilege(privilegeName);
+		}
+		
+		Assert.assertTrue(Context.hasPrivilege(privilegeName));
+		
+		Context.logout();
+	}
+	
+	/**
+	 * @see UserContext#copy()
+	 */
+	@Test
+	public void copy_shouldActAsTheSameUserWithItsOwnProxyPrivileges() {
+		final String privilegeName = "Some Test Privilege";
+		Context.becomeUser("butch");
+		UserContext userContext = Context.getUserContext();
+		userContext.addProxyPrivilege(privilegeName);
+		try {
+			UserContext copy = userContext.copy();
+			Assert.assertNotSame(userContext, copy);
+			Assert.assertEquals(userContext.getAuthenticatedUser(), copy.getAuthenticatedUser());
+			Assert.assertTrue(copy.hasPrivilege(privilegeName));
+			
+			copy.removeProxyPrivilege(privilegeName);
+			Assert.assertFalse(copy.hasPrivilege(privilegeName));
+			Assert.assertTrue(userContext.hasPrivilege(privilegeName));
+		}
+		finally {
+			userContext.removeProxyPrivilege(privilegeName);
+		}
+		
+		Context.logout();
+	}
+	
+	/**
+	 * @see Context#hasPrivilege(String)
+	 */
+	@Test
+	public void hasPrivilege_shouldSeeRolesInheritedByASavedRoleOfTheAuthenticatedUser() {
+		final String privilegeName = "Some Test Privilege";
+		UserService userService = Context.getUserService();
+		
+		// butch only has the Provider role
+		Context.becomeUser("butch");
+		Assert.assertFalse(Context.hasPrivilege(privilegeName));
+		
+		Context.addProxyPrivilege(PrivilegeConstants.MANAGE_PRIVILEGES);
+		Context.addProxyPrivilege(PrivilegeConstants.MANAGE_ROLES);
+		Context.addProxyPrivilege(privilegeName);
+		try {
+			Role inheritedRole = new Role("Some Test Role", "test");
+			inheritedRole.addPrivilege(userService.savePrivilege(new Privilege(privilegeName, "test")));
+			userService.saveRole(inheritedRole);
+			Role provider = userService.getRole("Provider");
+			provider.getInheritedRoles().add(inheritedRole);
+			userService.saveRole(provider);
+		}
+		finally {
+			Context.removeProxyPrivilege(PrivilegeConstants.MANAGE_PRIVILEGES);
+			Context.removeProxyPrivilege(PrivilegeConstants.MANAGE_ROLES);
+			Context.removeProxyPrivilege(privilegeName);
+		}
+		
+		Assert.assertTrue(Context.hasPrivilege(privilegeName));
+		
+		Context.logout();
+	}
+	
+	/**
+	 * @see Context#hasPrivilege(String)
+	 */
+	@Test
+	public void hasPrivilege_shouldNotSeePrivilegesAddedToARoleUntilTheRoleIsSaved() {
+		final String privilegeName = "Some Test Privilege";
+		
+		// butch only has the Provider role
+		Context.becomeUser("butch");
+		Role provider = Context.getAuthenticatedUser().getRoles().iterator().next();
+		Privilege privilege = new Privilege(privilegeName, "test");
+		Assert.assertFalse(Context.hasPrivilege(privilegeName));
+		
+		try {
+			provider.addPrivilege(privilege);
+			Assert.assertFalse(Context.hasPrivilege(privilegeName));
+		}
+		finally {
+			provider.removePrivilege(privilege);
+		}
+		
+		Context.logout();
+	}
 }
@@ -1932,6 +1932,25 @@ public class PatientDAOTest extends BaseContextSensitiveTest {
 		List<Patient> patients = dao.getPatients("voided-bravo", false, 0, 11);
 		Assert.assertEquals(0, patients.size());
 	}
+	/**
+	 * @see PatientDAO#streamDuplicatePatientDetectionRows(java.util.function.Consumer)
+	 */
+	@Test
+	public void streamDuplicatePatientDetectionRows_shouldStreamTheNonVoidedNamesOfNonVoidedPatientsByPatientId() {
+		List<Object[]> rows = new ArrayList<>();
+		dao.streamDuplicatePatientDetectionRows(rows::add);
+		
+		Assert.assertFalse(rows.isEmpty());
+		Integer previousPatientId = 0;
+		for (Object[] row : rows) {
+			Integer patientId = (Integer) row[0];
+			Assert.assertTrue(patientId >= previousPatientId);
+			Assert.assertFalse(dao.getPatient(patientId).getVoided());
+			Assert.assertNotEquals("voided-delta", row[3]);
+			previousPatientId = patientId;
+		}
+	}
+	
 	/**
 	 * @see HibernatePatientDAO#getDuplicatePatientsByAttributes(List)
 	 */
@@ -0,0 +1,115 @@
+/**
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.api.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.openmrs.Concept;
+import org.openmrs.ConceptMap;
+import org.openmrs.ConceptReferenceTerm;
+import org.openmrs.ConceptSource;
+
+/**
+ * Tests methods in {@link ConceptMappingIndex}
+ */
+public class ConceptMappingIndexTest {
+	
+	private ConceptMappingIndex index;
+	
+	@Before
+	public void setUp() {
+		index = new ConceptMappingIndex();
+		index.addMapping(1, false, 10, "WGT234", "Some Standardized Terminology", "SSTRM");
+		index.addMapping(2, true, 11, "454545", "Some Standardized Terminology", "SSTRM");
+		index.addMapping(3, false, 11, "454545", "Some Standardized Terminology", "SSTRM");
+		index.setLoaded(index.getGeneration());
+	}
+	
+	/**
+	 * @see ConceptMappingIndex#getConceptIds(String,String,boolean)
+	 */
+	@Test
+	public void getConceptIds_shouldMatchTheSourceByNameOrHl7CodeIgnoringCase() {
+		assertEquals(Arrays.asList(1), index.getConceptIds("WGT234", "SSTRM", true));
+		assertEquals(Arrays.asList(1), index.getConceptIds("wgt234", "some standardized terminology", true));
+		assertTrue(index.getConceptIds("WGT234", "OTHER", true).isEmpty());
+	}
+	
+	/**
+	 * @see ConceptMappingIndex#setLoaded(long)
+	 */
+	@Test
+	public void setLoaded_shouldNotMarkTheIndexAsLoadedAfterAChange() {
+		ConceptMappingIndex loading = new ConceptMappingIndex();
+		long generation = loading.getGeneration();
+		loading.addMapping(1, false, 10, "WGT234", "Some Standardized Terminology", "SSTRM");
+		loading.changed();
+		
+		assertFalse(loading.setLoaded(generation));
+		assertFalse(loading.isLoaded());
+		assertTrue(loading.setLoaded(loading.getGeneration()));
+	}
+	
+	/**
+	 * @see ConceptMappingIndex#getConceptIds(String,String,boolean)
+	 */
+	@Test
+	public void getConceptIds_shouldSortRetiredConceptsToTheEnd() {
+		assertEquals(Arrays.asList(3, 2), index.getConceptIds("454545", "SSTRM", true));
+	}
+	
+	/**
+	 * @see ConceptMappingIndex#getConceptIds(String,String,boolean)
+	 */
+	@Test
+	public void getConceptIds_shouldExcludeRetiredConceptsIfIncludeRetiredIsFalse() {
+		assertEquals(Arrays.asList(3), index.getConceptIds("454545", "SSTRM", false));
+	}
+	
+	/**
+	 * @see ConceptMappingIndex#indexConcept(Concept)
+	 */
+	@Test
+	public void indexConcept_shouldReplaceThePreviousMappingsOfTheConcept() {
+		Concept concept = new Concept(1);
+		concept.addConceptMapping(new ConceptMap(newTerm(12, "WGT999"), null));
+		
+		index.indexConcept(concept);
+		
+		assertTrue(index.getConceptIds("WGT234", "SSTRM", true).isEmpty());
+		assertEquals(Arrays.asList(1), index.getConceptIds("WGT999", "SSTRM", true));
+	}
+	
+	/**
+	 * @see ConceptMappingIndex#indexTerm(ConceptReferenceTerm)
+	 */
+	@Test
+	public void indexTerm_shouldMoveTheConceptsOfTheTermToItsNewCode() {
+		index.indexTerm(newTerm(11, "454546"));
+		
+		assertTrue(index.getConceptIds("454545", "SSTRM", true).isEmpty());
+		assertEquals(Arrays.asList(3, 2), index.getConceptIds("454546", "SSTRM", true));
+	}
+	
+	private ConceptReferenceTerm newTerm(Integer termId, String code) {
+		ConceptSource source = new ConceptSource();
+		source.setName("Some Standardized Terminology");
+		source.setHl7Code("SSTRM");
+		ConceptReferenceTerm term = new ConceptReferenceTerm(source, code, null);
+		term.setConceptReferenceTermId(termId);
+		return term;
+	}
+}
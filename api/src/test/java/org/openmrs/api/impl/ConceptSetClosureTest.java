@@ -0,0 +1,169 @@
+/**
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.api.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.openmrs.Concept;
+
+/**
+ * Tests methods in {@link ConceptSetClosure}
+ */
+public class ConceptSetClosureTest {
+	
+	private ConceptSetClosure closure;
+	
+	@Before
+	public void setUp() {
+		closure = new ConceptSetClosure();
+		closure.addMember(1, 2, false);
+		closure.addMember(1, 3, true);
+		closure.addMember(3, 4, true);
+		closure.addMember(3, 5, false);
+		closure.addMember(4, 6, false);
+		closure.setLoaded(closure.getGeneration());
+	}
+	
+	/**
+	 * @see ConceptSetClosure#getMemberIds(Integer)
+	 */
+	@Test
+	public void getMemberIds_shouldExpandNestedSets() {
+		assertEquals(Arrays.asList(2, 3, 4, 6, 5), closure.getMemberIds(1));
+		assertEquals(Arrays.asList(4, 6, 5), closure.getMemberIds(3));
+	}
+	
+	/**
+	 * @see ConceptSetClosure#getMemberIds(Integer)
+	 */
+	@Test
+	public void getMemberIds_shouldNotLoopOnSetsThatContainEachOther() {
+		closure.addMember(4, 1, true);
+		
+		assertEquals(Arrays.asList(2, 3, 4, 6, 1, 5), closure.getMemberIds(1));
+	}
+	
+	/**
+	 * @see ConceptSetClosure#getDepth(Integer,Integer)
+	 */
+	@Test
+	public void getDepth_shouldReturnTheShortestDepthOfANestedMember() {
+		assertEquals(Integer.valueOf(3), closure.getDepth(6, 1));
+		
+		closure.addMember(1, 6, false);
+		
+		assertEquals(Integer.valueOf(1), closure.getDepth(6, 1));
+	}
+	
+	/**
+	 * @see ConceptSetClosure#getDepth(Integer,Integer)
+	 */
+	@Test
+	public void getDepth_shouldReturnNullIfTheConceptIsNotInTheSet() {
+		assertNull(closure.getDepth(2, 3));
+		assertNull(closure.getDepth(6, null));
+	}
+	
+	/**
+	 * @see ConceptSetClosure#getAncestorIds(Integer)
+	 */
+	@Test
+	public void getAncestorIds_shouldReturnTheSetsContainingTheConceptNearestFirst() {
+		assertEquals(Arrays.asList(4, 3, 1), closure.getAncestorIds(6));
+		assertTrue(closure.getAncestorIds(1).isEmpty());
+	}
+	
+	/**
+	 * @see ConceptSetClosure#indexConcept(Concept)
+	 */
+	@Test
+	public void indexConcept_shouldReplaceThePreviousMembersOfTheConcept() {
+		Concept concept = new Concept(3);
+		concept.setSet(true);
+		concept.addSetMember(new Concept(2));
+		concept.addSetMember(new Concept(7));
+		
+		closure.indexConcept(concept);
+		
+		assertEquals(Arrays.asList(2, 3, 2, 7), closure.getMemberIds(1));
+		assertNull(closure.getDepth(6, 1));
+		assertEquals(Arrays.asList(1, 3), closure.getAncestorIds(2));
+	}
+	
+	/**
+	 * @see ConceptSetClosure#indexConcept(Concept)
+	 */
+	@Test
+	public void indexConcept_shouldStopExpandingAConceptThatIsNoLongerASet() {
+		Concept concept = new Concept(4);
+		concept.setSet(false);
+		
+		closure.indexConcept(concept);
+		
+		assertEquals(Arrays.asList(2, 3, 4, 5), closure.getMemberIds(1));
+	}
+	
+	/**
+	 * @see ConceptSetClosure#indexConcept(Concept)
+	 */
+	@Test
+	public void indexConcept_shouldOnlyDropTheExpansionsOfTheSetsContainingTheConcept() {
+		closure.addMember(10, 11, false);
+		List<Integer> unrelated = closure.getMemberIds(10);
+		List<Integer> containing = closure.getMemberIds(1);
+		
+		Concept concept = new Concept(4);
+		concept.setSet(true);
+		concept.addSetMember(new Concept(6));
+		concept.addSetMember(new Concept(7));
+		closure.indexConcept(concept);
+		
+		assertSame(unrelated, closure.getMemberIds(10));
+		assertNotSame(containing, closure.getMemberIds(1));
+		assertEquals(Arrays.asList(2, 3, 4, 6, 7, 5), closure.getMemberIds(1));
+		assertEquals(Arrays.asList(4, 6, 7, 5), closure.getMemberIds(3));
+	}
+	
+	/**
+	 * @see ConceptSetClosure#setLoaded(long)
+	 */
+	@Test
+	public void setLoaded_shouldNotMarkTheGraphAsLoadedAfterAChange() {
+		ConceptSetClosure loading = new ConceptSetClosure();
+		long generation = loading.getGeneration();
+		loading.addMember(1, 2, false);
+		loading.changed();
+		
+		assertFalse(loading.setLoaded(generation));
+		assertFalse(loading.isLoaded());
+		assertTrue(loading.setLoaded(loading.getGeneration()));
+	}
+	
+	/**
+	 * @see ConceptSetClosure#removeConcept(Integer)
+	 */
+	@Test
+	public void removeConcept_shouldRemoveTheConceptFromTheSetsItWasIn() {
+		closure.removeConcept(3);
+		
+		assertEquals(Arrays.asList(2), closure.getMemberIds(1));
+		assertTrue(closure.getAncestorIds(4).isEmpty());
+	}
+}
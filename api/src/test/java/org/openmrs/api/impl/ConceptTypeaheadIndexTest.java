@@ -0,0 +1,169 @@
+/**
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.api.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Locale;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.openmrs.Concept;
+import org.openmrs.ConceptClass;
+import org.openmrs.ConceptName;
+import org.openmrs.Drug;
+import org.openmrs.api.ConceptNameType;
+
+/**
+ * Tests methods in {@link ConceptTypeaheadIndex}
+ */
+public class ConceptTypeaheadIndexTest {
+	
+	private ConceptTypeaheadIndex index;
+	
+	@Before
+	public void setUp() {
+		index = new ConceptTypeaheadIndex();
+		index.addConceptName(1, 1, "Blood pressure", Locale.ENGLISH, ConceptNameType.FULLY_SPECIFIED, true);
+		index.addConceptName(2, 1, "Systolic blood pressure", Locale.ENGLISH, ConceptNameType.FULLY_SPECIFIED, true);
+		index.addConceptName(3, 2, "Bloodwork", Locale.ENGLISH, ConceptNameType.FULLY_SPECIFIED, false);
+		index.addConceptName(4, 2, "Pression artérielle", Locale.FRENCH, ConceptNameType.FULLY_SPECIFIED, true);
+		index.addConceptName(5, 2, "Hemogram", Locale.ENGLISH, ConceptNameType.FULLY_SPECIFIED, true);
+		index.addConceptName(5, 2, "Blood count", Locale.ENGLISH, null, false);
+		index.addDrug(1, "Paracetamol 500mg");
+		index.setLoaded(index.getGeneration());
+	}
+	
+	/**
+	 * @see ConceptTypeaheadIndex#getConceptIds(String,Locale,java.util.Set,int)
+	 */
+	@Test
+	public void getConceptIds_shouldMatchTheStartOfAnyWordIgnoringCaseAndAccents() {
+		assertEquals(Arrays.asList(1, 2), index.getConceptIds("PRESS", Locale.ENGLISH, null, 10));
+		assertEquals(Collections.singletonList(4), index.getConceptIds("arterielle", Locale.FRENCH, null, 10));
+		assertEquals(Collections.singletonList(4), index.getConceptIds("art", Locale.CANADA_FRENCH, null, 10));
+	}
+	
+	/**
+	 * @see ConceptTypeaheadIndex#getConceptIds(String,Locale,java.util.Set,int)
+	 */
+	@Test
+	public void getConceptIds_shouldRequireEveryTypedWordToMatch() {
+		assertEquals(Collections.singletonList(2), index.getConceptIds("sys blo", Locale.ENGLISH, null, 10));
+		assertTrue(index.getConceptIds("blood sugar", Locale.ENGLISH, null, 10).isEmpty());
+	}
+	
+	/**
+	 * @see ConceptTypeaheadIndex#getConceptIds(String,Locale,java.util.Set,int)
+	 */
+	@Test
+	public void getConceptIds_shouldRankPreferredNamesBeforeOtherNames() {
+		// names starting with the text first, then preferred names before other names
+		assertEquals(Arrays.asList(1, 3, 5, 2), index.getConceptIds("blood", Locale.ENGLISH, null, 10));
+		assertEquals(Arrays.asList(1, 3), index.getConceptIds("blood", Locale.ENGLISH, null, 2));
+	}
+	
+	/**
+	 * @see ConceptTypeaheadIndex#getConceptIds(String,Locale,java.util.Set,int)
+	 */
+	@Test
+	public void getConceptIds_shouldRankAConceptByItsBestMatchingName() {
+		index.addConceptName(6, 1, "Blood glucose test", Locale.ENGLISH, ConceptNameType.INDEX_TERM, false);
+		index.addConceptName(6, 1, "Blood panel", Locale.ENGLISH, ConceptNameType.FULLY_SPECIFIED, true);
+		
+		assertEquals(Arrays.asList(6, 1), index.getConceptIds("blood", Locale.ENGLISH, null, 2));
+		assertEquals(Collections.singletonList(6), index.getConceptIds("blood", Locale.ENGLISH, null, 1));
+	}
+	
+	/**
+	 * @see ConceptTypeaheadIndex#getConceptIds(String,Locale,java.util.Set,int)
+	 */
+	@Test
+	public void getConceptIds_shouldOnlyReturnConceptsOfTheGivenClasses() {
+		assertEquals(Arrays.asList(3, 5), index.getConceptIds("blood", Locale.ENGLISH, Collections.singleton(2), 10));
+	}
+	
+	/**
+	 * @see ConceptTypeaheadIndex#indexConcept(Concept)
+	 */
+	@Test
+	public void indexConcept_shouldReplaceThePreviousNamesOfTheConcept() {
+		Concept concept = new Concept(3);
+		concept.setConceptClass(new ConceptClass(2));
+		concept.addName(new ConceptName("Laboratory work", Locale.ENGLISH));
+		
+		index.indexConcept(concept);
+		
+		assertEquals(Arrays.asList(1, 5, 2), index.getConceptIds("blood", Locale.ENGLISH, null, 10));
+		assertEquals(Collections.singletonList(3), index.getConceptIds("lab", Locale.ENGLISH, null, 10));
+	}
+	
+	/**
+	 * @see ConceptTypeaheadIndex#indexConcept(Concept)
+	 */
+	@Test
+	public void indexConcept_shouldRemoveARetiredConcept() {
+		Concept concept = new Concept(1);
+		concept.addName(new ConceptName("Blood pressure", Locale.ENGLISH));
+		concept.setRetired(true);
+		
+		index.indexConcept(concept);
+		
+		assertEquals(Collections.singletonList(2), index.getConceptIds("pressure", Locale.ENGLISH, null, 10));
+	}
+	
+	/**
+	 * @see ConceptTypeaheadIndex#indexConcept(Concept)
+	 */
+	@Test
+	public void indexConcept_shouldIndexANameWithARepeatedWordOnce() {
+		index.addConceptName(6, 1, "Blood, blood sugar", Locale.ENGLISH, ConceptNameType.FULLY_SPECIFIED, true);
+		assertTrue(index.getConceptIds("blood sugar", Locale.ENGLISH, null, 10).contains(6));
+		
+		index.removeConcept(6);
+		
+		assertEquals(Arrays.asList(1, 3, 5, 2), index.getConceptIds("blood", Locale.ENGLISH, null, 10));
+		assertTrue(index.getConceptIds("sugar", Locale.ENGLISH, null, 10).isEmpty());
+	}
+	
+	/**
+	 * @see ConceptTypeaheadIndex#setLoaded(long)
+	 */
+	@Test
+	public void setLoaded_shouldNotMarkTheIndexAsLoadedAfterAChange() {
+		ConceptTypeaheadIndex loading = new ConceptTypeaheadIndex();
+		long generation = loading.getGeneration();
+		loading.addDrug(1, "Paracetamol 500mg");
+		loading.changed();
+		
+		assertFalse(loading.setLoaded(generation));
+		assertFalse(loading.isLoaded());
+		assertTrue(loading.setLoaded(loading.getGeneration()));
+	}
+	
+	/**
+	 * @see ConceptTypeaheadIndex#getDrugIds(String,int)
+	 */
+	@Test
+	public void getDrugIds_shouldMatchTheStartOfAnyWordOfTheDrugName() {
+		assertEquals(Collections.singletonList(1), index.getDrugIds("500", 10));
+		
+		Drug drug = new Drug(1);
+		drug.setName("Acetaminophen");
+		index.indexDrug(drug);
+		
+		assertTrue(index.getDrugIds("para", 10).isEmpty());
+		assertEquals(Collections.singletonList(1), index.getDrugIds("acet", 10));
+	}
+}
@@ -0,0 +1,119 @@
+/**
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.api.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Date;
+import java.util.GregorianCalendar;
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * Tests methods in {@link DuplicatePatientDetector}
+ */
+public class DuplicatePatientDetectorTest {
+	
+	private static final Date BIRTHDATE = new GregorianCalendar(1980, 4, 12).getTime();
+	
+	/**
+	 * @see DuplicatePatientDetector#detect()
+	 */
+	@Test
+	public void detect_shouldFindPatientsWithSimilarNamesAndTheSameBirthdate() {
+		DuplicatePatientDetector detector = new DuplicatePatientDetector(0.8);
+		detector.addRow(row(1, "M", BIRTHDATE, "Jonathan", null, "Smyth"));
+		detector.addRow(row(2, "M", BIRTHDATE, "Johnathan", null, "Smith"));
+		detector.addRow(row(3, "F", new GregorianCalendar(1992, 1, 3).getTime(), "Mary", null, "Otieno"));
+		
+		detector.detect();
+		
+		List<DuplicatePatientDetector.Match> matches = detector.getMatches();
+		assertEquals(1, matches.size());
+		assertEquals(1, matches.get(0).patientId);
+		assertEquals(2, matches.get(0).duplicateId);
+		assertTrue(matches.get(0).score >= 0.8);
+	}
+	
+	/**
+	 * @see DuplicatePatientDetector#detect()
+	 */
+	@Test
+	public void detect_shouldNotMatchPatientsWithDifferentBirthdatesAndGenders() {
+		DuplicatePatientDetector detector = new DuplicatePatientDetector(0.8);
+		detector.addRow(row(1, "M", BIRTHDATE, "Alex", null, "Kamau"));
+		detector.addRow(row(2, "F", new GregorianCalendar(2001, 0, 1).getTime(), "Alex", null, "Kamau"));
+		
+		detector.detect();
+		
+		assertTrue(detector.getMatches().isEmpty());
+	}
+	
+	/**
+	 * @see DuplicatePatientDetector#detect()
+	 */
+	@Test
+	public void detect_shouldRankTheBestMatchesFirst() {
+		DuplicatePatientDetector detector = new DuplicatePatientDetector(0.5);
+		detector.addRow(row(1, "F", BIRTHDATE, "Grace", null, "Wanjiru"));
+		detector.addRow(row(2, "F", new GregorianCalendar(1980, 9, 1).getTime(), "Grace", null, "Wanjiru"));
+		detector.addRow(row(3, "F", BIRTHDATE, "Grace", null, "Wanjiru"));
+		
+		detector.detect();
+		
+		List<DuplicatePatientDetector.Match> matches = detector.getMatches();
+		assertEquals(1, matches.get(0).patientId);
+		assertEquals(3, matches.get(0).duplicateId);
+		for (int i = 1; i < matches.size(); i++) {
+			assertTrue(matches.get(i - 1).score >= matches.get(i).score);
+		}
+	}
+	
+	/**
+	 * @see DuplicatePatientDetector#detect()
+	 */
+	@Test
+	public void detect_shouldReportEachPairOnce() {
+		DuplicatePatientDetector detector = new DuplicatePatientDetector(0.8);
+		// the two patients share every block, and have a second name each
+		detector.addRow(row(1, "M", BIRTHDATE, "Peter", "James", "Mwangi"));
+		detector.addRow(row(1, "M", BIRTHDATE, "Pete", null, "Mwangi"));
+		detector.addRow(row(2, "M", BIRTHDATE, "Peter", "James", "Mwangi"));
+		
+		detector.detect();
+		
+		assertEquals(1, detector.getMatches().size());
+	}
+	
+	/**
+	 * @see DuplicatePatientDetector#detect()
+	 */
+	@Test
+	public void detect_shouldCountTheBlocksAndPatientsThatAreTooLargeToScore() {
+		DuplicatePatientDetector detector = new DuplicatePatientDetector(0.8, 2);
+		// the three patients share the family name block, the first two also share the other blocks
+		detector.addRow(row(1, "M", BIRTHDATE, "Peter", null, "Mwangi"));
+		detector.addRow(row(2, "M", BIRTHDATE, "Peter", null, "Mwangi"));
+		detector.addRow(row(3, "F", BIRTHDATE, "Wambui", null, "Mwangi"));
+		
+		detector.detect();
+		
+		assertEquals(1, detector.getSkippedBlockCount());
+		assertEquals(3, detector.getSkippedPatientCount());
+		assertEquals(1, detector.getMatches().size());
+	}
+	
+	private static Object[] row(int patientId, String gender, Date birthdate, String givenName, String middleName,
+	        String familyName) {
+		return new Object[] { patientId, gender, birthdate, givenName, middleName, familyName, null };
+	}
+}
@@ -0,0 +1,72 @@
+/**
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.api.impl;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Test;
+
+public class OrderNumberSeedAllocatorTest {
+	
+	@Test
+	public void nextSeed_shouldOnlyReserveANewBlockWhenTheCurrentOneIsUsedUp() {
+		AtomicInteger reservations = new AtomicInteger();
+		OrderNumberSeedAllocator allocator = new OrderNumberSeedAllocator(3, blockSize -> {
+			reservations.incrementAndGet();
+			return 10L;
+		});
+		
+		assertEquals(10L, allocator.nextSeed());
+		assertEquals(11L, allocator.nextSeed());
+		assertEquals(12L, allocator.nextSeed());
+		assertEquals(1, reservations.get());
+		
+		assertEquals(10L, allocator.nextSeed());
+		assertEquals(2, reservations.get());
+	}
+	
+	@Test
+	public void nextSeed_shouldReturnUniqueSeedsWhenCalledConcurrently() throws InterruptedException {
+		final AtomicLong database = new AtomicLong(1);
+		final OrderNumberSeedAllocator allocator = new OrderNumberSeedAllocator(7, database::getAndAdd);
+		final Set<Long> seeds = ConcurrentHashMap.newKeySet();
+		
+		int threadCount = 20;
+		final int seedsPerThread = 50;
+		List<Thread> threads = new ArrayList<>();
+		for (int i = 0; i < threadCount; i++) {
+			threads.add(new Thread(() -> {
+				for (int j = 0; j < seedsPerThread; j++) {
+					seeds.add(allocator.nextSeed());
+				}
+			}));
+		}
+		for (Thread thread : threads) {
+			thread.start();
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+		
+		assertEquals(threadCount * seedsPerThread, seeds.size());
+	}
+	
+	@Test(expected = IllegalArgumentException.class)
+	public void OrderNumberSeedAllocator_shouldRejectABlockSizeLessThanOne() {
+		new OrderNumberSeedAllocator(0, blockSize -> 1L);
+	}
+}
@@ -0,0 +1,65 @@
+/**
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.hl7;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests methods on the {@link HL7InQueueProcessor} class
+ */
+public class HL7InQueueProcessorTest {
+	
+	/**
+	 * @see HL7InQueueProcessor#partitionByPatient(List,int)
+	 */
+	@Test
+	public void partitionByPatient_shouldKeepMessagesForTheSamePatientInTheSamePartitionAndInOrder() {
+		List<HL7InQueue> queue = new ArrayList<HL7InQueue>();
+		queue.add(newQueueItem(1, "101"));
+		queue.add(newQueueItem(2, "202"));
+		queue.add(newQueueItem(3, "101"));
+		queue.add(newQueueItem(4, "303"));
+		queue.add(newQueueItem(5, "202"));
+		queue.add(newQueueItem(6, "101"));
+		
+		Collection<List<Integer>> partitions = HL7InQueueProcessor.partitionByPatient(queue, 2);
+		
+		Assert.assertTrue(partitions.size() <= 2);
+		for (List<Integer> partition : partitions) {
+			if (partition.contains(1)) {
+				Assert.assertTrue(partition.indexOf(1) < partition.indexOf(3));
+				Assert.assertTrue(partition.indexOf(3) < partition.indexOf(6));
+			}
+			if (partition.contains(2)) {
+				Assert.assertTrue(partition.indexOf(2) < partition.indexOf(5));
+			}
+		}
+		int total = 0;
+		for (List<Integer> partition : partitions) {
+			total += partition.size();
+		}
+		Assert.assertEquals(6, total);
+		Assert.assertTrue(Arrays.asList(1, 2, 3, 4, 5, 6).containsAll(partitions.iterator().next()));
+	}
+	
+	private HL7InQueue newQueueItem(int id, String patientIdentifier) {
+		HL7InQueue hl7InQueue = new HL7InQueue();
+		hl7InQueue.setHL7InQueueId(id);
+		hl7InQueue.setHL7Data("MSH|^~\\&|FORMENTRY|AMRS.ELD|HL7LISTENER|AMRS.ELD|20080226102656||ORU^R01|" + id
+		        + "|P|2.5|1\rPID|||" + patientIdentifier + "^^^^||John^Doe^");
+		return hl7InQueue;
+	}
+}
@@ -14,9 +14,12 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertThat;
 
 import java.io.File;
+import java.net.URI;
+import java.nio.file.Files;
 import java.util.Calendar;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Properties;
 
 import org.junit.Assert;
@@ -27,6 +30,7 @@ import org.openmrs.GlobalProperty;
 import org.openmrs.Obs;
 import org.openmrs.Patient;
 import org.openmrs.Person;
+import org.openmrs.api.APIException;
 import org.openmrs.api.context.Context;
 import org.openmrs.hl7.handler.ORUR01Handler;
 import org.openmrs.hl7.impl.HL7ServiceImpl;
@@ -117,6 +121,25 @@ public class HL7ServiceTest extends BaseContextSensitiveTest {
 		Assert.assertEquals(1, hl7service.getAllHL7InErrors().size());
 	}
 	
+	/**
+	 * @see HL7Service#getNextHL7InQueueBatch(Integer,int)
+	 */
+	@Test
+	public void getNextHL7InQueueBatch_shouldReturnPendingQueueItemsAfterTheGivenIdInOrder() throws Exception {
+		executeDataSet("org/openmrs/hl7/include/ORUTest-initialData.xml");
+		HL7Service hl7service = Context.getHL7Service();
+		
+		List<HL7InQueue> batch = hl7service.getNextHL7InQueueBatch(null, 1);
+		Assert.assertEquals(1, batch.size());
+		Assert.assertEquals(1, batch.get(0).getHL7InQueueId().intValue());
+		
+		batch = hl7service.getNextHL7InQueueBatch(1, 10);
+		Assert.assertEquals(1, batch.size());
+		Assert.assertEquals(2, batch.get(0).getHL7InQueueId().intValue());
+		
+		Assert.assertTrue(hl7service.getNextHL7InQueueBatch(2, 10).isEmpty());
+	}
+	
 	/**
 	 * @see HL7Service#processHL7InQueue(HL7InQueue)
 	 */
@@ -631,6 +654,34 @@ public class HL7ServiceTest extends BaseContextSensitiveTest {
 		hl7service.getUuidFromIdentifiers(identifiers);
 	}
 	
+	/**
+	 * @see HL7Service#getResolverCacheStatistics()
+	 */
+	@Test
+	public void getResolverCacheStatistics_shouldCountHitsAndMissesWhenResolvingUsers() throws Exception {
+		executeDataSet("org/openmrs/hl7/include/ORUTest-initialData.xml");
+		HL7Service hl7service = Context.getHL7Service();
+		Message message = hl7service
+		        .parseHL7String("MSH|^~\\&|FORMENTRY|AMRS.ELD|HL7LISTENER|AMRS.ELD|20080226102656||ORU^R01|JqnfhKKtouEz8kzTk6Zo|P|2.5|1||||||||16^AMRS.ELD.FORMID\r"
+		                + "PID|||3^^^^||John3^Doe^||\r"
+		                + "PV1||O|1^0^0^0&Test Location&0||||1^Super User (1-8)|||||||||||||||||||||||||||||||||||||20080212|||||||V\r"
+		                + "ORC|RE||||||||20080226102537|1^Super User\r"
+		                + "OBR|1|||1238^MEDICAL RECORD OBSERVATIONS^99DCT\r"
+		                + "OBX|1|NM|5497^CD4, BY FACS^99DCT||450|||||||||20080206");
+		ORU_R01 oru = (ORU_R01) message;
+		XCN enterer = oru.getPATIENT_RESULT().getORDER_OBSERVATION().getORC().getEnteredBy(0);
+		
+		Map<String, Long> before = hl7service.getResolverCacheStatistics();
+		Assert.assertEquals(Integer.valueOf(1), hl7service.resolveUserId(enterer));
+		Assert.assertEquals(Integer.valueOf(1), hl7service.resolveUserId(enterer));
+		Map<String, Long> after = hl7service.getResolverCacheStatistics();
+		
+		String hits = HL7Constants.HL7_USER_ID_CACHE + ".hits";
+		String misses = HL7Constants.HL7_USER_ID_CACHE + ".misses";
+		Assert.assertEquals(2, after.get(hits) + after.get(misses) - before.get(hits) - before.get(misses));
+		Assert.assertTrue(after.get(hits) > before.get(hits));
+	}
+	
 	/**
 	 * @see HL7Service#resolveLocationId(ca.uhn.hl7v2.model.v25.datatype.PL)
 	 */
@@ -770,4 +821,117 @@ public class HL7ServiceTest extends BaseContextSensitiveTest {
 		Integer userId = hl7service.resolveUserId(xcn);
 		assertThat(userId, is(502));
 	}
+	
+	/**
+	 * @see HL7Service#migrateNextHl7InArchivesChunk(int,Map)
+	 */
+	@Test
+	public void migrateNextHl7InArchivesChunk_shouldMoveArchivesToTheFileSystemAndSaveACheckpoint() throws Exception {
+		executeDataSet("org/openmrs/hl7/include/ORUTest-initialData.xml");
+		setArchiveDirectoryToTempDirectory();
+		HL7Service hl7service = Context.getHL7Service();
+		HL7InArchive first = saveArchiveToMigrate(hl7service, "first");
+		HL7InArchive second = saveArchiveToMigrate(hl7service, "second");
+		Map<String, Integer> progressStatusMap = new HashMap<>();
+		
+		Assert.assertEquals(1, hl7service.migrateNextHl7InArchivesChunk(1, progressStatusMap));
+		Context.flushSession();
+		Context.clearSession();
+		
+		HL7InArchive migrated = hl7service.getHL7InArchive(first.getHL7InArchiveId());
+		Assert.assertEquals(HL7Constants.HL7_STATUS_MIGRATED, migrated.getMessageState());
+		Assert.assertTrue(new File(new URI(migrated.getHL7Data())).isFile());
+		Assert.assertEquals(HL7Constants.HL7_STATUS_PROCESSED, hl7service.getHL7InArchive(second.getHL7InArchiveId())
+		        .getMessageState());
+		Assert.assertEquals(String.valueOf(first.getHL7InArchiveId()), Context.getAdministrationService().getGlobalProperty(
+		    OpenmrsConstants.GP_HL7_ARCHIVE_MIGRATION_CHECKPOINT));
+		Assert.assertEquals(Integer.valueOf(1), progressStatusMap.get(HL7Constants.NUMBER_TRANSFERRED_KEY));
+	}
+	
+	/**
+	 * @see HL7Service#migrateNextHl7InArchivesChunk(int,Map)
+	 */
+	@Test
+	public void migrateNextHl7InArchivesChunk_shouldResumeAfterTheCheckpoint() throws Exception {
+		executeDataSet("org/openmrs/hl7/include/ORUTest-initialData.xml");
+		setArchiveDirectoryToTempDirectory();
+		HL7Service hl7service = Context.getHL7Service();
+		HL7InArchive first = saveArchiveToMigrate(hl7service, "first");
+		HL7InArchive second = saveArchiveToMigrate(hl7service, "second");
+		Context.getAdministrationService().setGlobalProperty(OpenmrsConstants.GP_HL7_ARCHIVE_MIGRATION_CHECKPOINT,
+		    String.valueOf(first.getHL7InArchiveId()));
+		
+		Assert.assertEquals(1, hl7service.migrateNextHl7InArchivesChunk(10, new HashMap<>()));
+		Context.flushSession();
+		Context.clearSession();
+		
+		Assert.assertEquals(HL7Constants.HL7_STATUS_PROCESSED, hl7service.getHL7InArchive(first.getHL7InArchiveId())
+		        .getMessageState());
+		Assert.assertEquals(HL7Constants.HL7_STATUS_MIGRATED, hl7service.getHL7InArchive(second.getHL7InArchiveId())
+		        .getMessageState());
+		Assert.assertEquals(0, hl7service.migrateNextHl7InArchivesChunk(10, new HashMap<>()));
+	}
+	
+	/**
+	 * @see HL7Service#migrateNextHl7InArchivesChunk(int,Map)
+	 */
+	@Test
+	public void migrateNextHl7InArchivesChunk_shouldReuseTheFilesWrittenByAChunkThatWasNotCommitted() throws Exception {
+		executeDataSet("org/openmrs/hl7/include/ORUTest-initialData.xml");
+		setArchiveDirectoryToTempDirectory();
+		HL7Service hl7service = Context.getHL7Service();
+		HL7InArchive archive = saveArchiveToMigrate(hl7service, "rerun");
+		
+		Calendar calendar = Calendar.getInstance(Context.getLocale());
+		calendar.setTime(archive.getDateCreated());
+		File dayDir = new File(HL7Util.getHl7ArchivesDirectory(), String.format("%d/%02d/%02d", calendar.get(Calendar.YEAR),
+		    calendar.get(Calendar.MONTH) + 1, calendar.get(Calendar.DAY_OF_MONTH)));
+		dayDir.mkdirs();
+		File leftBehind = new File(dayDir, archive.getUuid() + "_rerun.txt");
+		Files.write(leftBehind.toPath(), archive.getHL7Data().getBytes());
+		Assert.assertTrue(leftBehind.setLastModified(1000));
+		
+		Assert.assertEquals(1, hl7service.migrateNextHl7InArchivesChunk(10, new HashMap<>()));
+		Context.flushSession();
+		Context.clearSession();
+		
+		HL7InArchive migrated = hl7service.getHL7InArchive(archive.getHL7InArchiveId());
+		Assert.assertEquals(leftBehind.getCanonicalFile(), new File(new URI(migrated.getHL7Data())).getCanonicalFile());
+		Assert.assertEquals(1000, leftBehind.lastModified());
+	}
+	
+	/**
+	 * @see HL7Service#migrateNextHl7InArchivesChunk(int,Map)
+	 */
+	@Test(expected = APIException.class)
+	public void migrateNextHl7InArchivesChunk_shouldFailForAChunkSizeThatIsNotPositive() throws Exception {
+		Context.getHL7Service().migrateNextHl7InArchivesChunk(0, new HashMap<>());
+	}
+	
+	/**
+	 * @see HL7Service#migrateNextHl7InArchivesChunk(int,Map)
+	 */
+	@Test(expected = APIException.class)
+	public void migrateNextHl7InArchivesChunk_shouldFailForACheckpointThatIsNotAnArchiveId() throws Exception {
+		Context.getAdministrationService().setGlobalProperty(OpenmrsConstants.GP_HL7_ARCHIVE_MIGRATION_CHECKPOINT, "abc");
+		Context.getHL7Service().migrateNextHl7InArchivesChunk(10, new HashMap<>());
+	}
+	
+	private void setArchiveDirectoryToTempDirectory() {
+		File tempDir = new File(System.getProperty("java.io.tmpdir"), HL7Constants.HL7_ARCHIVE_DIRECTORY_NAME);
+		Context.getAdministrationService().setGlobalProperty(OpenmrsConstants.GLOBAL_PROPERTY_HL7_ARCHIVE_DIRECTORY,
+		    tempDir.getAbsolutePath());
+	}
+	
+	private HL7InArchive saveArchiveToMigrate(HL7Service hl7service, String sourceKey) {
+		Calendar calendar = Calendar.getInstance();
+		calendar.add(Calendar.YEAR, -2);
+		HL7InArchive archive = new HL7InArchive();
+		archive.setHL7Source(hl7service.getHL7Source(1));
+		archive.setHL7SourceKey(sourceKey);
+		archive.setHL7Data("MSH|^~\\&|FORMENTRY|AMRS.ELD|HL7LISTENER|AMRS.ELD|20080226102656||ORU^R01|" + sourceKey);
+		archive.setMessageState(HL7Constants.HL7_STATUS_PROCESSED);
+		archive.setDateCreated(calendar.getTime());
+		return hl7service.saveHL7InArchive(archive);
+	}
 }
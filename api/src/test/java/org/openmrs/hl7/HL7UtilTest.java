@@ -96,4 +96,34 @@ public class HL7UtilTest {
 		TimeZone.setDefault(originalTimeZone);
 	}
 	
+	/**
+	 * @see HL7Util#getPatientIdentifier(String)
+	 */
+	@Test
+	public void getPatientIdentifier_shouldReturnTheFirstIdentifierInThePIDSegment() {
+		String message = "MSH|^~\\&|FORMENTRY|AMRS.ELD|HL7LISTENER|AMRS.ELD|20080226102656||ORU^R01|JqnfhKKtouEz8kzTk6Zo|P|2.5|1||||||||16^AMRS.ELD.FORMID\r"
+		        + "PID|||3^^^^~4^^^^||John3^Doe^\r"
+		        + "OBR|1|||1238^MEDICAL RECORD OBSERVATIONS^99DCT";
+		Assert.assertEquals("3", HL7Util.getPatientIdentifier(message));
+	}
+	
+	/**
+	 * @see HL7Util#getPatientIdentifier(String)
+	 */
+	@Test
+	public void getPatientIdentifier_shouldReturnNullIfTheMessageHasNoPIDSegment() {
+		String message = "MSH|^~\\&|FORMENTRY|AMRS.ELD|HL7LISTENER|AMRS.ELD|20080226102656||ORU^R01|JqnfhKKtouEz8kzTk6Zo|P|2.5|1\r"
+		        + "OBR|1|||1238^MEDICAL RECORD OBSERVATIONS^99DCT";
+		Assert.assertNull(HL7Util.getPatientIdentifier(message));
+	}
+	
+	/**
+	 * @see HL7Util#getPatientIdentifier(String)
+	 */
+	@Test
+	public void getPatientIdentifier_shouldReturnNullForAMessageThatDoesNotStartWithAnMSHSegment() {
+		Assert.assertNull(HL7Util.getPatientIdentifier("PID|||3^^^^||John3^Doe^"));
+		Assert.assertNull(HL7Util.getPatientIdentifier(null));
+	}
+	
 }
@@ -0,0 +1,63 @@
+/**
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.hl7.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+import org.springframework.cache.concurrent.ConcurrentMapCache;
+
+/**
+ * Tests methods on the {@link HL7ResolverCache} class
+ */
+public class HL7ResolverCacheTest {
+	
+	/**
+	 * @see HL7ResolverCache#get(String,HL7ResolverCache.Resolver)
+	 */
+	@Test
+	public void get_shouldOnlyCallTheResolverOnAMiss() throws Exception {
+		HL7ResolverCache cache = new HL7ResolverCache(new ConcurrentMapCache("test"));
+		AtomicInteger calls = new AtomicInteger();
+		
+		for (int i = 0; i < 3; i++) {
+			assertEquals(Integer.valueOf(7), cache.get(HL7ResolverCache.key("1", "Doe", "John"), () -> {
+				calls.incrementAndGet();
+				return 7;
+			}));
+		}
+		
+		assertEquals(1, calls.get());
+		assertEquals(2, cache.getHitCount());
+		assertEquals(1, cache.getMissCount());
+	}
+	
+	/**
+	 * @see HL7ResolverCache#get(String,HL7ResolverCache.Resolver)
+	 */
+	@Test
+	public void get_shouldNotCacheUnresolvedKeys() throws Exception {
+		HL7ResolverCache cache = new HL7ResolverCache(new ConcurrentMapCache("test"));
+		AtomicInteger calls = new AtomicInteger();
+		
+		for (int i = 0; i < 2; i++) {
+			assertNull(cache.get(HL7ResolverCache.key("unknown"), () -> {
+				calls.incrementAndGet();
+				return null;
+			}));
+		}
+		
+		assertEquals(2, calls.get());
+		assertEquals(0, cache.getHitCount());
+	}
+}
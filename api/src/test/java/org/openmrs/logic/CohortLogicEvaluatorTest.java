@@ -0,0 +1,224 @@
+/**
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.logic;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.openmrs.Cohort;
+import org.openmrs.logic.datasource.LogicDataSource;
+import org.openmrs.logic.op.Operator;
+import org.openmrs.logic.result.NumericResultSeries;
+import org.openmrs.logic.result.Result;
+
+/**
+ * Tests {@link CohortLogicEvaluator}
+ */
+public class CohortLogicEvaluatorTest {
+	
+	private static final String CD4 = "CD4 COUNT";
+	
+	private LogicService logicService;
+	
+	private LogicDataSource dataSource;
+	
+	private LogicContext context;
+	
+	private Cohort cohort;
+	
+	private Map<Integer, Result> read;
+	
+	@Before
+	public void setUp() {
+		logicService = mock(LogicService.class);
+		dataSource = mock(LogicDataSource.class);
+		context = mock(LogicContext.class);
+		cohort = new Cohort(Arrays.asList(1, 2));
+		
+		Map<String, LogicDataSource> dataSources = new HashMap<String, LogicDataSource>();
+		dataSources.put("obs", dataSource);
+		when(logicService.getLogicDataSources()).thenReturn(dataSources);
+		when(dataSource.hasKey(CD4)).thenReturn(true);
+		
+		Result patientOne = new Result();
+		patientOne.add(new Result(new Date(1000), 100.0, null));
+		patientOne.add(new Result(new Date(3000), 300.0, null));
+		patientOne.add(new Result(new Date(2000), 200.0, null));
+		read = new HashMap<Integer, Result>();
+		read.put(1, patientOne);
+		read.put(2, Result.emptyResult());
+		when(dataSource.read(any(LogicContext.class), any(Cohort.class), any(LogicCriteria.class))).thenReturn(read);
+		when(logicService.parse(anyString())).thenAnswer(
+		    invocation -> SimpleLogicCriteria.parse((String) invocation.getArguments()[0]));
+	}
+	
+	private LogicCriteria criteria(String criteria) {
+		return logicService.parse(criteria);
+	}
+	
+	/**
+	 * @see CohortLogicEvaluator#eval(LogicContext,Cohort,List)
+	 */
+	@Test
+	public void eval_shouldReadEachDataSourceKeyOnlyOnceForCriteriaThatOnlyDifferInTheirTransform() {
+		LogicCriteria all = criteria("\"CD4 COUNT\"");
+		LogicCriteria last = criteria("LAST \"CD4 COUNT\"");
+		LogicCriteria count = criteria("COUNT \"CD4 COUNT\"");
+		
+		Map<LogicCriteria, Map<Integer, Result>> results = new CohortLogicEvaluator(logicService).eval(context, cohort,
+		    Arrays.asList(all, last, count));
+		
+		verify(dataSource, times(1)).read(any(LogicContext.class), any(Cohort.class), any(LogicCriteria.class));
+		assertEquals(3, results.get(all).get(1).size());
+		assertEquals(300.0, results.get(last).get(1).toNumber(), 0);
+		assertEquals(3.0, results.get(count).get(1).toNumber(), 0);
+	}
+	
+	/**
+	 * @see CohortLogicEvaluator#eval(LogicContext,Cohort,List)
+	 */
+	@Test
+	public void eval_shouldReadTheKeySeparatelyForCriteriaWithDifferentLogicParameters() {
+		LogicCriteria last = criteria("LAST \"CD4 COUNT\"");
+		LogicCriteria lastForOtherSite = criteria("LAST \"CD4 COUNT\"");
+		lastForOtherSite.setLogicParameters(Collections.<String, Object> singletonMap("location", 2));
+		LogicCriteria countForOtherSite = criteria("COUNT \"CD4 COUNT\"");
+		countForOtherSite.setLogicParameters(Collections.<String, Object> singletonMap("location", 2));
+		
+		new CohortLogicEvaluator(logicService).eval(context, cohort, Arrays.asList(last, lastForOtherSite,
+		    countForOtherSite));
+		
+		verify(dataSource, times(2)).read(any(LogicContext.class), any(Cohort.class), any(LogicCriteria.class));
+	}
+	
+	/**
+	 * @see CohortLogicEvaluator#eval(LogicContext,Cohort,List)
+	 */
+	@Test
+	public void eval_shouldNotModifyTheGivenCriteria() {
+		LogicCriteria last = criteria("LAST \"CD4 COUNT\"");
+		last.setLogicParameters(Collections.<String, Object> singletonMap("location", 2));
+		AtomicReference<LogicCriteria> readCriteria = new AtomicReference<LogicCriteria>();
+		AtomicReference<LogicTransform> transformDuringRead = new AtomicReference<LogicTransform>();
+		when(dataSource.read(any(LogicContext.class), any(Cohort.class), any(LogicCriteria.class))).thenAnswer(
+		    invocation -> {
+			    readCriteria.set((LogicCriteria) invocation.getArguments()[2]);
+			    transformDuringRead.set(last.getExpression().getTransform());
+			    return read;
+		    });
+		
+		new CohortLogicEvaluator(logicService).eval(context, cohort, Collections.singletonList(last));
+		
+		assertNotSame(last, readCriteria.get());
+		assertNull(readCriteria.get().getExpression().getTransform());
+		assertEquals(last.getLogicParameters(), readCriteria.get().getLogicParameters());
+		assertEquals(Operator.LAST, transformDuringRead.get().getTransformOperator());
+		assertEquals(Operator.LAST, last.getExpression().getTransform().getTransformOperator());
+	}
+	
+	/**
+	 * @see CohortLogicEvaluator#eval(LogicContext,Cohort,List)
+	 */
+	@Test
+	public void eval_shouldApplyLastAndFirstTransformsInMemory() {
+		LogicCriteria lastTwo = criteria("\"CD4 COUNT\"").last(2);
+		LogicCriteria first = criteria("FIRST \"CD4 COUNT\"");
+		
+		Map<LogicCriteria, Map<Integer, Result>> results = new CohortLogicEvaluator(logicService).eval(context, cohort,
+		    Arrays.asList(lastTwo, first));
+		
+		Result patientOneLastTwo = results.get(lastTwo).get(1);
+		assertEquals(2, patientOneLastTwo.size());
+		assertEquals(300.0, patientOneLastTwo.get(0).toNumber(), 0);
+		assertEquals(200.0, patientOneLastTwo.get(1).toNumber(), 0);
+		assertEquals(100.0, results.get(first).get(1).toNumber(), 0);
+		assertTrue(results.get(first).get(2).isNull());
+	}
+	
+	/**
+	 * @see CohortLogicEvaluator#eval(LogicContext,Cohort,List)
+	 */
+	@Test
+	public void eval_shouldApplyCountAverageAndExistsTransformsInMemory() {
+		LogicCriteria count = criteria("COUNT \"CD4 COUNT\"");
+		LogicCriteria average = criteria("AVERAGE \"CD4 COUNT\"");
+		LogicCriteria exists = criteria("EXISTS \"CD4 COUNT\"");
+		
+		Map<LogicCriteria, Map<Integer, Result>> results = new CohortLogicEvaluator(logicService).eval(context, cohort,
+		    Arrays.asList(count, average, exists));
+		
+		assertEquals(0.0, results.get(count).get(2).toNumber(), 0);
+		assertEquals(200.0, results.get(average).get(1).toNumber(), 0);
+		assertTrue(results.get(exists).get(1).toBoolean());
+		assertFalse(results.get(exists).get(2).toBoolean());
+	}
+	
+	/**
+	 * @see CohortLogicEvaluator#applyTransform(LogicTransform,Result)
+	 */
+	@Test
+	public void applyTransform_shouldCountCheckAndAverageAnEmptyNumericSeriesAsHavingNoValues() {
+		NumericResultSeries empty = new NumericResultSeries(new double[0], new long[0]);
+		
+		assertEquals(0.0, CohortLogicEvaluator.applyTransform(new LogicTransform(Operator.COUNT), empty).toNumber(), 0);
+		assertFalse(CohortLogicEvaluator.applyTransform(new LogicTransform(Operator.EXISTS), empty).toBoolean());
+		assertTrue(CohortLogicEvaluator.applyTransform(new LogicTransform(Operator.NOT_EXISTS), empty).toBoolean());
+		assertTrue(CohortLogicEvaluator.applyTransform(new LogicTransform(Operator.AVERAGE), empty).isNull());
+		assertTrue(CohortLogicEvaluator.applyTransform(new LogicTransform(Operator.LAST), empty).isNull());
+	}
+	
+	/**
+	 * @see CohortLogicEvaluator#eval(LogicContext,Cohort,List)
+	 */
+	@Test
+	public void eval_shouldPassCriteriaWithComparisonsToTheDataSource() {
+		LogicCriteria within = criteria("\"CD4 COUNT\"").within(Duration.months(6));
+		
+		new CohortLogicEvaluator(logicService).eval(context, cohort, Collections.singletonList(within));
+		
+		verify(dataSource).read(context, cohort, within);
+	}
+	
+	/**
+	 * @see CohortLogicEvaluator#eval(LogicContext,Cohort,List)
+	 */
+	@Test
+	public void eval_shouldEvaluateCriteriaWithoutADataSourceThroughTheLogicService() {
+		LogicCriteria rule = criteria("\"HIV POSITIVE\"");
+		Map<Integer, Result> ruleResults = new HashMap<Integer, Result>();
+		when(logicService.eval(cohort, rule)).thenReturn(ruleResults);
+		
+		Map<LogicCriteria, Map<Integer, Result>> results = new CohortLogicEvaluator(logicService).eval(context, cohort,
+		    Collections.singletonList(rule));
+		
+		assertEquals(ruleResults, results.get(rule));
+		verify(dataSource, never()).read(any(LogicContext.class), any(Cohort.class), any(LogicCriteria.class));
+	}
+}
@@ -0,0 +1,410 @@
+/**
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.logic;
+
+import java.util.Collection;
+import java.util.Date;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.openmrs.logic.op.ComparisonOperator;
+import org.openmrs.logic.op.Operand;
+import org.openmrs.logic.op.Operator;
+
+/**
+ * A plain implementation of {@link LogicCriteria} for tests, as the real one lives in the logic
+ * module. It holds a single expression of a root token with at most one comparison and one
+ * transform, and can be parsed from strings such as <code>LAST "CD4 COUNT"</code> or
+ * <code>'CD4 COUNT'</code>. Like the logic module's parser, it only takes a token of several words if
+ * it is quoted.
+ */
+public class SimpleLogicCriteria implements LogicCriteria {
+	
+	private static final Pattern CRITERIA = Pattern
+	        .compile("^\\s*(?:(LAST|FIRST|COUNT|AVERAGE|EXISTS|DISTINCT)\\s+)?(?:\"([^\"]+)\"|'([^']+)'|([^\\s\"']+))\\s*$");
+	
+	private final SimpleLogicExpression expression;
+	
+	private Map<String, Object> logicParameters;
+	
+	/**
+	 * @param rootToken the token the criteria reads
+	 */
+	public SimpleLogicCriteria(String rootToken) {
+		expression = new SimpleLogicExpression(rootToken);
+	}
+	
+	/**
+	 * Parses a token, optionally preceded by a transform, which must be quoted if it has several
+	 * words
+	 *
+	 * @param criteria the criteria string
+	 * @return the parsed criteria
+	 */
+	public static SimpleLogicCriteria parse(String criteria) {
+		Matcher matcher = CRITERIA.matcher(criteria);
+		if (!matcher.matches()) {
+			throw new LogicException("Cannot parse " + criteria);
+		}
+		SimpleLogicCriteria parsed = new SimpleLogicCriteria(getToken(matcher));
+		if (matcher.group(1) != null) {
+			parsed.applyTransform(getTransformOperator(matcher.group(1)));
+		}
+		return parsed;
+	}
+	
+	private static String getToken(Matcher matcher) {
+		for (int group = 2; group < matcher.groupCount(); group++) {
+			if (matcher.group(group) != null) {
+				return matcher.group(group);
+			}
+		}
+		return matcher.group(matcher.groupCount());
+	}
+	
+	private static Operator getTransformOperator(String name) {
+		if ("LAST".equals(name)) {
+			return Operator.LAST;
+		} else if ("FIRST".equals(name)) {
+			return Operator.FIRST;
+		} else if ("COUNT".equals(name)) {
+			return Operator.COUNT;
+		} else if ("AVERAGE".equals(name)) {
+			return Operator.AVERAGE;
+		} else if ("EXISTS".equals(name)) {
+			return Operator.EXISTS;
+		}
+		return Operator.DISTINCT;
+	}
+	
+	@Override
+	public LogicCriteria appendExpression(Operator operator, Operand operand) {
+		expression.operator = operator;
+		expression.rightOperand = operand;
+		return this;
+	}
+	
+	@Override
+	public LogicCriteria appendExpression(Operator operator, String operand) {
+		return appendExpression(operator, (Operand) null);
+	}
+	
+	@Override
+	public LogicCriteria appendExpression(Operator operator, double operand) {
+		return appendExpression(operator, (Operand) null);
+	}
+	
+	@Override
+	public LogicCriteria applyTransform(Operator operator) {
+		expression.setTransform(new LogicTransform(operator));
+		return this;
+	}
+	
+	@Override
+	public LogicCriteria appendCriteria(Operator operator, LogicCriteria logicCriteria) {
+		throw new UnsupportedOperationException();
+	}
+	
+	@Override
+	public LogicCriteria and(LogicCriteria logicCriteria) {
+		throw new UnsupportedOperationException();
+	}
+	
+	@Override
+	public LogicCriteria or(LogicCriteria logicCriteria) {
+		throw new UnsupportedOperationException();
+	}
+	
+	@Override
+	public LogicCriteria not() {
+		throw new UnsupportedOperationException();
+	}
+	
+	@Override
+	public LogicCriteria count() {
+		return applyTransform(Operator.COUNT);
+	}
+	
+	@Override
+	public LogicCriteria average() {
+		return applyTransform(Operator.AVERAGE);
+	}
+	
+	@Override
+	public LogicCriteria last() {
+		return applyTransform(Operator.LAST);
+	}
+	
+	@Override
+	public LogicCriteria last(Integer numResults) {
+		expression.setTransform(new LogicTransform(Operator.LAST, numResults));
+		return this;
+	}
+	
+	@Override
+	public LogicCriteria first() {
+		return applyTransform(Operator.FIRST);
+	}
+	
+	@Override
+	public LogicCriteria first(Integer numResults) {
+		expression.setTransform(new LogicTransform(Operator.FIRST, numResults));
+		return this;
+	}
+	
+	@Override
+	public LogicCriteria first(String sortComponent) {
+		return first(null, sortComponent);
+	}
+	
+	@Override
+	public LogicCriteria first(Integer numResults, String sortComponent) {
+		LogicTransform transform = new LogicTransform(Operator.FIRST, numResults);
+		transform.setSortColumn(sortComponent);
+		expression.setTransform(transform);
+		return this;
+	}
+	
+	@Override
+	public LogicCriteria distinct() {
+		return applyTransform(Operator.DISTINCT);
+	}
+	
+	@Override
+	public LogicCriteria exists() {
+		return applyTransform(Operator.EXISTS);
+	}
+	
+	@Override
+	public LogicCriteria notExists() {
+		return applyTransform(Operator.NOT_EXISTS);
+	}
+	
+	@Override
+	public LogicCriteria asOf(Date value) {
+		return appendExpression(Operator.ASOF, (Operand) null);
+	}
+	
+	@Override
+	public LogicCriteria before(Date value) {
+		return appendExpression(Operator.BEFORE, (Operand) null);
+	}
+	
+	@Override
+	public LogicCriteria after(Date value) {
+		return appendExpression(Operator.AFTER, (Operand) null);
+	}
+	
+	@Override
+	public LogicCriteria in(Collection<?> value) {
+		return appendExpression(Operator.IN, (Operand) null);
+	}
+	
+	@Override
+	public LogicCriteria contains(Operand value) {
+		return appendExpression(Operator.CONTAINS, value);
+	}
+	
+	@Override
+	public LogicCriteria contains(int value) {
+		return appendExpression(Operator.CONTAINS, value);
+	}
+	
+	@Override
+	public LogicCriteria contains(float value) {
+		return appendExpression(Operator.CONTAINS, value);
+	}
+	
+	@Override
+	public LogicCriteria contains(double value) {
+		return appendExpression(Operator.CONTAINS, value);
+	}
+	
+	@Override
+	public LogicCriteria contains(String value) {
+		return appendExpression(Operator.CONTAINS, value);
+	}
+	
+	@Override
+	public LogicCriteria equalTo(Operand value) {
+		return appendExpression(Operator.EQUALS, value);
+	}
+	
+	@Override
+	public LogicCriteria equalTo(int value) {
+		return appendExpression(Operator.EQUALS, value);
+	}
+	
+	@Override
+	public LogicCriteria equalTo(float value) {
+		return appendExpression(Operator.EQUALS, value);
+	}
+	
+	@Override
+	public LogicCriteria equalTo(double value) {
+		return appendExpression(Operator.EQUALS, value);
+	}
+	
+	@Override
+	public LogicCriteria equalTo(String value) {
+		return appendExpression(Operator.EQUALS, value);
+	}
+	
+	@Override
+	public LogicCriteria gte(Operand value) {
+		return appendExpression(Operator.GTE, value);
+	}
+	
+	@Override
+	public LogicCriteria gte(int value) {
+		return appendExpression(Operator.GTE, value);
+	}
+	
+	@Override
+	public LogicCriteria gte(float value) {
+		return appendExpression(Operator.GTE, value);
+	}
+	
+	@Override
+	public LogicCriteria gte(double value) {
+		return appendExpression(Operator.GTE, value);
+	}
+	
+	@Override
+	public LogicCriteria gt(Operand value) {
+		return appendExpression(Operator.GT, value);
+	}
+	
+	@Override
+	public LogicCriteria gt(int value) {
+		return appendExpression(Operator.GT, value);
+	}
+	
+	@Override
+	public LogicCriteria gt(float value) {
+		return appendExpression(Operator.GT, value);
+	}
+	
+	@Override
+	public LogicCriteria gt(double value) {
+		return appendExpression(Operator.GT, value);
+	}
+	
+	@Override
+	public LogicCriteria lt(Operand value) {
+		return appendExpression(Operator.LT, value);
+	}
+	
+	@Override
+	public LogicCriteria lt(int value) {
+		return appendExpression(Operator.LT, value);
+	}
+	
+	@Override
+	public LogicCriteria lt(float value) {
+		return appendExpression(Operator.LT, value);
+	}
+	
+	@Override
+	public LogicCriteria lt(double value) {
+		return appendExpression(Operator.LT, value);
+	}
+	
+	@Override
+	public LogicCriteria lte(Operand value) {
+		return appendExpression(Operator.LTE, value);
+	}
+	
+	@Override
+	public LogicCriteria lte(int value) {
+		return appendExpression(Operator.LTE, value);
+	}
+	
+	@Override
+	public LogicCriteria lte(float value) {
+		return appendExpression(Operator.LTE, value);
+	}
+	
+	@Override
+	public LogicCriteria lte(double value) {
+		return appendExpression(Operator.LTE, value);
+	}
+	
+	@Override
+	public LogicCriteria within(Duration duration) {
+		return appendExpression(Operator.WITHIN, duration);
+	}
+	
+	@Override
+	public Map<String, Object> getLogicParameters() {
+		return logicParameters;
+	}
+	
+	@Override
+	public void setLogicParameters(Map<String, Object> logicParameters) {
+		this.logicParameters = logicParameters;
+	}
+	
+	@Override
+	public String getRootToken() {
+		return expression.getRootToken();
+	}
+	
+	@Override
+	public LogicExpression getExpression() {
+		return expression;
+	}
+	
+	private static class SimpleLogicExpression implements LogicExpression {
+		
+		private final String rootToken;
+		
+		private Operator operator;
+		
+		private Operand rightOperand;
+		
+		private LogicTransform transform;
+		
+		SimpleLogicExpression(String rootToken) {
+			this.rootToken = rootToken;
+		}
+		
+		@Override
+		public boolean supports(ComparisonOperator operator) {
+			return true;
+		}
+		
+		@Override
+		public Operator getOperator() {
+			return operator;
+		}
+		
+		@Override
+		public String getRootToken() {
+			return rootToken;
+		}
+		
+		@Override
+		public Operand getRightOperand() {
+			return rightOperand;
+		}
+		
+		@Override
+		public LogicTransform getTransform() {
+			return transform;
+		}
+		
+		@Override
+		public void setTransform(LogicTransform transform) {
+			this.transform = transform;
+		}
+	}
+}
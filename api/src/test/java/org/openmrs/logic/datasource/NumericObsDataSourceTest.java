@@ -0,0 +1,121 @@
+/**
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.logic.datasource;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.openmrs.Cohort;
+import org.openmrs.logic.CohortLogicEvaluator;
+import org.openmrs.logic.LogicContext;
+import org.openmrs.logic.LogicCriteria;
+import org.openmrs.logic.LogicException;
+import org.openmrs.logic.LogicService;
+import org.openmrs.logic.SimpleLogicCriteria;
+import org.openmrs.logic.result.NumericResultSeries;
+import org.openmrs.logic.result.Result;
+import org.openmrs.test.BaseContextSensitiveTest;
+import org.springframework.beans.factory.annotation.Autowired;
+
+/**
+ * Tests {@link NumericObsDataSource}
+ */
+public class NumericObsDataSourceTest extends BaseContextSensitiveTest {
+	
+	private static final String WEIGHT = NumericObsDataSource.KEY_PREFIX + "WEIGHT (KG)";
+	
+	@Autowired
+	private NumericObsDataSource dataSource;
+	
+	private LogicService logicService;
+	
+	private LogicContext context;
+	
+	private Cohort cohort;
+	
+	@Before
+	public void setUp() {
+		logicService = mock(LogicService.class);
+		context = mock(LogicContext.class);
+		cohort = new Cohort(Arrays.asList(7, 2));
+		when(logicService.getLogicDataSources()).thenReturn(
+		    Collections.<String, LogicDataSource> singletonMap(NumericObsDataSource.NAME, dataSource));
+		when(logicService.parse(anyString())).thenAnswer(
+		    invocation -> SimpleLogicCriteria.parse((String) invocation.getArguments()[0]));
+	}
+	
+	/**
+	 * @see NumericObsDataSource#read(LogicContext,Cohort,LogicCriteria)
+	 */
+	@Test
+	public void read_shouldReadTheValuesOfEachPatientAsANumericResultSeries() {
+		Map<Integer, Result> weights = dataSource.read(context, cohort, logicService.parse("\"" + WEIGHT + "\""));
+		
+		assertTrue(weights.get(7) instanceof NumericResultSeries);
+		assertEquals(3, weights.get(7).size());
+		assertEquals(61.0, weights.get(7).latest().toNumber(), 0);
+		assertTrue(weights.get(2) instanceof NumericResultSeries);
+		assertTrue(weights.get(2).isEmpty());
+	}
+	
+	/**
+	 * @see NumericObsDataSource#read(LogicContext,Cohort,LogicCriteria)
+	 */
+	@Test(expected = LogicException.class)
+	public void read_shouldFailForCriteriaWithComparisons() {
+		dataSource.read(context, cohort, logicService.parse("\"" + WEIGHT + "\"").gt(50));
+	}
+	
+	/**
+	 * @see NumericObsDataSource#hasKey(String)
+	 */
+	@Test
+	public void hasKey_shouldOnlyHaveThePrefixedNamesOfNumericConceptsAsKeys() {
+		assertTrue(dataSource.hasKey(WEIGHT));
+		assertFalse(dataSource.hasKey("WEIGHT (KG)"));
+		assertFalse(dataSource.hasKey(NumericObsDataSource.KEY_PREFIX + "YES"));
+		assertFalse(dataSource.hasKey(NumericObsDataSource.KEY_PREFIX + "NO SUCH CONCEPT"));
+	}
+	
+	/**
+	 * Evaluates rules on numeric observations for a cohort end to end, from the database through
+	 * the numeric series to the transforms applied by {@link CohortLogicEvaluator}
+	 */
+	@Test
+	public void eval_shouldEvaluateTransformsOfNumericObservationsForACohort() {
+		LogicCriteria last = logicService.parse("LAST \"" + WEIGHT + "\"");
+		LogicCriteria average = logicService.parse("AVERAGE \"" + WEIGHT + "\"");
+		LogicCriteria count = logicService.parse("COUNT \"" + WEIGHT + "\"");
+		LogicCriteria exists = logicService.parse("EXISTS \"" + WEIGHT + "\"");
+		
+		Map<LogicCriteria, Map<Integer, Result>> results = new CohortLogicEvaluator(logicService).eval(context, cohort,
+		    Arrays.asList(last, average, count, exists));
+		
+		assertEquals(61.0, results.get(last).get(7).toNumber(), 0);
+		assertEquals(166.0 / 3, results.get(average).get(7).toNumber(), 0.0001);
+		assertEquals(3.0, results.get(count).get(7).toNumber(), 0);
+		assertTrue(results.get(exists).get(7).toBoolean());
+		
+		assertTrue(results.get(last).get(2).isNull());
+		assertTrue(results.get(average).get(2).isNull());
+		assertEquals(0.0, results.get(count).get(2).toNumber(), 0);
+		assertFalse(results.get(exists).get(2).toBoolean());
+	}
+}
@@ -0,0 +1,80 @@
+/**
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.logic.result;
+
+import java.util.Date;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests all methods on the {@link NumericResultSeries} object
+ * 
+ * @see NumericResultSeries
+ */
+public class NumericResultSeriesTest {
+	
+	private NumericResultSeries newSeries() {
+		return new NumericResultSeries(new double[] { 10, 30, 20 }, new long[] { 1000, 3000, 2000 });
+	}
+	
+	@Test(expected = IllegalArgumentException.class)
+	public void NumericResultSeries_shouldFailIfTheArraysHaveDifferentLengths() throws Exception {
+		new NumericResultSeries(new double[] { 1 }, new long[0]);
+	}
+	
+	@Test
+	public void average_shouldReturnTheAverageOfAllValues() throws Exception {
+		Assert.assertEquals(20.0, newSeries().average(), 0);
+	}
+	
+	@Test
+	public void average_shouldReturnNullForAnEmptySeries() throws Exception {
+		Assert.assertNull(new NumericResultSeries(new double[0], new long[0]).average());
+	}
+	
+	@Test
+	public void latest_shouldGetTheValueWithTheLatestResultDateWithoutMaterializingTheSeries() throws Exception {
+		NumericResultSeries series = newSeries();
+		Result latest = series.latest();
+		
+		Assert.assertEquals(30.0, latest.toNumber(), 0);
+		Assert.assertEquals(new Date(3000), latest.getResultDate());
+		Assert.assertFalse(series.isMaterialized());
+	}
+	
+	@Test
+	public void earliest_shouldGetTheValueWithTheEarliestResultDateWithoutMaterializingTheSeries() throws Exception {
+		NumericResultSeries series = newSeries();
+		
+		Assert.assertEquals(10.0, series.earliest().toNumber(), 0);
+		Assert.assertFalse(series.isMaterialized());
+	}
+	
+	@Test
+	public void iterator_shouldMaterializeTheSeriesIntoResults() throws Exception {
+		NumericResultSeries series = newSeries();
+		
+		double sum = 0;
+		for (Result result : series) {
+			sum += result.toNumber();
+		}
+		
+		Assert.assertEquals(60.0, sum, 0);
+		Assert.assertTrue(series.isMaterialized());
+		Assert.assertEquals(new Date(2000), series.get(2).getResultDate());
+		Assert.assertEquals(new Result(30.0), series.get(1));
+	}
+	
+	@Test(expected = ImmutableResultException.class)
+	public void add_shouldNotAllowAddingToTheSeries() throws Exception {
+		newSeries().add(new Result(1.0));
+	}
+}
@@ -23,7 +23,7 @@ public class ImageHandlerTest {
     public void shouldReturnSupportedViews() {
         ImageHandler handler = new ImageHandler();
         String[] actualViews = handler.getSupportedViews();
-        String[] expectedViews = { ComplexObsHandler.RAW_VIEW };
+        String[] expectedViews = { ComplexObsHandler.RAW_VIEW, ComplexObsHandler.PREVIEW_VIEW };
 
         assertArrayEquals(actualViews, expectedViews);
     }
@@ -35,12 +35,18 @@ public class ImageHandlerTest {
         assertTrue(handler.supportsView(ComplexObsHandler.RAW_VIEW));
     }
 
+    @Test
+    public void shouldSupportPreviewView() {
+        ImageHandler handler = new ImageHandler();
+
+        assertTrue(handler.supportsView(ComplexObsHandler.PREVIEW_VIEW));
+    }
+
     @Test
     public void shouldNotSupportOtherViews() {
         ImageHandler handler = new ImageHandler();
 
         assertFalse(handler.supportsView(ComplexObsHandler.HTML_VIEW));
-        assertFalse(handler.supportsView(ComplexObsHandler.PREVIEW_VIEW));
         assertFalse(handler.supportsView(ComplexObsHandler.TEXT_VIEW));
         assertFalse(handler.supportsView(ComplexObsHandler.TITLE_VIEW));
         assertFalse(handler.supportsView(ComplexObsHandler.URI_VIEW));
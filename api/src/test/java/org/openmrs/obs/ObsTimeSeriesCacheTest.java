@@ -0,0 +1,83 @@
+/**
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.obs;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.Map;
+
+import org.junit.Test;
+
+/**
+ * Tests methods in {@link ObsTimeSeriesCache}
+ */
+public class ObsTimeSeriesCacheTest {
+	
+	@Test
+	public void put_shouldNotCacheHistoriesReadBeforeAnEviction() {
+		ObsTimeSeriesCache cache = new ObsTimeSeriesCache();
+		cache.setMaxSize(2);
+		
+		long generation = cache.getGeneration();
+		cache.evict(7);
+		cache.put(7, Collections.<Integer, ObsTimeSeries> emptyMap(), generation);
+		assertNull(cache.get(7));
+		
+		cache.put(7, Collections.<Integer, ObsTimeSeries> emptyMap(), cache.getGeneration());
+		assertNotNull(cache.get(7));
+	}
+	
+	@Test
+	public void put_shouldCacheHistoriesReadBeforeTheEvictionOfAnotherPerson() {
+		ObsTimeSeriesCache cache = new ObsTimeSeriesCache();
+		cache.setMaxSize(2);
+		
+		long generation = cache.getGeneration();
+		cache.evict(8);
+		cache.put(7, Collections.<Integer, ObsTimeSeries> emptyMap(), generation);
+		assertNotNull(cache.get(7));
+	}
+	
+	@Test
+	public void put_shouldDropTheLeastRecentlyUsedPersonOnceTheMaximumSizeIsReached() {
+		ObsTimeSeriesCache cache = new ObsTimeSeriesCache();
+		cache.setMaxSize(2);
+		Map<Integer, ObsTimeSeries> empty = Collections.emptyMap();
+		
+		cache.put(1, empty, cache.getGeneration());
+		cache.put(2, empty, cache.getGeneration());
+		cache.get(1);
+		cache.put(3, empty, cache.getGeneration());
+		
+		assertNotNull(cache.get(1));
+		assertNull(cache.get(2));
+		assertNotNull(cache.get(3));
+	}
+	
+	@Test
+	public void toSeriesByConcept_shouldGroupTheRowsByQuestionConcept() {
+		Map<Integer, ObsTimeSeries> seriesByConcept = ObsTimeSeriesCache.toSeriesByConcept(Arrays.asList(new Object[] {
+		        1, 5089, new Date(1000), 50.0, null }, new Object[] { 2, 18, new Date(1000), null, 7 }, new Object[] { 3,
+		        5089, new Date(2000), 55.0, null }));
+		
+		assertEquals(2, seriesByConcept.size());
+		ObsTimeSeries weights = seriesByConcept.get(5089);
+		assertEquals(2, weights.size());
+		assertEquals(3, weights.getObsId(1));
+		assertEquals(55.0, weights.getValueNumeric(1), 0);
+		assertEquals(Integer.valueOf(7), seriesByConcept.get(18).getValueCodedId(0));
+		assertEquals(Double.NaN, seriesByConcept.get(18).getValueNumeric(0), 0);
+	}
+}
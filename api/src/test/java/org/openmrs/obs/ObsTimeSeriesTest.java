@@ -0,0 +1,103 @@
+/**
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.obs;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Date;
+
+import org.junit.Test;
+import org.openmrs.logic.result.NumericResultSeries;
+
+/**
+ * Tests methods in {@link ObsTimeSeries}
+ */
+public class ObsTimeSeriesTest {
+	
+	private ObsTimeSeries newSeries() {
+		return new ObsTimeSeries(new int[] { 11, 12, 13, 14 }, new long[] { 1000, 2000, 3000, 4000 }, new double[] { 10,
+		        Double.NaN, 30, 40 }, new int[] { 0, 7, 0, 0 });
+	}
+	
+	@Test(expected = IllegalArgumentException.class)
+	public void ObsTimeSeries_shouldFailIfTheArraysHaveDifferentLengths() {
+		new ObsTimeSeries(new int[] { 1 }, new long[] { 1000 }, new double[0], new int[] { 0 });
+	}
+	
+	@Test
+	public void build_shouldBuildASeriesOfTheAddedObservations() {
+		ObsTimeSeries.Builder builder = new ObsTimeSeries.Builder();
+		for (int i = 0; i < 20; i++) {
+			builder.add(100 + i, 1000L * i, i, 0);
+		}
+		ObsTimeSeries series = builder.build();
+		
+		assertEquals(20, series.size());
+		assertEquals(119, series.getObsId(19));
+		assertEquals(19000, series.getObsDatetime(19));
+		assertEquals(19.0, series.getValueNumeric(19), 0);
+		assertSame(ObsTimeSeries.EMPTY, new ObsTimeSeries.Builder().build());
+	}
+	
+	@Test
+	public void between_shouldIncludeObservationsOnBothBounds() {
+		ObsTimeSeries range = newSeries().between(new Date(2000), new Date(3000));
+		
+		assertEquals(2, range.size());
+		assertEquals(12, range.getObsId(0));
+		assertEquals(Integer.valueOf(7), range.getValueCodedId(0));
+		assertEquals(13, range.getObsId(1));
+		assertNull(range.getValueCodedId(1));
+		assertTrue(newSeries().between(new Date(4001), null).isEmpty());
+	}
+	
+	@Test
+	public void between_shouldNotBoundTheRangeOnNullDates() {
+		assertEquals(11, newSeries().between(null, new Date(2500)).getObsId(0));
+		assertEquals(2, newSeries().between(null, new Date(2500)).size());
+		assertEquals(3, newSeries().between(new Date(1500), null).size());
+		assertEquals(4, newSeries().between(null, null).size());
+	}
+	
+	@Test
+	public void last_shouldReturnTheLastNObservations() {
+		ObsTimeSeries last = newSeries().between(null, new Date(3000)).last(2);
+		
+		assertEquals(2, last.size());
+		assertEquals(12, last.getObsId(0));
+		assertEquals(3000, last.getObsDatetime(1));
+		assertEquals(30, last.getValueNumeric(1), 0);
+	}
+	
+	@Test
+	public void last_shouldReturnTheWholeSeriesIfItHasFewerThanNObservations() {
+		ObsTimeSeries series = newSeries();
+		
+		assertSame(series, series.last(10));
+		assertTrue(series.last(0).isEmpty());
+	}
+	
+	@Test(expected = IndexOutOfBoundsException.class)
+	public void getObsId_shouldNotReadOutsideOfARange() {
+		newSeries().last(2).getObsId(2);
+	}
+	
+	@Test
+	public void toNumericResultSeries_shouldSkipObservationsWithoutANumericValue() {
+		NumericResultSeries numeric = newSeries().last(3).toNumericResultSeries();
+		
+		assertEquals(2, numeric.size());
+		assertEquals(30, numeric.getValue(0), 0);
+		assertEquals(4000, numeric.getTimestamp(1));
+	}
+}
@@ -0,0 +1,130 @@
+/**
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.obs.handler;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class ComplexDataContentStoreTest {
+	
+	@Rule
+	public TemporaryFolder complexObsDir = new TemporaryFolder();
+	
+	/**
+	 * @see ComplexDataContentStore#write(java.io.InputStream, File)
+	 */
+	@Test
+	public void write_shouldStoreTheSameContentOnce() throws IOException {
+		ComplexDataContentStore store = new ComplexDataContentStore(complexObsDir.getRoot());
+		File first = new File(complexObsDir.getRoot(), "first.txt");
+		File second = new File(complexObsDir.getRoot(), "second.txt");
+		
+		Path firstContent = store.write(stream("same document"), first);
+		Path secondContent = store.write(stream("same document"), second);
+		
+		assertEquals(firstContent, secondContent);
+		assertArrayEquals(bytes("same document"), Files.readAllBytes(first.toPath()));
+		assertArrayEquals(bytes("same document"), Files.readAllBytes(second.toPath()));
+	}
+	
+	/**
+	 * @see ComplexDataContentStore#write(java.io.InputStream, File)
+	 */
+	@Test
+	public void write_shouldKeepTheContentOfOtherObsFilesWhenOneIsDeleted() throws IOException {
+		ComplexDataContentStore store = new ComplexDataContentStore(complexObsDir.getRoot());
+		File first = new File(complexObsDir.getRoot(), "first.txt");
+		File second = new File(complexObsDir.getRoot(), "second.txt");
+		store.write(stream("same document"), first);
+		store.write(stream("same document"), second);
+		
+		assertTrue(first.delete());
+		
+		assertArrayEquals(bytes("same document"), Files.readAllBytes(second.toPath()));
+	}
+	
+	/**
+	 * @see ComplexDataContentStore#write(java.io.InputStream, File)
+	 */
+	@Test
+	public void write_shouldReplaceAnExistingObsFileWithoutChangingSharedContent() throws IOException {
+		ComplexDataContentStore store = new ComplexDataContentStore(complexObsDir.getRoot());
+		File first = new File(complexObsDir.getRoot(), "first.txt");
+		File second = new File(complexObsDir.getRoot(), "second.txt");
+		Path sharedContent = store.write(stream("same document"), first);
+		store.write(stream("same document"), second);
+		
+		Path newContent = store.write(stream("other document"), first);
+		
+		assertNotEquals(sharedContent, newContent);
+		assertArrayEquals(bytes("other document"), Files.readAllBytes(first.toPath()));
+		assertArrayEquals(bytes("same document"), Files.readAllBytes(second.toPath()));
+		assertArrayEquals(bytes("same document"), Files.readAllBytes(sharedContent));
+	}
+	
+	/**
+	 * @see ComplexDataContentStore#write(java.io.InputStream, File)
+	 */
+	@Test
+	public void write_shouldDeleteContentNoObsFileIsLinkedToAfterItIsReplaced() throws IOException {
+		ComplexDataContentStore store = new ComplexDataContentStore(complexObsDir.getRoot());
+		File first = new File(complexObsDir.getRoot(), "first.txt");
+		Path oldContent = store.write(stream("old document"), first);
+		
+		Path newContent = store.write(stream("new document"), first);
+		
+		assertFalse(Files.exists(oldContent));
+		assertTrue(Files.exists(newContent));
+		assertEquals(newContent, store.write(stream("new document"), first));
+		assertTrue(Files.exists(newContent));
+	}
+	
+	/**
+	 * @see ComplexDataContentStore#delete(File)
+	 */
+	@Test
+	public void delete_shouldDeleteTheContentOnceTheLastObsFileLinkedToItIsDeleted() throws IOException {
+		ComplexDataContentStore store = new ComplexDataContentStore(complexObsDir.getRoot());
+		File first = new File(complexObsDir.getRoot(), "first.txt");
+		File second = new File(complexObsDir.getRoot(), "second.txt");
+		Path content = store.write(stream("same document"), first);
+		store.write(stream("same document"), second);
+		
+		assertTrue(store.delete(first));
+		assertFalse(first.exists());
+		assertTrue(Files.exists(content));
+		
+		assertTrue(store.delete(second));
+		assertFalse(second.exists());
+		assertFalse(Files.exists(content));
+	}
+	
+	private static ByteArrayInputStream stream(String content) {
+		return new ByteArrayInputStream(bytes(content));
+	}
+	
+	private static byte[] bytes(String content) {
+		return content.getBytes(StandardCharsets.UTF_8);
+	}
+}
@@ -0,0 +1,160 @@
+/**
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.obs.handler;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+
+import javax.imageio.ImageIO;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class ImagePreviewCacheTest {
+	
+	@Rule
+	public TemporaryFolder complexObsDir = new TemporaryFolder();
+	
+	/**
+	 * @see ImagePreviewCache#getPreview(String, File, int)
+	 */
+	@Test
+	public void getPreview_shouldCreateAPreviewNoLargerThanTheGivenSize() throws IOException {
+		File image = writeImage("photo.png", 800, 400);
+		
+		File preview = new ImagePreviewCache(complexObsDir.getRoot(), 10).getPreview("uuid-1", image, 100);
+		
+		BufferedImage previewImage = ImageIO.read(preview);
+		assertEquals(100, previewImage.getWidth());
+		assertEquals(50, previewImage.getHeight());
+	}
+	
+	/**
+	 * @see ImagePreviewCache#getPreview(String, File, int)
+	 */
+	@Test
+	public void getPreview_shouldNotScaleUpSmallerImages() throws IOException {
+		File image = writeImage("photo.png", 40, 30);
+		
+		File preview = new ImagePreviewCache(complexObsDir.getRoot(), 10).getPreview("uuid-1", image, 100);
+		
+		BufferedImage previewImage = ImageIO.read(preview);
+		assertEquals(40, previewImage.getWidth());
+		assertEquals(30, previewImage.getHeight());
+	}
+	
+	/**
+	 * @see ImagePreviewCache#getPreview(String, File, int)
+	 */
+	@Test
+	public void getPreview_shouldReuseThePreviewUntilTheImageChanges() throws IOException {
+		File image = writeImage("photo.png", 800, 400);
+		ImagePreviewCache cache = new ImagePreviewCache(complexObsDir.getRoot(), 10);
+		File preview = cache.getPreview("uuid-1", image, 100);
+		long created = System.currentTimeMillis() - 60000;
+		assertTrue(preview.setLastModified(created));
+		assertTrue(image.setLastModified(created - 60000));
+		
+		cache.getPreview("uuid-1", image, 100);
+		assertEquals(100, ImageIO.read(preview).getWidth());
+		
+		ImageIO.write(new BufferedImage(400, 800, BufferedImage.TYPE_INT_RGB), "png", image);
+		assertTrue(image.setLastModified(created + 1000));
+		cache.getPreview("uuid-1", image, 100);
+		assertEquals(50, ImageIO.read(preview).getWidth());
+	}
+	
+	/**
+	 * @see ImagePreviewCache#getPreview(String, File, int)
+	 */
+	@Test
+	public void getPreview_shouldDeleteTheLeastRecentlyUsedPreviewsOverTheMaximum() throws IOException {
+		File image = writeImage("photo.png", 80, 40);
+		ImagePreviewCache cache = new ImagePreviewCache(complexObsDir.getRoot(), 2);
+		File oldest = cache.getPreview("uuid-1", image, 20);
+		assertTrue(oldest.setLastModified(System.currentTimeMillis() - 120000));
+		File older = cache.getPreview("uuid-2", image, 20);
+		assertTrue(older.setLastModified(System.currentTimeMillis() - 60000));
+		
+		File newest = cache.getPreview("uuid-3", image, 20);
+		
+		assertFalse(oldest.exists());
+		assertTrue(older.exists());
+		assertTrue(newest.exists());
+	}
+	
+	/**
+	 * @see ImagePreviewCache#getPreview(String, File, int)
+	 */
+	@Test
+	public void getPreview_shouldKeepThePreviewsUsedSinceTheyWereCreated() throws IOException {
+		File image = writeImage("photo.png", 80, 40);
+		assertTrue(image.setLastModified(System.currentTimeMillis() - 60000));
+		ImagePreviewCache cache = new ImagePreviewCache(complexObsDir.getRoot(), 2);
+		File first = cache.getPreview("uuid-1", image, 20);
+		File second = cache.getPreview("uuid-2", image, 20);
+		cache.getPreview("uuid-1", image, 20);
+		
+		File third = cache.getPreview("uuid-3", image, 20);
+		
+		assertTrue(first.exists());
+		assertFalse(second.exists());
+		assertTrue(third.exists());
+	}
+	
+	/**
+	 * @see ImagePreviewCache#getPreview(String, File, int)
+	 */
+	@Test
+	public void getPreview_shouldOrderThePreviewsAlreadyInTheDirectoryByTheirModificationTime() throws IOException {
+		File image = writeImage("photo.png", 80, 40);
+		ImagePreviewCache cache = new ImagePreviewCache(complexObsDir.getRoot(), 10);
+		File newer = cache.getPreview("uuid-1", image, 20);
+		assertTrue(newer.setLastModified(System.currentTimeMillis() - 60000));
+		File older = cache.getPreview("uuid-2", image, 20);
+		assertTrue(older.setLastModified(System.currentTimeMillis() - 120000));
+		
+		File newest = new ImagePreviewCache(complexObsDir.getRoot(), 2).getPreview("uuid-3", image, 20);
+		
+		assertTrue(newer.exists());
+		assertFalse(older.exists());
+		assertTrue(newest.exists());
+	}
+	
+	/**
+	 * @see ImagePreviewCache#evict(String)
+	 */
+	@Test
+	public void evict_shouldDeleteThePreviewsOfEverySize() throws IOException {
+		File image = writeImage("photo.png", 80, 40);
+		ImagePreviewCache cache = new ImagePreviewCache(complexObsDir.getRoot(), 10);
+		File small = cache.getPreview("uuid-1", image, 20);
+		File large = cache.getPreview("uuid-1", image, 40);
+		File other = cache.getPreview("uuid-2", image, 20);
+		
+		cache.evict("uuid-1");
+		
+		assertFalse(small.exists());
+		assertFalse(large.exists());
+		assertTrue(other.exists());
+	}
+	
+	private File writeImage(String name, int width, int height) throws IOException {
+		File image = new File(complexObsDir.getRoot(), name);
+		ImageIO.write(new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB), "png", image);
+		return image;
+	}
+}
@@ -0,0 +1,162 @@
+/**
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.order;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+
+import org.junit.Test;
+import org.openmrs.order.ActiveOrderCache.ActiveOrders;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Tests methods in {@link ActiveOrderCache}
+ */
+public class ActiveOrderCacheTest {
+	
+	private static final ActiveOrders ORDERS = new ActiveOrders(Arrays.asList(
+	    new Object[] { 1, 1, 1, new Date(1000), null, null },
+	    new Object[] { 2, 1, 2, new Date(1000), null, new Date(5000) },
+	    new Object[] { 3, 2, 1, new Date(4000), null, null },
+	    new Object[] { 4, 1, 1, new Date(1000), new Date(3000), new Date(9000) }), new Date(2000));
+	
+	@Test
+	public void put_shouldNotCacheOrdersReadBeforeAnEviction() {
+		ActiveOrderCache cache = new ActiveOrderCache();
+		cache.setMaxSize(2);
+		
+		long generation = cache.getGeneration();
+		cache.evict(7);
+		cache.put(7, ORDERS, generation);
+		assertNull(cache.get(7));
+		
+		cache.put(7, ORDERS, cache.getGeneration());
+		assertNotNull(cache.get(7));
+	}
+	
+	@Test
+	public void put_shouldCacheOrdersReadBeforeTheEvictionOfAnotherPatient() {
+		ActiveOrderCache cache = new ActiveOrderCache();
+		cache.setMaxSize(2);
+		
+		long generation = cache.getGeneration();
+		cache.evict(8);
+		cache.put(7, ORDERS, generation);
+		assertNotNull(cache.get(7));
+	}
+	
+	@Test
+	public void evict_shouldDropTheOrdersAgainAfterTheTransactionCompletes() {
+		ActiveOrderCache cache = new ActiveOrderCache();
+		cache.setMaxSize(2);
+		
+		TransactionSynchronizationManager.initSynchronization();
+		try {
+			cache.evict(7);
+			cache.put(7, ORDERS, cache.getGeneration());
+			assertNotNull(cache.get(7));
+			
+			for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+				synchronization.afterCompletion(TransactionSynchronization.STATUS_COMMITTED);
+			}
+			assertNull(cache.get(7));
+		}
+		finally {
+			TransactionSynchronizationManager.clearSynchronization();
+		}
+	}
+	
+	private void completeTransaction() {
+		for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+			synchronization.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK);
+		}
+		TransactionSynchronizationManager.clearSynchronization();
+	}
+	
+	@Test
+	public void getReadGeneration_shouldNotCacheOrdersReadByATransactionThatStartedBeforeAnEviction() {
+		ActiveOrderCache cache = new ActiveOrderCache();
+		cache.setMaxSize(2);
+		
+		TransactionSynchronizationManager.initSynchronization();
+		try {
+			long generation = cache.getReadGeneration();
+			cache.evict(7);
+			assertEquals(generation, cache.getReadGeneration());
+			cache.put(7, ORDERS, cache.getReadGeneration());
+			assertNull(cache.get(7));
+			cache.put(8, ORDERS, cache.getReadGeneration());
+			assertNotNull(cache.get(8));
+		}
+		finally {
+			completeTransaction();
+		}
+	}
+	
+	@Test
+	public void isChangedInTransaction_shouldBeTrueInATransactionThatEvictedOrders() {
+		ActiveOrderCache cache = new ActiveOrderCache();
+		
+		TransactionSynchronizationManager.initSynchronization();
+		try {
+			assertFalse(cache.isChangedInTransaction());
+			cache.evict(7);
+			assertTrue(cache.isChangedInTransaction());
+		}
+		finally {
+			completeTransaction();
+		}
+		assertFalse(cache.isChangedInTransaction());
+	}
+	
+	@Test
+	public void get_shouldNotReturnOrdersOlderThanTheMaximumAge() throws InterruptedException {
+		ActiveOrderCache cache = new ActiveOrderCache();
+		cache.setMaxSize(2);
+		cache.setMaxAge(10);
+		
+		cache.put(7, new ActiveOrders(Collections.<Object[]> emptyList(), new Date()), cache.getGeneration());
+		assertNotNull(cache.get(7));
+		Thread.sleep(20);
+		assertNull(cache.get(7));
+	}
+	
+	@Test
+	public void getActiveOrderIds_shouldReturnTheOrdersActiveAtTheGivenTime() {
+		assertEquals(Arrays.asList(1, 2, 4), ORDERS.getActiveOrderIds(null, null, new Date(2000)));
+		assertEquals(Arrays.asList(1, 2, 4), ORDERS.getActiveOrderIds(null, null, new Date(3000)));
+	}
+	
+	@Test
+	public void getActiveOrderIds_shouldLeaveOutOrdersScheduledToStartLaterOrExpiredEarlier() {
+		assertEquals(Arrays.asList(1, 2, 3), ORDERS.getActiveOrderIds(null, null, new Date(4000)));
+		assertEquals(Arrays.asList(1, 3), ORDERS.getActiveOrderIds(null, null, new Date(6000)));
+	}
+	
+	@Test
+	public void getActiveOrderIds_shouldFilterOnCareSettingAndOrderTypes() {
+		assertEquals(Arrays.asList(1, 2), ORDERS.getActiveOrderIds(1, null, new Date(4000)));
+		assertEquals(Arrays.asList(1, 3), ORDERS.getActiveOrderIds(null, Collections.singleton(1), new Date(4000)));
+		assertEquals(Arrays.asList(3), ORDERS.getActiveOrderIds(2, Arrays.asList(1, 2), new Date(4000)));
+	}
+	
+	@Test
+	public void getActiveOrderIds_shouldReturnNullForATimeBeforeTheOrdersWereRead() {
+		assertNull(ORDERS.getActiveOrderIds(null, null, new Date(1999)));
+	}
+}
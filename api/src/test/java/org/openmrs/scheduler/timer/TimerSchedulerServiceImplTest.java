@@ -9,7 +9,9 @@
  */
 package org.openmrs.scheduler.timer;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 
 import java.util.Calendar;
 
@@ -18,6 +20,7 @@ import org.openmrs.api.context.Context;
 import org.openmrs.scheduler.SchedulerException;
 import org.openmrs.scheduler.Task;
 import org.openmrs.scheduler.TaskDefinition;
+import org.openmrs.scheduler.TaskStatistics;
 import org.openmrs.test.BaseContextSensitiveTest;
 
 /**
@@ -66,4 +69,42 @@ public class TimerSchedulerServiceImplTest extends BaseContextSensitiveTest {
 		    clientTask);
 	}
 	
+	/**
+	 * @see TimerSchedulerServiceImpl#getTaskStatistics(Integer)
+	 */
+	@Test
+	public void getTaskStatistics_shouldReturnNullForATaskThatIsNotScheduled() {
+		assertNull(Context.getSchedulerService().getTaskStatistics(9999));
+		assertNull(Context.getSchedulerService().getTaskStatistics(null));
+	}
+	
+	/**
+	 * @see TimerSchedulerServiceImpl#getTaskStatistics(Integer)
+	 */
+	@Test
+	public void getTaskStatistics_shouldReturnTheStatisticsOfAScheduledTask() throws SchedulerException {
+		// start tomorrow so the task does not run during the test
+		Calendar startTime = Calendar.getInstance();
+		startTime.add(Calendar.DAY_OF_MONTH, 1);
+		
+		TaskDefinition taskDefinition = new TaskDefinition();
+		taskDefinition.setName("TestTask");
+		taskDefinition.setTaskClass("org.openmrs.scheduler.tasks.TestTask");
+		taskDefinition.setStartTime(startTime.getTime());
+		taskDefinition.setRepeatInterval(3600L);
+		taskDefinition.setStartOnStartup(false);
+		
+		Context.getSchedulerService().scheduleTask(taskDefinition);
+		Context.flushSession();
+		try {
+			TaskStatistics statistics = Context.getSchedulerService().getTaskStatistics(taskDefinition.getId());
+			assertNotNull(statistics);
+			assertEquals(0, statistics.getExecutionCount());
+			assertNull(statistics.getLastExecutionStart());
+		}
+		finally {
+			Context.getSchedulerService().shutdownTask(taskDefinition);
+		}
+	}
+	
 }
@@ -0,0 +1,58 @@
+/**
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.scheduler.timer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+import java.util.concurrent.Semaphore;
+
+import org.junit.Test;
+import org.openmrs.scheduler.Task;
+import org.openmrs.scheduler.TaskStatistics;
+
+/**
+ * Tests methods in {@link TimerSchedulerTask}
+ */
+public class TimerSchedulerTaskTest {
+	
+	/**
+	 * @see TimerSchedulerTask#run()
+	 */
+	@Test
+	public void run_shouldSkipTheExecutionIfAnEarlierSchedulingIsStillRunning() {
+		TimerSchedulerTask schedulerTask = new TimerSchedulerTask(mock(Task.class));
+		// a permit that is already taken, as it would be by the running execution of a rescheduled task
+		schedulerTask.setExecutionPermit(new Semaphore(0));
+		
+		schedulerTask.run();
+		schedulerTask.run();
+		
+		TaskStatistics statistics = schedulerTask.getStatistics();
+		assertEquals(2, statistics.getSkippedCount());
+		assertEquals(0, statistics.getExecutionCount());
+	}
+	
+	/**
+	 * @see TimerSchedulerTask#shutdown()
+	 */
+	@Test
+	public void shutdown_shouldShutdownTheTask() {
+		Task task = mock(Task.class);
+		TimerSchedulerTask schedulerTask = new TimerSchedulerTask(task);
+		
+		schedulerTask.shutdown();
+		
+		verify(task).shutdown();
+		assertFalse(schedulerTask.isExecuting());
+	}
+}
@@ -0,0 +1,57 @@
+/**
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import org.junit.Test;
+
+public class SoundexTest {
+	
+	/**
+	 * @see Soundex#encode(String)
+	 */
+	@Test
+	public void encode_shouldEncodeNamesThatSoundAlikeToTheSameCode() {
+		assertEquals("R163", Soundex.encode("Robert"));
+		assertEquals("R163", Soundex.encode("Rupert"));
+		assertEquals("T522", Soundex.encode("Tymczak"));
+		assertEquals("P236", Soundex.encode("Pfister"));
+		assertEquals("L000", Soundex.encode("Lee"));
+	}
+	
+	/**
+	 * @see Soundex#encode(String)
+	 */
+	@Test
+	public void encode_shouldIgnoreCaseAccentsAndPunctuation() {
+		assertEquals(Soundex.encode("OBRIEN"), Soundex.encode("o'brien"));
+		assertEquals(Soundex.encode("Jose"), Soundex.encode("José"));
+	}
+	
+	/**
+	 * @see Soundex#encode(String)
+	 */
+	@Test
+	public void encode_shouldNotSeparateLettersWithTheSameDigitByHOrW() {
+		assertEquals("A261", Soundex.encode("Ashcraft"));
+	}
+	
+	/**
+	 * @see Soundex#encode(String)
+	 */
+	@Test
+	public void encode_shouldReturnNullForNamesWithoutLetters() {
+		assertNull(Soundex.encode(null));
+		assertNull(Soundex.encode(""));
+		assertNull(Soundex.encode("123 -"));
+	}
+}